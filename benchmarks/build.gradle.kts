@@ -0,0 +1,35 @@
+plugins {
+    java
+    id("me.champeau.jmh") version "0.7.2"
+}
+
+java {
+    toolchain {
+        languageVersion.set(JavaLanguageVersion.of(17))
+    }
+}
+
+repositories {
+    mavenCentral()
+    maven {
+        url = uri("https://nexus.inductiveautomation.com/repository/inductiveautomation-releases")
+    }
+}
+
+dependencies {
+    jmh(project(":common"))
+    jmh(testFixtures(project(":common")))
+    // common only compiles against these; the benchmarks need them at runtime
+    jmh("com.inductiveautomation.ignitionsdk:ignition-common:8.1.44")
+    jmh("org.python:jython-standalone:2.7.3")
+}
+
+// ./gradlew :benchmarks:jmh  (results in benchmarks/build/results/jmh/results.json)
+jmh {
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    benchmarkMode.set(listOf("avgt"))
+    timeUnit.set("us")
+    resultFormat.set("JSON")
+}
@@ -0,0 +1,201 @@
+package com.shiva.benchmarks;
+
+import com.shiva.common.ArgSummary;
+import com.shiva.common.DefaultScriptProfiler;
+import com.shiva.common.JythonScriptRunner;
+import com.shiva.common.LatencyHistogram;
+import com.shiva.common.MetricsRegistry;
+import com.shiva.common.PathTable;
+import com.shiva.common.RunHistory;
+import com.shiva.common.ScriptExecutionResult;
+import com.shiva.common.ScriptInstrumenter;
+import com.shiva.common.SystemCallBreakdown;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.python.core.Py;
+import org.python.core.PyObject;
+import org.python.core.PyStringMap;
+
+import java.util.List;
+
+/**
+ * Measures what the profiler itself adds to a call, by comparing a direct Jython call with
+ * the same call through each profiler path, and by timing the individual steps of a run.
+ * <p>
+ * Subtract {@link #directTrivial} from {@link #profileTrivial} for the per-call overhead of
+ * {@code profileScript}; the realistic function shows it relative to real work.
+ */
+@State(Scope.Benchmark)
+public class ProfilerOverheadBenchmark {
+
+    static final String MODULE = String.join("\n",
+            "def noop():",
+            "    return None",
+            "",
+            "def add(a, b):",
+            "    return a + b",
+            "",
+            "def process(n):",
+            "    rows = [{'id': i, 'name': 'item%d' % i, 'value': i * 1.5} for i in range(n)]",
+            "    rows.sort(key=lambda r: -r['value'])",
+            "    total = sum(r['value'] for r in rows)",
+            "    return '%d rows, total %.1f' % (len(rows), total)",
+            "");
+
+    /** A stand-in for Ignition's {@code system} module with one cheap "query" function. */
+    static final String SYSTEM_STANDIN = String.join("\n",
+            "class _Namespace(object):",
+            "    pass",
+            "",
+            "def _runPrepQuery(query, args):",
+            "    return [query] * len(args)",
+            "",
+            "system = _Namespace()",
+            "system.db = _Namespace()",
+            "system.db.runPrepQuery = _runPrepQuery",
+            "");
+
+    static final String QUERIES = String.join("\n",
+            "from standin import system",
+            "",
+            "def query(n):",
+            "    return [system.db.runPrepQuery('SELECT 1', [i]) for i in range(n)]",
+            "");
+
+    private JythonScriptRunner runner;
+    private DefaultScriptProfiler profiler;
+    private ScriptInstrumenter instrumenter;
+    private PyObject noop;
+    private PyObject process;
+    private PyObject instrumentedNoop;
+    private RunHistory history;
+    private ScriptExecutionResult sampleRun;
+    private LatencyHistogram histogram;
+    private final List<Object> realisticArgs = List.of(50);
+    private final List<Object> pairArgs = List.of(1, 2);
+    private final List<Object> queryArgs = List.of(20);
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        runner = new JythonScriptRunner();
+        runner.defineModule("bench", MODULE);
+        runner.defineModule("wrapped", MODULE);
+        runner.defineModule("standin", SYSTEM_STANDIN);
+        runner.defineModule("queries", QUERIES);
+        profiler = new DefaultScriptProfiler(runner, 1024);
+
+        PyStringMap locals = runner.createLocalsMap();
+        runner.runCode("import bench", locals, "<setup>");
+        PyObject bench = locals.__finditem__("bench");
+        noop = bench.__getattr__("noop");
+        process = bench.__getattr__("process");
+
+        instrumenter = new ScriptInstrumenter(runner, new MetricsRegistry(), List.of("wrapped"));
+        instrumenter.start();
+        runner.runCode("import wrapped", locals, "<setup>");
+        PyObject wrapped = locals.__finditem__("wrapped");
+        for (int i = 0; i < 100 && instrumenter.installedCount() == 0; i++) {
+            Thread.sleep(50);
+        }
+        instrumentedNoop = wrapped.__getattr__("noop");
+
+        history = new RunHistory(1024, new PathTable());
+        sampleRun = profiler.profileScriptWithArgs("bench.process", realisticArgs);
+        histogram = new LatencyHistogram();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        instrumenter.shutdown();
+        profiler.shutdown();
+    }
+
+    // --- baselines ---
+
+    @Benchmark
+    public PyObject directTrivial() throws Exception {
+        return runner.runFunction(noop);
+    }
+
+    @Benchmark
+    public PyObject directRealistic() throws Exception {
+        return runner.runFunction(process, Py.newInteger(50));
+    }
+
+    // --- full profiler paths ---
+
+    @Benchmark
+    public ScriptExecutionResult profileTrivial() {
+        return profiler.profileScript("bench.noop");
+    }
+
+    @Benchmark
+    public ScriptExecutionResult profileWithArgs() {
+        return profiler.profileScriptWithArgs("bench.add", pairArgs);
+    }
+
+    @Benchmark
+    public ScriptExecutionResult profileRealistic() {
+        return profiler.profileScriptWithArgs("bench.process", realisticArgs);
+    }
+
+    /** Path resolution with an empty cache: the PyStringMap, the import and the attribute walk. */
+    @Benchmark
+    public ScriptExecutionResult profileUncached() {
+        profiler.invalidateCache();
+        return profiler.profileScript("bench.noop");
+    }
+
+    /** Twenty stand-in {@code system.db} calls, untimed; the baseline for the next benchmark. */
+    @Benchmark
+    public ScriptExecutionResult profileSystemCallsPlain() {
+        return profiler.profileScriptWithArgs("queries.query", queryArgs);
+    }
+
+    /** The same calls with {@code system.*} timing proxies installed for the run. */
+    @Benchmark
+    public SystemCallBreakdown profileSystemCallsTimed() {
+        return profiler.profileScriptSystemCalls("queries.query", queryArgs);
+    }
+
+    /** Passive instrumentation: a call through the timing wrapper. */
+    @Benchmark
+    public PyObject instrumentedTrivial() {
+        return instrumentedNoop.__call__();
+    }
+
+    // --- individual steps ---
+
+    @Benchmark
+    public PyObject argumentConversion() {
+        PyObject last = null;
+        for (Object arg : pairArgs) {
+            last = Py.java2py(arg);
+        }
+        return last;
+    }
+
+    @Benchmark
+    public List<ArgSummary> argumentSummary() {
+        return ArgSummary.summarize(realisticArgs);
+    }
+
+    @Benchmark
+    public long historyRecord() {
+        return history.record(sampleRun, 1_000_000);
+    }
+
+    @Benchmark
+    public void histogramRecord() {
+        histogram.record(1_234_567);
+    }
+
+    @Benchmark
+    public String resultFormatting() {
+        return sampleRun.summary();
+    }
+}
@@ -1,5 +1,6 @@
 plugins {
     `java-library`
+    `java-test-fixtures`
 }
 
 java {
@@ -22,6 +23,20 @@ repositories {
 dependencies {
     // correct groupId/artifactId for ignition-common in 8.1.x:
     compileOnly("com.inductiveautomation.ignitionsdk:ignition-common:8.1.44")
+
+    testImplementation(platform("org.junit:junit-bom:5.10.2"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+    // main only compiles against these; the tests need them at runtime
+    testImplementation("com.inductiveautomation.ignitionsdk:ignition-common:8.1.44")
+    testImplementation("org.python:jython-standalone:2.7.3")
+
+    // JythonScriptRunner, shared with :benchmarks
+    testFixturesApi("org.python:jython-standalone:2.7.3")
+}
+
+tasks.test {
+    useJUnitPlatform()
 }
 
 sourceSets {
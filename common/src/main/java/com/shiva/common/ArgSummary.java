@@ -0,0 +1,331 @@
+package com.shiva.common;
+
+import com.inductiveautomation.ignition.common.Dataset;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded description of one argument passed to a profiled run, kept in place of the
+ * argument itself so the history never retains caller data.
+ * <p>
+ * {@code size} is the length of strings, sequences, maps and arrays and the row count of
+ * datasets, or -1 for scalar values. {@code fingerprint} is a 64-bit hash of the value's
+ * contents; equal inputs give equal fingerprints, so runs can be grouped by input. Hashing
+ * visits at most {@value #FINGERPRINT_BUDGET} scalar values per argument (the size is
+ * always included), so two very large inputs differing only beyond that point share a
+ * fingerprint. {@code preview} is built incrementally and never exceeds
+ * {@value #PREVIEW_LENGTH} characters.
+ */
+public record ArgSummary(
+        String type,
+        int size,
+        long fingerprint,
+        String preview
+) {
+
+    /** Maximum length of {@link #preview()}. */
+    public static final int PREVIEW_LENGTH = 64;
+
+    /** Maximum number of scalar values hashed into one fingerprint. */
+    public static final int FINGERPRINT_BUDGET = 65_536;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final String ELLIPSIS = "…";
+
+    /**
+     * Summarizes a single value.
+     *
+     * @param value the argument, possibly {@code null}
+     * @return its summary
+     */
+    public static ArgSummary of(Object value) {
+        Hasher hasher = new Hasher();
+        hasher.add(value);
+        return new ArgSummary(typeOf(value), sizeOf(value), hasher.finish(), preview(value, PREVIEW_LENGTH));
+    }
+
+    /**
+     * Builds a preview of a value without stringifying more of it than fits, so a large
+     * container costs no more than a small one.
+     *
+     * @param value     the value, possibly {@code null}
+     * @param maxLength maximum length of the preview; longer previews end in an ellipsis
+     * @return the preview, Python-style: strings quoted, sequences in brackets
+     */
+    static String preview(Object value, int maxLength) {
+        StringBuilder preview = new StringBuilder();
+        appendPreview(preview, value, maxLength);
+        if (preview.length() > maxLength) {
+            preview.setLength(maxLength - 1);
+            preview.append(ELLIPSIS);
+        }
+        return preview.toString();
+    }
+
+    /**
+     * Summarizes an argument list.
+     *
+     * @param args the arguments
+     * @return one summary per argument, in order
+     */
+    public static List<ArgSummary> summarize(List<Object> args) {
+        List<ArgSummary> out = new ArrayList<>(args.size());
+        for (Object arg : args) {
+            out.add(of(arg));
+        }
+        return List.copyOf(out);
+    }
+
+    /**
+     * Combines per-argument fingerprints into one value identifying the whole input.
+     *
+     * @param args argument summaries, in call order
+     * @return the combined fingerprint; the same for every call with equal arguments
+     */
+    public static long fingerprint(List<ArgSummary> args) {
+        long h = mix(FNV_OFFSET, args.size());
+        for (ArgSummary arg : args) {
+            h = mix(h, arg.fingerprint());
+        }
+        return avalanche(h);
+    }
+
+    /**
+     * Formats argument previews as a call's argument list, e.g. {@code "(5, [1, 2, 3])"}.
+     *
+     * @param args argument summaries
+     * @return the previews, comma-separated and parenthesized
+     */
+    public static String previewOf(List<ArgSummary> args) {
+        StringBuilder sb = new StringBuilder("(");
+        for (int i = 0; i < args.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(args.get(i).preview());
+        }
+        return sb.append(')').toString();
+    }
+
+    /**
+     * @return the fingerprint as 16 hex digits, safe to pass to JSON and Python
+     */
+    public String fingerprintHex() {
+        return hex(fingerprint);
+    }
+
+    /**
+     * @return a fingerprint formatted as 16 hex digits
+     */
+    public static String hex(long fingerprint) {
+        return String.format("%016x", fingerprint);
+    }
+
+    @Override
+    public String toString() {
+        return size < 0
+                ? String.format("%s %s #%s", type, preview, fingerprintHex())
+                : String.format("%s[%d] %s #%s", type, size, preview, fingerprintHex());
+    }
+
+    private static String typeOf(Object value) {
+        return value == null ? "None" : value.getClass().getSimpleName();
+    }
+
+    private static int sizeOf(Object value) {
+        if (value instanceof CharSequence s) {
+            return s.length();
+        }
+        if (value instanceof Collection<?> c) {
+            return c.size();
+        }
+        if (value instanceof Map<?, ?> m) {
+            return m.size();
+        }
+        if (value instanceof Dataset ds) {
+            return ds.getRowCount();
+        }
+        if (value != null && value.getClass().isArray()) {
+            return Array.getLength(value);
+        }
+        return -1;
+    }
+
+    /**
+     * Appends a preview of a value, stopping once the preview is longer than
+     * {@code limit}, so large containers are never fully stringified.
+     */
+    private static void appendPreview(StringBuilder sb, Object value, int limit) {
+        if (sb.length() > limit) {
+            return;
+        }
+        if (value == null) {
+            sb.append("None");
+        }
+        else if (value instanceof CharSequence s) {
+            sb.append('\'').append(s, 0, Math.min(s.length(), limit + 1 - sb.length())).append('\'');
+        }
+        else if (value instanceof Dataset ds) {
+            sb.append("Dataset [").append(ds.getRowCount()).append("R ⅹ ").append(ds.getColumnCount()).append("C]");
+        }
+        else if (value instanceof Map<?, ?> m) {
+            sb.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> e : m.entrySet()) {
+                if (sb.length() > limit) {
+                    return;
+                }
+                if (!first) {
+                    sb.append(", ");
+                }
+                first = false;
+                appendPreview(sb, e.getKey(), limit);
+                sb.append(": ");
+                appendPreview(sb, e.getValue(), limit);
+            }
+            sb.append('}');
+        }
+        else if (value instanceof Collection<?> c) {
+            sb.append('[');
+            boolean first = true;
+            for (Object element : c) {
+                if (sb.length() > limit) {
+                    return;
+                }
+                if (!first) {
+                    sb.append(", ");
+                }
+                first = false;
+                appendPreview(sb, element, limit);
+            }
+            sb.append(']');
+        }
+        else if (value.getClass().isArray()) {
+            sb.append('[');
+            int length = Array.getLength(value);
+            for (int i = 0; i < length && sb.length() <= limit; i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                appendPreview(sb, Array.get(value, i), limit);
+            }
+            sb.append(']');
+        }
+        else {
+            String s = String.valueOf(value);
+            sb.append(s, 0, Math.min(s.length(), limit + 1 - sb.length()));
+        }
+    }
+
+    private static long mix(long h, long v) {
+        return (h ^ v) * FNV_PRIME;
+    }
+
+    /** Final avalanche (MurmurHash3 fmix64) so nearby inputs spread over all 64 bits. */
+    private static long avalanche(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Order-sensitive structural hash over a value, with a cap on the number of scalars visited.
+     */
+    private static final class Hasher {
+        private long h = FNV_OFFSET;
+        private int budget = FINGERPRINT_BUDGET;
+
+        long finish() {
+            return avalanche(h);
+        }
+
+        void add(Object value) {
+            if (budget <= 0) {
+                return;
+            }
+            if (value == null) {
+                scalar(0);
+            }
+            else if (value instanceof CharSequence s) {
+                h = mix(h, 's');
+                h = mix(h, s.length());
+                int n = Math.min(s.length(), budget);
+                for (int i = 0; i < n; i++) {
+                    h = mix(h, s.charAt(i));
+                }
+                budget -= Math.max(1, n);
+            }
+            else if (value instanceof Double || value instanceof Float) {
+                h = mix(h, 'f');
+                scalar(Double.doubleToLongBits(((Number) value).doubleValue()));
+            }
+            else if (value instanceof Number n) {
+                h = mix(h, 'n');
+                scalar(n.longValue());
+            }
+            else if (value instanceof Boolean b) {
+                h = mix(h, 'b');
+                scalar(b ? 1 : 0);
+            }
+            else if (value instanceof Dataset ds) {
+                h = mix(h, 'd');
+                h = mix(h, ds.getRowCount());
+                h = mix(h, ds.getColumnCount());
+                for (String column : ds.getColumnNames()) {
+                    add(column);
+                }
+                for (int r = 0; r < ds.getRowCount() && budget > 0; r++) {
+                    for (int c = 0; c < ds.getColumnCount(); c++) {
+                        add(ds.getValueAt(r, c));
+                    }
+                }
+            }
+            else if (value instanceof Map<?, ?> m) {
+                h = mix(h, 'm');
+                h = mix(h, m.size());
+                for (Map.Entry<?, ?> e : m.entrySet()) {
+                    if (budget <= 0) {
+                        return;
+                    }
+                    add(e.getKey());
+                    add(e.getValue());
+                }
+            }
+            else if (value instanceof Collection<?> c) {
+                h = mix(h, 'l');
+                h = mix(h, c.size());
+                for (Object element : c) {
+                    if (budget <= 0) {
+                        return;
+                    }
+                    add(element);
+                }
+            }
+            else if (value.getClass().isArray()) {
+                int length = Array.getLength(value);
+                h = mix(h, 'a');
+                h = mix(h, length);
+                for (int i = 0; i < length && budget > 0; i++) {
+                    add(Array.get(value, i));
+                }
+            }
+            else {
+                h = mix(h, 'o');
+                add(value.getClass().getName() + ":" + value);
+            }
+        }
+
+        private void scalar(long v) {
+            h = mix(h, v);
+            budget--;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.shiva.common;
+
+/**
+ * A stored latency distribution for one script path, tied to the source it was measured on.
+ *
+ * @param sourceHash   64-bit hash of the function source at capture time (0 if unavailable)
+ * @param capturedAt   capture time in epoch milliseconds
+ * @param samplesNanos call durations, sorted ascending
+ */
+public record Baseline(
+        String path,
+        long sourceHash,
+        long capturedAt,
+        long[] samplesNanos
+) {
+
+    /**
+     * @return the median call duration in milliseconds
+     */
+    public double medianMs() {
+        return RegressionDetector.median(samplesNanos) / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Baseline %s: %d samples, median %.3f ms, source %016x",
+                path, samplesNanos.length, medianMs(), sourceHash);
+    }
+}
@@ -0,0 +1,109 @@
+package com.shiva.common;
+
+import com.inductiveautomation.ignition.common.util.LogUtil;
+import com.inductiveautomation.ignition.common.util.LoggerEx;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Stores {@link Baseline}s as one small binary file per script path, so they survive restarts.
+ * Files are written to a temporary name and moved into place, so a crash never leaves a
+ * half-written baseline behind.
+ */
+public class BaselineStore {
+
+    private static final int MAGIC = 0x53504231; // "SPB1"
+    private static final String SUFFIX = ".baseline";
+
+    private final LoggerEx log = LogUtil.getLogger(getClass().getSimpleName());
+    private final Path dir;
+
+    /**
+     * @param dir directory holding the baseline files; created if missing
+     * @throws IOException if the directory cannot be created
+     */
+    public BaselineStore(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+    }
+
+    /**
+     * Writes a baseline, replacing any previous one for the same path.
+     */
+    public void save(Baseline baseline) {
+        Path file = fileFor(baseline.path());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(tmp))) {
+                out.writeInt(MAGIC);
+                out.writeUTF(baseline.path());
+                out.writeLong(baseline.sourceHash());
+                out.writeLong(baseline.capturedAt());
+                long[] samples = baseline.samplesNanos();
+                out.writeInt(samples.length);
+                for (long s : samples) {
+                    out.writeLong(s);
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e) {
+            log.warn("Unable to save baseline for " + baseline.path() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes the baseline of a path, if stored.
+     */
+    public void delete(String path) {
+        try {
+            Files.deleteIfExists(fileFor(path));
+        }
+        catch (IOException e) {
+            log.warn("Unable to delete baseline for " + path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return every readable stored baseline
+     */
+    public List<Baseline> loadAll() {
+        List<Baseline> out = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.filter(f -> f.toString().endsWith(SUFFIX)).toList()) {
+                try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+                    if (in.readInt() != MAGIC) {
+                        continue;
+                    }
+                    String path = in.readUTF();
+                    long hash = in.readLong();
+                    long capturedAt = in.readLong();
+                    long[] samples = new long[in.readInt()];
+                    for (int i = 0; i < samples.length; i++) {
+                        samples[i] = in.readLong();
+                    }
+                    out.add(new Baseline(path, hash, capturedAt, samples));
+                }
+                catch (IOException e) {
+                    log.warn("Skipping unreadable baseline " + file + ": " + e.getMessage());
+                }
+            }
+        }
+        catch (IOException e) {
+            log.warn("Unable to list baselines in " + dir + ": " + e.getMessage());
+        }
+        return out;
+    }
+
+    private Path fileFor(String path) {
+        return dir.resolve(String.format("%016x%s", CodeCache.hash(path), SUFFIX));
+    }
+}
@@ -0,0 +1,100 @@
+package com.shiva.common;
+
+import java.util.Arrays;
+
+/**
+ * Summary statistics of a multi-iteration benchmark of a single script function.
+ * <p>
+ * All durations are in milliseconds and cover only the measured iterations; warmup
+ * calls are executed but discarded. CPU time and allocation are per-iteration averages of
+ * the calling thread; GC figures are JVM-wide totals over the measured iterations.
+ */
+public record BenchmarkResult(
+        String path,
+        int warmupIterations,
+        int iterations,
+        double minMs,
+        double meanMs,
+        double stddevMs,
+        double p50Ms,
+        double p90Ms,
+        double p99Ms,
+        double maxMs,
+        double opsPerSec,
+        double meanCpuMs,
+        double allocatedBytesPerOp,
+        long gcCount,
+        long gcTimeMs
+) {
+
+    /**
+     * Builds a result from raw per-iteration samples.
+     *
+     * @param path             the profiled script path
+     * @param warmupIterations number of discarded warmup calls
+     * @param samplesNanos     measured durations in nanoseconds; sorted in place
+     * @param meter            a stopped meter bracketing the measured iterations
+     * @return the computed summary
+     */
+    public static BenchmarkResult fromSamples(String path, int warmupIterations, long[] samplesNanos,
+                                              ResourceMeter meter) {
+        int n = samplesNanos.length;
+        if (n == 0) {
+            throw new IllegalArgumentException("At least one measured iteration is required");
+        }
+        Arrays.sort(samplesNanos);
+
+        double sum = 0;
+        for (long s : samplesNanos) {
+            sum += s;
+        }
+        double mean = sum / n;
+
+        double sq = 0;
+        for (long s : samplesNanos) {
+            double d = s - mean;
+            sq += d * d;
+        }
+        double stddev = n > 1 ? Math.sqrt(sq / (n - 1)) : 0.0;
+
+        return new BenchmarkResult(
+                path,
+                warmupIterations,
+                n,
+                toMs(samplesNanos[0]),
+                mean / 1_000_000.0,
+                stddev / 1_000_000.0,
+                toMs(percentile(samplesNanos, 50)),
+                toMs(percentile(samplesNanos, 90)),
+                toMs(percentile(samplesNanos, 99)),
+                toMs(samplesNanos[n - 1]),
+                sum > 0 ? n / (sum / 1_000_000_000.0) : 0.0,
+                meter.cpuNanos() < 0 ? -1 : meter.cpuNanos() / 1_000_000.0 / n,
+                meter.allocatedBytes() < 0 ? -1 : (double) meter.allocatedBytes() / n,
+                meter.gcCount(),
+                meter.gcTimeMs()
+        );
+    }
+
+    /**
+     * Nearest-rank percentile of an already sorted sample array.
+     */
+    static long percentile(long[] sorted, double pct) {
+        int rank = (int) Math.ceil(pct / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    private static double toMs(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%s: %d iterations (%d warmup) min=%.3f mean=%.3f±%.3f p50=%.3f p90=%.3f p99=%.3f max=%.3f ms, %.1f ops/s"
+                        + ", cpu=%.3f ms/op, alloc=%.0f B/op, gc=%d (%d ms)",
+                path, iterations, warmupIterations, minMs, meanMs, stddevMs,
+                p50Ms, p90Ms, p99Ms, maxMs, opsPerSec,
+                meanCpuMs, allocatedBytesPerOp, gcCount, gcTimeMs);
+    }
+}
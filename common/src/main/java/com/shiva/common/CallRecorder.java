@@ -0,0 +1,14 @@
+package com.shiva.common;
+
+/**
+ * Receives the duration of each call made through a {@link TimedFunction}.
+ */
+interface CallRecorder {
+
+    /**
+     * @param functionId the id the wrapper was created with
+     * @param nanos      duration of the call
+     * @param ok         {@code false} if the call raised
+     */
+    void record(int functionId, long nanos, boolean ok);
+}
@@ -0,0 +1,311 @@
+package com.shiva.common;
+
+import org.python.core.Py;
+import org.python.core.PyBaseCode;
+import org.python.core.PyException;
+import org.python.core.PyFrame;
+import org.python.core.PyObject;
+import org.python.core.ThreadState;
+import org.python.core.TraceFunction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Deterministic call-tree profiler driven by Jython's trace hooks.
+ * <p>
+ * Installed as the thread's profile function (calls/returns only) or, when line timing is
+ * requested, as its trace function (calls, returns and line events). All bookkeeping uses
+ * pre-allocated, growable parallel arrays: a call event scans the current node's children
+ * for the same code object instead of doing a map lookup, and the frame stack is a set of
+ * primitive arrays. A tracer is single-use and bound to the thread that starts it.
+ */
+public class CallTracer extends TraceFunction implements RunHook {
+
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+
+    private final boolean traceLines;
+
+    // call tree nodes
+    private int nodeCount;
+    private PyBaseCode[] nodeCode;
+    private int[] nodeFirstChild;
+    private int[] nodeNextSibling;
+    private long[] nodeCalls;
+    private long[] nodeInclusive;
+    private long[] nodeChildTime;
+    private long[][] nodeLineHits;
+    private long[][] nodeLineNanos;
+
+    // active frame stack
+    private int depth;
+    private PyFrame[] stackFrame;
+    private int[] stackNode;
+    private long[] stackStart;
+    private long[] stackChildTime;
+    private int[] stackLine;
+    private long[] stackLineStart;
+
+    private ThreadState threadState;
+    private TraceFunction previousTrace;
+    private TraceFunction previousProfile;
+
+    /**
+     * @param traceLines whether to also record per-line hit counts and times
+     */
+    public CallTracer(boolean traceLines) {
+        this.traceLines = traceLines;
+        int nodes = 256;
+        nodeCode = new PyBaseCode[nodes];
+        nodeFirstChild = new int[nodes];
+        nodeNextSibling = new int[nodes];
+        nodeCalls = new long[nodes];
+        nodeInclusive = new long[nodes];
+        nodeChildTime = new long[nodes];
+        nodeLineHits = new long[nodes][];
+        nodeLineNanos = new long[nodes][];
+        int frames = 64;
+        stackFrame = new PyFrame[frames];
+        stackNode = new int[frames];
+        stackStart = new long[frames];
+        stackChildTime = new long[frames];
+        stackLine = new int[frames];
+        stackLineStart = new long[frames];
+
+        nodeFirstChild[ROOT] = NONE;
+        nodeNextSibling[ROOT] = NONE;
+        nodeCount = 1;
+        stackNode[0] = ROOT;
+    }
+
+    /**
+     * Installs this tracer on the current thread.
+     */
+    @Override
+    public void beforeRun() {
+        threadState = Py.getThreadState();
+        previousTrace = threadState.tracefunc;
+        previousProfile = threadState.profilefunc;
+        if (traceLines) {
+            threadState.tracefunc = this;
+        }
+        else {
+            threadState.profilefunc = this;
+        }
+    }
+
+    /**
+     * Restores the thread's previous trace and profile functions.
+     */
+    @Override
+    public void afterRun() {
+        if (threadState == null) {
+            return;
+        }
+        threadState.tracefunc = previousTrace;
+        threadState.profilefunc = previousProfile;
+        threadState = null;
+        // close frames whose return event was never delivered
+        long now = System.nanoTime();
+        while (depth > 0) {
+            pop(now);
+        }
+    }
+
+    @Override
+    public TraceFunction traceCall(PyFrame frame) {
+        long now = System.nanoTime();
+        int parent = stackNode[depth];
+        int node = childFor(parent, frame.f_code);
+        push(frame, node, now);
+        return traceLines ? this : null;
+    }
+
+    @Override
+    public TraceFunction traceReturn(PyFrame frame, PyObject ret) {
+        exit(frame);
+        return null;
+    }
+
+    @Override
+    public TraceFunction traceException(PyFrame frame, PyException exc) {
+        // Jython reports an exception to the profile/trace function only when it leaves the frame
+        exit(frame);
+        return null;
+    }
+
+    @Override
+    public TraceFunction traceLine(PyFrame frame, int line) {
+        if (depth == 0 || stackFrame[depth] != frame) {
+            return this;
+        }
+        long now = System.nanoTime();
+        closeLine(depth, now);
+        int node = stackNode[depth];
+        int offset = line - nodeCode[node].co_firstlineno;
+        if (offset >= 0) {
+            long[] hits = ensureLineCapacity(node, offset);
+            hits[offset]++;
+            stackLine[depth] = offset;
+            stackLineStart[depth] = now;
+        }
+        return this;
+    }
+
+    /**
+     * Builds the immutable call tree recorded so far.
+     *
+     * @param rootName label of the synthetic root node
+     * @return the root of the call tree
+     */
+    public CallTreeNode toTree(String rootName) {
+        long total = 0;
+        for (int c = nodeFirstChild[ROOT]; c != NONE; c = nodeNextSibling[c]) {
+            total += nodeInclusive[c];
+        }
+        nodeInclusive[ROOT] = total;
+        nodeChildTime[ROOT] = total;
+        nodeCalls[ROOT] = 1;
+        return buildNode(ROOT, rootName);
+    }
+
+    private CallTreeNode buildNode(int node, String rootName) {
+        List<CallTreeNode> children = new ArrayList<>();
+        for (int c = nodeFirstChild[node]; c != NONE; c = nodeNextSibling[c]) {
+            children.add(buildNode(c, rootName));
+        }
+        // siblings are prepended on creation; present them hottest first
+        children.sort((a, b) -> Double.compare(b.inclusiveMs(), a.inclusiveMs()));
+
+        List<LineStats> lines = new ArrayList<>();
+        String function = rootName;
+        String file = "";
+        int firstLine = 0;
+        PyBaseCode code = nodeCode[node];
+        if (code != null) {
+            function = code.co_name;
+            file = code.co_filename;
+            firstLine = code.co_firstlineno;
+            long[] hits = nodeLineHits[node];
+            long[] nanos = nodeLineNanos[node];
+            if (hits != null) {
+                for (int i = 0; i < hits.length; i++) {
+                    if (hits[i] > 0) {
+                        lines.add(new LineStats(firstLine + i, hits[i], nanos[i] / 1_000_000.0));
+                    }
+                }
+            }
+        }
+        return new CallTreeNode(
+                function,
+                file,
+                firstLine,
+                nodeCalls[node],
+                nodeInclusive[node] / 1_000_000.0,
+                (nodeInclusive[node] - nodeChildTime[node]) / 1_000_000.0,
+                List.copyOf(children),
+                List.copyOf(lines)
+        );
+    }
+
+    private int childFor(int parent, PyBaseCode code) {
+        for (int c = nodeFirstChild[parent]; c != NONE; c = nodeNextSibling[c]) {
+            if (nodeCode[c] == code) {
+                return c;
+            }
+        }
+        if (nodeCount == nodeCode.length) {
+            growNodes();
+        }
+        int node = nodeCount++;
+        nodeCode[node] = code;
+        nodeFirstChild[node] = NONE;
+        nodeNextSibling[node] = nodeFirstChild[parent];
+        nodeFirstChild[parent] = node;
+        return node;
+    }
+
+    private void push(PyFrame frame, int node, long now) {
+        if (depth + 1 == stackFrame.length) {
+            growStack();
+        }
+        depth++;
+        stackFrame[depth] = frame;
+        stackNode[depth] = node;
+        stackStart[depth] = now;
+        stackChildTime[depth] = 0;
+        stackLine[depth] = NONE;
+        nodeCalls[node]++;
+    }
+
+    private void exit(PyFrame frame) {
+        long now = System.nanoTime();
+        // unwind frames whose return we missed until we reach the one that is leaving
+        int target = depth;
+        while (target > 0 && stackFrame[target] != frame) {
+            target--;
+        }
+        if (target == 0) {
+            return;
+        }
+        while (depth >= target) {
+            pop(now);
+        }
+    }
+
+    private void pop(long now) {
+        closeLine(depth, now);
+        long elapsed = now - stackStart[depth];
+        int node = stackNode[depth];
+        nodeInclusive[node] += elapsed;
+        nodeChildTime[node] += stackChildTime[depth];
+        stackFrame[depth] = null;
+        depth--;
+        if (depth > 0) {
+            stackChildTime[depth] += elapsed;
+        }
+    }
+
+    private void closeLine(int level, long now) {
+        int offset = stackLine[level];
+        if (level > 0 && offset != NONE) {
+            nodeLineNanos[stackNode[level]][offset] += now - stackLineStart[level];
+            stackLine[level] = NONE;
+        }
+    }
+
+    private long[] ensureLineCapacity(int node, int offset) {
+        long[] hits = nodeLineHits[node];
+        if (hits == null || offset >= hits.length) {
+            int size = Math.max(32, Integer.highestOneBit(offset) << 1);
+            nodeLineHits[node] = hits = hits == null ? new long[size] : Arrays.copyOf(hits, size);
+            long[] nanos = nodeLineNanos[node];
+            nodeLineNanos[node] = nanos == null ? new long[size] : Arrays.copyOf(nanos, size);
+        }
+        return hits;
+    }
+
+    private void growNodes() {
+        int size = nodeCode.length * 2;
+        nodeCode = Arrays.copyOf(nodeCode, size);
+        nodeFirstChild = Arrays.copyOf(nodeFirstChild, size);
+        nodeNextSibling = Arrays.copyOf(nodeNextSibling, size);
+        nodeCalls = Arrays.copyOf(nodeCalls, size);
+        nodeInclusive = Arrays.copyOf(nodeInclusive, size);
+        nodeChildTime = Arrays.copyOf(nodeChildTime, size);
+        nodeLineHits = Arrays.copyOf(nodeLineHits, size);
+        nodeLineNanos = Arrays.copyOf(nodeLineNanos, size);
+    }
+
+    private void growStack() {
+        int size = stackFrame.length * 2;
+        stackFrame = Arrays.copyOf(stackFrame, size);
+        stackNode = Arrays.copyOf(stackNode, size);
+        stackStart = Arrays.copyOf(stackStart, size);
+        stackChildTime = Arrays.copyOf(stackChildTime, size);
+        stackLine = Arrays.copyOf(stackLine, size);
+        stackLineStart = Arrays.copyOf(stackLineStart, size);
+    }
+}
@@ -0,0 +1,43 @@
+package com.shiva.common;
+
+import java.util.List;
+
+/**
+ * A node in a traced call tree: one Python function reached through a specific call path.
+ * <p>
+ * {@code inclusiveMs} includes time spent in callees; {@code exclusiveMs} does not.
+ * {@code lines} is empty unless line tracing was enabled.
+ */
+public record CallTreeNode(
+        String function,
+        String file,
+        int firstLine,
+        long calls,
+        double inclusiveMs,
+        double exclusiveMs,
+        List<CallTreeNode> children,
+        List<LineStats> lines
+) {
+
+    /**
+     * Renders this subtree as indented text, one function per line.
+     *
+     * @return a human-readable call tree
+     */
+    public String render() {
+        StringBuilder sb = new StringBuilder();
+        render(sb, 0);
+        return sb.toString();
+    }
+
+    private void render(StringBuilder sb, int depth) {
+        sb.append("  ".repeat(depth))
+                .append(function)
+                .append(" (").append(file).append(':').append(firstLine).append(") ")
+                .append(String.format("calls=%d incl=%.3f ms excl=%.3f ms", calls, inclusiveMs, exclusiveMs))
+                .append('\n');
+        for (CallTreeNode child : children) {
+            child.render(sb, depth + 1);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.shiva.common;
+
+import com.inductiveautomation.ignition.common.util.LogUtil;
+import com.inductiveautomation.ignition.common.util.LoggerEx;
+
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Runs {@link CanarySpec}s on a fixed cadence and records each run in a {@link TimeSeriesStore},
+ * under the canary's {@link CanarySpec#seriesKey() series key}.
+ * <p>
+ * Each run looks up the profiler of the canary's project afresh, so it follows the project
+ * across restarts and is skipped while the project has no script manager.
+ * <p>
+ * Runs go through {@link DefaultScriptProfiler#profileScriptAsync}, so they also appear in
+ * the run history and metrics, and a run still going after its interval is cancelled and
+ * recorded as an error. Start times are staggered across the first interval so canaries
+ * with the same cadence do not all fire together. Canaries run one at a time, so one that
+ * hangs delays the others by at most its own interval.
+ */
+public class CanaryScheduler {
+
+    private final LoggerEx log = LogUtil.getLogger(getClass().getSimpleName());
+    private final Function<String, DefaultScriptProfiler> profilers;
+    private final TimeSeriesStore store;
+    private final List<CanarySpec> canaries;
+    private ScheduledExecutorService executor;
+
+    /**
+     * @param profilers maps a project name to the profiler to run its canaries with; may return
+     *                  {@code null} while the project has no script manager, in which case runs are skipped
+     * @param store     receives every run
+     * @param canaries  the canaries to run
+     */
+    public CanaryScheduler(Function<String, DefaultScriptProfiler> profilers, TimeSeriesStore store,
+                           List<CanarySpec> canaries) {
+        this.profilers = profilers;
+        this.store = store;
+        this.canaries = List.copyOf(canaries);
+    }
+
+    /**
+     * Schedules every canary. Does nothing if already started or there are no canaries.
+     */
+    public synchronized void start() {
+        if (executor != null || canaries.isEmpty()) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "script-profiler-canary");
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < canaries.size(); i++) {
+            CanarySpec canary = canaries.get(i);
+            long initialDelay = canary.intervalMs() * (i + 1) / (canaries.size() + 1);
+            executor.scheduleAtFixedRate(() -> run(canary), initialDelay, canary.intervalMs(), TimeUnit.MILLISECONDS);
+            log.info("Scheduled canary " + canary);
+        }
+    }
+
+    /**
+     * Stops scheduling runs. A run in progress is left to finish or time out.
+     */
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * @return the scheduled canaries
+     */
+    public List<CanarySpec> canaries() {
+        return canaries;
+    }
+
+    /**
+     * Runs one canary and records the outcome. Never throws, so a failing canary keeps its schedule.
+     */
+    void run(CanarySpec canary) {
+        DefaultScriptProfiler p = profilers.apply(canary.project());
+        if (p == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            List<Object> args = canary.argsExpression().isEmpty()
+                    ? List.of()
+                    : p.argsGenerator(canary.argsExpression()).apply(0);
+            ScriptExecutionResult run = p.profileScriptAsync(canary.path(), args, canary.intervalMs()).join();
+            store.record(canary.seriesKey(), run.timestamp(), Math.round(run.elapsedMs() * 1_000_000.0), run.ok());
+            if (!run.ok()) {
+                log.debug("Canary " + canary.path() + " failed: " + run.error());
+            }
+        }
+        catch (RuntimeException e) {
+            // timed out, rejected, or the arguments could not be evaluated
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            store.record(canary.seriesKey(), System.currentTimeMillis(), System.nanoTime() - start, false);
+            log.debug("Canary " + canary.path() + " failed: " + cause);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.shiva.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A script run on a fixed cadence by {@link CanaryScheduler}.
+ *
+ * @param project        the project whose script manager runs the script
+ * @param path           the qualified path to the script function
+ * @param argsExpression Python expression evaluating to the argument list, e.g. {@code [30, 'Line A']};
+ *                       empty for no arguments
+ * @param intervalMs     time between runs; also the timeout of each run
+ */
+public record CanarySpec(
+        String project,
+        String path,
+        String argsExpression,
+        long intervalMs
+) {
+
+    /** Shortest allowed interval. */
+    public static final long MIN_INTERVAL_MS = 1_000;
+
+    /** Interval used when an entry does not give one. */
+    public static final long DEFAULT_INTERVAL_MS = 60_000;
+
+    public CanarySpec {
+        if (project == null || project.isBlank()) {
+            throw new IllegalArgumentException("Canary project must not be empty");
+        }
+        if (path == null || path.isBlank()) {
+            throw new IllegalArgumentException("Canary path must not be empty");
+        }
+        if (intervalMs < MIN_INTERVAL_MS) {
+            throw new IllegalArgumentException("Canary interval must be >= " + MIN_INTERVAL_MS + " ms");
+        }
+        project = project.trim();
+        argsExpression = argsExpression == null ? "" : argsExpression.trim();
+    }
+
+    /**
+     * Parses a list of canaries of the form {@code [project:]path[@seconds][=args]}, separated
+     * by semicolons, e.g. {@code MES:shared.oee.calc@30=[1, 'Line A']; shared.util.ping@300}.
+     * The arguments expression therefore cannot contain a semicolon.
+     *
+     * @param spec           the configured list; blank entries are ignored
+     * @param defaultProject project of entries that do not name one; may be {@code null}
+     * @return the canaries, in order
+     * @throws IllegalArgumentException if an entry is malformed or has no project
+     */
+    public static List<CanarySpec> parseAll(String spec, String defaultProject) {
+        List<CanarySpec> out = new ArrayList<>();
+        if (spec == null) {
+            return out;
+        }
+        for (String entry : spec.split(";")) {
+            if (!entry.isBlank()) {
+                out.add(parse(entry.trim(), defaultProject));
+            }
+        }
+        return out;
+    }
+
+    private static CanarySpec parse(String entry, String defaultProject) {
+        String target = entry;
+        String args = "";
+        int eq = entry.indexOf('=');
+        if (eq >= 0) {
+            target = entry.substring(0, eq).trim();
+            args = entry.substring(eq + 1);
+        }
+        long intervalMs = DEFAULT_INTERVAL_MS;
+        int at = target.indexOf('@');
+        if (at >= 0) {
+            String seconds = target.substring(at + 1).trim();
+            try {
+                intervalMs = Math.round(Double.parseDouble(seconds) * 1000);
+            }
+            catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid canary interval '" + seconds + "' in '" + entry + "'");
+            }
+            target = target.substring(0, at).trim();
+        }
+        String project = defaultProject;
+        int colon = target.indexOf(':');
+        if (colon >= 0) {
+            project = target.substring(0, colon).trim();
+            target = target.substring(colon + 1).trim();
+        }
+        if (project == null || project.isBlank()) {
+            throw new IllegalArgumentException("No project given for canary '" + entry + "'");
+        }
+        return new CanarySpec(project, target, args, intervalMs);
+    }
+
+    /**
+     * @return the key of this canary's series in a {@link TimeSeriesStore}; distinct for
+     * every project, path and arguments expression
+     */
+    public String seriesKey() {
+        return seriesKey(project, path + "=" + argsExpression);
+    }
+
+    /**
+     * Builds the series key of a project's canary.
+     *
+     * @param project the canary's project
+     * @param target  the canary's path, followed by {@code =} and its arguments expression if it has one
+     * @return the key, as {@link #seriesKey()} would return it
+     */
+    public static String seriesKey(String project, String target) {
+        int eq = target.indexOf('=');
+        String path = (eq < 0 ? target : target.substring(0, eq)).trim();
+        String args = eq < 0 ? "" : target.substring(eq + 1).trim();
+        return project.trim() + ":" + (args.isEmpty() ? path : path + "=" + args);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s:%s(%s) every %.1f s", project, path, argsExpression, intervalMs / 1000.0);
+    }
+}
@@ -0,0 +1,106 @@
+package com.shiva.common;
+
+import org.python.core.Py;
+import org.python.core.PyException;
+import org.python.core.PyFrame;
+import org.python.core.PyObject;
+import org.python.core.ThreadState;
+import org.python.core.TraceFunction;
+
+/**
+ * Cooperative cancellation for a single profiling run.
+ * <p>
+ * Cancelling interrupts the thread running the script, which aborts blocking Java calls
+ * (sleeps, queries, tag reads). Because Jython does not poll the interrupt flag between
+ * bytecodes, the running thread also installs this as its trace function when the run
+ * starts. Once the volatile {@code cancelled} flag is set, the script's next Python
+ * function call asks for line events and its first line raises {@code KeyboardInterrupt}.
+ * Raising from the line event rather than the call event matters: Jython delivers the
+ * call event after pushing the frame but outside the block that pops it again, so an
+ * exception there would leave the dead frame on the pool thread. Until then it only
+ * reads the flag on each call and asks for no line events, so an uncancelled run pays one
+ * volatile read per Python call. Only the running thread touches its own {@link ThreadState}.
+ */
+class CancellableRun extends TraceFunction implements RunHook {
+
+    private enum State { PENDING, RUNNING, DONE }
+
+    private State state = State.PENDING;
+    private volatile boolean cancelled;
+    private Thread thread;
+    private ThreadState threadState;
+    private TraceFunction previousTrace;
+
+    /**
+     * @return whether cancellation has been requested
+     */
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Requests cancellation. A run that has not started yet will not start; a running one is
+     * interrupted; a finished one is unaffected.
+     */
+    synchronized void cancel() {
+        if (cancelled) {
+            return;
+        }
+        cancelled = true;
+        if (state == State.RUNNING) {
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public synchronized void beforeRun() {
+        if (cancelled) {
+            throw new IllegalStateException("Profiling run cancelled before it started");
+        }
+        state = State.RUNNING;
+        thread = Thread.currentThread();
+        threadState = Py.getThreadState();
+        previousTrace = threadState.tracefunc;
+        threadState.tracefunc = this;
+    }
+
+    @Override
+    public synchronized void afterRun() {
+        if (state != State.RUNNING) {
+            return;
+        }
+        state = State.DONE;
+        threadState.tracefunc = previousTrace;
+        if (cancelled) {
+            // don't leak the interrupt into whatever the pool thread runs next
+            Thread.interrupted();
+        }
+        thread = null;
+        threadState = null;
+    }
+
+    @Override
+    public TraceFunction traceCall(PyFrame frame) {
+        if (cancelled) {
+            // raised from traceLine, inside the frame, so Jython unwinds the frame itself
+            return this;
+        }
+        // keep any tracer that was already installed working for the new frame
+        return previousTrace == null ? null : previousTrace.traceCall(frame);
+    }
+
+    @Override
+    public TraceFunction traceReturn(PyFrame frame, PyObject ret) {
+        return null;
+    }
+
+    @Override
+    public TraceFunction traceLine(PyFrame frame, int line) {
+        throw Py.KeyboardInterrupt("Profiling run cancelled");
+    }
+
+    @Override
+    public TraceFunction traceException(PyFrame frame, PyException exc) {
+        return null;
+    }
+}
@@ -0,0 +1,114 @@
+package com.shiva.common;
+
+import org.python.core.CompileMode;
+import org.python.core.CompilerFlags;
+import org.python.core.Py;
+import org.python.core.PyCode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least-recently-used cache of compiled inline scripts.
+ * <p>
+ * Entries are keyed by a 64-bit FNV-1a hash of the script text; the text itself is kept in
+ * the entry and compared on a hit, so a hash collision costs a recompile rather than
+ * running the wrong code.
+ */
+public class CodeCache {
+
+    /** Filename reported in tracebacks of inline scripts. */
+    public static final String FILENAME = "<profileNow>";
+
+    /**
+     * Path every inline script is recorded under in history and metrics. Ad-hoc snippets are
+     * open-ended, so giving each its own path would grow the metrics without bound.
+     */
+    public static final String PATH = "<inline>";
+
+    /**
+     * A compiled script and how long it took to compile.
+     *
+     * @param cached {@code true} if this lookup was served from the cache
+     */
+    public record Compiled(long hash, String text, PyCode code, long compileNanos, boolean cached) {
+        /** @return a stable, short name for logs and benchmark results, e.g. {@code <inline 1a2b3c4d>} */
+        public String name() {
+            return String.format("<inline %08x>", (int) (hash ^ (hash >>> 32)));
+        }
+    }
+
+    private final Map<Long, Compiled> entries;
+
+    /**
+     * @param capacity maximum number of compiled scripts retained
+     */
+    public CodeCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be >= 1");
+        }
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Compiled> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the compiled form of {@code text}, compiling it on a miss.
+     * Compilation happens outside the cache lock.
+     *
+     * @param text Python source in {@code exec} mode
+     * @return the compiled script; {@link Compiled#cached()} tells whether it was a hit
+     */
+    public Compiled compile(String text) {
+        long hash = hash(text);
+        Compiled hit;
+        synchronized (entries) {
+            hit = entries.get(hash);
+        }
+        if (hit != null && hit.text().equals(text)) {
+            return new Compiled(hash, hit.text(), hit.code(), hit.compileNanos(), true);
+        }
+
+        long t0 = System.nanoTime();
+        PyCode code = Py.compile_flags(text, FILENAME, CompileMode.exec, new CompilerFlags());
+        Compiled compiled = new Compiled(hash, text, code, System.nanoTime() - t0, false);
+        synchronized (entries) {
+            entries.put(hash, compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * Removes every compiled script.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * @return number of compiled scripts currently held
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-8 bytes of the text.
+     */
+    static long hash(String text) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : text.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+}
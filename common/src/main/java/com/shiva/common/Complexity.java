@@ -0,0 +1,46 @@
+package com.shiva.common;
+
+/**
+ * Growth models fitted by a scaling analysis, each a function of the input size n.
+ */
+public enum Complexity {
+    CONSTANT("O(1)"),
+    LOGARITHMIC("O(log n)"),
+    LINEAR("O(n)"),
+    LINEARITHMIC("O(n log n)"),
+    QUADRATIC("O(n^2)");
+
+    private final String notation;
+
+    Complexity(String notation) {
+        this.notation = notation;
+    }
+
+    /**
+     * @return the big-O notation, e.g. {@code O(n log n)}
+     */
+    public String notation() {
+        return notation;
+    }
+
+    /**
+     * Evaluates the model's growth term; the fitted cost is {@code a + b * apply(n)}.
+     *
+     * @param n the input size
+     * @return the growth term at {@code n}
+     */
+    public double apply(double n) {
+        return switch (this) {
+            case CONSTANT -> 1.0;
+            case LOGARITHMIC -> Math.log(Math.max(n, 1.0));
+            case LINEAR -> n;
+            case LINEARITHMIC -> n * Math.log(Math.max(n, 1.0));
+            case QUADRATIC -> n * n;
+        };
+    }
+
+    @Override
+    public String toString() {
+        return notation;
+    }
+}
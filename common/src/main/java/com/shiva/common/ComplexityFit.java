@@ -0,0 +1,107 @@
+package com.shiva.common;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A least-squares fit of measured durations to one {@link Complexity} model:
+ * {@code time(n) = interceptMs + coefficientMs * model(n)}.
+ * <p>
+ * Models are compared by the Akaike information criterion, which charges the growth
+ * models for their extra parameter so a flat curve is not reported as, say, O(n log n)
+ * with a vanishing coefficient. A model that would need a negative coefficient is fitted
+ * as a constant instead, since runtimes do not shrink with larger input.
+ */
+public record ComplexityFit(
+        Complexity complexity,
+        double interceptMs,
+        double coefficientMs,
+        double rmsMs,
+        double rSquared,
+        double aic
+) {
+
+    /**
+     * @param n an input size
+     * @return the fitted duration at {@code n}, in milliseconds
+     */
+    public double predictMs(double n) {
+        return interceptMs + coefficientMs * complexity.apply(n);
+    }
+
+    /**
+     * Fits every model to the measurements.
+     *
+     * @param sizes   input sizes
+     * @param timesMs measured duration at each size
+     * @return one fit per model, best first
+     */
+    public static List<ComplexityFit> fitAll(double[] sizes, double[] timesMs) {
+        List<ComplexityFit> fits = new ArrayList<>();
+        for (Complexity c : Complexity.values()) {
+            fits.add(fit(c, sizes, timesMs));
+        }
+        fits.sort(Comparator.comparingDouble(ComplexityFit::aic));
+        return fits;
+    }
+
+    /**
+     * Fits one model by ordinary least squares.
+     *
+     * @param complexity the model
+     * @param sizes      input sizes
+     * @param timesMs    measured duration at each size
+     * @return the fit
+     */
+    public static ComplexityFit fit(Complexity complexity, double[] sizes, double[] timesMs) {
+        int n = sizes.length;
+        double meanY = 0;
+        for (double y : timesMs) {
+            meanY += y;
+        }
+        meanY /= n;
+
+        double a = meanY;
+        double b = 0;
+        int parameters = 1;
+        if (complexity != Complexity.CONSTANT) {
+            double meanX = 0;
+            for (double s : sizes) {
+                meanX += complexity.apply(s);
+            }
+            meanX /= n;
+            double sxx = 0;
+            double sxy = 0;
+            for (int i = 0; i < n; i++) {
+                double dx = complexity.apply(sizes[i]) - meanX;
+                sxx += dx * dx;
+                sxy += dx * (timesMs[i] - meanY);
+            }
+            if (sxx > 0 && sxy > 0) {
+                b = sxy / sxx;
+                a = meanY - b * meanX;
+            }
+            parameters = 2;
+        }
+
+        double rss = 0;
+        double tss = 0;
+        for (int i = 0; i < n; i++) {
+            double residual = timesMs[i] - (a + b * complexity.apply(sizes[i]));
+            rss += residual * residual;
+            double d = timesMs[i] - meanY;
+            tss += d * d;
+        }
+        // a perfect fit would make the log-likelihood infinite
+        double aic = n * Math.log(Math.max(rss / n, 1e-12)) + 2 * parameters;
+        double rSquared = tss > 0 ? 1 - rss / tss : 1.0;
+        return new ComplexityFit(complexity, a, b, Math.sqrt(rss / n), rSquared, aic);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-11s t = %.4f + %.6g * f(n) ms, rms %.4f ms, R^2 %.4f",
+                complexity.notation(), interceptMs, coefficientMs, rmsMs, rSquared);
+    }
+}
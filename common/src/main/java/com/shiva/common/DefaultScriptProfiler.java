@@ -7,27 +7,161 @@ import org.python.core.Py;
 import org.python.core.PyObject;
 import org.python.core.PyStringMap;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 
 /**
  * Default implementation of the {@link ScriptProfiler} interface.
  * <p>
- * Provides timing of user‐created project scripts only, and maintains a short history.
+ * Provides timing of user‐created project scripts only, and maintains a bounded history.
+ * The history capacity defaults to the {@value #HISTORY_CAPACITY_PROPERTY} system property
+ * (100 if unset). Asynchronous runs execute on a bounded pool sized by
+ * {@value #ASYNC_THREADS_PROPERTY} (2 if unset) with a queue of
+ * {@value #ASYNC_QUEUE_CAPACITY} pending runs.
+ * <p>
+ * Individual runs are logged at the level named by {@value #LOG_RUNS_PROPERTY}
+ * ({@code off}, {@code debug} or {@code info}; {@code debug} if unset), at most
+ * {@value #LOG_MAX_PER_SECOND_PROPERTY} (5 if unset) runs per second.
  */
 public class DefaultScriptProfiler implements ScriptProfiler {
 
-    private static final int MAX_HISTORY = 100;
+    /** System property overriding the default run history capacity. */
+    public static final String HISTORY_CAPACITY_PROPERTY = "scriptprofiler.history.capacity";
+
+    /** System property overriding the number of threads used for asynchronous runs. */
+    public static final String ASYNC_THREADS_PROPERTY = "scriptprofiler.async.threads";
+
+    /** Maximum number of asynchronous runs waiting for a thread. */
+    public static final int ASYNC_QUEUE_CAPACITY = 32;
+
+    /** Upper bound on load test concurrency. */
+    public static final int MAX_LOAD_TEST_THREADS = 256;
+
+    /** Upper bound on the worker threads of a package sweep. */
+    public static final int MAX_PACKAGE_PARALLELISM = 32;
+
+    /** Fewest distinct input sizes a scaling analysis accepts. */
+    public static final int MIN_SCALING_SIZES = 3;
+
+    /** System property overriding how many compiled inline scripts are cached. */
+    public static final String CODE_CACHE_SIZE_PROPERTY = "scriptprofiler.codeCache.size";
+
+    /** System property naming the level at which individual runs are logged. */
+    public static final String LOG_RUNS_PROPERTY = "scriptprofiler.log.runs";
+
+    /** System property limiting how many individual runs are logged per second. */
+    public static final String LOG_MAX_PER_SECOND_PROPERTY = "scriptprofiler.log.maxPerSecond";
+
+    /** Number of runs returned by {@link #getRecentRuns()}. */
+    private static final int RECENT_RUNS = 100;
 
     private final LoggerEx log = LogUtil.getLogger(getClass().getSimpleName());
-    private final ScriptManager scriptManager;
-    private final List<ScriptExecutionResult> recentRuns = new ArrayList<>();
+    private final RunLog runLog = new RunLog(log,
+            RunLog.parseLevel(System.getProperty(LOG_RUNS_PROPERTY, "debug")),
+            Math.max(0, Integer.getInteger(LOG_MAX_PER_SECOND_PROPERTY, 5)));
+    private final ScriptRunner scriptRunner;
+    private final RunHistory history;
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final StackSampler sampler = new StackSampler();
+    private final ThreadPoolExecutor asyncExecutor;
+    private final RegressionDetector regressions = new RegressionDetector();
+    private final CodeCache codeCache = new CodeCache(Math.max(1, Integer.getInteger(CODE_CACHE_SIZE_PROPERTY, 64)));
+    private final SourceCache sourceCache = new SourceCache();
+
+    /** Serializes runs that patch interpreter-wide state: {@code system} bindings, {@code __import__}. */
+    private final Object patchLock = new Object();
+
+    /** Optional on-disk history; {@code null} keeps history in memory only. */
+    private volatile HistoryStore historyStore;
+
+    /** Told when this profiler has re-executed project library modules; may be {@code null}. */
+    private volatile Runnable libraryReloadListener;
+
+    /** Canary rollups; {@code null} when no canaries are scheduled in this scope. */
+    private volatile TimeSeriesStore timeSeriesStore;
+
+    /** Project whose canaries {@link #queryTimeSeries} reads; supplies {@code null} while unknown. */
+    private volatile Supplier<String> timeSeriesProject = () -> null;
+
+    /** The most recent traced run, kept for export; {@code null} until one completes. */
+    private volatile TracedExecution lastTrace;
+
+    /** The most recent sampled run, kept for export; {@code null} until one completes. */
+    private volatile SampledExecution lastSamples;
+
+    /** Resolved callables keyed by script path; cleared when the project script library reloads. */
+    private final Map<String, PyObject> callableCache = new ConcurrentHashMap<>();
+
+    /** Bumped on every invalidation so in-flight resolutions don't repopulate a stale cache. */
+    private final AtomicLong cacheGeneration = new AtomicLong();
 
     /**
      * @param scriptManager the Ignition ScriptManager used to execute project scripts
      */
     public DefaultScriptProfiler(ScriptManager scriptManager) {
-        this.scriptManager = scriptManager;
+        this(new IgnitionScriptRunner(scriptManager));
+    }
+
+    /**
+     * @param scriptManager   the Ignition ScriptManager used to execute project scripts
+     * @param historyCapacity maximum number of runs kept in history
+     */
+    public DefaultScriptProfiler(ScriptManager scriptManager, int historyCapacity) {
+        this(new IgnitionScriptRunner(scriptManager), historyCapacity);
+    }
+
+    /**
+     * @param scriptRunner runs project scripts; outside Ignition, any Jython-backed implementation
+     */
+    public DefaultScriptProfiler(ScriptRunner scriptRunner) {
+        this(scriptRunner, Integer.getInteger(HISTORY_CAPACITY_PROPERTY, RECENT_RUNS));
+    }
+
+    /**
+     * @param scriptRunner    runs project scripts; outside Ignition, any Jython-backed implementation
+     * @param historyCapacity maximum number of runs kept in history
+     */
+    public DefaultScriptProfiler(ScriptRunner scriptRunner, int historyCapacity) {
+        this.scriptRunner = scriptRunner;
+        this.history = new RunHistory(historyCapacity, new PathTable());
+
+        int asyncThreads = Math.max(1, Integer.getInteger(ASYNC_THREADS_PROPERTY, 2));
+        AtomicInteger threadCount = new AtomicInteger();
+        this.asyncExecutor = new ThreadPoolExecutor(
+                asyncThreads, asyncThreads,
+                30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(ASYNC_QUEUE_CAPACITY),
+                r -> {
+                    Thread t = new Thread(r, "script-profiler-async-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.asyncExecutor.allowCoreThreadTimeOut(true);
     }
 
     @Override
@@ -37,97 +171,1017 @@ public class DefaultScriptProfiler implements ScriptProfiler {
     }
 
     @Override
-    public String profileNow(String scriptText) {
-        return "profiled " + scriptText.length() + " chars";
+    public ScriptExecutionResult profileNow(String scriptText) {
+        Object result = null;
+        long compileNanos = 0;
+        long runNanos = 0;
+        Exception failure = null;
+        ResourceMeter meter = new ResourceMeter();
+
+        try {
+            long compileStart = System.nanoTime();
+            CodeCache.Compiled compiled = codeCache.compile(scriptText);
+            // a cache hit reports only the lookup, which is the point of the cache
+            compileNanos = compiled.cached() ? System.nanoTime() - compileStart : compiled.compileNanos();
+            PyStringMap locals = scriptRunner.createLocalsMap();
+
+            meter.start();
+            long runStart = System.nanoTime();
+            try {
+                scriptRunner.runCode(compiled.code(), locals);
+            }
+            finally {
+                runNanos = System.nanoTime() - runStart;
+                meter.stop();
+            }
+            // snippets may leave a value behind in a variable named "result"
+            PyObject value = locals.__finditem__("result");
+            result = value == null ? null : value.__tojava__(Object.class);
+        }
+        catch (Exception e) {
+            failure = e;
+        }
+
+        ScriptExecutionResult.Status status = failure == null
+                ? ScriptExecutionResult.Status.OK
+                : ScriptExecutionResult.Status.ERROR;
+        return record(CodeCache.PATH, List.of(), status, failure, result, compileNanos, runNanos, meter);
+    }
+
+    @Override
+    public BenchmarkResult benchmarkNow(String scriptText, int warmup, int iterations) {
+        if (warmup < 0) {
+            throw new IllegalArgumentException("warmup must be >= 0");
+        }
+        if (iterations < 1) {
+            throw new IllegalArgumentException("iterations must be >= 1");
+        }
+        CodeCache.Compiled compiled = codeCache.compile(scriptText);
+        String name = compiled.name();
+        log.info("Benchmarking " + name + ": " + warmup + " warmup, " + iterations + " iterations");
+
+        long[] samples = new long[iterations];
+        ScriptMetrics pathMetrics = metrics.forPath(CodeCache.PATH);
+        ResourceMeter meter = new ResourceMeter();
+        try {
+            for (int i = 0; i < warmup; i++) {
+                scriptRunner.runCode(compiled.code(), scriptRunner.createLocalsMap());
+            }
+            meter.start();
+            for (int i = 0; i < iterations; i++) {
+                // every iteration gets fresh locals so runs don't see each other's state
+                PyStringMap locals = scriptRunner.createLocalsMap();
+                long t0 = System.nanoTime();
+                scriptRunner.runCode(compiled.code(), locals);
+                samples[i] = System.nanoTime() - t0;
+                pathMetrics.recordRun(samples[i]);
+            }
+            meter.stop();
+            pathMetrics.recordResources(iterations, meter);
+        }
+        catch (Exception e) {
+            pathMetrics.recordError();
+            log.error("Error benchmarking " + name + ": " + e.getMessage(), e);
+            throw new IllegalStateException("Error running " + name + ": " + e.getMessage(), e);
+        }
+
+        BenchmarkResult result = BenchmarkResult.fromSamples(name, warmup, samples, meter);
+        log.info(result.toString() + String.format(" (compile %.3f ms%s)",
+                compiled.compileNanos() / 1_000_000.0, compiled.cached() ? ", cached" : ""));
+        return result;
     }
 
     @Override
-    public String profileScript(String scriptPath) {
+    public ScriptExecutionResult profileScript(String scriptPath) {
         return profileScriptWithArgs(scriptPath, List.of());
     }
 
     @Override
-    public String profileScriptWithArgs(String scriptPath, List<Object> args) {
-        log.info("Profiling script with args: " + scriptPath + ", args=" + args);
+    public ScriptExecutionResult profileScriptWithArgs(String scriptPath, List<Object> args) {
+        return execute(scriptPath, args, null);
+    }
+
+    @Override
+    public CompletableFuture<ScriptExecutionResult> profileScriptAsync(String scriptPath, List<Object> args,
+                                                                       long timeoutMs) {
+        CompletableFuture<ScriptExecutionResult> future = new CompletableFuture<>();
+        CancellableRun control = new CancellableRun();
+
+        try {
+            asyncExecutor.execute(() -> {
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    future.complete(execute(scriptPath, args, control));
+                }
+                catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+        }
+        catch (RejectedExecutionException e) {
+            future.completeExceptionally(new RejectedExecutionException(
+                    "Too many profiling runs in progress; try again later", e));
+            return future;
+        }
+
+        if (timeoutMs > 0) {
+            future.orTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+        // cancel(), a timeout or any other abnormal completion stops the running script
+        future.whenComplete((result, error) -> {
+            if (error != null) {
+                control.cancel();
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public TracedExecution profileScriptTraced(String scriptPath, List<Object> args, boolean traceLines) {
+        CallTracer tracer = new CallTracer(traceLines);
+        ScriptExecutionResult run = execute(scriptPath, args, tracer);
+        TracedExecution traced = new TracedExecution(run, tracer.toTree(scriptPath));
+        lastTrace = traced;
+        return traced;
+    }
+
+    @Override
+    public SampledExecution profileScriptSampled(String scriptPath, List<Object> args, double intervalMs) {
+        StackSampler.Session session = sampler.newSession(Math.round(intervalMs * 1000));
+        ScriptExecutionResult run = execute(scriptPath, args, session);
+        StackTrie stacks = session.stacks();
+        SampledExecution sampled = new SampledExecution(
+                run,
+                session.intervalMs(),
+                stacks.totalSamples(),
+                session.samplingOverheadMs(),
+                stacks.toCollapsed()
+        );
+        lastSamples = sampled;
+        return sampled;
+    }
+
+    @Override
+    public SystemCallBreakdown profileScriptSystemCalls(String scriptPath, List<Object> args) {
+        PyObject function;
+        try {
+            function = lookupCallable(scriptPath);
+        }
+        catch (IllegalArgumentException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new IllegalStateException("Error resolving '" + scriptPath + "': " + e.getMessage(), e);
+        }
+        PyObject globals = function.__findattr__("func_globals");
+        SystemCallTimer timer = new SystemCallTimer(globals == null ? List.of() : List.of(globals));
+        ScriptExecutionResult run;
+        // the proxies are installed in shared module globals, so only one such run at a time
+        synchronized (patchLock) {
+            run = execute(scriptPath, args, timer);
+        }
+        return timer.breakdown(run);
+    }
+
+    @Override
+    public ImportProfile profileImports(String root) {
+        if (root == null || root.isBlank()) {
+            throw new IllegalArgumentException("A module path is required");
+        }
+        PyObject rootModule;
+        PyObject topModule;
+        try {
+            rootModule = ScriptLibrary.resolveModule(scriptRunner, root);
+            topModule = Py.getSystemState().modules.__finditem__(root.split("\\.")[0]);
+        }
+        catch (IllegalArgumentException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new IllegalStateException("Error resolving '" + root + "': " + e.getMessage(), e);
+        }
+        // re-running the standard library or third-party packages is neither useful nor safe
+        if (!ScriptLibrary.isLibraryModule(rootModule) || !ScriptLibrary.isLibraryModule(topModule)) {
+            throw new IllegalArgumentException("'" + root + "' is not a project script library module");
+        }
+        log.info("Profiling cold import of " + root);
+
+        ImportProfiler importProfiler = new ImportProfiler();
+        String error = null;
+        long elapsed;
+        int loaded;
+        synchronized (patchLock) {
+            // drop the tree from sys.modules so the import below executes every module again
+            PyObject modules = Py.getSystemState().modules;
+            Map<String, PyObject> originals = new LinkedHashMap<>();
+            for (PyObject key : modules.asIterable()) {
+                String name = key.toString();
+                if (inTree(name, root)) {
+                    originals.put(name, modules.__finditem__(key));
+                }
+            }
+            for (String name : originals.keySet()) {
+                modules.__delitem__(name);
+            }
+
+            try {
+                int before = modules.__len__();
+                long start = System.nanoTime();
+                try {
+                    importProfiler.beforeRun();
+                    scriptRunner.runCode("import " + root, new PyStringMap(), "<profileImports>");
+                }
+                catch (Exception e) {
+                    error = e.getMessage();
+                }
+                finally {
+                    importProfiler.afterRun();
+                }
+                elapsed = System.nanoTime() - start;
+                loaded = Math.max(0, modules.__len__() - before);
+            }
+            finally {
+                restoreModules(modules, root, originals);
+            }
+        }
+        // other threads may have resolved callables from the temporary copies meanwhile
+        invalidateCache();
+        Runnable listener = libraryReloadListener;
+        if (listener != null) {
+            listener.run();
+        }
+
+        ImportProfile profile = new ImportProfile(root, nanosToMs(elapsed), loaded,
+                importProfiler.imports(), importProfiler.slowestStatements(), error);
+        log.info(profile.toString());
+        return profile;
+    }
+
+    private static boolean inTree(String moduleName, String root) {
+        return moduleName.equals(root) || moduleName.startsWith(root + ".");
+    }
+
+    /**
+     * Puts the module tree back the way {@link #profileImports} found it: the original module
+     * objects in {@code sys.modules} and as attributes of their parent packages, and modules
+     * of the tree that were not loaded before removed again. Code elsewhere keeps referring
+     * to the originals, so leaving the fresh copies in place would split the library in two.
+     */
+    private static void restoreModules(PyObject modules, String root, Map<String, PyObject> originals) {
+        List<String> added = new ArrayList<>();
+        for (PyObject key : modules.asIterable()) {
+            String name = key.toString();
+            if (inTree(name, root) && !originals.containsKey(name)) {
+                added.add(name);
+            }
+        }
+        for (String name : added) {
+            modules.__delitem__(name);
+        }
+        originals.forEach((name, module) -> {
+            modules.__setitem__(name, module);
+            int dot = name.lastIndexOf('.');
+            PyObject parent = dot < 0 ? null : modules.__finditem__(name.substring(0, dot));
+            if (parent != null) {
+                parent.__setattr__(name.substring(dot + 1), module);
+            }
+        });
+    }
+
+    @Override
+    public LoadTestResult loadTest(String scriptPath, List<Object> args, int threads, long durationMs) {
+        if (threads < 1 || threads > MAX_LOAD_TEST_THREADS) {
+            throw new IllegalArgumentException("threads must be between 1 and " + MAX_LOAD_TEST_THREADS);
+        }
+        if (durationMs < 1) {
+            throw new IllegalArgumentException("durationMs must be >= 1");
+        }
+        log.info("Load testing " + scriptPath + " with up to " + threads + " threads, " + durationMs + " ms per level");
+
+        PyObject callable;
+        try {
+            callable = lookupCallable(scriptPath);
+        }
+        catch (IllegalArgumentException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new IllegalStateException("Error resolving '" + scriptPath + "': " + e.getMessage(), e);
+        }
+        PyObject[] pyArgs = toPyArgs(args);
+        ScriptMetrics pathMetrics = metrics.forPath(scriptPath);
+
+        // 1, 2, 4, ... threads, always ending at the requested maximum
+        List<Integer> counts = new ArrayList<>();
+        for (int n = 1; n < threads; n <<= 1) {
+            counts.add(n);
+        }
+        counts.add(threads);
+
+        List<LoadLevel> levels = new ArrayList<>();
+        LatencyHistogram baseline = null;
+        double baselineThroughput = 0;
+        for (int n : counts) {
+            LoadCounters counters = runLoadLevel(scriptPath, callable, pyArgs, n, durationMs);
+            pathMetrics.latency().add(counters.latency);
+            pathMetrics.recordErrors(counters.errors);
+
+            LatencyHistogram h = counters.latency;
+            double throughput = h.count() / (counters.elapsedNanos / 1_000_000_000.0);
+            if (baseline == null) {
+                baseline = h;
+                baselineThroughput = throughput;
+            }
+            double baseMean = baseline.mean();
+            levels.add(new LoadLevel(
+                    n,
+                    h.count(),
+                    counters.errors,
+                    throughput,
+                    h.mean() / 1_000_000.0,
+                    h.percentile(50) / 1_000_000.0,
+                    h.percentile(90) / 1_000_000.0,
+                    h.percentile(99) / 1_000_000.0,
+                    h.max() / 1_000_000.0,
+                    baseMean > 0 ? h.mean() / baseMean : 0.0,
+                    baselineThroughput > 0 ? throughput / (n * baselineThroughput) : 0.0
+            ));
+        }
+
+        LoadTestResult result = new LoadTestResult(scriptPath, threads, durationMs, List.copyOf(levels));
+        log.info(result.toString());
+        return result;
+    }
+
+    @Override
+    public PackageReport profilePackage(String prefix, Function<String, List<Object>> argsProvider,
+                                        int parallelism, long timeoutMs) {
+        if (parallelism < 1 || parallelism > MAX_PACKAGE_PARALLELISM) {
+            throw new IllegalArgumentException("parallelism must be between 1 and " + MAX_PACKAGE_PARALLELISM);
+        }
+        PyObject module;
+        try {
+            module = ScriptLibrary.resolveModule(scriptRunner, prefix);
+        }
+        catch (IllegalArgumentException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new IllegalStateException("Error importing '" + prefix + "': " + e.getMessage(), e);
+        }
+        if (module == null) {
+            throw new IllegalArgumentException("No module found at '" + prefix + "'");
+        }
+
+        Set<String> paths = new TreeSet<>();
+        ScriptLibrary.walk(module, prefix, (owner, name, path, value) -> paths.add(path));
 
+        // arguments are built up front on the calling thread, in path order
+        List<Callable<ScriptExecutionResult>> tasks = new ArrayList<>();
+        for (String path : paths) {
+            List<Object> args = argsProvider == null ? List.of() : argsProvider.apply(path);
+            if (args != null) {
+                tasks.add(() -> executeWithTimeout(path, args, timeoutMs));
+            }
+        }
+        log.info("Profiling " + tasks.size() + " of " + paths.size() + " functions under " + prefix
+                + " on " + parallelism + " threads");
+
+        List<ScriptExecutionResult> runs = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
         long start = System.nanoTime();
-        Object result;
+        try {
+            for (Future<ScriptExecutionResult> future : pool.invokeAll(tasks)) {
+                runs.add(future.get());
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while profiling " + prefix, e);
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException("Error profiling " + prefix + ": " + e.getCause().getMessage(), e);
+        }
+        finally {
+            pool.shutdownNow();
+        }
+        double wallMs = nanosToMs(System.nanoTime() - start);
 
+        runs.sort(Comparator.comparingDouble(ScriptExecutionResult::elapsedMs).reversed());
+        PackageReport report = new PackageReport(prefix, paths.size(), paths.size() - tasks.size(),
+                parallelism, timeoutMs, wallMs, List.copyOf(runs));
+        log.info(report.toString());
+        return report;
+    }
+
+    @Override
+    public ScalingResult profileScaling(String scriptPath, IntFunction<List<Object>> argsGenerator,
+                                        List<Integer> sizes, int repetitions, long targetSize) {
+        List<Integer> distinct = sizes.stream().distinct().sorted().toList();
+        if (distinct.size() < MIN_SCALING_SIZES) {
+            throw new IllegalArgumentException("At least " + MIN_SCALING_SIZES + " distinct sizes are required");
+        }
+        if (distinct.get(0) < 1) {
+            throw new IllegalArgumentException("sizes must be >= 1");
+        }
+        if (repetitions < 1) {
+            throw new IllegalArgumentException("repetitions must be >= 1");
+        }
+        log.info("Scaling analysis of " + scriptPath + " over sizes " + distinct);
+
+        PyObject callable;
+        try {
+            callable = lookupCallable(scriptPath);
+        }
+        catch (IllegalArgumentException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new IllegalStateException("Error resolving '" + scriptPath + "': " + e.getMessage(), e);
+        }
+
+        List<ScalingPoint> points = new ArrayList<>();
+        double[] x = new double[distinct.size()];
+        double[] y = new double[distinct.size()];
+        for (int i = 0; i < distinct.size(); i++) {
+            int size = distinct.get(i);
+            PyObject[] pyArgs = toPyArgs(argsGenerator.apply(size));
+            long[] samples = new long[repetitions];
+            try {
+                // one untimed call so first-call costs don't land on the smallest size
+                scriptRunner.runFunction(callable, pyArgs);
+                for (int r = 0; r < repetitions; r++) {
+                    long t0 = System.nanoTime();
+                    scriptRunner.runFunction(callable, pyArgs);
+                    samples[r] = System.nanoTime() - t0;
+                }
+            }
+            catch (Exception e) {
+                throw new IllegalStateException("Error running '" + scriptPath + "' at size " + size + ": "
+                        + e.getMessage(), e);
+            }
+            Arrays.sort(samples);
+            ScalingPoint point = new ScalingPoint(size, repetitions, RegressionDetector.median(samples) / 1_000_000.0,
+                    nanosToMs(samples[0]), nanosToMs(samples[repetitions - 1]));
+            points.add(point);
+            x[i] = size;
+            y[i] = point.medianMs();
+        }
+
+        ScalingResult result = new ScalingResult(scriptPath, List.copyOf(points),
+                List.copyOf(ComplexityFit.fitAll(x, y)), targetSize);
+        log.info(result.toString());
+        return result;
+    }
+
+    /**
+     * Compiles a Python expression in {@code n} into an arguments generator for
+     * {@link #profileScaling}, e.g. {@code [range(n)]} or {@code ["tag"] * n, True}.
+     *
+     * @param expression a Python expression evaluating to the argument list for size {@code n}
+     * @return the generator
+     */
+    public IntFunction<List<Object>> argsGenerator(String expression) {
+        PyObject generator;
         try {
-            if (scriptPath.startsWith("system.")) {
-                throw new IllegalArgumentException("Profiling system.* scripts is not permitted.");
+            PyStringMap locals = scriptRunner.createLocalsMap();
+            scriptRunner.runCode("generator = lambda n: (" + expression + ")", locals, "<argsGenerator>");
+            generator = locals.__finditem__("generator");
+        }
+        catch (Exception e) {
+            throw new IllegalArgumentException("Invalid arguments expression: " + e.getMessage(), e);
+        }
+        return n -> {
+            try {
+                return ScriptProfilerFunctions.toJavaList(scriptRunner.runFunction(generator, Py.newInteger(n)));
             }
+            catch (Exception e) {
+                throw new IllegalStateException("Error generating arguments for size " + n + ": "
+                        + e.getMessage(), e);
+            }
+        };
+    }
 
-            String[] parts = scriptPath.split("\\.");
-            if (parts.length < 2) {
-                throw new IllegalArgumentException("Path must have at least one module and one function");
+    /**
+     * Runs one function of a package sweep, cancelling it if it is still running
+     * {@code timeoutMs} after it started.
+     */
+    private ScriptExecutionResult executeWithTimeout(String scriptPath, List<Object> args, long timeoutMs) {
+        CancellableRun control = new CancellableRun();
+        CompletableFuture<Void> timer = timeoutMs > 0
+                ? CompletableFuture.runAsync(control::cancel,
+                        CompletableFuture.delayedExecutor(timeoutMs, TimeUnit.MILLISECONDS))
+                : null;
+        try {
+            return execute(scriptPath, args, control);
+        }
+        finally {
+            if (timer != null) {
+                timer.cancel(false);
             }
+        }
+    }
 
-            String root = parts[0];
-            PyStringMap locals = new PyStringMap();
+    /**
+     * Calls a resolved function from {@code threads} platform threads until the level's
+     * duration elapses. Each thread records into its own histogram so the measurement
+     * doesn't add shared-counter contention of its own; they are merged at the end.
+     */
+    private LoadCounters runLoadLevel(String scriptPath, PyObject callable, PyObject[] pyArgs,
+                                      int threads, long durationMs) {
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        LatencyHistogram[] perThread = new LatencyHistogram[threads];
+        long[] errors = new long[threads];
+        Thread[] workers = new Thread[threads];
+        long[] deadline = new long[1];
 
-            // import the root module
-            scriptManager.runCode("import " + root, locals, "<import:" + root + ">");
+        for (int i = 0; i < threads; i++) {
+            int idx = i;
+            perThread[i] = new LatencyHistogram();
+            workers[i] = new Thread(() -> {
+                LatencyHistogram h = perThread[idx];
+                ready.countDown();
+                try {
+                    go.await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long end = deadline[0];
+                while (System.nanoTime() - end < 0) {
+                    long t0 = System.nanoTime();
+                    try {
+                        scriptRunner.runFunction(callable, pyArgs);
+                        h.record(System.nanoTime() - t0);
+                    }
+                    catch (Exception e) {
+                        errors[idx]++;
+                    }
+                }
+            }, "script-profiler-load-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
 
-            // walk down to the function
-            PyObject current = locals.__getitem__(root);
-            for (int i = 1; i < parts.length; i++) {
-                current = current.__getattr__(parts[i]);
+        LoadCounters counters = new LoadCounters();
+        try {
+            ready.await();
+            long start = System.nanoTime();
+            deadline[0] = start + TimeUnit.MILLISECONDS.toNanos(durationMs);
+            go.countDown();
+            for (Thread w : workers) {
+                w.join();
             }
+            counters.elapsedNanos = System.nanoTime() - start;
+        }
+        catch (InterruptedException e) {
+            for (Thread w : workers) {
+                w.interrupt();
+            }
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Load test of '" + scriptPath + "' interrupted", e);
+        }
 
-            // convert Java args → PyObject[]
-            PyObject[] pyArgs = args.stream()
-                    .map(Py::java2py)
-                    .toArray(PyObject[]::new);
+        for (int i = 0; i < threads; i++) {
+            counters.latency.add(perThread[i]);
+            counters.errors += errors[i];
+        }
+        return counters;
+    }
 
-            PyObject raw = scriptManager.runFunction(current, pyArgs);
+    /**
+     * Resolves, runs and records a single profiled call.
+     *
+     * @param scriptPath the qualified path to the script function
+     * @param args       arguments to pass to the function
+     * @param hook       optional instrumentation bracketing the timed call, or {@code null}
+     * @return the recorded run
+     */
+    private ScriptExecutionResult execute(String scriptPath, List<Object> args, RunHook hook) {
+        Object result = null;
+        long resolveNanos = 0;
+        long runNanos = 0;
+        Exception failure = null;
+        ResourceMeter meter = new ResourceMeter();
+        // summarized before the call, which may mutate its arguments, and outside the timings
+        List<ArgSummary> summaries = ArgSummary.summarize(args);
+
+        try {
+            long resolveStart = System.nanoTime();
+            PyObject current = lookupCallable(scriptPath);
+            PyObject[] pyArgs = toPyArgs(args);
+            resolveNanos = System.nanoTime() - resolveStart;
+
+            PyObject raw;
+            long runStart = 0;
+            boolean started = false;
+            try {
+                // inside the try, so a hook that fails part way is still uninstalled
+                if (hook != null) {
+                    hook.beforeRun();
+                }
+                meter.start();
+                runStart = System.nanoTime();
+                started = true;
+                raw = scriptRunner.runFunction(current, pyArgs);
+            }
+            finally {
+                if (started) {
+                    runNanos = System.nanoTime() - runStart;
+                    meter.stop();
+                }
+                if (hook != null) {
+                    hook.afterRun();
+                }
+            }
             result = raw.__tojava__(Object.class);
         }
         catch (Exception e) {
-            log.error("Error running '" + scriptPath + "': " + e.getMessage(), e);
-            result = "ERROR: " + e.getMessage();
+            failure = e;
         }
 
-        double elapsed = (System.nanoTime() - start) / 1_000_000.0;
-        long ts = System.currentTimeMillis();
+        ScriptExecutionResult.Status status = ScriptExecutionResult.Status.OK;
+        if (failure != null) {
+            status = hook instanceof CancellableRun control && control.isCancelled()
+                    ? ScriptExecutionResult.Status.CANCELLED
+                    : ScriptExecutionResult.Status.ERROR;
+        }
+        return record(scriptPath, summaries, status, failure, result, resolveNanos, runNanos, meter);
+    }
+
+    /**
+     * Records a finished call in metrics, the history and the optional store.
+     *
+     * @param failure the exception that ended the call, or {@code null} if it returned normally
+     */
+    private ScriptExecutionResult record(String scriptPath, List<ArgSummary> args, ScriptExecutionResult.Status status,
+                                         Exception failure, Object result, long prepareNanos, long runNanos,
+                                         ResourceMeter meter) {
+        ScriptMetrics pathMetrics = metrics.forPath(scriptPath);
+        if (failure == null) {
+            pathMetrics.recordRun(runNanos);
+            pathMetrics.recordResources(1, meter);
+            regressions.record(scriptPath, runNanos);
+        }
+        else {
+            pathMetrics.recordError();
+        }
 
         // record history
-        ScriptExecutionResult run = new ScriptExecutionResult(scriptPath, args, elapsed, ts);
-        synchronized (recentRuns) {
-            recentRuns.add(run);
-            if (recentRuns.size() > MAX_HISTORY) {
-                recentRuns.remove(0);
+        ScriptExecutionResult run = new ScriptExecutionResult(
+                scriptPath, args, status,
+                failure == null ? null : String.valueOf(failure.getMessage()),
+                failure == null ? ScriptExecutionResult.preview(result) : null,
+                runNanos / 1_000_000.0, prepareNanos / 1_000_000.0,
+                nanosToMs(meter.cpuNanos()), nanosToMs(meter.userNanos()), meter.allocatedBytes(),
+                meter.gcCount(), meter.gcTimeMs(), System.currentTimeMillis());
+        history.record(run, runNanos);
+        HistoryStore store = historyStore;
+        if (store != null) {
+            store.append(run);
+        }
+
+        if (failure == null) {
+            runLog.run(run);
+        }
+        else {
+            runLog.failure(run, failure);
+        }
+        return run;
+    }
+
+    @Override
+    public BenchmarkResult benchmark(String scriptPath, List<Object> args, int warmup, int iterations) {
+        if (warmup < 0) {
+            throw new IllegalArgumentException("warmup must be >= 0");
+        }
+        if (iterations < 1) {
+            throw new IllegalArgumentException("iterations must be >= 1");
+        }
+        log.info("Benchmarking " + scriptPath + ": " + warmup + " warmup, " + iterations + " iterations");
+
+        PyObject callable;
+        try {
+            callable = lookupCallable(scriptPath);
+        }
+        catch (IllegalArgumentException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new IllegalStateException("Error resolving '" + scriptPath + "': " + e.getMessage(), e);
+        }
+        PyObject[] pyArgs = toPyArgs(args);
+
+        long[] samples = new long[iterations];
+        ScriptMetrics pathMetrics = metrics.forPath(scriptPath);
+        ResourceMeter meter = new ResourceMeter();
+        try {
+            for (int i = 0; i < warmup; i++) {
+                scriptRunner.runFunction(callable, pyArgs);
             }
+            meter.start();
+            for (int i = 0; i < iterations; i++) {
+                long t0 = System.nanoTime();
+                scriptRunner.runFunction(callable, pyArgs);
+                samples[i] = System.nanoTime() - t0;
+                pathMetrics.recordRun(samples[i]);
+                regressions.record(scriptPath, samples[i]);
+            }
+            meter.stop();
+            pathMetrics.recordResources(iterations, meter);
+        }
+        catch (Exception e) {
+            pathMetrics.recordError();
+            log.error("Error benchmarking '" + scriptPath + "': " + e.getMessage(), e);
+            throw new IllegalStateException("Error running '" + scriptPath + "': " + e.getMessage(), e);
         }
 
-        String out = String.format("Ran %s(%s) in %.3f ms → %s",
-                scriptPath, args, elapsed, result);
-        log.info(out);
-        return out;
+        BenchmarkResult result = BenchmarkResult.fromSamples(scriptPath, warmup, samples, meter);
+        log.info(result.toString());
+        return result;
+    }
+
+    @Override
+    public LatencyStats getStats(String scriptPath) {
+        ScriptMetrics m = metrics.find(scriptPath);
+        return m == null ? LatencyStats.empty(scriptPath) : m.toStats();
+    }
+
+    @Override
+    public void resetStats(String scriptPath) {
+        metrics.reset(scriptPath);
+    }
+
+    @Override
+    public void resetStats() {
+        metrics.resetAll();
+    }
+
+    @Override
+    public void invalidateCache() {
+        cacheGeneration.incrementAndGet();
+        callableCache.clear();
+        sourceCache.clear();
+        log.debug("Resolved callable cache invalidated");
+    }
+
+    /**
+     * Returns the callable for a script path, resolving and caching it on first use.
+     *
+     * @param scriptPath e.g. "shared.utils.myFunc"
+     * @return the resolved callable
+     * @throws IllegalArgumentException if the path is not a permitted project script path
+     */
+    private PyObject lookupCallable(String scriptPath) throws Exception {
+        PyObject cached = callableCache.get(scriptPath);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = cacheGeneration.get();
+        PyObject resolved = resolveCallable(scriptPath);
+        // the script library may have been reloaded; only hash the source if a baseline needs it
+        long sourceHash = regressions.hasBaseline(scriptPath) ? sourceHash(scriptPath, resolved) : 0;
+        regressions.resolved(scriptPath, sourceHash);
+        if (cacheGeneration.get() == generation) {
+            callableCache.put(scriptPath, resolved);
+        }
+        return resolved;
+    }
+
+    /**
+     * Imports the root module of a dotted path and walks down to the target attribute.
+     *
+     * @param scriptPath e.g. "shared.utils.myFunc"
+     * @return the resolved callable
+     * @throws IllegalArgumentException if the path is not a permitted project script path
+     */
+    private PyObject resolveCallable(String scriptPath) throws Exception {
+        if (scriptPath.startsWith("system.")) {
+            throw new IllegalArgumentException("Profiling system.* scripts is not permitted.");
+        }
+
+        String[] parts = scriptPath.split("\\.");
+        if (parts.length < 2) {
+            throw new IllegalArgumentException("Path must have at least one module and one function");
+        }
+
+        String root = parts[0];
+        PyStringMap locals = new PyStringMap();
+
+        // import the root module
+        scriptRunner.runCode("import " + root, locals, "<import:" + root + ">");
+
+        // walk down to the function
+        PyObject current = locals.__getitem__(root);
+        for (int i = 1; i < parts.length; i++) {
+            current = current.__getattr__(parts[i]);
+        }
+        // profile the function itself, not the passive-instrumentation wrapper around it
+        if (current instanceof TimedFunction timed) {
+            current = timed.target();
+        }
+        return current;
     }
 
     /**
-     * @return an immutable list of the recent profiling runs
+     * Converts a nanosecond measurement to milliseconds, preserving -1 for "unsupported".
+     */
+    private static double nanosToMs(long nanos) {
+        return nanos < 0 ? -1 : nanos / 1_000_000.0;
+    }
+
+    /**
+     * Converts Java arguments to their Jython equivalents.
+     */
+    private static PyObject[] toPyArgs(List<Object> args) {
+        return args.stream()
+                .map(Py::java2py)
+                .toArray(PyObject[]::new);
+    }
+
+    /**
+     * @return the most recent profiling runs (at most 100), oldest first
      */
     public List<ScriptExecutionResult> getRecentRuns() {
-        synchronized (recentRuns) {
-            return List.copyOf(recentRuns);
+        return getRecentRuns(RECENT_RUNS);
+    }
+
+    /**
+     * Copies only the requested tail of the history, regardless of its capacity.
+     *
+     * @param limit maximum number of runs to return
+     * @return the most recent profiling runs, oldest first
+     */
+    public List<ScriptExecutionResult> getRecentRuns(int limit) {
+        return history.latest(limit).toList();
+    }
+
+    @Override
+    public Baseline captureBaseline(String scriptPath) {
+        PyObject callable;
+        try {
+            // bypass the cache: a cache miss would discard the runs about to be captured
+            callable = resolveCallable(scriptPath);
         }
+        catch (IllegalArgumentException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new IllegalStateException("Error resolving '" + scriptPath + "': " + e.getMessage(), e);
+        }
+        Baseline baseline = regressions.capture(scriptPath, sourceHash(scriptPath, callable));
+        log.info(baseline.toString());
+        return baseline;
+    }
+
+    @Override
+    public RegressionReport checkRegression(String scriptPath) {
+        return regressions.compare(scriptPath);
+    }
+
+    @Override
+    public void clearBaseline(String scriptPath) {
+        regressions.clear(scriptPath);
+    }
+
+    /**
+     * @return regression reports for every script whose runs are slower than its baseline
+     */
+    public List<RegressionReport> getRegressions() {
+        return regressions.regressions();
+    }
+
+    /**
+     * Persists baselines to the given store and restores the ones already stored there.
+     *
+     * @param store the store, or {@code null} to keep baselines in memory only
+     */
+    public void setBaselineStore(BaselineStore store) {
+        regressions.setStore(store);
+    }
+
+    @Override
+    public List<StoredRun> queryHistory(String scriptPath, long fromTs, long toTs, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must be >= 0");
+        }
+        HistoryStore store = historyStore;
+        if (store != null) {
+            return store.query(fromTs, toTs, scriptPath, limit);
+        }
+        List<StoredRun> out = new ArrayList<>();
+        for (ScriptExecutionResult run : history.snapshot()) {
+            if (out.size() == limit) {
+                break;
+            }
+            if (run.timestamp() >= fromTs && run.timestamp() < toTs
+                    && (scriptPath == null || scriptPath.equals(run.path()))) {
+                out.add(new StoredRun(run.path(), run.timestamp(), run.elapsedMs(), run.resolveMs(), run.cpuMs(),
+                        run.allocatedBytes(), (int) run.gcCount(), (int) run.gcTimeMs(), HistoryStore.flags(run),
+                        run.argsFingerprint()));
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public void export(ExportFormat format, OutputStream out) throws IOException {
+        new ProfileExporter(history, lastTrace, lastSamples).write(format, out);
+    }
+
+    @Override
+    public TimeSeries queryTimeSeries(String scriptPath, long fromTs, long toTs) {
+        TimeSeriesStore store = timeSeriesStore;
+        String project = timeSeriesProject.get();
+        if (store == null || project == null) {
+            return new TimeSeries(scriptPath, Resolution.RAW, fromTs, toTs, List.of());
+        }
+        TimeSeries series = store.query(CanarySpec.seriesKey(project, scriptPath), fromTs, toTs);
+        return new TimeSeries(scriptPath, series.resolution(), fromTs, toTs, series.points());
+    }
+
+    @Override
+    public TimeSeries queryTimeSeries(String scriptPath, long fromTs, long toTs, Resolution resolution) {
+        TimeSeriesStore store = timeSeriesStore;
+        String project = timeSeriesProject.get();
+        if (store == null || project == null) {
+            return new TimeSeries(scriptPath, resolution, fromTs, toTs, List.of());
+        }
+        TimeSeries series = store.query(CanarySpec.seriesKey(project, scriptPath), fromTs, toTs, resolution);
+        return new TimeSeries(scriptPath, resolution, fromTs, toTs, series.points());
     }
 
     /**
-     * Exposes the underlying ScriptManager for introspection or UI use.
+     * Registers a callback run after {@link #profileImports} has re-executed project library
+     * modules, e.g. to reapply passive instrumentation.
+     *
+     * @param listener the callback, or {@code null} for none
+     */
+    public void setLibraryReloadListener(Runnable listener) {
+        this.libraryReloadListener = listener;
+    }
+
+    /**
+     * Serves {@link #queryTimeSeries} from the given store, reading the series of one project's
+     * canaries. The store is owned by the caller.
+     *
+     * @param store   the store, or {@code null} to return empty series
+     * @param project supplies this profiler's project, or {@code null} while it is not known
      */
-    public ScriptManager getScriptManager() {
-        return scriptManager;
+    public void setTimeSeriesStore(TimeSeriesStore store, Supplier<String> project) {
+        this.timeSeriesProject = project;
+        this.timeSeriesStore = store;
     }
 
     /**
-     * Retrieves the first few lines of a user script’s source code for preview.
+     * Persists every subsequent run to the given store in addition to the in-memory history.
+     * The store is owned by the caller, which is responsible for closing it.
+     *
+     * @param store the store, or {@code null} to stop persisting runs
+     */
+    public void setHistoryStore(HistoryStore store) {
+        this.historyStore = store;
+    }
+
+    /**
+     * Stops background threads owned by this profiler. Called when the module shuts down.
+     */
+    public void shutdown() {
+        sampler.shutdown();
+        asyncExecutor.shutdownNow();
+    }
+
+    /**
+     * Exposes the per-path lifetime metrics.
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Exposes the run history for snapshot iteration without copying.
+     */
+    public RunHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Exposes the underlying script runner for introspection or UI use.
+     */
+    public ScriptRunner getScriptRunner() {
+        return scriptRunner;
+    }
+
+    /**
+     * Retrieves the full source of a user script function, with a header naming the path.
      * Blocks any path starting with "system.".
      *
      * @param scriptPath e.g. "shared.myFunc"
-     * @return either the first 3 lines of source, or an explanatory error
+     * @return either the function source, or an explanatory error
      */
     public String getScriptContent(String scriptPath) {
         log.debug("Getting script content for: " + scriptPath);
@@ -139,63 +1193,127 @@ public class DefaultScriptProfiler implements ScriptProfiler {
             return "No script path provided.";
         }
 
-        String[] parts = scriptPath.split("\\.");
-        if (parts.length < 2) {
+        ScriptSource source;
+        try {
+            source = getScriptSource(scriptPath);
+        }
+        catch (IllegalArgumentException e) {
             return "Invalid path; needs module and function (e.g. shared.myFunc)";
         }
+        catch (IllegalStateException e) {
+            return e.getMessage();
+        }
 
-        String root = parts[0];
-        PyStringMap locals = new PyStringMap();
+        if (source != null) {
+            return "=== " + scriptPath + " ===\n\n" + source.text();
+        }
+        return "Source not available for " + scriptPath;
+    }
 
+    @Override
+    public ScriptSource getScriptSource(String scriptPath) {
+        PyObject current;
         try {
-            scriptManager.runCode("import " + root, locals, "<import:" + root + ">");
+            current = lookupCallable(scriptPath);
+        }
+        catch (IllegalArgumentException e) {
+            throw e;
         }
         catch (Exception e) {
-            return "Error importing module '" + root + "': " + e.getMessage();
+            throw new IllegalStateException("Error resolving '" + scriptPath + "': " + e.getMessage(), e);
         }
+        return sourceCache.get(scriptPath, current, function -> loadSource(scriptPath, function));
+    }
 
-        // drill down
-        PyObject current = locals.__getitem__(root);
-        StringBuilder full = new StringBuilder(root);
-        try {
-            for (int i = 1; i < parts.length; i++) {
-                current = current.__getattr__(parts[i]);
-                full.append(".").append(parts[i]);
+    @Override
+    public SourceHeatMap getSourceHeatMap(String scriptPath) {
+        ScriptSource source = getScriptSource(scriptPath);
+        if (source == null) {
+            return null;
+        }
+        int count = source.lines().size();
+        long[] hits = new long[count];
+        double[] timeMs = new double[count];
+        TracedExecution trace = lastTrace;
+        long tracedAt = 0;
+        if (trace != null && trace.run().path().equals(scriptPath)) {
+            tracedAt = trace.run().timestamp();
+            addLineStats(trace.callTree(), source, hits, timeMs);
+        }
+        List<LineStats> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            lines.add(new LineStats(source.firstLine() + i, hits[i], timeMs[i]));
+        }
+        return new SourceHeatMap(source, List.copyOf(lines), tracedAt);
+    }
+
+    /**
+     * Adds the line statistics of every call tree node in the source's file, including
+     * recursive and nested calls, to the per-line totals.
+     */
+    private static void addLineStats(CallTreeNode node, ScriptSource source, long[] hits, double[] timeMs) {
+        if (node.file().equals(source.file())) {
+            for (LineStats line : node.lines()) {
+                int i = line.line() - source.firstLine();
+                if (i >= 0 && i < hits.length) {
+                    hits[i] += line.hits();
+                    timeMs[i] += line.timeMs();
+                }
             }
         }
-        catch (Exception e) {
-            return "Error navigating to '" + scriptPath + "': " + e.getMessage();
+        for (CallTreeNode child : node.children()) {
+            addLineStats(child, source, hits, timeMs);
         }
+    }
 
-        // attempt inspect.getsource
+    /**
+     * Loads the full source of a function with {@code inspect.getsourcelines}.
+     *
+     * @return the source, or {@code null} if it is not available
+     */
+    private ScriptSource loadSource(String scriptPath, PyObject function) {
         try {
             PyStringMap inspectLocals = new PyStringMap();
+            inspectLocals.__setitem__("func", function);
             String code =
                     "import inspect\n" +
-                            "import " + root + "\n" +
-                            "func = " + full + "\n" +
                             "src = None\n" +
+                            "first = 1\n" +
+                            "filename = ''\n" +
                             "try:\n" +
-                            "    src = inspect.getsource(func)\n" +
+                            "    lines, first = inspect.getsourcelines(func)\n" +
+                            "    src = ''.join(lines)\n" +
+                            "    filename = func.func_code.co_filename\n" +
                             "except:\n" +
-                            "    pass\n" +
-                            "result = src";
-            scriptManager.runCode(code, inspectLocals, "<getsource>");
-            PyObject srcObj = inspectLocals.__getitem__(Py.newString("result"));
-            String src = srcObj == null ? null : srcObj.toString();
-            if (src != null) {
-                // take first 3 lines
-                String[] lines = src.split("\\R", 4);
-                StringBuilder preview = new StringBuilder();
-                preview.append("=== ").append(scriptPath).append(" ===\n\n");
-                for (int i = 0; i < Math.min(3, lines.length); i++) {
-                    preview.append(lines[i]).append("\n");
-                }
-                return preview.toString();
+                            "    pass\n";
+            scriptRunner.runCode(code, inspectLocals, "<getsource>");
+            PyObject srcObj = inspectLocals.__finditem__("src");
+            if (srcObj == null || srcObj == Py.None) {
+                return null;
             }
+            String text = srcObj.toString();
+            return new ScriptSource(scriptPath, inspectLocals.__finditem__("filename").toString(),
+                    inspectLocals.__finditem__("first").asInt(), CodeCache.hash(text), text);
+        }
+        catch (Exception e) {
+            return null;
         }
-        catch (Exception ignored) {}
+    }
 
-        return "Source not available for " + scriptPath;
+    /**
+     * @return a 64-bit hash of the function source, or 0 if the source is not available
+     */
+    private long sourceHash(String scriptPath, PyObject function) {
+        ScriptSource source = sourceCache.get(scriptPath, function, f -> loadSource(scriptPath, f));
+        return source == null ? 0 : source.hash();
+    }
+
+    /**
+     * Merged measurements of one load test level.
+     */
+    private static final class LoadCounters {
+        final LatencyHistogram latency = new LatencyHistogram();
+        long errors;
+        long elapsedNanos;
     }
 }
@@ -0,0 +1,55 @@
+package com.shiva.common;
+
+import java.util.Locale;
+
+/**
+ * File formats written by {@link ProfileExporter}.
+ */
+public enum ExportFormat {
+    /** Chrome Trace Event JSON, for chrome://tracing and Perfetto. */
+    CHROME("chrome", ".trace.json"),
+    /** speedscope JSON, for https://www.speedscope.app. */
+    SPEEDSCOPE("speedscope", ".speedscope.json"),
+    /** Brendan Gregg's collapsed stacks, for flamegraph.pl and compatible tools. */
+    COLLAPSED("collapsed", ".collapsed.txt");
+
+    private final String id;
+    private final String extension;
+
+    ExportFormat(String id, String extension) {
+        this.id = id;
+        this.extension = extension;
+    }
+
+    /**
+     * @return the name accepted by {@link #fromId}, e.g. {@code speedscope}
+     */
+    public String id() {
+        return id;
+    }
+
+    /**
+     * @return the conventional file name suffix, e.g. {@code .speedscope.json}
+     */
+    public String extension() {
+        return extension;
+    }
+
+    /**
+     * Looks a format up by name, ignoring case.
+     *
+     * @param id {@code chrome}, {@code speedscope} or {@code collapsed}
+     * @return the format
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static ExportFormat fromId(String id) {
+        String key = id == null ? "" : id.trim().toLowerCase(Locale.ROOT);
+        for (ExportFormat format : values()) {
+            if (format.id.equals(key)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown export format '" + id
+                + "'; expected chrome, speedscope or collapsed");
+    }
+}
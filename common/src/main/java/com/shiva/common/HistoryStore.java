@@ -0,0 +1,555 @@
+package com.shiva.common;
+
+import com.inductiveautomation.ignition.common.util.LogUtil;
+import com.inductiveautomation.ignition.common.util.LoggerEx;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Persistent, append-only store of profiling runs that survives gateway restarts.
+ * <p>
+ * Runs are written as fixed-width {@value #RECORD_SIZE}-byte records into segment files of
+ * a fixed size, each memory-mapped while it is being filled. When a segment is full it is
+ * sealed, a small sidecar index (time range and set of path ids) is written next to it, and
+ * a new segment is started. Retention deletes the oldest sealed segments beyond a segment
+ * count or age. Script paths are stored once, in an append-only {@code paths.txt}
+ * dictionary, and referenced from records by id.
+ * <p>
+ * {@link #append(ScriptExecutionResult)} only enqueues the run; a background thread drains
+ * the queue in batches, so callers never touch the disk. If the queue is full, runs are
+ * dropped and counted rather than blocking the profiled thread. Queries stream records from
+ * mapped segments without copying them onto the heap and skip segments whose index rules
+ * them out.
+ */
+public class HistoryStore implements Closeable {
+
+    /** Size of one persisted run. */
+    public static final int RECORD_SIZE = 64;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int MAGIC = 0x53504853; // "SPHS"
+    private static final int VERSION = 1;
+    private static final int COUNT_OFFSET = 24;
+    private static final int QUEUE_CAPACITY = 65_536;
+    private static final int BATCH_SIZE = 1024;
+    private static final long FLUSH_INTERVAL_MS = 250;
+    private static final long RETENTION_CHECK_MS = 60_000;
+
+    /** Flag bit set on runs that failed. */
+    public static final int FLAG_ERROR = 1;
+
+    /** Flag bit set on runs that were cancelled or timed out. */
+    public static final int FLAG_CANCELLED = 2;
+
+    /**
+     * Receives stored records during a streaming query.
+     */
+    @FunctionalInterface
+    public interface RecordVisitor {
+        /**
+         * @return {@code false} to stop the query
+         */
+        boolean visit(long timestamp, int pathId, long elapsedNanos, long resolveNanos, long cpuNanos,
+                      long allocatedBytes, int gcCount, int gcTimeMs, int flags, long argsFingerprint);
+    }
+
+    private final LoggerEx log = LogUtil.getLogger(getClass().getSimpleName());
+    private final Path dir;
+    private final long segmentBytes;
+    private final int segmentCapacity;
+    private final int maxSegments;
+    private final long maxAgeMs;
+
+    private final PathTable paths = new PathTable();
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<ScriptExecutionResult> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // writer-thread state
+    private BufferedWriter pathWriter;
+    private int persistedPaths;
+    private volatile Segment active;
+    private long lastRetentionCheck;
+
+    /**
+     * Opens (or creates) a store and starts its background writer.
+     *
+     * @param dir          directory holding the segment files
+     * @param segmentBytes size of each segment file in bytes
+     * @param maxSegments  maximum number of segments kept on disk
+     * @param maxAgeMs     sealed segments whose newest run is older than this are deleted
+     * @throws IOException if the directory or existing segments cannot be read
+     */
+    public HistoryStore(Path dir, long segmentBytes, int maxSegments, long maxAgeMs) throws IOException {
+        if (segmentBytes < HEADER_SIZE + RECORD_SIZE || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("segmentBytes out of range: " + segmentBytes);
+        }
+        if (maxSegments < 2) {
+            throw new IllegalArgumentException("maxSegments must be >= 2");
+        }
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.segmentCapacity = (int) ((segmentBytes - HEADER_SIZE) / RECORD_SIZE);
+        this.maxSegments = maxSegments;
+        this.maxAgeMs = maxAgeMs;
+
+        Files.createDirectories(dir);
+        loadPaths();
+        loadSegments();
+
+        writer = new Thread(this::writeLoop, "script-profiler-history-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues a run for persistence. Never blocks; drops the run if the queue is full.
+     *
+     * @param run the run to persist
+     */
+    public void append(ScriptExecutionResult run) {
+        if (!running || !queue.offer(run)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return number of runs dropped because the write queue was full or the store closed
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return number of runs waiting to be written
+     */
+    public int pending() {
+        return queue.size();
+    }
+
+    /**
+     * @param pathId a path id passed to a {@link RecordVisitor}
+     * @return the script path
+     */
+    public String pathName(int pathId) {
+        return paths.name(pathId);
+    }
+
+    /**
+     * Streams stored runs in write order, oldest segment first.
+     *
+     * @param fromTs  inclusive lower timestamp bound (epoch millis)
+     * @param toTs    exclusive upper timestamp bound (epoch millis)
+     * @param path    script path to match, or {@code null} for all paths
+     * @param visitor receives each matching record
+     */
+    public void scan(long fromTs, long toTs, String path, RecordVisitor visitor) {
+        int pathId = -1;
+        if (path != null) {
+            pathId = paths.find(path);
+            if (pathId < 0) {
+                return;
+            }
+        }
+        for (Segment segment : segments) {
+            if (!segment.mayContain(fromTs, toTs, pathId)) {
+                continue;
+            }
+            ByteBuffer buf;
+            try {
+                buf = segment.readBuffer();
+            }
+            catch (IOException e) {
+                log.warn("Unable to read history segment " + segment.file + ": " + e.getMessage());
+                continue;
+            }
+            long count = segment.count;
+            for (int i = 0; i < count; i++) {
+                int off = HEADER_SIZE + i * RECORD_SIZE;
+                long ts = buf.getLong(off);
+                int id = buf.getInt(off + 48);
+                if (ts < fromTs || ts >= toTs || (pathId >= 0 && id != pathId)) {
+                    continue;
+                }
+                boolean more = visitor.visit(
+                        ts, id,
+                        buf.getLong(off + 8),
+                        buf.getLong(off + 16),
+                        buf.getLong(off + 24),
+                        buf.getLong(off + 32),
+                        buf.getInt(off + 40),
+                        buf.getInt(off + 44),
+                        buf.getInt(off + 52),
+                        buf.getLong(off + 56));
+                if (!more) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns stored runs in a time range, oldest first.
+     *
+     * @param fromTs inclusive lower timestamp bound (epoch millis)
+     * @param toTs   exclusive upper timestamp bound (epoch millis)
+     * @param path   script path to match, or {@code null} for all paths
+     * @param limit  maximum number of runs returned; 0 returns none
+     * @return the matching runs
+     * @throws IllegalArgumentException if {@code limit} is negative
+     */
+    public List<StoredRun> query(long fromTs, long toTs, String path, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must be >= 0");
+        }
+        if (limit == 0) {
+            return new ArrayList<>();
+        }
+        List<StoredRun> out = new ArrayList<>(Math.min(limit, 1024));
+        scan(fromTs, toTs, path, (ts, id, elapsed, resolve, cpu, alloc, gcCount, gcTime, flags, args) -> {
+            out.add(new StoredRun(paths.name(id), ts, elapsed / 1_000_000.0, resolve / 1_000_000.0,
+                    cpu < 0 ? -1 : cpu / 1_000_000.0, alloc, gcCount, gcTime, flags, args));
+            return out.size() < limit;
+        });
+        return out;
+    }
+
+    /**
+     * Stops the writer after flushing queued runs and syncs the active segment to disk.
+     */
+    @Override
+    public void close() {
+        // no interrupt: it would abort the writer's file channel operations mid-write, so the
+        // writer notices within one poll interval instead
+        running = false;
+        try {
+            writer.join(5_000);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the {@code FLAG_*} bits describing a run's status
+     */
+    public static int flags(ScriptExecutionResult run) {
+        return switch (run.status()) {
+            case OK -> 0;
+            case ERROR -> FLAG_ERROR;
+            case CANCELLED -> FLAG_CANCELLED;
+        };
+    }
+
+    // --- writer thread ---
+
+    private void writeLoop() {
+        List<ScriptExecutionResult> batch = new ArrayList<>(BATCH_SIZE);
+        while (running || !queue.isEmpty()) {
+            try {
+                ScriptExecutionResult first = running
+                        ? queue.poll(FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS)
+                        : queue.poll();
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, BATCH_SIZE - 1);
+                    writeBatch(batch);
+                    batch.clear();
+                }
+                long now = System.currentTimeMillis();
+                if (now - lastRetentionCheck > RETENTION_CHECK_MS) {
+                    lastRetentionCheck = now;
+                    applyRetention();
+                }
+            }
+            catch (InterruptedException e) {
+                // not expected; the loop drains what is left once running is cleared
+            }
+            catch (Exception e) {
+                log.error("Error writing profiling history: " + e.getMessage(), e);
+                batch.clear();
+            }
+        }
+        try {
+            if (active != null && active.buffer != null) {
+                active.buffer.force();
+            }
+            if (pathWriter != null) {
+                pathWriter.close();
+            }
+        }
+        catch (IOException e) {
+            log.warn("Error closing profiling history: " + e.getMessage());
+        }
+    }
+
+    private void writeBatch(List<ScriptExecutionResult> batch) throws IOException {
+        for (ScriptExecutionResult run : batch) {
+            if (active.count == segmentCapacity) {
+                roll();
+            }
+            int pathId = paths.intern(run.path());
+            int off = HEADER_SIZE + (int) active.count * RECORD_SIZE;
+            MappedByteBuffer buf = active.buffer;
+            buf.putLong(off, run.timestamp());
+            buf.putLong(off + 8, Math.round(run.elapsedMs() * 1_000_000.0));
+            buf.putLong(off + 16, Math.round(run.resolveMs() * 1_000_000.0));
+            buf.putLong(off + 24, run.cpuMs() < 0 ? -1 : Math.round(run.cpuMs() * 1_000_000.0));
+            buf.putLong(off + 32, run.allocatedBytes());
+            buf.putInt(off + 40, (int) Math.min(Integer.MAX_VALUE, run.gcCount()));
+            buf.putInt(off + 44, (int) Math.min(Integer.MAX_VALUE, run.gcTimeMs()));
+            buf.putInt(off + 48, pathId);
+            buf.putInt(off + 52, flags(run));
+            buf.putLong(off + 56, run.argsFingerprint());
+            active.include(run.timestamp(), pathId);
+            active.count++;
+        }
+        // the dictionary must be durable before records referencing it become visible
+        persistNewPaths();
+        active.buffer.putLong(COUNT_OFFSET, active.count);
+    }
+
+    private void persistNewPaths() throws IOException {
+        int size = paths.size();
+        if (persistedPaths == size) {
+            return;
+        }
+        if (pathWriter == null) {
+            pathWriter = Files.newBufferedWriter(dir.resolve("paths.txt"), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        for (int id = persistedPaths; id < size; id++) {
+            pathWriter.write(paths.name(id));
+            pathWriter.newLine();
+        }
+        pathWriter.flush();
+        persistedPaths = size;
+    }
+
+    private void roll() throws IOException {
+        Segment sealed = active;
+        sealed.buffer.putLong(COUNT_OFFSET, sealed.count);
+        sealed.buffer.force();
+        sealed.writeIndex();
+        // drop the sealed mapping only once its successor exists, so a failed roll is retried
+        active = createSegment(sealed.index + 1);
+        sealed.buffer = null;
+        applyRetention();
+    }
+
+    private void applyRetention() {
+        long cutoff = System.currentTimeMillis() - maxAgeMs;
+        for (Segment s : segments) {
+            boolean tooMany = segments.size() > maxSegments;
+            boolean tooOld = maxAgeMs > 0 && s.count > 0 && s.maxTs < cutoff;
+            if (s == active || !(tooMany || tooOld)) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(s.indexFile());
+                Files.deleteIfExists(s.file);
+                segments.remove(s);
+            }
+            catch (IOException e) {
+                // a reader may still have the file mapped (Windows); retry on the next check
+                log.debug("Deferring deletion of " + s.file + ": " + e.getMessage());
+                break;
+            }
+        }
+    }
+
+    // --- opening ---
+
+    private void loadPaths() throws IOException {
+        Path file = dir.resolve("paths.txt");
+        if (Files.exists(file)) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                if (!line.isEmpty()) {
+                    paths.intern(line);
+                }
+            }
+        }
+        persistedPaths = paths.size();
+    }
+
+    private void loadSegments() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(dir)) {
+            files = list.filter(p -> p.getFileName().toString().matches("segment-\\d+\\.dat"))
+                    .sorted()
+                    .toList();
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long index = Long.parseLong(name.substring(8, name.length() - 4));
+            Segment segment = new Segment(index, file);
+            try {
+                segment.open();
+                segments.add(segment);
+            }
+            catch (IOException e) {
+                log.warn("Skipping unreadable history segment " + file + ": " + e.getMessage());
+            }
+        }
+
+        Segment last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (last != null && last.count < segmentCapacity && last.capacity() == segmentCapacity) {
+            last.buffer = map(last.file);
+            active = last;
+        }
+        else {
+            if (last != null) {
+                last.writeIndex();
+            }
+            active = createSegment(last == null ? 0 : last.index + 1);
+        }
+        applyRetention();
+    }
+
+    private Segment createSegment(long index) throws IOException {
+        Path file = dir.resolve(String.format("segment-%010d.dat", index));
+        Segment segment = new Segment(index, file);
+        segment.buffer = map(file);
+        segment.buffer.putInt(0, MAGIC);
+        segment.buffer.putInt(4, VERSION);
+        segment.buffer.putInt(8, RECORD_SIZE);
+        segment.buffer.putLong(16, System.currentTimeMillis());
+        segment.buffer.putLong(COUNT_OFFSET, 0);
+        segments.add(segment);
+        return segment;
+    }
+
+    private MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return ch.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+    }
+
+    /**
+     * One segment file plus its in-memory index.
+     */
+    private final class Segment {
+        final long index;
+        final Path file;
+        volatile long count;
+        volatile long minTs = Long.MAX_VALUE;
+        volatile long maxTs = Long.MIN_VALUE;
+        final BitSet pathIds = new BitSet();
+        MappedByteBuffer buffer;
+
+        Segment(long index, Path file) {
+            this.index = index;
+            this.file = file;
+        }
+
+        Path indexFile() {
+            return file.resolveSibling(file.getFileName().toString().replace(".dat", ".idx"));
+        }
+
+        int capacity() throws IOException {
+            return (int) ((Files.size(file) - HEADER_SIZE) / RECORD_SIZE);
+        }
+
+        void include(long ts, int pathId) {
+            if (ts < minTs) {
+                minTs = ts;
+            }
+            if (ts > maxTs) {
+                maxTs = ts;
+            }
+            pathIds.set(pathId);
+        }
+
+        boolean mayContain(long fromTs, long toTs, int pathId) {
+            if (count == 0 || maxTs < fromTs || minTs >= toTs) {
+                return false;
+            }
+            // the active segment's path set is still being written, so always scan it
+            return pathId < 0 || this == active || pathIds.get(pathId);
+        }
+
+        ByteBuffer readBuffer() throws IOException {
+            MappedByteBuffer live = buffer;
+            if (live != null) {
+                return live.duplicate();
+            }
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+                return ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            }
+        }
+
+        void open() throws IOException {
+            ByteBuffer buf = readBuffer();
+            if (buf.capacity() < HEADER_SIZE || buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION || buf.getInt(8) != RECORD_SIZE) {
+                throw new IOException("not a history segment");
+            }
+            long stored = buf.getLong(COUNT_OFFSET);
+            count = Math.min(stored, (buf.capacity() - HEADER_SIZE) / RECORD_SIZE);
+            if (!readIndex()) {
+                for (int i = 0; i < count; i++) {
+                    int off = HEADER_SIZE + i * RECORD_SIZE;
+                    include(buf.getLong(off), buf.getInt(off + 48));
+                }
+            }
+        }
+
+        void writeIndex() throws IOException {
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(indexFile()))) {
+                out.writeLong(count);
+                out.writeLong(minTs);
+                out.writeLong(maxTs);
+                long[] words = pathIds.toLongArray();
+                out.writeInt(words.length);
+                for (long w : words) {
+                    out.writeLong(w);
+                }
+            }
+        }
+
+        private boolean readIndex() {
+            Path idx = indexFile();
+            if (!Files.exists(idx)) {
+                return false;
+            }
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(idx))) {
+                if (in.readLong() != count) {
+                    return false;
+                }
+                minTs = in.readLong();
+                maxTs = in.readLong();
+                long[] words = new long[in.readInt()];
+                for (int i = 0; i < words.length; i++) {
+                    words[i] = in.readLong();
+                }
+                pathIds.or(BitSet.valueOf(words));
+                return true;
+            }
+            catch (IOException e) {
+                return false;
+            }
+        }
+    }
+}
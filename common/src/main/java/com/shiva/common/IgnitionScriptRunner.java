@@ -0,0 +1,48 @@
+package com.shiva.common;
+
+import com.inductiveautomation.ignition.common.script.ScriptManager;
+import org.python.core.PyCode;
+import org.python.core.PyObject;
+import org.python.core.PyStringMap;
+
+/**
+ * {@link ScriptRunner} backed by an Ignition {@link ScriptManager}.
+ */
+public class IgnitionScriptRunner implements ScriptRunner {
+
+    private final ScriptManager scriptManager;
+
+    /**
+     * @param scriptManager the Gateway or Designer script manager
+     */
+    public IgnitionScriptRunner(ScriptManager scriptManager) {
+        this.scriptManager = scriptManager;
+    }
+
+    /**
+     * @return the wrapped script manager
+     */
+    public ScriptManager scriptManager() {
+        return scriptManager;
+    }
+
+    @Override
+    public void runCode(String code, PyStringMap locals, String filename) throws Exception {
+        scriptManager.runCode(code, locals, filename);
+    }
+
+    @Override
+    public void runCode(PyCode code, PyStringMap locals) throws Exception {
+        scriptManager.runCode(code, locals);
+    }
+
+    @Override
+    public PyObject runFunction(PyObject function, PyObject... args) throws Exception {
+        return scriptManager.runFunction(function, args);
+    }
+
+    @Override
+    public PyStringMap createLocalsMap() {
+        return scriptManager.createLocalsMap();
+    }
+}
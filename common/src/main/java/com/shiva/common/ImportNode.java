@@ -0,0 +1,41 @@
+package com.shiva.common;
+
+import java.util.List;
+
+/**
+ * One module import in an import tree.
+ * <p>
+ * {@code cumulativeMs} covers finding, compiling and executing the module including the
+ * imports it triggers; {@code selfMs} excludes those nested imports. Imports of modules that
+ * were already loaded are not recorded.
+ */
+public record ImportNode(
+        String module,
+        double cumulativeMs,
+        double selfMs,
+        boolean failed,
+        List<ImportNode> children
+) {
+
+    /**
+     * Renders this subtree as indented text, one import per line.
+     *
+     * @return a human-readable import tree
+     */
+    public String render() {
+        StringBuilder sb = new StringBuilder();
+        render(sb, 0);
+        return sb.toString();
+    }
+
+    private void render(StringBuilder sb, int depth) {
+        sb.append("  ".repeat(depth))
+                .append(module)
+                .append(String.format(" cum=%.3f ms self=%.3f ms", cumulativeMs, selfMs))
+                .append(failed ? " FAILED" : "")
+                .append('\n');
+        for (ImportNode child : children) {
+            child.render(sb, depth + 1);
+        }
+    }
+}
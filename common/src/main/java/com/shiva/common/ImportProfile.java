@@ -0,0 +1,38 @@
+package com.shiva.common;
+
+import java.util.List;
+
+/**
+ * The result of a cold import of a project script module tree.
+ *
+ * @param root       the imported module path
+ * @param totalMs    wall time of the whole import
+ * @param modules    number of modules loaded
+ * @param imports    the import tree; the root import comes first
+ * @param statements the slowest module-level statements, slowest first
+ * @param error      the error that ended the import, or {@code null} if it succeeded
+ */
+public record ImportProfile(
+        String root,
+        double totalMs,
+        int modules,
+        List<ImportNode> imports,
+        List<ModuleStatement> statements,
+        String error
+) {
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Import of %s: %.3f ms, %d modules%s%n",
+                root, totalMs, modules, error == null ? "" : " (ERROR: " + error + ")"));
+        for (ImportNode node : imports) {
+            sb.append(node.render());
+        }
+        sb.append(String.format("%12s %8s  %s%n", "time ms", "hits", "statement"));
+        for (ModuleStatement s : statements) {
+            sb.append(String.format("%12.3f %8d  %s:%d%n", s.timeMs(), s.hits(), s.file(), s.line()));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,235 @@
+package com.shiva.common;
+
+import org.python.core.Py;
+import org.python.core.PyException;
+import org.python.core.PyFrame;
+import org.python.core.PyObject;
+import org.python.core.ThreadState;
+import org.python.core.TraceFunction;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records the imports triggered on one thread, and the time of each module-level statement
+ * executed by those imports.
+ * <p>
+ * While installed, the builtin {@code __import__} is replaced with a wrapper that times
+ * every import of a module not yet in {@code sys.modules}, nesting imports made during
+ * another module's import under it. A trace function follows only {@code <module>} frames:
+ * function frames get no line events, so the tracing cost is confined to module bodies.
+ * Imports made by other threads meanwhile pass through the wrapper untimed. Single-use;
+ * since {@code __import__} is interpreter-wide, callers must serialize profilers.
+ */
+final class ImportProfiler extends TraceFunction implements RunHook {
+
+    /** Number of module-level statements kept in the result. */
+    static final int MAX_STATEMENTS = 50;
+
+    private static final String IMPORT = "__import__";
+    private static final String MODULE_CODE = "<module>";
+
+    private static final class PendingImport {
+        final String module;
+        final long start = System.nanoTime();
+        final List<ImportNode> children = new ArrayList<>();
+        long childNanos;
+
+        PendingImport(String module) {
+            this.module = module;
+        }
+    }
+
+    private static final class ModuleFrame {
+        final PyFrame frame;
+        int line = -1;
+        long lineStart;
+
+        ModuleFrame(PyFrame frame) {
+            this.frame = frame;
+        }
+    }
+
+    private record StatementKey(String file, int line) {}
+
+    private final Deque<PendingImport> pending = new ArrayDeque<>();
+    private final List<ImportNode> imports = new ArrayList<>();
+    private final Deque<ModuleFrame> frames = new ArrayDeque<>();
+    private final Map<StatementKey, long[]> statements = new HashMap<>();
+
+    private Thread owner;
+    private ThreadState threadState;
+    private TraceFunction previousTrace;
+    private PyObject builtins;
+    private PyObject originalImport;
+    private PyObject hook;
+
+    @Override
+    public void beforeRun() {
+        owner = Thread.currentThread();
+        builtins = Py.getSystemState().getBuiltins();
+        originalImport = builtins.__finditem__(IMPORT);
+        hook = new ImportHook();
+        builtins.__setitem__(IMPORT, hook);
+        threadState = Py.getThreadState();
+        previousTrace = threadState.tracefunc;
+        threadState.tracefunc = this;
+    }
+
+    /**
+     * Uninstalls whatever {@link #beforeRun()} managed to install, so it is safe after a
+     * partial install and when called more than once.
+     */
+    @Override
+    public void afterRun() {
+        if (threadState != null) {
+            threadState.tracefunc = previousTrace;
+            threadState = null;
+        }
+        if (builtins != null && hook != null && builtins.__finditem__(IMPORT) == hook) {
+            builtins.__setitem__(IMPORT, originalImport);
+        }
+        // close module frames whose return event was never delivered
+        long now = System.nanoTime();
+        while (!frames.isEmpty()) {
+            closeLine(frames.pop(), now);
+        }
+    }
+
+    /**
+     * @return the recorded top-level imports, in the order they started
+     */
+    List<ImportNode> imports() {
+        return List.copyOf(imports);
+    }
+
+    /**
+     * @return the slowest module-level statements, slowest first
+     */
+    List<ModuleStatement> slowestStatements() {
+        List<ModuleStatement> out = new ArrayList<>();
+        statements.forEach((key, stats) ->
+                out.add(new ModuleStatement(key.file(), key.line(), stats[0], stats[1] / 1_000_000.0)));
+        out.sort(Comparator.comparingDouble(ModuleStatement::timeMs).reversed());
+        return List.copyOf(out.subList(0, Math.min(MAX_STATEMENTS, out.size())));
+    }
+
+    @Override
+    public TraceFunction traceCall(PyFrame frame) {
+        if (!MODULE_CODE.equals(frame.f_code.co_name)) {
+            return null;
+        }
+        frames.push(new ModuleFrame(frame));
+        return this;
+    }
+
+    @Override
+    public TraceFunction traceLine(PyFrame frame, int line) {
+        ModuleFrame top = frames.peek();
+        if (top == null || top.frame != frame) {
+            return this;
+        }
+        long now = System.nanoTime();
+        closeLine(top, now);
+        top.line = line;
+        top.lineStart = now;
+        return this;
+    }
+
+    @Override
+    public TraceFunction traceReturn(PyFrame frame, PyObject ret) {
+        exit(frame);
+        return null;
+    }
+
+    @Override
+    public TraceFunction traceException(PyFrame frame, PyException exc) {
+        exit(frame);
+        return null;
+    }
+
+    private void exit(PyFrame frame) {
+        ModuleFrame top = frames.peek();
+        if (top != null && top.frame == frame) {
+            closeLine(frames.pop(), System.nanoTime());
+        }
+    }
+
+    private void closeLine(ModuleFrame frame, long now) {
+        if (frame.line < 0) {
+            return;
+        }
+        long[] stats = statements.computeIfAbsent(
+                new StatementKey(frame.frame.f_code.co_filename, frame.line), k -> new long[2]);
+        stats[0]++;
+        stats[1] += now - frame.lineStart;
+        frame.line = -1;
+    }
+
+    /**
+     * Stand-in for the builtin {@code __import__}.
+     */
+    private final class ImportHook extends PyObject {
+
+        @Override
+        public PyObject __call__(PyObject[] args, String[] keywords) {
+            if (Thread.currentThread() != owner || args.length == 0) {
+                return originalImport.__call__(args, keywords);
+            }
+            String module = args[0].toString();
+            PyObject modules = Py.getSystemState().modules;
+            if (module.isEmpty() || modules.__finditem__(module) != null) {
+                return originalImport.__call__(args, keywords);
+            }
+
+            int loadedBefore = modules.__len__();
+            PendingImport current = new PendingImport(module);
+            pending.push(current);
+            boolean ok = false;
+            try {
+                PyObject result = originalImport.__call__(args, keywords);
+                ok = true;
+                return result;
+            }
+            finally {
+                pending.pop();
+                long elapsed = System.nanoTime() - current.start;
+                // implicit relative imports of loaded modules land here too; drop them
+                if (!ok || modules.__len__() != loadedBefore || !current.children.isEmpty()) {
+                    ImportNode node = new ImportNode(module, elapsed / 1_000_000.0,
+                            (elapsed - current.childNanos) / 1_000_000.0, !ok, List.copyOf(current.children));
+                    PendingImport parent = pending.peek();
+                    if (parent != null) {
+                        parent.children.add(node);
+                        parent.childNanos += elapsed;
+                    }
+                    else {
+                        imports.add(node);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public PyObject __call__(PyObject[] args) {
+            return __call__(args, NO_KEYWORDS);
+        }
+
+        @Override
+        public boolean isCallable() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return originalImport.toString();
+        }
+    }
+
+    private static final String[] NO_KEYWORDS = new String[0];
+}
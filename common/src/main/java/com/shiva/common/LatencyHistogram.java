@@ -0,0 +1,234 @@
+package com.shiva.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear (HDR-style) latency histogram with a fixed memory footprint.
+ * <p>
+ * Values are nanoseconds. Values below 128 ns are counted exactly; above that, every
+ * power-of-two range is split into 64 linear sub-buckets, giving a worst-case relative
+ * error of about 1.6% up to the tracked maximum of 2<sup>43</sup> ns (~2.4 h). Larger
+ * values are clamped into the top bucket but still reported exactly by {@link #max()}.
+ * <p>
+ * {@link #record(long)} is lock-free and allocation-free, so it can be called on every
+ * run from any thread. Reads are weakly consistent with concurrent writers.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;       // per power of two
+    private static final int LINEAR_LIMIT = SUB_BUCKETS << 1;          // exact below this
+    private static final int LINEAR_EXPONENT = SUB_BUCKET_BITS + 1;    // log2(LINEAR_LIMIT)
+    private static final int MAX_EXPONENT = 42;
+    private static final int BUCKET_COUNT =
+            LINEAR_LIMIT + (MAX_EXPONENT - LINEAR_EXPONENT + 1) * SUB_BUCKETS;
+
+    /** Largest value that still maps to a distinct bucket. */
+    public static final long MAX_TRACKABLE_NANOS = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong minNanos = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records one latency sample.
+     *
+     * @param nanos the sample in nanoseconds; negative values are treated as zero
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(Math.min(value, MAX_TRACKABLE_NANOS)));
+        totalCount.incrementAndGet();
+        totalNanos.addAndGet(value);
+
+        long min = minNanos.get();
+        while (value < min && !minNanos.compareAndSet(min, value)) {
+            min = minNanos.get();
+        }
+        long max = maxNanos.get();
+        while (value > max && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * Adds every sample of another histogram to this one.
+     *
+     * @param other the histogram to merge in
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long c = other.counts.get(i);
+            if (c != 0) {
+                counts.addAndGet(i, c);
+            }
+        }
+        totalCount.addAndGet(other.totalCount.get());
+        totalNanos.addAndGet(other.totalNanos.get());
+
+        long otherMin = other.minNanos.get();
+        long min = minNanos.get();
+        while (otherMin < min && !minNanos.compareAndSet(min, otherMin)) {
+            min = minNanos.get();
+        }
+        long otherMax = other.maxNanos.get();
+        long max = maxNanos.get();
+        while (otherMax > max && !maxNanos.compareAndSet(max, otherMax)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * Clears all recorded samples.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalNanos.set(0);
+        minNanos.set(Long.MAX_VALUE);
+        maxNanos.set(0);
+    }
+
+    /**
+     * @return number of recorded samples
+     */
+    public long count() {
+        return totalCount.get();
+    }
+
+    /**
+     * @return sum of all recorded samples in nanoseconds
+     */
+    public long totalNanos() {
+        return totalNanos.get();
+    }
+
+    /**
+     * @return the smallest recorded sample, or 0 if empty
+     */
+    public long min() {
+        long min = minNanos.get();
+        return min == Long.MAX_VALUE ? 0 : min;
+    }
+
+    /**
+     * @return the largest recorded sample (exact, not bucketed)
+     */
+    public long max() {
+        return maxNanos.get();
+    }
+
+    /**
+     * @return the arithmetic mean in nanoseconds, or 0 if empty
+     */
+    public double mean() {
+        long n = totalCount.get();
+        return n == 0 ? 0.0 : (double) totalNanos.get() / n;
+    }
+
+    /**
+     * Returns the value at the given percentile, using nearest rank over the buckets.
+     *
+     * @param pct percentile in {@code [0, 100]}
+     * @return the representative value of the bucket containing that rank, in nanoseconds
+     */
+    public long percentile(double pct) {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(pct / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(midpointOf(i), max());
+            }
+        }
+        return max();
+    }
+
+    /**
+     * Counts samples less than or equal to a value, at bucket resolution.
+     *
+     * @param nanos upper bound in nanoseconds
+     * @return number of samples in buckets whose upper edge is at or below the bound
+     */
+    public long countAtOrBelow(long nanos) {
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (highestEquivalent(i) > nanos) {
+                break;
+            }
+            seen += counts.get(i);
+        }
+        return seen;
+    }
+
+    /**
+     * Computes cumulative counts for several bounds in one pass over the buckets, as needed
+     * for exposition formats with {@code le} buckets.
+     *
+     * @param boundsNanos ascending upper bounds in nanoseconds
+     * @param into receives, for each bound, the count {@link #countAtOrBelow(long)} would return
+     * @return number of samples across all buckets, consistent with the filled counts
+     */
+    public long cumulativeCounts(long[] boundsNanos, long[] into) {
+        long seen = 0;
+        int b = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long edge = highestEquivalent(i);
+            while (b < boundsNanos.length && edge > boundsNanos[b]) {
+                into[b++] = seen;
+            }
+            seen += counts.get(i);
+        }
+        while (b < boundsNanos.length) {
+            into[b++] = seen;
+        }
+        return seen;
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return LINEAR_LIMIT + (exponent - LINEAR_EXPONENT) * SUB_BUCKETS + sub;
+    }
+
+    static long lowestEquivalent(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int offset = index - LINEAR_LIMIT;
+        int exponent = LINEAR_EXPONENT + offset / SUB_BUCKETS;
+        long sub = SUB_BUCKETS + offset % SUB_BUCKETS;
+        return sub << (exponent - SUB_BUCKET_BITS);
+    }
+
+    static long highestEquivalent(int index) {
+        return lowestEquivalent(index) + bucketWidth(index) - 1;
+    }
+
+    private static long midpointOf(int index) {
+        return lowestEquivalent(index) + (bucketWidth(index) >> 1);
+    }
+
+    private static long bucketWidth(int index) {
+        if (index < LINEAR_LIMIT) {
+            return 1;
+        }
+        int exponent = LINEAR_EXPONENT + (index - LINEAR_LIMIT) / SUB_BUCKETS;
+        return 1L << (exponent - SUB_BUCKET_BITS);
+    }
+}
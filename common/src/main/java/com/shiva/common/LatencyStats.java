@@ -0,0 +1,74 @@
+package com.shiva.common;
+
+/**
+ * Lifetime latency summary of a single script path, read from its {@link LatencyHistogram}.
+ * <p>
+ * Percentiles are accurate to the histogram's bucket resolution (about 1.6%);
+ * {@code minMs} and {@code maxMs} are exact. CPU and allocation means are per call;
+ * GC figures are JVM-wide totals observed while the script was running.
+ */
+public record LatencyStats(
+        String path,
+        long count,
+        long errors,
+        double meanMs,
+        double minMs,
+        double p50Ms,
+        double p90Ms,
+        double p99Ms,
+        double p999Ms,
+        double maxMs,
+        double meanCpuMs,
+        double meanUserMs,
+        double meanAllocatedBytes,
+        long totalAllocatedBytes,
+        long gcCount,
+        long gcTimeMs
+) {
+
+    /**
+     * Builds a summary from a path's lifetime metrics.
+     *
+     * @param metrics the source metrics
+     * @return the summary
+     */
+    public static LatencyStats of(ScriptMetrics metrics) {
+        LatencyHistogram histogram = metrics.latency();
+        long samples = metrics.resourceSamples();
+        return new LatencyStats(
+                metrics.path(),
+                histogram.count(),
+                metrics.errors(),
+                histogram.mean() / 1_000_000.0,
+                histogram.min() / 1_000_000.0,
+                histogram.percentile(50) / 1_000_000.0,
+                histogram.percentile(90) / 1_000_000.0,
+                histogram.percentile(99) / 1_000_000.0,
+                histogram.percentile(99.9) / 1_000_000.0,
+                histogram.max() / 1_000_000.0,
+                samples == 0 ? 0 : metrics.cpuNanos() / 1_000_000.0 / samples,
+                samples == 0 ? 0 : metrics.userNanos() / 1_000_000.0 / samples,
+                samples == 0 ? 0 : (double) metrics.allocatedBytes() / samples,
+                metrics.allocatedBytes(),
+                metrics.gcCount(),
+                metrics.gcTimeMs()
+        );
+    }
+
+    /**
+     * @param path the script path
+     * @return a summary with no samples
+     */
+    public static LatencyStats empty(String path) {
+        return new LatencyStats(path, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%s: n=%d errors=%d mean=%.3f min=%.3f p50=%.3f p90=%.3f p99=%.3f p999=%.3f max=%.3f ms"
+                        + ", cpu=%.3f ms/call, alloc=%.0f B/call, gc=%d (%d ms)",
+                path, count, errors, meanMs, minMs, p50Ms, p90Ms, p99Ms, p999Ms, maxMs,
+                meanCpuMs, meanAllocatedBytes, gcCount, gcTimeMs);
+    }
+}
@@ -0,0 +1,10 @@
+package com.shiva.common;
+
+/**
+ * Hit count and inclusive time of a single source line within a traced function.
+ */
+public record LineStats(
+        int line,
+        long hits,
+        double timeMs
+) {}
@@ -0,0 +1,23 @@
+package com.shiva.common;
+
+/**
+ * Measurements for one concurrency level of a load test.
+ * <p>
+ * {@code latencyScale} is this level's mean latency divided by the single-thread mean, and
+ * {@code efficiency} is this level's throughput divided by {@code threads} times the
+ * single-thread throughput. A script that serializes on a shared lock shows latency
+ * growing roughly linearly with threads and efficiency falling towards {@code 1/threads}.
+ */
+public record LoadLevel(
+        int threads,
+        long calls,
+        long errors,
+        double throughputPerSec,
+        double meanMs,
+        double p50Ms,
+        double p90Ms,
+        double p99Ms,
+        double maxMs,
+        double latencyScale,
+        double efficiency
+) {}
@@ -0,0 +1,29 @@
+package com.shiva.common;
+
+import java.util.List;
+
+/**
+ * The result of a concurrent load test: one {@link LoadLevel} per thread count, from a
+ * single thread up to the requested maximum.
+ */
+public record LoadTestResult(
+        String path,
+        int maxThreads,
+        long levelDurationMs,
+        List<LoadLevel> levels
+) {
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Load test of %s, %d ms per level%n", path, levelDurationMs));
+        sb.append(String.format("%8s %10s %8s %12s %10s %10s %10s %8s %8s%n",
+                "threads", "calls", "errors", "ops/s", "mean ms", "p99 ms", "max ms", "scale", "eff"));
+        for (LoadLevel l : levels) {
+            sb.append(String.format("%8d %10d %8d %12.1f %10.3f %10.3f %10.3f %8.2f %8.2f%n",
+                    l.threads(), l.calls(), l.errors(), l.throughputPerSec(), l.meanMs(),
+                    l.p99Ms(), l.maxMs(), l.latencyScale(), l.efficiency()));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,58 @@
+package com.shiva.common;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-path registry of {@link ScriptMetrics}.
+ * <p>
+ * Lookups of existing paths never allocate, so the registry can be consulted on every run.
+ */
+public class MetricsRegistry {
+
+    private final Map<String, ScriptMetrics> metrics = new ConcurrentHashMap<>();
+
+    /**
+     * @param path a script path
+     * @return the metrics for the path, created on first use
+     */
+    public ScriptMetrics forPath(String path) {
+        ScriptMetrics m = metrics.get(path);
+        return m != null ? m : metrics.computeIfAbsent(path, ScriptMetrics::new);
+    }
+
+    /**
+     * @param path a script path
+     * @return the metrics for the path, or {@code null} if it has never run
+     */
+    public ScriptMetrics find(String path) {
+        return metrics.get(path);
+    }
+
+    /**
+     * @return all tracked metrics
+     */
+    public Collection<ScriptMetrics> all() {
+        return metrics.values();
+    }
+
+    /**
+     * Clears the aggregates of one path.
+     *
+     * @param path a script path
+     */
+    public void reset(String path) {
+        ScriptMetrics m = metrics.get(path);
+        if (m != null) {
+            m.reset();
+        }
+    }
+
+    /**
+     * Clears the aggregates of every path.
+     */
+    public void resetAll() {
+        metrics.values().forEach(ScriptMetrics::reset);
+    }
+}
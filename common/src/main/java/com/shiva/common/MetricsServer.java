@@ -0,0 +1,110 @@
+package com.shiva.common;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Minimal HTTP endpoint serving {@link OpenMetricsWriter} output at {@value #PATH}.
+ * <p>
+ * Built on the JDK's {@code com.sun.net.httpserver}, so it needs no servlet container and
+ * can be started from a Gateway hook or a local test alike. Requests are handled on a single
+ * daemon thread; a scrape only reads counters, so it never contends with profiled calls.
+ */
+public final class MetricsServer {
+
+    /** Path of the metrics endpoint. */
+    public static final String PATH = "/metrics";
+
+    private final InetSocketAddress address;
+    private final Supplier<? extends Map<String, ? extends Iterable<MetricsRegistry>>> registries;
+    private final OpenMetricsWriter writer = new OpenMetricsWriter();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * @param address    address and port to bind; port 0 picks a free port
+     * @param registries supplies the registries to expose by project name, consulted on every scrape
+     */
+    public MetricsServer(InetSocketAddress address,
+                         Supplier<? extends Map<String, ? extends Iterable<MetricsRegistry>>> registries) {
+        this.address = address;
+        this.registries = registries;
+    }
+
+    /**
+     * Binds the socket and starts serving.
+     *
+     * @throws IOException if the address cannot be bound
+     */
+    public synchronized void start() throws IOException {
+        if (server != null) {
+            return;
+        }
+        HttpServer s = HttpServer.create(address, 0);
+        s.createContext(PATH, this::handle);
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "script-profiler-metrics");
+            t.setDaemon(true);
+            return t;
+        });
+        s.setExecutor(executor);
+        s.start();
+        server = s;
+    }
+
+    /**
+     * Stops serving and releases the socket. Safe to call more than once.
+     */
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+        server.stop(0);
+        executor.shutdownNow();
+        server = null;
+        executor = null;
+    }
+
+    /**
+     * @return the bound port, or -1 if the server is not running
+     */
+    public synchronized int port() {
+        return server == null ? -1 : server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            ByteArrayOutputStream body = new ByteArrayOutputStream(8 * 1024);
+            try (Writer out = new OutputStreamWriter(body, StandardCharsets.UTF_8)) {
+                writer.write(registries.get(), out);
+            }
+            exchange.getResponseHeaders().set("Content-Type", OpenMetricsWriter.CONTENT_TYPE);
+            if ("HEAD".equals(method)) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.size());
+            try (OutputStream os = exchange.getResponseBody()) {
+                body.writeTo(os);
+            }
+        }
+    }
+}
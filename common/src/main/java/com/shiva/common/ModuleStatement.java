@@ -0,0 +1,18 @@
+package com.shiva.common;
+
+/**
+ * Time spent on one module-level statement while its module was being imported. The time
+ * is inclusive: it covers any imports and calls the statement makes.
+ *
+ * @param file   the module's code file name, e.g. {@code <module:shared.reports>}
+ * @param line   the statement's line number
+ * @param hits   how often the line executed (more than once inside module-level loops)
+ * @param timeMs combined time of those executions
+ */
+public record ModuleStatement(
+        String file,
+        int line,
+        long hits,
+        double timeMs
+) {
+}
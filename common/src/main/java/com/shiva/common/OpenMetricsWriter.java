@@ -0,0 +1,181 @@
+package com.shiva.common;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Renders {@link MetricsRegistry} contents in the OpenMetrics text exposition format.
+ * <p>
+ * Every figure is read from the lock-free counters and histograms the profiler already
+ * maintains, so a scrape never walks the run history and never blocks a profiled call.
+ * Reads are weakly consistent with concurrent writers; within one histogram the bucket
+ * counts, {@code _count} and the {@code +Inf} bucket come from the same pass and always agree.
+ * <p>
+ * Every sample is labelled with its project and path, since same-named library functions in
+ * different projects are different code. A path present in several registries of one
+ * project (an old and a new script manager while a project restarts) is reported once, with
+ * its counters and buckets summed.
+ */
+public final class OpenMetricsWriter {
+
+    /** Content type of the exposition format, for the HTTP response. */
+    public static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    private static final String PREFIX = "scriptprofiler_";
+
+    /** Histogram bucket bounds: 1 ms to 1 min. */
+    private static final long[] BUCKET_NANOS = {
+            1_000_000L, 5_000_000L, 10_000_000L, 25_000_000L, 50_000_000L, 100_000_000L,
+            250_000_000L, 500_000_000L, 1_000_000_000L, 2_500_000_000L, 5_000_000_000L,
+            10_000_000_000L, 30_000_000_000L, 60_000_000_000L
+    };
+    private static final String[] BUCKET_LABELS = {
+            "0.001", "0.005", "0.01", "0.025", "0.05", "0.1",
+            "0.25", "0.5", "1.0", "2.5", "5.0",
+            "10.0", "30.0", "60.0"
+    };
+
+    private static final Comparator<Series> ORDER = Comparator.comparing(Series::project).thenComparing(Series::path);
+
+    /**
+     * Writes one exposition, terminated by {@code # EOF}. The writer is not flushed.
+     *
+     * @param registries the registries to expose, by project name
+     * @param out        the destination
+     */
+    public void write(Map<String, ? extends Iterable<MetricsRegistry>> registries, Writer out) throws IOException {
+        Map<Series, List<ScriptMetrics>> bySeries = new TreeMap<>(ORDER);
+        for (Map.Entry<String, ? extends Iterable<MetricsRegistry>> project : registries.entrySet()) {
+            for (MetricsRegistry registry : project.getValue()) {
+                for (ScriptMetrics m : registry.all()) {
+                    bySeries.computeIfAbsent(new Series(project.getKey(), m.path()), k -> new ArrayList<>(1)).add(m);
+                }
+            }
+        }
+
+        writeCounter(out, "calls", null, "Completed script calls.",
+                bySeries, m -> m.latency().count());
+        writeCounter(out, "errors", null, "Script calls that raised an error.",
+                bySeries, ScriptMetrics::errors);
+        writeHistogram(out, bySeries);
+        writeCounter(out, "resource_calls", null, "Calls covered by the CPU and allocation totals.",
+                bySeries, ScriptMetrics::resourceSamples);
+        writeSecondsCounter(out, "cpu_seconds", "Thread CPU time of measured calls.",
+                bySeries, ScriptMetrics::cpuNanos);
+        writeSecondsCounter(out, "user_cpu_seconds", "Thread user-mode CPU time of measured calls.",
+                bySeries, ScriptMetrics::userNanos);
+        writeCounter(out, "allocated_bytes", "bytes", "Bytes allocated by the threads of measured calls.",
+                bySeries, ScriptMetrics::allocatedBytes);
+        out.write("# EOF\n");
+    }
+
+    private static void writeCounter(Writer out, String name, String unit, String help,
+                                     Map<Series, List<ScriptMetrics>> bySeries,
+                                     ToLongFunction<ScriptMetrics> value) throws IOException {
+        writeHeader(out, name, "counter", unit, help);
+        for (Map.Entry<Series, List<ScriptMetrics>> e : bySeries.entrySet()) {
+            long total = 0;
+            for (ScriptMetrics m : e.getValue()) {
+                total += value.applyAsLong(m);
+            }
+            writeSample(out, name, "_total", e.getKey(), null, Long.toString(total));
+        }
+    }
+
+    private static void writeSecondsCounter(Writer out, String name, String help,
+                                            Map<Series, List<ScriptMetrics>> bySeries,
+                                            ToLongFunction<ScriptMetrics> nanos) throws IOException {
+        writeHeader(out, name, "counter", "seconds", help);
+        for (Map.Entry<Series, List<ScriptMetrics>> e : bySeries.entrySet()) {
+            long total = 0;
+            for (ScriptMetrics m : e.getValue()) {
+                total += nanos.applyAsLong(m);
+            }
+            writeSample(out, name, "_total", e.getKey(), null, seconds(total));
+        }
+    }
+
+    private static void writeHistogram(Writer out, Map<Series, List<ScriptMetrics>> bySeries) throws IOException {
+        String name = "duration_seconds";
+        writeHeader(out, name, "histogram", "seconds", "Wall-clock time of completed script calls.");
+        long[] cumulative = new long[BUCKET_NANOS.length];
+        long[] summed = new long[BUCKET_NANOS.length];
+        for (Map.Entry<Series, List<ScriptMetrics>> e : bySeries.entrySet()) {
+            long count = 0;
+            long sumNanos = 0;
+            Arrays.fill(summed, 0);
+            for (ScriptMetrics m : e.getValue()) {
+                LatencyHistogram h = m.latency();
+                count += h.cumulativeCounts(BUCKET_NANOS, cumulative);
+                sumNanos += h.totalNanos();
+                for (int i = 0; i < summed.length; i++) {
+                    summed[i] += cumulative[i];
+                }
+            }
+            Series series = e.getKey();
+            for (int i = 0; i < summed.length; i++) {
+                writeSample(out, name, "_bucket", series, BUCKET_LABELS[i], Long.toString(summed[i]));
+            }
+            writeSample(out, name, "_bucket", series, "+Inf", Long.toString(count));
+            writeSample(out, name, "_count", series, null, Long.toString(count));
+            writeSample(out, name, "_sum", series, null, seconds(sumNanos));
+        }
+    }
+
+    private static void writeHeader(Writer out, String name, String type, String unit, String help)
+            throws IOException {
+        out.write("# TYPE " + PREFIX + name + " " + type + "\n");
+        if (unit != null) {
+            out.write("# UNIT " + PREFIX + name + " " + unit + "\n");
+        }
+        out.write("# HELP " + PREFIX + name + " " + help + "\n");
+    }
+
+    private static void writeSample(Writer out, String name, String suffix, Series series, String le, String value)
+            throws IOException {
+        out.write(PREFIX);
+        out.write(name);
+        out.write(suffix);
+        out.write("{project=\"");
+        writeLabelValue(out, series.project());
+        out.write("\",path=\"");
+        writeLabelValue(out, series.path());
+        if (le != null) {
+            out.write("\",le=\"");
+            out.write(le);
+        }
+        out.write("\"} ");
+        out.write(value);
+        out.write('\n');
+    }
+
+    /**
+     * Escapes a label value: backslash, double quote and line feed.
+     */
+    private static void writeLabelValue(Writer out, String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> out.write("\\\\");
+                case '"' -> out.write("\\\"");
+                case '\n' -> out.write("\\n");
+                default -> out.write(c);
+            }
+        }
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1_000_000_000.0);
+    }
+
+    /** The labels identifying one reported script. */
+    private record Series(String project, String path) {
+    }
+}
@@ -0,0 +1,66 @@
+package com.shiva.common;
+
+import java.util.List;
+
+/**
+ * The result of profiling every function under a module tree: one run per function,
+ * ranked slowest first. Functions the arguments provider skipped are counted but not run.
+ */
+public record PackageReport(
+        String prefix,
+        int discovered,
+        int skipped,
+        int parallelism,
+        long timeoutMs,
+        double wallMs,
+        List<ScriptExecutionResult> runs
+) {
+
+    private static final int SUMMARY_ROWS = 25;
+
+    /**
+     * @return the number of functions that returned normally
+     */
+    public long ok() {
+        return runs.stream().filter(ScriptExecutionResult::ok).count();
+    }
+
+    /**
+     * @return the number of functions that raised an error
+     */
+    public long errors() {
+        return runs.stream().filter(r -> r.status() == ScriptExecutionResult.Status.ERROR).count();
+    }
+
+    /**
+     * @return the number of functions stopped at the per-function timeout
+     */
+    public long timedOut() {
+        return runs.stream().filter(r -> r.status() == ScriptExecutionResult.Status.CANCELLED).count();
+    }
+
+    /**
+     * @param n maximum number of runs returned
+     * @return the {@code n} slowest runs
+     */
+    public List<ScriptExecutionResult> slowest(int n) {
+        return runs.subList(0, Math.min(Math.max(n, 0), runs.size()));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Package %s: %d functions, %d run (%d ok, %d errors, %d timed out), %d skipped, "
+                        + "%.1f ms wall on %d threads%n",
+                prefix, discovered, runs.size(), ok(), errors(), timedOut(), skipped, wallMs, parallelism));
+        sb.append(String.format("%12s %10s %-9s %s%n", "elapsed ms", "cpu ms", "status", "function"));
+        for (ScriptExecutionResult run : slowest(SUMMARY_ROWS)) {
+            sb.append(String.format("%12.3f %10.3f %-9s %s%n",
+                    run.elapsedMs(), run.cpuMs(), run.status(), run.path()));
+        }
+        if (runs.size() > SUMMARY_ROWS) {
+            sb.append(String.format("... %d more%n", runs.size() - SUMMARY_ROWS));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,72 @@
+package com.shiva.common;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns script paths to small, dense integer ids.
+ * <p>
+ * Lookups of already-known paths are a single concurrent map read and never allocate,
+ * which lets hot-path structures store an {@code int} instead of a {@code String}.
+ */
+public class PathTable {
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[16];
+    private int size;
+
+    /**
+     * Returns the id for a path, assigning the next free id on first sight.
+     *
+     * @param path a script path
+     * @return a stable id in {@code [0, size())}
+     */
+    public int intern(String path) {
+        Integer id = ids.get(path);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(path);
+            if (id != null) {
+                return id;
+            }
+            int next = size;
+            String[] current = names;
+            if (next == current.length) {
+                current = Arrays.copyOf(current, next * 2);
+            }
+            current[next] = path;
+            // publish the array before the id becomes visible
+            names = current;
+            size = next + 1;
+            ids.put(path, next);
+            return next;
+        }
+    }
+
+    /**
+     * @param path a script path
+     * @return its id, or {@code -1} if the path has never been interned
+     */
+    public int find(String path) {
+        Integer id = ids.get(path);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param id an id previously returned by {@link #intern(String)}
+     * @return the path for that id
+     */
+    public String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * @return the number of interned paths
+     */
+    public int size() {
+        return ids.size();
+    }
+}
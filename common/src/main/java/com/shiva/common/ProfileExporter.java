@@ -0,0 +1,420 @@
+package com.shiva.common;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the run history, a traced call tree and sampled stacks to Chrome Trace Event JSON,
+ * speedscope JSON or collapsed stacks.
+ * <p>
+ * Output is streamed: history records are read from the ring one at a time and events are
+ * written as they are produced, so memory use does not grow with the size of the export.
+ * Call trees aggregate calls, so they are laid out as a flame chart (children back to back
+ * from the start of their parent) rather than as a real timeline. Collapsed stack values
+ * are microseconds, including those of sampled stacks, so all three sources share a unit.
+ */
+public final class ProfileExporter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String SPEEDSCOPE_SCHEMA = "https://www.speedscope.app/file-format-schema.json";
+    private static final String EXPORTER = "script-profiler";
+
+    private static final int HISTORY_PID = 1;
+    private static final int TRACE_PID = 2;
+    private static final int SAMPLES_PID = 3;
+
+    private final RunHistory history;
+    private final TracedExecution trace;
+    private final SampledExecution samples;
+
+    /**
+     * @param history the run history
+     * @param trace   a traced run, or {@code null}
+     * @param samples a sampled run, or {@code null}
+     */
+    public ProfileExporter(RunHistory history, TracedExecution trace, SampledExecution samples) {
+        this.history = history;
+        this.trace = trace;
+        this.samples = samples;
+    }
+
+    /**
+     * Writes an export to a file, replacing any existing file.
+     *
+     * @param format the output format
+     * @param file   the file to write
+     */
+    public void write(ExportFormat format, Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            write(format, out);
+        }
+    }
+
+    /**
+     * Writes an export to a stream. The stream is flushed but not closed.
+     *
+     * @param format the output format
+     * @param out    the destination
+     */
+    public void write(ExportFormat format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        switch (format) {
+            case CHROME -> writeChrome(writer);
+            case SPEEDSCOPE -> writeSpeedscope(writer);
+            case COLLAPSED -> writeCollapsed(writer);
+        }
+        writer.flush();
+    }
+
+    // === Chrome Trace Event format ===
+
+    private void writeChrome(Writer writer) throws IOException {
+        JsonWriter json = new JsonWriter(writer);
+        json.beginObject()
+                .name("displayTimeUnit").value("ms")
+                .name("otherData").beginObject().name("exporter").value(EXPORTER).endObject()
+                .name("traceEvents").beginArray();
+
+        // one track per script path, named when the path is first seen
+        metadata(json, "process_name", HISTORY_PID, 0, "Run history");
+        PathTable paths = history.paths();
+        boolean[] named = new boolean[paths.size() + 1];
+        for (ScriptExecutionResult run : history.snapshot()) {
+            int tid = paths.find(run.path()) + 1;
+            if (tid >= named.length) {
+                named = Arrays.copyOf(named, Math.max(tid + 1, named.length * 2));
+            }
+            if (!named[tid]) {
+                named[tid] = true;
+                metadata(json, "thread_name", HISTORY_PID, tid, run.path());
+            }
+            long durUs = Math.round(run.elapsedMs() * 1000);
+            json.beginObject()
+                    .name("name").value(run.path())
+                    .name("cat").value("run")
+                    .name("ph").value("X")
+                    .name("ts").value(run.timestamp() * 1000 - durUs)
+                    .name("dur").value(durUs)
+                    .name("pid").value(HISTORY_PID)
+                    .name("tid").value(tid)
+                    .name("args").beginObject()
+                    .name("status").value(run.status().name())
+                    .name("args").value(run.argsPreview())
+                    .name("argsFingerprint").value(ArgSummary.hex(run.argsFingerprint()))
+                    .name("error").value(run.error())
+                    .name("resolveMs").value(run.resolveMs())
+                    .name("cpuMs").value(run.cpuMs())
+                    .name("allocatedBytes").value(run.allocatedBytes())
+                    .name("gcCount").value(run.gcCount())
+                    .endObject()
+                    .endObject();
+        }
+
+        if (trace != null) {
+            metadata(json, "process_name", TRACE_PID, 0, "Trace: " + trace.run().path());
+            CallTreeNode root = trace.callTree();
+            double startUs = runStartUs(trace.run());
+            chromeNode(json, root, startUs, startUs + root.inclusiveMs() * 1000);
+        }
+
+        if (samples != null) {
+            metadata(json, "process_name", SAMPLES_PID, 0, "Samples: " + samples.run().path());
+            double startUs = runStartUs(samples.run());
+            forEachSampledFrame((frame, fromUs, toUs) -> complete(json, frame, "sample", SAMPLES_PID,
+                    startUs + fromUs, toUs - fromUs, null));
+        }
+
+        json.endArray().endObject();
+    }
+
+    private void chromeNode(JsonWriter json, CallTreeNode node, double startUs, double endUs) throws IOException {
+        complete(json, label(node), "call", TRACE_PID, startUs, endUs - startUs, node);
+        double cursor = startUs;
+        for (CallTreeNode child : node.children()) {
+            double childEnd = Math.min(cursor + child.inclusiveMs() * 1000, endUs);
+            chromeNode(json, child, cursor, childEnd);
+            cursor = childEnd;
+        }
+    }
+
+    private static void complete(JsonWriter json, String name, String category, int pid,
+                                 double tsUs, double durUs, CallTreeNode node) throws IOException {
+        json.beginObject()
+                .name("name").value(name)
+                .name("cat").value(category)
+                .name("ph").value("X")
+                .name("ts").value(tsUs)
+                .name("dur").value(durUs)
+                .name("pid").value(pid)
+                .name("tid").value(1);
+        if (node != null) {
+            json.name("args").beginObject()
+                    .name("calls").value(node.calls())
+                    .name("inclusiveMs").value(node.inclusiveMs())
+                    .name("exclusiveMs").value(node.exclusiveMs())
+                    .endObject();
+        }
+        json.endObject();
+    }
+
+    private static void metadata(JsonWriter json, String kind, int pid, int tid, String name) throws IOException {
+        json.beginObject()
+                .name("name").value(kind)
+                .name("ph").value("M")
+                .name("pid").value(pid)
+                .name("tid").value(tid)
+                .name("args").beginObject().name("name").value(name).endObject()
+                .endObject();
+    }
+
+    private static double runStartUs(ScriptExecutionResult run) {
+        return run.timestamp() * 1000.0 - run.elapsedMs() * 1000.0;
+    }
+
+    // === speedscope format ===
+
+    private void writeSpeedscope(Writer writer) throws IOException {
+        // frames must precede the profiles, so collect the (small) frame table first
+        Map<String, Integer> frames = new LinkedHashMap<>();
+        List<String[]> frameInfo = new ArrayList<>();
+
+        PathTable paths = history.paths();
+        RunHistory.Snapshot window = history.snapshot();
+        int capacity = (int) (window.to() - window.from());
+        int[] runFrames = new int[capacity];
+        double[] runMs = new double[capacity];
+        int[] runCount = new int[1];
+        double[] runTotal = new double[1];
+        window.forEach((sequence, timestamp, elapsedNanos, pathId) -> {
+            int i = runCount[0]++;
+            runFrames[i] = frame(frames, frameInfo, paths.name(pathId), "", 0);
+            runMs[i] = elapsedNanos / 1_000_000.0;
+            runTotal[0] += runMs[i];
+        });
+
+        if (trace != null) {
+            collectFrames(trace.callTree(), frames, frameInfo);
+        }
+
+        List<int[]> sampleStacks = new ArrayList<>();
+        List<Long> sampleCounts = new ArrayList<>();
+        if (samples != null) {
+            for (String line : samples.collapsedStacks()) {
+                int space = line.lastIndexOf(' ');
+                String[] names = line.substring(0, space).split(";");
+                int[] stack = new int[names.length];
+                for (int i = 0; i < names.length; i++) {
+                    stack[i] = frame(frames, frameInfo, names[i], "", 0);
+                }
+                sampleStacks.add(stack);
+                sampleCounts.add(Long.parseLong(line.substring(space + 1)));
+            }
+        }
+
+        JsonWriter json = new JsonWriter(writer);
+        json.beginObject()
+                .name("$schema").value(SPEEDSCOPE_SCHEMA)
+                .name("exporter").value(EXPORTER)
+                .name("name").value("Script profile")
+                .name("activeProfileIndex").value(0)
+                .name("shared").beginObject().name("frames").beginArray();
+        for (String[] info : frameInfo) {
+            json.beginObject().name("name").value(info[0]);
+            if (!info[1].isEmpty()) {
+                json.name("file").value(info[1]).name("line").value(Integer.parseInt(info[2]));
+            }
+            json.endObject();
+        }
+        json.endArray().endObject()
+                .name("profiles").beginArray();
+
+        if (runCount[0] > 0) {
+            beginProfile(json, "sampled", "Run history", runTotal[0]);
+            json.name("samples").beginArray();
+            for (int i = 0; i < runCount[0]; i++) {
+                json.beginArray().value(runFrames[i]).endArray();
+            }
+            json.endArray().name("weights").beginArray();
+            for (int i = 0; i < runCount[0]; i++) {
+                json.value(runMs[i]);
+            }
+            json.endArray().endObject();
+        }
+
+        if (trace != null) {
+            CallTreeNode root = trace.callTree();
+            beginProfile(json, "evented", "Trace: " + trace.run().path(), root.inclusiveMs());
+            json.name("events").beginArray();
+            eventedNode(json, root, frames, 0, root.inclusiveMs());
+            json.endArray().endObject();
+        }
+
+        if (samples != null) {
+            double interval = samples.intervalMs();
+            beginProfile(json, "sampled", "Samples: " + samples.run().path(), samples.samples() * interval);
+            json.name("samples").beginArray();
+            for (int[] stack : sampleStacks) {
+                json.beginArray();
+                for (int frame : stack) {
+                    json.value(frame);
+                }
+                json.endArray();
+            }
+            json.endArray().name("weights").beginArray();
+            for (long count : sampleCounts) {
+                json.value(count * interval);
+            }
+            json.endArray().endObject();
+        }
+
+        json.endArray().endObject();
+    }
+
+    private static void beginProfile(JsonWriter json, String type, String name, double endValue) throws IOException {
+        json.beginObject()
+                .name("type").value(type)
+                .name("name").value(name)
+                .name("unit").value("milliseconds")
+                .name("startValue").value(0)
+                .name("endValue").value(endValue);
+    }
+
+    private void eventedNode(JsonWriter json, CallTreeNode node, Map<String, Integer> frames,
+                             double start, double end) throws IOException {
+        int frame = frames.get(frameKey(node));
+        json.beginObject().name("type").value("O").name("frame").value(frame).name("at").value(start).endObject();
+        double cursor = start;
+        for (CallTreeNode child : node.children()) {
+            double childEnd = Math.min(cursor + child.inclusiveMs(), end);
+            eventedNode(json, child, frames, cursor, childEnd);
+            cursor = childEnd;
+        }
+        json.beginObject().name("type").value("C").name("frame").value(frame).name("at").value(end).endObject();
+    }
+
+    private static void collectFrames(CallTreeNode node, Map<String, Integer> frames, List<String[]> frameInfo) {
+        internFrame(frames, frameInfo, frameKey(node), node.function(), node.file(), node.firstLine());
+        for (CallTreeNode child : node.children()) {
+            collectFrames(child, frames, frameInfo);
+        }
+    }
+
+    private static int frame(Map<String, Integer> frames, List<String[]> frameInfo, String name,
+                             String file, int line) {
+        return internFrame(frames, frameInfo, name, name, file, line);
+    }
+
+    private static int internFrame(Map<String, Integer> frames, List<String[]> frameInfo, String key,
+                                 String name, String file, int line) {
+        return frames.computeIfAbsent(key, k -> {
+            frameInfo.add(new String[]{name, file, Integer.toString(line)});
+            return frameInfo.size() - 1;
+        });
+    }
+
+    private static String frameKey(CallTreeNode node) {
+        return node.file().isEmpty() ? node.function() : label(node);
+    }
+
+    // === collapsed stacks ===
+
+    private void writeCollapsed(Writer writer) throws IOException {
+        PathTable paths = history.paths();
+        long[] totals = new long[paths.size()];
+        history.snapshot().forEach((sequence, timestamp, elapsedNanos, pathId) -> {
+            if (pathId < totals.length) {
+                totals[pathId] += elapsedNanos / 1000;
+            }
+        });
+        for (int id = 0; id < totals.length; id++) {
+            if (totals[id] > 0) {
+                writer.write("history;" + collapsedFrame(paths.name(id)) + " " + totals[id] + "\n");
+            }
+        }
+
+        if (trace != null) {
+            collapsedNode(writer, trace.callTree(), new StringBuilder("trace"));
+        }
+
+        if (samples != null) {
+            double intervalUs = samples.intervalMs() * 1000;
+            for (String line : samples.collapsedStacks()) {
+                int space = line.lastIndexOf(' ');
+                long us = Math.round(Long.parseLong(line.substring(space + 1)) * intervalUs);
+                writer.write("samples;" + line.substring(0, space) + " " + us + "\n");
+            }
+        }
+    }
+
+    private static void collapsedNode(Writer writer, CallTreeNode node, StringBuilder stack) throws IOException {
+        int mark = stack.length();
+        stack.append(';').append(collapsedFrame(label(node)));
+        long exclusiveUs = Math.round(node.exclusiveMs() * 1000);
+        if (exclusiveUs > 0) {
+            writer.write(stack + " " + exclusiveUs + "\n");
+        }
+        for (CallTreeNode child : node.children()) {
+            collapsedNode(writer, child, stack);
+        }
+        stack.setLength(mark);
+    }
+
+    private static String collapsedFrame(String frame) {
+        return frame.replace(';', ':').replace('\n', ' ');
+    }
+
+    // === shared helpers ===
+
+    private static String label(CallTreeNode node) {
+        return node.file().isEmpty()
+                ? node.function()
+                : node.function() + " (" + node.file() + ":" + node.firstLine() + ")";
+    }
+
+    @FunctionalInterface
+    private interface FrameSpanVisitor {
+        void visit(String frame, double fromUs, double toUs) throws IOException;
+    }
+
+    /**
+     * Lays the sampled stacks out as a flame chart. The collapsed stacks come from a
+     * depth-first walk of the stack trie, so consecutive stacks share their common prefix
+     * and each frame becomes one span covering its own and its callees' samples.
+     */
+    private void forEachSampledFrame(FrameSpanVisitor visitor) throws IOException {
+        double intervalUs = samples.intervalMs() * 1000;
+        List<String> open = new ArrayList<>();
+        List<Double> openedAt = new ArrayList<>();
+        double now = 0;
+        for (String line : samples.collapsedStacks()) {
+            int space = line.lastIndexOf(' ');
+            String[] frames = line.substring(0, space).split(";");
+            int common = 0;
+            while (common < open.size() && common < frames.length && open.get(common).equals(frames[common])) {
+                common++;
+            }
+            for (int i = open.size() - 1; i >= common; i--) {
+                visitor.visit(open.remove(i), openedAt.remove(i), now);
+            }
+            for (int i = common; i < frames.length; i++) {
+                open.add(frames[i]);
+                openedAt.add(now);
+            }
+            now += Long.parseLong(line.substring(space + 1)) * intervalUs;
+        }
+        for (int i = open.size() - 1; i >= 0; i--) {
+            visitor.visit(open.remove(i), openedAt.remove(i), now);
+        }
+    }
+}
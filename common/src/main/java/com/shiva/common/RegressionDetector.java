@@ -0,0 +1,277 @@
+package com.shiva.common;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Detects performance regressions of script functions against stored baselines.
+ * <p>
+ * For every path the detector keeps a uniform reservoir sample of call durations recorded
+ * since the path's source last changed. {@link #capture} freezes that sample as the
+ * baseline, together with a hash of the function source. When the source hash later
+ * differs, the reservoir restarts, and {@link #compare} tests the new runs against the
+ * baseline with a one-sided Mann-Whitney U test.
+ */
+public class RegressionDetector {
+
+    /** Significance level for flagging a regression. */
+    public static final double ALPHA = 0.01;
+
+    /** Minimum slowdown of the median for a significant difference to count as a regression. */
+    public static final double MIN_RATIO = 1.10;
+
+    /** Minimum number of runs on either side before anything is compared or captured. */
+    public static final int MIN_SAMPLES = 20;
+
+    /** Number of call durations retained per path. */
+    public static final int RESERVOIR_SIZE = 1000;
+
+    private final Map<String, PathState> states = new ConcurrentHashMap<>();
+    private volatile BaselineStore store;
+
+    /**
+     * Persists captured baselines and restores previously stored ones.
+     *
+     * @param store the store, or {@code null} to keep baselines in memory only
+     */
+    public void setStore(BaselineStore store) {
+        this.store = store;
+        if (store != null) {
+            for (Baseline baseline : store.loadAll()) {
+                PathState state = state(baseline.path());
+                state.baseline = baseline;
+                state.sourceHash = baseline.sourceHash();
+            }
+        }
+    }
+
+    /**
+     * Records a successful call. Cheap enough for every run: one reservoir update.
+     */
+    public void record(String path, long nanos) {
+        state(path).reservoir.add(nanos);
+    }
+
+    /**
+     * @return {@code true} if the path has a baseline, i.e. its source hash should be tracked
+     */
+    public boolean hasBaseline(String path) {
+        PathState state = states.get(path);
+        return state != null && state.baseline != null;
+    }
+
+    /**
+     * Notes that a path was (re-)resolved, which happens after the script library reloads.
+     * Without a baseline the source may have changed, so collected runs are discarded.
+     * With a baseline, they are discarded only if the source hash actually changed.
+     *
+     * @param sourceHash the current source hash, or 0 if it was not computed
+     */
+    public void resolved(String path, long sourceHash) {
+        PathState state = state(path);
+        synchronized (state) {
+            if (state.baseline == null || sourceHash != state.sourceHash) {
+                state.reservoir.clear();
+                state.sourceHash = sourceHash;
+            }
+        }
+    }
+
+    /**
+     * Captures the runs collected for a path as its baseline.
+     *
+     * @param sourceHash hash of the function source the runs were measured on
+     * @return the new baseline
+     * @throws IllegalStateException if fewer than {@value #MIN_SAMPLES} runs were collected
+     */
+    public Baseline capture(String path, long sourceHash) {
+        PathState state = state(path);
+        Baseline baseline;
+        synchronized (state) {
+            long[] samples = state.reservoir.toSortedArray();
+            if (samples.length < MIN_SAMPLES) {
+                throw new IllegalStateException("A baseline for '" + path + "' needs at least " + MIN_SAMPLES
+                        + " runs since its source last changed; have " + samples.length);
+            }
+            baseline = new Baseline(path, sourceHash, System.currentTimeMillis(), samples);
+            state.baseline = baseline;
+            state.sourceHash = sourceHash;
+        }
+        BaselineStore s = store;
+        if (s != null) {
+            s.save(baseline);
+        }
+        return baseline;
+    }
+
+    /**
+     * Removes the baseline of a path.
+     */
+    public void clear(String path) {
+        PathState state = states.get(path);
+        if (state != null) {
+            state.baseline = null;
+        }
+        BaselineStore s = store;
+        if (s != null) {
+            s.delete(path);
+        }
+    }
+
+    /**
+     * Compares the runs collected since the source last changed against the baseline.
+     */
+    public RegressionReport compare(String path) {
+        PathState state = states.get(path);
+        Baseline baseline = state == null ? null : state.baseline;
+        if (baseline == null) {
+            return new RegressionReport(path, false, false, 0, 0, 0, 0, 0, 1.0, false);
+        }
+        long[] current = state.reservoir.toSortedArray();
+        double baseMedian = median(baseline.samplesNanos());
+        double currentMedian = median(current);
+        double ratio = baseMedian > 0 && current.length > 0 ? currentMedian / baseMedian : 0;
+        boolean changed = state.sourceHash != baseline.sourceHash();
+
+        double p = 1.0;
+        if (changed && current.length >= MIN_SAMPLES && baseline.samplesNanos().length >= MIN_SAMPLES) {
+            p = mannWhitneyGreater(current, baseline.samplesNanos());
+        }
+        boolean regression = changed && p < ALPHA && ratio >= MIN_RATIO;
+        return new RegressionReport(path, true, changed, baseline.samplesNanos().length, current.length,
+                baseMedian / 1_000_000.0, currentMedian / 1_000_000.0, ratio, p, regression);
+    }
+
+    /**
+     * @return reports for every path with a baseline whose current runs are a regression
+     */
+    public List<RegressionReport> regressions() {
+        return states.keySet().stream()
+                .map(this::compare)
+                .filter(RegressionReport::regression)
+                .toList();
+    }
+
+    private PathState state(String path) {
+        return states.computeIfAbsent(path, p -> new PathState());
+    }
+
+    /**
+     * One-sided Mann-Whitney U test (normal approximation with tie and continuity
+     * correction) of the hypothesis that values in {@code a} tend to be larger than in {@code b}.
+     *
+     * @param a sorted sample
+     * @param b sorted sample
+     * @return the p-value
+     */
+    static double mannWhitneyGreater(long[] a, long[] b) {
+        int n1 = a.length;
+        int n2 = b.length;
+        int n = n1 + n2;
+
+        // merge the sorted samples, averaging ranks across ties
+        double rankSumA = 0;
+        double tieTerm = 0;
+        int i = 0;
+        int j = 0;
+        int rank = 1;
+        while (i < n1 || j < n2) {
+            long v = (j >= n2 || (i < n1 && a[i] <= b[j])) ? a[i] : b[j];
+            int inA = 0;
+            int inB = 0;
+            while (i < n1 && a[i] == v) {
+                i++;
+                inA++;
+            }
+            while (j < n2 && b[j] == v) {
+                j++;
+                inB++;
+            }
+            int t = inA + inB;
+            double avgRank = rank + (t - 1) / 2.0;
+            rankSumA += inA * avgRank;
+            tieTerm += (double) t * t * t - t;
+            rank += t;
+        }
+
+        double u = rankSumA - n1 * (n1 + 1) / 2.0;
+        double mean = n1 * (double) n2 / 2.0;
+        double variance = n1 * (double) n2 / 12.0 * ((n + 1) - tieTerm / ((double) n * (n - 1)));
+        if (variance <= 0) {
+            return 1.0;
+        }
+        double z = (u - mean - 0.5) / Math.sqrt(variance);
+        return 1.0 - normalCdf(z);
+    }
+
+    /**
+     * Standard normal CDF via the Abramowitz-Stegun 7.1.26 approximation of erf
+     * (absolute error below 1.5e-7).
+     */
+    static double normalCdf(double z) {
+        double x = Math.abs(z) / Math.sqrt(2);
+        double t = 1.0 / (1.0 + 0.3275911 * x);
+        double poly = t * (0.254829592 + t * (-0.284496736 + t * (1.421413741 + t * (-1.453152027 + t * 1.061405429))));
+        double erf = 1.0 - poly * Math.exp(-x * x);
+        return z >= 0 ? 0.5 * (1 + erf) : 0.5 * (1 - erf);
+    }
+
+    /**
+     * @param sorted sorted values
+     * @return the median, or 0 if empty
+     */
+    static double median(long[] sorted) {
+        int n = sorted.length;
+        if (n == 0) {
+            return 0;
+        }
+        return n % 2 == 1 ? sorted[n / 2] : (sorted[n / 2 - 1] + sorted[n / 2]) / 2.0;
+    }
+
+    /**
+     * Collection state of one path.
+     */
+    private static final class PathState {
+        final Reservoir reservoir = new Reservoir(RESERVOIR_SIZE);
+        volatile Baseline baseline;
+        volatile long sourceHash;
+    }
+
+    /**
+     * Uniform random sample of a stream of durations (Vitter's algorithm R).
+     */
+    private static final class Reservoir {
+        private final long[] values;
+        private long seen;
+
+        Reservoir(int capacity) {
+            this.values = new long[capacity];
+        }
+
+        synchronized void add(long value) {
+            if (seen < values.length) {
+                values[(int) seen] = value;
+            }
+            else {
+                long slot = ThreadLocalRandom.current().nextLong(seen + 1);
+                if (slot < values.length) {
+                    values[(int) slot] = value;
+                }
+            }
+            seen++;
+        }
+
+        synchronized void clear() {
+            seen = 0;
+        }
+
+        synchronized long[] toSortedArray() {
+            long[] copy = Arrays.copyOf(values, (int) Math.min(seen, values.length));
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
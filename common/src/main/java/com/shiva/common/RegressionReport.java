@@ -0,0 +1,40 @@
+package com.shiva.common;
+
+/**
+ * Outcome of comparing a script's current runs against its {@link Baseline}.
+ * <p>
+ * Runs are only compared once the script's source differs from the baseline's. A
+ * regression is flagged when a one-sided Mann-Whitney U test finds current runs slower
+ * with {@code pValue} below {@link RegressionDetector#ALPHA} and the median slowed down by
+ * at least {@link RegressionDetector#MIN_RATIO}.
+ *
+ * @param medianRatio current median divided by baseline median
+ * @param pValue      one-sided p-value that current runs are slower (1.0 if not tested)
+ */
+public record RegressionReport(
+        String path,
+        boolean hasBaseline,
+        boolean sourceChanged,
+        int baselineSamples,
+        int currentSamples,
+        double baselineMedianMs,
+        double currentMedianMs,
+        double medianRatio,
+        double pValue,
+        boolean regression
+) {
+
+    @Override
+    public String toString() {
+        if (!hasBaseline) {
+            return path + ": no baseline";
+        }
+        if (!sourceChanged) {
+            return String.format("%s: source unchanged since baseline (median %.3f ms, now %.3f ms)",
+                    path, baselineMedianMs, currentMedianMs);
+        }
+        return String.format("%s: %s — median %.3f ms → %.3f ms (x%.2f), p=%.4f, n=%d/%d",
+                path, regression ? "REGRESSION" : "no significant regression",
+                baselineMedianMs, currentMedianMs, medianRatio, pValue, baselineSamples, currentSamples);
+    }
+}
@@ -0,0 +1,54 @@
+package com.shiva.common;
+
+import java.util.Locale;
+
+/**
+ * Resolutions kept by {@link TimeSeriesStore}, finest first.
+ */
+public enum Resolution {
+    /** One point per run. */
+    RAW("raw", 0),
+    /** One-minute rollups. */
+    MINUTE("minute", 60_000L),
+    /** One-hour rollups. */
+    HOUR("hour", 3_600_000L);
+
+    private final String id;
+    private final long bucketMs;
+
+    Resolution(String id, long bucketMs) {
+        this.id = id;
+        this.bucketMs = bucketMs;
+    }
+
+    /**
+     * @return the name accepted by {@link #fromId}, e.g. {@code minute}
+     */
+    public String id() {
+        return id;
+    }
+
+    /**
+     * @return the width of one rollup bucket in milliseconds, or 0 for {@link #RAW}
+     */
+    public long bucketMs() {
+        return bucketMs;
+    }
+
+    /**
+     * Looks a resolution up by name, ignoring case.
+     *
+     * @param id {@code raw}, {@code minute} or {@code hour}
+     * @return the resolution
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static Resolution fromId(String id) {
+        String key = id == null ? "" : id.trim().toLowerCase(Locale.ROOT);
+        for (Resolution resolution : values()) {
+            if (resolution.id.equals(key)) {
+                return resolution;
+            }
+        }
+        throw new IllegalArgumentException("Unknown resolution '" + id + "'; expected raw, minute or hour");
+    }
+}
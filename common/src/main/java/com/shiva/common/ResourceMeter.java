@@ -0,0 +1,141 @@
+package com.shiva.common;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+/**
+ * Measures CPU time, user time and heap allocation of the current thread, plus garbage
+ * collection activity, between {@link #start()} and {@link #stop()}.
+ * <p>
+ * CPU and allocation figures are per-thread and therefore attributable to the script.
+ * GC counts and times are JVM-wide, so on a busy gateway they may include collections
+ * caused by other threads. Unsupported measurements are reported as {@code -1}.
+ * A meter must be started and stopped on the same thread.
+ */
+public class ResourceMeter {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final com.sun.management.ThreadMXBean ALLOCATION =
+            THREADS instanceof com.sun.management.ThreadMXBean
+                    ? (com.sun.management.ThreadMXBean) THREADS
+                    : null;
+    private static final List<GarbageCollectorMXBean> COLLECTORS =
+            ManagementFactory.getGarbageCollectorMXBeans();
+    private static final boolean CPU_SUPPORTED = initCpuTime();
+    private static final boolean ALLOCATION_SUPPORTED = initAllocation();
+
+    private long cpuStart;
+    private long userStart;
+    private long allocStart;
+    private long gcCountStart;
+    private long gcTimeStart;
+
+    private long cpuNanos = -1;
+    private long userNanos = -1;
+    private long allocatedBytes = -1;
+    private long gcCount;
+    private long gcTimeMs;
+
+    /**
+     * Captures the starting counters.
+     */
+    public void start() {
+        gcCountStart = totalGcCount();
+        gcTimeStart = totalGcTimeMs();
+        if (ALLOCATION_SUPPORTED) {
+            allocStart = ALLOCATION.getCurrentThreadAllocatedBytes();
+        }
+        if (CPU_SUPPORTED) {
+            userStart = THREADS.getCurrentThreadUserTime();
+            cpuStart = THREADS.getCurrentThreadCpuTime();
+        }
+    }
+
+    /**
+     * Captures the ending counters and computes the deltas.
+     */
+    public void stop() {
+        if (CPU_SUPPORTED) {
+            cpuNanos = THREADS.getCurrentThreadCpuTime() - cpuStart;
+            userNanos = THREADS.getCurrentThreadUserTime() - userStart;
+        }
+        if (ALLOCATION_SUPPORTED) {
+            allocatedBytes = ALLOCATION.getCurrentThreadAllocatedBytes() - allocStart;
+        }
+        gcCount = totalGcCount() - gcCountStart;
+        gcTimeMs = totalGcTimeMs() - gcTimeStart;
+    }
+
+    /** @return CPU time used by the thread in nanoseconds, or -1 if unsupported */
+    public long cpuNanos() {
+        return cpuNanos;
+    }
+
+    /** @return user-mode CPU time used by the thread in nanoseconds, or -1 if unsupported */
+    public long userNanos() {
+        return userNanos;
+    }
+
+    /** @return bytes allocated by the thread, or -1 if unsupported */
+    public long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /** @return number of JVM-wide garbage collections */
+    public long gcCount() {
+        return gcCount;
+    }
+
+    /** @return JVM-wide garbage collection time in milliseconds */
+    public long gcTimeMs() {
+        return gcTimeMs;
+    }
+
+    private static long totalGcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : COLLECTORS) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long totalGcTimeMs() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : COLLECTORS) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    private static boolean initCpuTime() {
+        try {
+            if (!THREADS.isCurrentThreadCpuTimeSupported()) {
+                return false;
+            }
+            if (!THREADS.isThreadCpuTimeEnabled()) {
+                THREADS.setThreadCpuTimeEnabled(true);
+            }
+            return true;
+        }
+        catch (UnsupportedOperationException | SecurityException e) {
+            return false;
+        }
+    }
+
+    private static boolean initAllocation() {
+        try {
+            if (ALLOCATION == null || !ALLOCATION.isThreadAllocatedMemorySupported()) {
+                return false;
+            }
+            if (!ALLOCATION.isThreadAllocatedMemoryEnabled()) {
+                ALLOCATION.setThreadAllocatedMemoryEnabled(true);
+            }
+            return true;
+        }
+        catch (UnsupportedOperationException | SecurityException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.shiva.common;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-capacity, lock-free ring buffer of profiling runs.
+ * <p>
+ * Writers claim a global sequence number with a single atomic increment and then own
+ * the slot {@code sequence & mask} until they publish it. The hot fields (timestamp,
+ * elapsed nanos, interned path id) live in primitive arrays so they can be scanned
+ * without touching the full {@link ScriptExecutionResult} objects. Each slot carries a
+ * published sequence stamp; readers validate the stamp before and after reading, so a
+ * slot overwritten during a read is skipped rather than returned torn.
+ */
+public class RunHistory {
+
+    private static final long EMPTY = -1L;
+    private static final long BUSY = -2L;
+
+    /**
+     * Receives the hot fields of a run during a {@link Snapshot#forEach(RunVisitor)} scan.
+     */
+    @FunctionalInterface
+    public interface RunVisitor {
+        void visit(long sequence, long timestamp, long elapsedNanos, int pathId);
+    }
+
+    private final int capacity;
+    private final int mask;
+    private final PathTable paths;
+
+    private final long[] timestamps;
+    private final long[] elapsedNanos;
+    private final int[] pathIds;
+    private final ScriptExecutionResult[] details;
+    private final AtomicLongArray published;
+    private final AtomicLong next = new AtomicLong();
+
+    /**
+     * @param capacity maximum number of retained runs; rounded up to a power of two
+     * @param paths    table used to intern script paths
+     */
+    public RunHistory(int capacity, PathTable paths) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be >= 1");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = size - 1;
+        this.paths = paths;
+        this.timestamps = new long[size];
+        this.elapsedNanos = new long[size];
+        this.pathIds = new int[size];
+        this.details = new ScriptExecutionResult[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, EMPTY);
+        }
+    }
+
+    /**
+     * Appends a run, overwriting the oldest entry once the buffer is full.
+     *
+     * @param run        the full run record
+     * @param runNanos   elapsed time of the run in nanoseconds
+     * @return the sequence number assigned to the run
+     */
+    public long record(ScriptExecutionResult run, long runNanos) {
+        int pathId = paths.intern(run.path());
+        long seq = next.getAndIncrement();
+        int slot = (int) (seq & mask);
+
+        // claim the slot; only contended when writers lap each other on a tiny buffer
+        for (;;) {
+            long current = published.get(slot);
+            if (current == BUSY) {
+                Thread.onSpinWait();
+                continue;
+            }
+            if (current > seq) {
+                // a newer run already took this slot; ours is older, so drop it
+                return seq;
+            }
+            if (published.compareAndSet(slot, current, BUSY)) {
+                break;
+            }
+        }
+
+        timestamps[slot] = run.timestamp();
+        elapsedNanos[slot] = runNanos;
+        pathIds[slot] = pathId;
+        details[slot] = run;
+        published.set(slot, seq);
+        return seq;
+    }
+
+    /**
+     * @return the total number of runs ever recorded
+     */
+    public long totalRecorded() {
+        return next.get();
+    }
+
+    /**
+     * @return the number of runs currently retained
+     */
+    public int size() {
+        return (int) Math.min(next.get(), capacity);
+    }
+
+    /**
+     * @return the (power-of-two) capacity of the buffer
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the table used to intern paths stored in this history
+     */
+    public PathTable paths() {
+        return paths;
+    }
+
+    /**
+     * Captures the current sequence window without copying any entries.
+     * Entries overwritten after the snapshot was taken are skipped during iteration.
+     *
+     * @return a weakly consistent view of the retained runs, oldest first
+     */
+    public Snapshot snapshot() {
+        long to = next.get();
+        return new Snapshot(Math.max(0, to - capacity), to);
+    }
+
+    /**
+     * Captures only the most recent runs.
+     *
+     * @param max maximum number of runs in the view
+     * @return a weakly consistent view of at most {@code max} runs, oldest first
+     */
+    public Snapshot latest(int max) {
+        long to = next.get();
+        return new Snapshot(Math.max(0, to - Math.min(capacity, max)), to);
+    }
+
+    /**
+     * Reads the full record for a sequence number if it is still retained.
+     *
+     * @param seq a sequence number
+     * @return the record, or {@code null} if it was overwritten or not yet published
+     */
+    public ScriptExecutionResult get(long seq) {
+        int slot = (int) (seq & mask);
+        if (published.get(slot) != seq) {
+            return null;
+        }
+        ScriptExecutionResult run = details[slot];
+        VarHandle.loadLoadFence();
+        return published.get(slot) == seq ? run : null;
+    }
+
+    /**
+     * A {@code [from, to)} window of sequence numbers over the ring.
+     */
+    public final class Snapshot implements Iterable<ScriptExecutionResult> {
+
+        private final long from;
+        private final long to;
+
+        private Snapshot(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * @return first sequence number in the window (inclusive)
+         */
+        public long from() {
+            return from;
+        }
+
+        /**
+         * @return last sequence number in the window (exclusive)
+         */
+        public long to() {
+            return to;
+        }
+
+        /**
+         * Scans the hot fields of every still-retained run without allocating.
+         *
+         * @param visitor receives each run, oldest first
+         */
+        public void forEach(RunVisitor visitor) {
+            for (long seq = from; seq < to; seq++) {
+                int slot = (int) (seq & mask);
+                if (published.get(slot) != seq) {
+                    continue;
+                }
+                long ts = timestamps[slot];
+                long nanos = elapsedNanos[slot];
+                int pathId = pathIds[slot];
+                VarHandle.loadLoadFence();
+                if (published.get(slot) == seq) {
+                    visitor.visit(seq, ts, nanos, pathId);
+                }
+            }
+        }
+
+        /**
+         * Copies the still-retained records of this window into a new list.
+         *
+         * @return the records, oldest first
+         */
+        public List<ScriptExecutionResult> toList() {
+            List<ScriptExecutionResult> out = new ArrayList<>((int) (to - from));
+            for (ScriptExecutionResult run : this) {
+                out.add(run);
+            }
+            return out;
+        }
+
+        @Override
+        public Iterator<ScriptExecutionResult> iterator() {
+            return new Iterator<>() {
+                private long seq = from;
+                private ScriptExecutionResult pending;
+
+                @Override
+                public boolean hasNext() {
+                    while (pending == null && seq < to) {
+                        pending = get(seq++);
+                    }
+                    return pending != null;
+                }
+
+                @Override
+                public ScriptExecutionResult next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    ScriptExecutionResult run = pending;
+                    pending = null;
+                    return run;
+                }
+            };
+        }
+    }
+}
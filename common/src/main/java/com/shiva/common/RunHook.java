@@ -0,0 +1,17 @@
+package com.shiva.common;
+
+/**
+ * Callback bracketing the timed {@code runFunction} call of a single profiling run.
+ * <p>
+ * Both methods are invoked on the thread executing the script, immediately outside the
+ * timed region, so per-thread instrumentation (trace functions, samplers, counters) can be
+ * attached to exactly one run.
+ */
+interface RunHook {
+
+    /** Called just before the script function is invoked. */
+    void beforeRun();
+
+    /** Called just after the script function returns or throws. */
+    void afterRun();
+}
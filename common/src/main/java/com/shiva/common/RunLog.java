@@ -0,0 +1,98 @@
+package com.shiva.common;
+
+import com.inductiveautomation.ignition.common.util.LoggerEx;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rate-limited logging of individual profiling runs.
+ * <p>
+ * At most {@code maxPerSecond} runs are logged per second; the rest are counted and the
+ * count is reported with the next message that gets through. Messages are only formatted
+ * once a run is known to be logged, so profiling in a tight loop neither floods the
+ * gateway log nor pays for building strings nobody reads.
+ */
+final class RunLog {
+
+    /**
+     * Level at which successful runs are logged; failures are always logged as warnings.
+     */
+    enum Level {
+        OFF,
+        DEBUG,
+        INFO
+    }
+
+    private final LoggerEx log;
+    private final Level level;
+    private final int maxPerSecond;
+
+    private final AtomicLong window = new AtomicLong();
+    private final AtomicInteger inWindow = new AtomicInteger();
+    private final AtomicLong suppressed = new AtomicLong();
+
+    RunLog(LoggerEx log, Level level, int maxPerSecond) {
+        this.log = log;
+        this.level = level;
+        this.maxPerSecond = maxPerSecond;
+    }
+
+    /**
+     * Parses a level name, falling back to {@link Level#DEBUG} for unknown values.
+     */
+    static Level parseLevel(String name) {
+        try {
+            return Level.valueOf(name.trim().toUpperCase());
+        }
+        catch (IllegalArgumentException e) {
+            return Level.DEBUG;
+        }
+    }
+
+    /**
+     * Logs a finished run, subject to the level and rate limit.
+     */
+    void run(ScriptExecutionResult run) {
+        if (level == Level.OFF
+                || (level == Level.DEBUG && !log.isDebugEnabled())
+                || !acquire()) {
+            return;
+        }
+        String message = withSuppressed(run.summary());
+        if (level == Level.INFO) {
+            log.info(message);
+        }
+        else {
+            log.debug(message);
+        }
+    }
+
+    /**
+     * Logs a failed run with its cause, subject to the rate limit only.
+     */
+    void failure(ScriptExecutionResult run, Throwable cause) {
+        if (!acquire()) {
+            return;
+        }
+        log.warn(withSuppressed(run.summary()), cause);
+    }
+
+    private String withSuppressed(String message) {
+        long skipped = suppressed.getAndSet(0);
+        return skipped == 0 ? message : message + " (" + skipped + " similar messages suppressed)";
+    }
+
+    private boolean acquire() {
+        long second = System.currentTimeMillis() / 1000;
+        long current = window.get();
+        if (current != second && window.compareAndSet(current, second)) {
+            inWindow.set(0);
+        }
+        if (inWindow.incrementAndGet() <= maxPerSecond) {
+            return true;
+        }
+        suppressed.incrementAndGet();
+        return false;
+    }
+}
@@ -0,0 +1,22 @@
+package com.shiva.common;
+
+import java.util.List;
+
+/**
+ * The result of a sampled profiling run: the usual run record plus the sampled stacks in
+ * collapsed format ({@code outer;inner;leaf count}), ready for flame graph tools.
+ */
+public record SampledExecution(
+        ScriptExecutionResult run,
+        double intervalMs,
+        long samples,
+        double samplingOverheadMs,
+        List<String> collapsedStacks
+) {
+
+    @Override
+    public String toString() {
+        return run.summary() + "\n" + samples + " samples @ " + intervalMs + " ms\n"
+                + String.join("\n", collapsedStacks);
+    }
+}
@@ -0,0 +1,19 @@
+package com.shiva.common;
+
+/**
+ * Measured durations of a function at one input size.
+ *
+ * @param size        the input size passed to the arguments generator
+ * @param repetitions number of timed calls
+ * @param medianMs    median duration, the value the models are fitted to
+ * @param minMs       fastest call
+ * @param maxMs       slowest call
+ */
+public record ScalingPoint(
+        int size,
+        int repetitions,
+        double medianMs,
+        double minMs,
+        double maxMs
+) {
+}
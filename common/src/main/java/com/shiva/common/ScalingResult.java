@@ -0,0 +1,45 @@
+package com.shiva.common;
+
+import java.util.List;
+
+/**
+ * The result of a scaling analysis: durations measured over a range of input sizes, the
+ * fitted growth models ranked best first, and the best model's extrapolation to a target size.
+ */
+public record ScalingResult(
+        String path,
+        List<ScalingPoint> points,
+        List<ComplexityFit> fits,
+        long targetSize
+) {
+
+    /**
+     * @return the model that best explains the measurements
+     */
+    public ComplexityFit best() {
+        return fits.get(0);
+    }
+
+    /**
+     * @return the best model's predicted duration at the target size, in milliseconds
+     */
+    public double predictedMs() {
+        return best().predictMs(targetSize);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Scaling of %s: best fit %s, predicted %.3f ms at n=%d%n",
+                path, best().complexity(), predictedMs(), targetSize));
+        sb.append(String.format("%12s %6s %12s %12s %12s %12s%n", "n", "runs", "median ms", "min ms", "max ms", "fit ms"));
+        for (ScalingPoint p : points) {
+            sb.append(String.format("%12d %6d %12.3f %12.3f %12.3f %12.3f%n",
+                    p.size(), p.repetitions(), p.medianMs(), p.minMs(), p.maxMs(), best().predictMs(p.size())));
+        }
+        for (ComplexityFit fit : fits) {
+            sb.append(fit).append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+}
@@ -4,11 +4,97 @@ import java.util.List;
 
 /**
  * Holds the result of a single script execution, including performance data.
+ * <p>
+ * {@code elapsedMs} covers only the function call itself; {@code resolveMs} is the time
+ * spent importing/resolving the callable (or compiling inline code) and converting
+ * arguments beforehand.
+ * <p>
+ * {@code cpuMs}, {@code userMs} and {@code allocatedBytes} are measured on the executing
+ * thread during the call (-1 if the JVM does not support the measurement);
+ * {@code gcCount} and {@code gcTimeMs} are JVM-wide collections that occurred during it.
+ * <p>
+ * {@code args} holds a bounded {@link ArgSummary} per argument rather than the arguments
+ * themselves, so a retained run never keeps caller data alive.
+ * <p>
+ * {@code resultPreview} is a preview of the returned value of at most
+ * {@value #PREVIEW_LENGTH} characters, built without stringifying the whole value; {@code error} is set only when {@code status} is not
+ * {@link Status#OK}.
  */
 public record ScriptExecutionResult(
         String path,
-        List<Object> args,
+        List<ArgSummary> args,
+        Status status,
+        String error,
+        String resultPreview,
         double elapsedMs,
-//        String result,
+        double resolveMs,
+        double cpuMs,
+        double userMs,
+        long allocatedBytes,
+        long gcCount,
+        long gcTimeMs,
         long timestamp
-) {}
+) {
+
+    /** Maximum length of {@link #resultPreview()}. */
+    public static final int PREVIEW_LENGTH = 200;
+
+    /**
+     * Outcome of a run.
+     */
+    public enum Status {
+        OK,
+        ERROR,
+        CANCELLED
+    }
+
+    /**
+     * @return {@code true} if the script returned normally
+     */
+    public boolean ok() {
+        return status == Status.OK;
+    }
+
+    /**
+     * @return a fingerprint of all arguments; equal for runs called with equal inputs
+     */
+    public long argsFingerprint() {
+        return ArgSummary.fingerprint(args);
+    }
+
+    /**
+     * @return the argument previews formatted as a call's argument list
+     */
+    public String argsPreview() {
+        return ArgSummary.previewOf(args);
+    }
+
+    /**
+     * Formats a one-line, human-readable summary. Built on demand only, so recording a run
+     * costs no string formatting.
+     */
+    public String summary() {
+        if (status != Status.OK) {
+            return String.format("%s %s%s after %.3f ms: %s", status, path, argsPreview(), elapsedMs, error);
+        }
+        return String.format("Ran %s%s in %.3f ms (resolve %.3f ms, cpu %.3f ms, alloc %d B, gc %d) → %s",
+                path, argsPreview(), elapsedMs, resolveMs, cpuMs, allocatedBytes, gcCount, resultPreview);
+    }
+
+    @Override
+    public String toString() {
+        return summary();
+    }
+
+    /**
+     * Converts a returned value to a bounded preview string. Containers and datasets are
+     * previewed incrementally, so a large return value is never stringified as a whole.
+     */
+    static String preview(Object value) {
+        if (value instanceof CharSequence s) {
+            // a returned string is shown as is, without quotes
+            return s.length() <= PREVIEW_LENGTH ? s.toString() : s.subSequence(0, PREVIEW_LENGTH - 1) + "…";
+        }
+        return ArgSummary.preview(value, PREVIEW_LENGTH);
+    }
+}
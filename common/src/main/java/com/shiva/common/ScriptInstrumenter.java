@@ -0,0 +1,276 @@
+package com.shiva.common;
+
+import com.inductiveautomation.ignition.common.util.LogUtil;
+import com.inductiveautomation.ignition.common.util.LoggerEx;
+import org.python.core.PyObject;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Passive, always-on timing of project library functions.
+ * <p>
+ * Every function defined in a module under one of the configured prefixes (e.g.
+ * {@code shared.db}) is replaced in its module with a {@link TimedFunction}, so calls from
+ * tag-change, timer and message-handler scripts are timed without anyone profiling them.
+ * <p>
+ * The call path never allocates or contends: each thread appends {@code (function, nanos)}
+ * to its own single-producer ring, and a background thread drains all rings into the
+ * {@link MetricsRegistry} once per {@value #MERGE_INTERVAL_MS} ms. If a ring fills up between
+ * merges the sample is dropped and counted. Modules are rescanned periodically and on
+ * {@link #requestRefresh()}, so functions in a reloaded script library are wrapped again.
+ */
+public class ScriptInstrumenter implements CallRecorder {
+
+    private static final long MERGE_INTERVAL_MS = 1000;
+    private static final int REFRESH_EVERY_MERGES = 30;
+    private static final int RING_CAPACITY = 4096;
+
+    private final LoggerEx log = LogUtil.getLogger(getClass().getSimpleName());
+    private final ScriptRunner scriptRunner;
+    private final MetricsRegistry metrics;
+    private final List<String> prefixes;
+
+    private final PathTable functions = new PathTable();
+    private volatile ScriptMetrics[] slots = new ScriptMetrics[16];
+    private final List<SampleRing> rings = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<SampleRing> localRing = ThreadLocal.withInitial(this::newRing);
+    private final AtomicLong dropped = new AtomicLong();
+
+    /** Wrappers currently installed; replaced wholesale on each refresh. */
+    private volatile List<Installed> installed = List.of();
+
+    private final Thread merger;
+    private volatile boolean running = true;
+    private volatile boolean refreshRequested = true;
+
+    private record Installed(PyObject module, String name, TimedFunction wrapper) {}
+
+    /**
+     * @param scriptRunner  runs the imports of the project library to instrument
+     * @param metrics       registry that receives per-function aggregates, keyed by dotted path
+     * @param prefixes      module paths to instrument, e.g. {@code ["shared", "myproject.util"]}
+     */
+    public ScriptInstrumenter(ScriptRunner scriptRunner, MetricsRegistry metrics, List<String> prefixes) {
+        for (String prefix : prefixes) {
+            if (prefix.equals("system") || prefix.startsWith("system.")) {
+                throw new IllegalArgumentException("Instrumenting system.* scripts is not permitted.");
+            }
+        }
+        this.scriptRunner = scriptRunner;
+        this.metrics = metrics;
+        this.prefixes = List.copyOf(prefixes);
+        this.merger = new Thread(this::run, "script-profiler-instrumentation");
+        this.merger.setDaemon(true);
+    }
+
+    /**
+     * Starts the background thread, which installs the wrappers on its first pass.
+     */
+    public void start() {
+        merger.start();
+    }
+
+    /**
+     * Asks for the project library to be rescanned on the next merge, e.g. after a project update.
+     */
+    public void requestRefresh() {
+        refreshRequested = true;
+        LockSupport.unpark(merger);
+    }
+
+    /**
+     * Stops the background thread, merges outstanding samples and restores the original functions.
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(merger);
+        try {
+            merger.join(5_000);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return number of functions currently wrapped
+     */
+    public int installedCount() {
+        return installed.size();
+    }
+
+    /**
+     * @return number of samples dropped because a thread's ring was full
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Hot path, called by {@link TimedFunction} after every call.
+     */
+    @Override
+    public void record(int functionId, long nanos, boolean ok) {
+        if (!localRing.get().offer(ok ? functionId : ~functionId, nanos)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private SampleRing newRing() {
+        SampleRing ring = new SampleRing(Thread.currentThread());
+        rings.add(ring);
+        return ring;
+    }
+
+    // --- background thread ---
+
+    private void run() {
+        int merges = 0;
+        while (running) {
+            if (refreshRequested || merges % REFRESH_EVERY_MERGES == 0) {
+                refreshRequested = false;
+                try {
+                    refresh();
+                }
+                catch (Exception e) {
+                    log.warn("Unable to instrument project scripts: " + e.getMessage());
+                }
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(MERGE_INTERVAL_MS));
+            merge();
+            merges++;
+        }
+        uninstall();
+        merge();
+    }
+
+    private void merge() {
+        ScriptMetrics[] current = slots;
+        for (SampleRing ring : rings) {
+            ring.drain(current);
+            if (ring.ownerGone() && ring.isEmpty()) {
+                rings.remove(ring);
+            }
+        }
+    }
+
+    /**
+     * Walks every prefix and wraps functions not wrapped yet. Wrappers from a previous pass
+     * that are no longer reachable (the module was reloaded) are simply forgotten.
+     */
+    private void refresh() throws Exception {
+        List<Installed> found = new ArrayList<>();
+        for (String prefix : prefixes) {
+            PyObject module = ScriptLibrary.resolveModule(scriptRunner, prefix);
+            if (module != null) {
+                instrumentModule(module, prefix, found);
+            }
+        }
+        int before = installed.size();
+        installed = List.copyOf(found);
+        if (found.size() != before) {
+            log.info("Instrumenting " + found.size() + " project script functions under " + prefixes);
+        }
+    }
+
+    private void instrumentModule(PyObject module, String modulePath, List<Installed> found) {
+        ScriptLibrary.walk(module, modulePath, (owner, name, path, value) -> {
+            if (value instanceof TimedFunction timed) {
+                if (timed.functionId() < functions.size() && path.equals(functions.name(timed.functionId()))) {
+                    found.add(new Installed(owner, name, timed));
+                }
+            }
+            else {
+                TimedFunction wrapper = new TimedFunction(value, slotFor(path), this);
+                owner.__setattr__(name, wrapper);
+                found.add(new Installed(owner, name, wrapper));
+            }
+        });
+    }
+
+    private int slotFor(String path) {
+        int id = functions.intern(path);
+        ScriptMetrics[] current = slots;
+        if (id >= current.length || current[id] == null) {
+            synchronized (this) {
+                current = slots;
+                if (id >= current.length) {
+                    current = Arrays.copyOf(current, Math.max(id + 1, current.length * 2));
+                }
+                current[id] = metrics.forPath(path);
+                slots = current;
+            }
+        }
+        return id;
+    }
+
+    private void uninstall() {
+        for (Installed entry : installed) {
+            PyObject dict = entry.module().fastGetDict();
+            if (dict != null && dict.__finditem__(entry.name()) == entry.wrapper()) {
+                entry.module().__setattr__(entry.name(), entry.wrapper().target());
+            }
+        }
+        installed = List.of();
+    }
+
+    /**
+     * Single-producer, single-consumer ring of timed calls owned by one thread.
+     * Failed calls are stored with the bitwise complement of their function id.
+     */
+    private static final class SampleRing {
+        private final int[] ids = new int[RING_CAPACITY];
+        private final long[] nanos = new long[RING_CAPACITY];
+        private final AtomicLong head = new AtomicLong();
+        private final AtomicLong tail = new AtomicLong();
+        private final WeakReference<Thread> owner;
+
+        SampleRing(Thread owner) {
+            this.owner = new WeakReference<>(owner);
+        }
+
+        boolean offer(int id, long value) {
+            long t = tail.get();
+            if (t - head.get() >= RING_CAPACITY) {
+                return false;
+            }
+            int i = (int) t & (RING_CAPACITY - 1);
+            ids[i] = id;
+            nanos[i] = value;
+            tail.lazySet(t + 1);
+            return true;
+        }
+
+        void drain(ScriptMetrics[] slots) {
+            long h = head.get();
+            long t = tail.get();
+            for (; h < t; h++) {
+                int i = (int) h & (RING_CAPACITY - 1);
+                int id = ids[i];
+                if (id >= 0) {
+                    slots[id].recordRun(nanos[i]);
+                }
+                else {
+                    slots[~id].recordError();
+                }
+            }
+            head.lazySet(t);
+        }
+
+        boolean isEmpty() {
+            return head.get() == tail.get();
+        }
+
+        boolean ownerGone() {
+            Thread thread = owner.get();
+            return thread == null || !thread.isAlive();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.shiva.common;
+
+import org.python.core.Py;
+import org.python.core.PyFunction;
+import org.python.core.PyModule;
+import org.python.core.PyObject;
+import org.python.core.PyStringMap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Walks the project script library: imports module paths and visits the functions
+ * defined in a module tree.
+ */
+final class ScriptLibrary {
+
+    /** Maximum package nesting followed below the starting module. */
+    static final int MAX_MODULE_DEPTH = 8;
+
+    /**
+     * Receives each function found by {@link #walk}.
+     */
+    @FunctionalInterface
+    interface FunctionVisitor {
+        /**
+         * @param module the module defining the function
+         * @param name   attribute name in the module
+         * @param path   dotted path of the function, e.g. {@code shared.db.query}
+         * @param value  the function, or the {@link TimedFunction} currently wrapping it
+         */
+        void visit(PyObject module, String name, String path, PyObject value);
+    }
+
+    private ScriptLibrary() {
+    }
+
+    /**
+     * Imports the root of a dotted module path and walks down to the module.
+     *
+     * @param modulePath e.g. {@code shared.db}
+     * @return the module, or {@code null} if an attribute along the path is missing
+     */
+    static PyObject resolveModule(ScriptRunner runner, String modulePath) throws Exception {
+        if (modulePath.equals("system") || modulePath.startsWith("system.")) {
+            throw new IllegalArgumentException("Profiling system.* scripts is not permitted.");
+        }
+        String[] parts = modulePath.split("\\.");
+        PyStringMap locals = new PyStringMap();
+        runner.runCode("import " + parts[0], locals, "<import:" + parts[0] + ">");
+        PyObject current = locals.__finditem__(parts[0]);
+        for (int i = 1; i < parts.length && current != null; i++) {
+            current = current.__findattr__(parts[i]);
+        }
+        return current;
+    }
+
+    /**
+     * True if {@code module} belongs to the project script library: a Python module defined
+     * in memory, rather than a built-in module, a Java package or a module loaded from a file
+     * such as the standard library or a third-party package under {@code pylib}.
+     */
+    static boolean isLibraryModule(PyObject module) {
+        if (!(module instanceof PyModule) || module.__findattr__("__file__") != null) {
+            return false;
+        }
+        String name = nameOf(module);
+        PyObject builtins = Py.getSystemState().__findattr__("builtin_module_names");
+        return name != null && (builtins == null || !builtins.__contains__(Py.newString(name)));
+    }
+
+    /**
+     * Visits every function defined in a module and, recursively, its submodules.
+     * Functions and modules merely imported into a module are skipped, so each function
+     * is visited once, under its own path.
+     *
+     * @param module     the module to walk
+     * @param modulePath its dotted path
+     */
+    static void walk(PyObject module, String modulePath, FunctionVisitor visitor) {
+        walk(module, modulePath, 0, visitor);
+    }
+
+    private static void walk(PyObject module, String modulePath, int depth, FunctionVisitor visitor) {
+        PyObject dict = module.fastGetDict();
+        if (dict == null || depth > MAX_MODULE_DEPTH) {
+            return;
+        }
+        List<String> names = new ArrayList<>();
+        for (PyObject key : dict.asIterable()) {
+            names.add(key.toString());
+        }
+        for (String name : names) {
+            if (name.startsWith("__")) {
+                continue;
+            }
+            PyObject value = dict.__finditem__(name);
+            String path = modulePath + "." + name;
+            if (value instanceof TimedFunction
+                    || (value instanceof PyFunction function && definedIn(function, module))) {
+                visitor.visit(module, name, path, value);
+            }
+            else if (value instanceof PyModule && path.equals(nameOf(value))) {
+                walk(value, path, depth + 1, visitor);
+            }
+        }
+    }
+
+    /**
+     * True if the function was defined in this module rather than imported into it.
+     */
+    private static boolean definedIn(PyFunction function, PyObject module) {
+        String moduleName = nameOf(module);
+        return moduleName == null || function.__module__ == null
+                || moduleName.equals(function.__module__.toString());
+    }
+
+    private static String nameOf(PyObject module) {
+        PyObject name = module.__findattr__("__name__");
+        return name == null ? null : name.toString();
+    }
+}
@@ -0,0 +1,129 @@
+package com.shiva.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lifetime aggregates for a single script path.
+ */
+public class ScriptMetrics {
+
+    private final String path;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong resourceSamples = new AtomicLong();
+    private final AtomicLong cpuNanos = new AtomicLong();
+    private final AtomicLong userNanos = new AtomicLong();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private final AtomicLong gcCount = new AtomicLong();
+    private final AtomicLong gcTimeMs = new AtomicLong();
+
+    /**
+     * @param path the script path these metrics describe
+     */
+    public ScriptMetrics(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Records a completed call.
+     *
+     * @param runNanos elapsed time of the call
+     */
+    public void recordRun(long runNanos) {
+        latency.record(runNanos);
+    }
+
+    /**
+     * Records a failed call.
+     */
+    public void recordError() {
+        errors.incrementAndGet();
+    }
+
+    /**
+     * Records several failed calls at once.
+     *
+     * @param count number of failures
+     */
+    public void recordErrors(long count) {
+        errors.addAndGet(count);
+    }
+
+    /**
+     * Records the resources consumed by one or more calls.
+     *
+     * @param calls number of calls the figures cover
+     * @param meter a stopped meter bracketing those calls
+     */
+    public void recordResources(long calls, ResourceMeter meter) {
+        resourceSamples.addAndGet(calls);
+        cpuNanos.addAndGet(Math.max(0, meter.cpuNanos()));
+        userNanos.addAndGet(Math.max(0, meter.userNanos()));
+        allocatedBytes.addAndGet(Math.max(0, meter.allocatedBytes()));
+        gcCount.addAndGet(meter.gcCount());
+        gcTimeMs.addAndGet(meter.gcTimeMs());
+    }
+
+    public String path() {
+        return path;
+    }
+
+    public LatencyHistogram latency() {
+        return latency;
+    }
+
+    public long errors() {
+        return errors.get();
+    }
+
+    /** @return number of calls covered by the resource totals */
+    public long resourceSamples() {
+        return resourceSamples.get();
+    }
+
+    /** @return total thread CPU time in nanoseconds */
+    public long cpuNanos() {
+        return cpuNanos.get();
+    }
+
+    /** @return total thread user time in nanoseconds */
+    public long userNanos() {
+        return userNanos.get();
+    }
+
+    /** @return total bytes allocated by the calling threads */
+    public long allocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    /** @return JVM-wide collections observed during calls */
+    public long gcCount() {
+        return gcCount.get();
+    }
+
+    /** @return JVM-wide collection time observed during calls, in milliseconds */
+    public long gcTimeMs() {
+        return gcTimeMs.get();
+    }
+
+    /**
+     * @return a point-in-time summary of these metrics
+     */
+    public LatencyStats toStats() {
+        return LatencyStats.of(this);
+    }
+
+    /**
+     * Clears all aggregates.
+     */
+    public void reset() {
+        latency.reset();
+        errors.set(0);
+        resourceSamples.set(0);
+        cpuNanos.set(0);
+        userNanos.set(0);
+        allocatedBytes.set(0);
+        gcCount.set(0);
+        gcTimeMs.set(0);
+    }
+}
@@ -1,6 +1,11 @@
 package com.shiva.common;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 
 /**
  * Interface defining the contract for script profiling utilities.
@@ -19,30 +24,244 @@ public interface ScriptProfiler {
 
     /**
      * Profiles a script given as raw source code.
-     * This method is useful for evaluating and benchmarking inline scripts.
+     * The text is compiled once and cached, so repeated runs of the same snippet report
+     * only execution time; the compile time is reported separately. All snippets share one
+     * history and metrics path, {@link CodeCache#PATH}.
      *
      * @param scriptText the body of the script to profile
-     * @return profiling result or summary of the input script
+     * @return the run record, with compile time as {@code resolveMs} and the value of {@code result}
+     *         (if the script set it) as the preview
      */
-    String profileNow(String scriptText);
+    ScriptExecutionResult profileNow(String scriptText);
+
+    /**
+     * Benchmarks a script given as raw source code, like {@link #benchmark} does for a script path.
+     * The text is compiled once; each call runs with fresh locals. Runs are counted in the
+     * metrics of {@link CodeCache#PATH}.
+     *
+     * @param scriptText the body of the script to benchmark
+     * @param warmup     number of untimed warmup runs (may be 0)
+     * @param iterations number of measured runs (at least 1)
+     * @return min/mean/stddev/percentile/throughput statistics of the measured runs
+     */
+    BenchmarkResult benchmarkNow(String scriptText, int warmup, int iterations);
 
     /**
      * Profiles a script specified by its dot-separated path (e.g. {@code shared.utils.myFunc}).
      * The script is executed with no arguments.
      *
      * @param scriptPath the qualified path to the script function
-     * @return the result of executing the script, including execution time
+     * @return the run record: status, error, timings and a preview of the returned value
      */
-    String profileScript(String scriptPath);
+    ScriptExecutionResult profileScript(String scriptPath);
 
     /**
      * Profiles a script specified by its dot-separated path, executed with the provided arguments.
      *
      * @param scriptPath the qualified path to the script function
      * @param args       a list of arguments to pass to the script function
-     * @return the result of executing the script, including execution time and returned value
+     * @return the run record: status, error, timings and a preview of the returned value
+     */
+    ScriptExecutionResult profileScriptWithArgs(String scriptPath, List<Object> args);
+
+    /**
+     * Profiles a script on a background thread, leaving the caller (e.g. the Swing EDT) free.
+     * <p>
+     * Cancelling the returned future, or exceeding the timeout, interrupts the run and stops
+     * the script at its next Python function call. If the background pool is saturated the
+     * future completes exceptionally with a {@link java.util.concurrent.RejectedExecutionException}.
+     *
+     * @param scriptPath the qualified path to the script function
+     * @param args       a list of arguments to pass to the script function
+     * @param timeoutMs  maximum run time in milliseconds; 0 or less for no timeout
+     * @return a future completed with the same record {@link #profileScriptWithArgs} returns
+     */
+    CompletableFuture<ScriptExecutionResult> profileScriptAsync(String scriptPath, List<Object> args, long timeoutMs);
+
+    /**
+     * Profiles a script with a Jython trace hook installed for the duration of the call,
+     * recording a call tree with call counts and inclusive/exclusive time per function.
+     *
+     * @param scriptPath the qualified path to the script function
+     * @param args       a list of arguments to pass to the script function
+     * @param traceLines whether to also record per-line hit counts and times (slower)
+     * @return the run record, its summary and the call tree
+     */
+    TracedExecution profileScriptTraced(String scriptPath, List<Object> args, boolean traceLines);
+
+    /**
+     * Profiles a script by periodically sampling the stack of the thread running it.
+     * Much cheaper than tracing, so suitable for long-running scripts.
+     *
+     * @param scriptPath the qualified path to the script function
+     * @param args       a list of arguments to pass to the script function
+     * @param intervalMs sampling interval in milliseconds (at least 0.1)
+     * @return the run record, its summary and the sampled Python stacks in collapsed format
+     */
+    SampledExecution profileScriptSampled(String scriptPath, List<Object> args, double intervalMs);
+
+    /**
+     * Benchmarks a script function over many calls to get a statistically useful timing.
+     * The function is resolved once, called {@code warmup} times with results discarded,
+     * and then timed over {@code iterations} calls.
+     *
+     * @param scriptPath the qualified path to the script function
+     * @param args       a list of arguments to pass on every call
+     * @param warmup     number of untimed warmup calls (may be 0)
+     * @param iterations number of measured calls (at least 1)
+     * @return min/mean/stddev/percentile/throughput statistics of the measured calls
+     */
+    BenchmarkResult benchmark(String scriptPath, List<Object> args, int warmup, int iterations);
+
+    /**
+     * Returns lifetime latency statistics for a script path, covering every run since the
+     * profiler started or the path's stats were last reset.
+     *
+     * @param scriptPath the qualified path to the script function
+     * @return count, error count, mean, min, p50/p90/p99/p999 and max; all zero if never run
+     */
+    LatencyStats getStats(String scriptPath);
+
+    /**
+     * Clears the lifetime statistics of a single script path.
+     *
+     * @param scriptPath the qualified path to the script function
+     */
+    void resetStats(String scriptPath);
+
+    /**
+     * Clears the lifetime statistics of every script path.
+     */
+    void resetStats();
+
+    /**
+     * Profiles a single run with every {@code system.*} function timed, splitting the run
+     * into time per {@code system} function and the remaining pure-Python time. Runs in this
+     * mode are serialized.
+     *
+     * @param scriptPath the qualified path to the script function
+     * @param args       arguments to pass to the function
+     * @return the run with count, total and max time per {@code system} function
+     */
+    SystemCallBreakdown profileScriptSystemCalls(String scriptPath, List<Object> args);
+
+    /**
+     * Imports a module tree from scratch and records the nested imports with self and
+     * cumulative time, and the slowest module-level statements. The tree is removed from
+     * {@code sys.modules} first, so every module's top-level code runs again, and the
+     * original modules are put back afterwards.
+     *
+     * @param root dot-separated path of the root module, e.g. {@code shared}
+     * @return the import tree and the statements that dominate it
+     * @throws IllegalArgumentException if {@code root} is not a project script library module
+     */
+    ImportProfile profileImports(String root);
+
+    /**
+     * Calls a script function concurrently to measure throughput and contention.
+     * The test runs at 1, 2, 4, ... threads up to {@code threads}, each level for
+     * {@code durationMs}, and reports how throughput and latency scale with concurrency.
+     *
+     * @param scriptPath the qualified path to the script function
+     * @param args       a list of arguments to pass on every call
+     * @param threads    maximum number of concurrent callers
+     * @param durationMs how long each concurrency level runs, in milliseconds
+     * @return throughput, latency distribution and scaling per concurrency level
+     */
+    LoadTestResult loadTest(String scriptPath, List<Object> args, int threads, long durationMs);
+
+    /**
+     * Profiles every function defined under a module tree, several at a time, and ranks
+     * them slowest first. Runs execute concurrently, so contention can inflate individual
+     * timings; use a parallelism of 1 for clean numbers.
+     *
+     * @param prefix       dot-separated path of the root module, e.g. {@code shared.reports}
+     * @param argsProvider maps a function path to its arguments, or to {@code null} to skip
+     *                     the function; {@code null} calls every function without arguments
+     * @param parallelism  number of functions run at once
+     * @param timeoutMs    per-function time limit in milliseconds; 0 for none
+     * @return the ranked runs
+     */
+    PackageReport profilePackage(String prefix, Function<String, List<Object>> argsProvider,
+                                 int parallelism, long timeoutMs);
+
+    /**
+     * Times a function over a range of input sizes and fits the durations to O(1), O(log n),
+     * O(n), O(n log n) and O(n^2) models.
+     *
+     * @param scriptPath    the qualified path to the script function
+     * @param argsGenerator builds the argument list for an input size
+     * @param sizes         input sizes to measure; at least three distinct values
+     * @param repetitions   timed calls per size, of which the median is fitted
+     * @param targetSize    input size to extrapolate the best model to
+     * @return measurements, ranked fits and the extrapolated cost
+     */
+    ScalingResult profileScaling(String scriptPath, IntFunction<List<Object>> argsGenerator,
+                                 List<Integer> sizes, int repetitions, long targetSize);
+
+    /**
+     * Captures the runs recorded since the script's source last changed as its performance
+     * baseline, together with a hash of the function source.
+     *
+     * @param scriptPath the qualified path to the script function
+     * @return the captured baseline
+     * @throws IllegalStateException if too few runs have been recorded
      */
-    String profileScriptWithArgs(String scriptPath, List<Object> args);
+    Baseline captureBaseline(String scriptPath);
+
+    /**
+     * Compares runs recorded since the script's source changed against its baseline.
+     *
+     * @param scriptPath the qualified path to the script function
+     * @return medians, p-value and whether the runs are a significant regression
+     */
+    RegressionReport checkRegression(String scriptPath);
+
+    /**
+     * Removes the baseline of a script.
+     *
+     * @param scriptPath the qualified path to the script function
+     */
+    void clearBaseline(String scriptPath);
+
+    /**
+     * Returns past runs recorded within a time range, including runs persisted before the
+     * last restart when a history store is configured.
+     *
+     * @param scriptPath the qualified path to the script function, or {@code null} for all scripts
+     * @param fromTs     inclusive lower bound, in epoch milliseconds
+     * @param toTs       exclusive upper bound, in epoch milliseconds
+     * @param limit      maximum number of runs returned; 0 returns none
+     * @return the matching runs, oldest first
+     * @throws IllegalArgumentException if {@code limit} is negative
+     */
+    List<StoredRun> queryHistory(String scriptPath, long fromTs, long toTs, int limit);
+
+    /**
+     * Returns the latency of one of this project's scheduled canaries over a time window, at the
+     * finest resolution (raw runs, one-minute or one-hour rollups) that covers the window in a
+     * bounded number of points.
+     *
+     * @param scriptPath the qualified path to the script function, followed by {@code =} and the
+     *                   arguments expression as configured if the canary has one
+     * @param fromTs     inclusive lower bound, in epoch milliseconds
+     * @param toTs       exclusive upper bound, in epoch milliseconds
+     * @return the series; empty if the script is not a canary or no time-series store is configured
+     */
+    TimeSeries queryTimeSeries(String scriptPath, long fromTs, long toTs);
+
+    /**
+     * Returns the latency of one of this project's scheduled canaries over a time window at a
+     * given resolution.
+     *
+     * @param scriptPath the qualified path to the script function, followed by {@code =} and the
+     *                   arguments expression as configured if the canary has one
+     * @param fromTs     inclusive lower bound, in epoch milliseconds
+     * @param toTs       exclusive upper bound, in epoch milliseconds
+     * @param resolution the resolution to read
+     * @return the series, oldest point first
+     */
+    TimeSeries queryTimeSeries(String scriptPath, long fromTs, long toTs, Resolution resolution);
 
     /**
      * Retrieves the source code content of a script for preview purposes.
@@ -52,4 +271,36 @@ public interface ScriptProfiler {
      * @return the script source code as a string, or an appropriate message if the source is not available
      */
     String getScriptContent(String scriptPath);
+
+    /**
+     * Returns the source of a script function, loading it once per source version.
+     *
+     * @param scriptPath the qualified path to the script function
+     * @return the source, or {@code null} if it is not available
+     */
+    ScriptSource getScriptSource(String scriptPath);
+
+    /**
+     * Returns a script function's source annotated with the per-line hit counts and times
+     * of its most recent line-traced run.
+     *
+     * @param scriptPath the qualified path to the script function
+     * @return the annotated source, or {@code null} if the source is not available
+     */
+    SourceHeatMap getSourceHeatMap(String scriptPath);
+
+    /**
+     * Streams the run history and the most recent traced and sampled runs in a profile
+     * viewer format. The stream is flushed but not closed.
+     *
+     * @param format the output format
+     * @param out    the destination
+     */
+    void export(ExportFormat format, OutputStream out) throws IOException;
+
+    /**
+     * Discards all cached script callables and sources so the next call re-imports them.
+     * Should be invoked whenever the project script library is reloaded.
+     */
+    void invalidateCache();
 }
\ No newline at end of file
@@ -1,9 +1,19 @@
 package com.shiva.common;
 
+import org.python.core.Py;
+import org.python.core.PyDictionary;
+import org.python.core.PyList;
 import org.python.core.PyObject;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 
 /**
  * Scripting-facing wrapper class registered under {@code system.profiler.*}.
@@ -15,6 +25,14 @@ import java.util.List;
  */
 public class ScriptProfilerFunctions {
 
+    private static final int DEFAULT_WARMUP = 10;
+    private static final int DEFAULT_ITERATIONS = 100;
+    private static final double DEFAULT_SAMPLE_INTERVAL_MS = 5.0;
+    private static final int DEFAULT_HISTORY_LIMIT = 1000;
+    private static final int DEFAULT_PACKAGE_PARALLELISM = 4;
+    private static final long DEFAULT_PACKAGE_TIMEOUT_MS = 30_000;
+    private static final int DEFAULT_SCALING_REPETITIONS = 5;
+
     private final ScriptProfiler delegate;
 
     /**
@@ -41,10 +59,36 @@ public class ScriptProfilerFunctions {
      * Exposed as {@code system.profiler.profileNow(scriptText)}.
      *
      * @param scriptText the script content to profile
-     * @return profiling result or summary
+     * @return a dict with status, error, result preview and timings (see {@link #toPyDict})
+     */
+    public PyDictionary profileNow(String scriptText) {
+        return toPyDict(delegate.profileNow(scriptText));
+    }
+
+    /**
+     * Benchmarks raw script text with default warmup and iteration counts.
+     * <p>
+     * Exposed as {@code system.profiler.benchmarkNow(scriptText)}.
+     *
+     * @param scriptText the script content to benchmark
+     * @return timing statistics of the measured runs
+     */
+    public BenchmarkResult benchmarkNow(String scriptText) {
+        return benchmarkNow(scriptText, DEFAULT_WARMUP, DEFAULT_ITERATIONS);
+    }
+
+    /**
+     * Benchmarks raw script text.
+     * <p>
+     * Exposed as {@code system.profiler.benchmarkNow(scriptText, warmup, iterations)}.
+     *
+     * @param scriptText the script content to benchmark
+     * @param warmup     number of untimed warmup runs
+     * @param iterations number of measured runs
+     * @return timing statistics of the measured runs
      */
-    public String profileNow(String scriptText) {
-        return delegate.profileNow(scriptText);
+    public BenchmarkResult benchmarkNow(String scriptText, int warmup, int iterations) {
+        return delegate.benchmarkNow(scriptText, warmup, iterations);
     }
 
     /**
@@ -53,10 +97,10 @@ public class ScriptProfilerFunctions {
      * Exposed as {@code system.profiler.profileScript("path.to.script")}.
      *
      * @param scriptPath dot-separated path to the script function
-     * @return execution result with timing
+     * @return a dict with status, error, result preview and timings
      */
-    public String profileScript(String scriptPath) {
-        return delegate.profileScript(scriptPath);
+    public PyDictionary profileScript(String scriptPath) {
+        return toPyDict(delegate.profileScript(scriptPath));
     }
 
     /**
@@ -67,14 +111,112 @@ public class ScriptProfilerFunctions {
      *
      * @param scriptPath dot-separated path to the script function
      * @param args       variable-length argument list passed from Python
-     * @return execution result with timing
+     * @return a dict with status, error, result preview and timings
      */
-    public String profileScriptWithArgs(String scriptPath, PyObject... args) {
+    public PyDictionary profileScriptWithArgs(String scriptPath, PyObject... args) {
         List<Object> javaArgs = new ArrayList<>();
         for (PyObject arg : args) {
             javaArgs.add(arg.__tojava__(Object.class));
         }
-        return delegate.profileScriptWithArgs(scriptPath, javaArgs);
+        return toPyDict(delegate.profileScriptWithArgs(scriptPath, javaArgs));
+    }
+
+    /**
+     * Profiles a named script path on a background thread.
+     * <p>
+     * Exposed as {@code system.profiler.profileScriptAsync("path.to.script", [args], timeoutMs)}.
+     * Call {@code cancel(True)} on the returned future to stop the run.
+     *
+     * @param scriptPath dot-separated path to the script function
+     * @param args       a Python sequence of arguments, or {@code None}
+     * @param timeoutMs  maximum run time in milliseconds; 0 for none
+     * @return a future completed with the run record
+     */
+    public CompletableFuture<ScriptExecutionResult> profileScriptAsync(String scriptPath, PyObject args, long timeoutMs) {
+        return delegate.profileScriptAsync(scriptPath, toJavaList(args), timeoutMs);
+    }
+
+    /**
+     * Profiles a named script path with function-level call tracing.
+     * <p>
+     * Exposed as {@code system.profiler.trace("path.to.script", [arg1, arg2])}.
+     *
+     * @param scriptPath dot-separated path to the script function
+     * @param args       a Python sequence of arguments, or {@code None}
+     * @return the run, its summary and the call tree
+     */
+    public TracedExecution trace(String scriptPath, PyObject args) {
+        return trace(scriptPath, args, false);
+    }
+
+    /**
+     * Profiles a named script path with call tracing, optionally timing every source line.
+     * <p>
+     * Exposed as {@code system.profiler.trace("path.to.script", [args], lines)}.
+     *
+     * @param scriptPath dot-separated path to the script function
+     * @param args       a Python sequence of arguments, or {@code None}
+     * @param lines      whether to also record per-line hit counts and times
+     * @return the run, its summary and the call tree
+     */
+    public TracedExecution trace(String scriptPath, PyObject args, boolean lines) {
+        return delegate.profileScriptTraced(scriptPath, toJavaList(args), lines);
+    }
+
+    /**
+     * Profiles a named script path by sampling its thread's stack every 5 ms.
+     * <p>
+     * Exposed as {@code system.profiler.sample("path.to.script", [arg1, arg2])}.
+     *
+     * @param scriptPath dot-separated path to the script function
+     * @param args       a Python sequence of arguments, or {@code None}
+     * @return the run, its summary and the sampled stacks in collapsed format
+     */
+    public SampledExecution sample(String scriptPath, PyObject args) {
+        return sample(scriptPath, args, DEFAULT_SAMPLE_INTERVAL_MS);
+    }
+
+    /**
+     * Profiles a named script path by sampling its thread's stack at a fixed interval.
+     * <p>
+     * Exposed as {@code system.profiler.sample("path.to.script", [args], intervalMs)}.
+     *
+     * @param scriptPath dot-separated path to the script function
+     * @param args       a Python sequence of arguments, or {@code None}
+     * @param intervalMs sampling interval in milliseconds
+     * @return the run, its summary and the sampled stacks in collapsed format
+     */
+    public SampledExecution sample(String scriptPath, PyObject args, double intervalMs) {
+        return delegate.profileScriptSampled(scriptPath, toJavaList(args), intervalMs);
+    }
+
+    /**
+     * Benchmarks a named script path using the default warmup and iteration counts.
+     * <p>
+     * Exposed as {@code system.profiler.benchmark("path.to.script", [arg1, arg2])}.
+     *
+     * @param scriptPath dot-separated path to the script function
+     * @param args       a Python sequence of arguments, or {@code None}
+     * @return benchmark statistics
+     */
+    public BenchmarkResult benchmark(String scriptPath, PyObject args) {
+        return benchmark(scriptPath, args, DEFAULT_WARMUP, DEFAULT_ITERATIONS);
+    }
+
+    /**
+     * Benchmarks a named script path: runs discarded warmup calls, then times the
+     * measured iterations.
+     * <p>
+     * Exposed as {@code system.profiler.benchmark("path.to.script", [args], warmup, iterations)}.
+     *
+     * @param scriptPath dot-separated path to the script function
+     * @param args       a Python sequence of arguments, or {@code None}
+     * @param warmup     number of untimed warmup calls
+     * @param iterations number of measured calls
+     * @return benchmark statistics (min, mean, stddev, p50/p90/p99, max, ops/sec)
+     */
+    public BenchmarkResult benchmark(String scriptPath, PyObject args, int warmup, int iterations) {
+        return delegate.benchmark(scriptPath, toJavaList(args), warmup, iterations);
     }
 
     /**
@@ -88,4 +230,354 @@ public class ScriptProfilerFunctions {
     public String getScriptContent(String scriptPath) {
         return delegate.getScriptContent(scriptPath);
     }
-}
\ No newline at end of file
+
+    /**
+     * Profiles a named script path with its {@code system.*} calls timed individually.
+     * <p>
+     * Exposed as {@code system.profiler.profileSystemCalls("path.to.script", [arg1, arg2])}.
+     *
+     * @param scriptPath dot-separated path to the script function
+     * @param args       a Python sequence of arguments, or {@code None}
+     * @return the run, time per {@code system} function and the remaining Python time
+     */
+    public SystemCallBreakdown profileSystemCalls(String scriptPath, PyObject args) {
+        return delegate.profileScriptSystemCalls(scriptPath, toJavaList(args));
+    }
+
+    /**
+     * Re-imports a project module tree from scratch and reports where the import time goes.
+     * <p>
+     * Exposed as {@code system.profiler.profileImports("shared")}.
+     *
+     * @param root dot-separated path of the root module
+     * @return the import tree with self and cumulative times, and the slowest module-level statements
+     */
+    public ImportProfile profileImports(String root) {
+        return delegate.profileImports(root);
+    }
+
+    /**
+     * Runs a concurrent load test of a named script path.
+     * <p>
+     * Exposed as {@code system.profiler.loadTest("path.to.script", [args], threads, durationMs)}.
+     *
+     * @param scriptPath dot-separated path to the script function
+     * @param args       a Python sequence of arguments, or {@code None}
+     * @param threads    maximum number of concurrent callers
+     * @param durationMs duration of each concurrency level in milliseconds
+     * @return throughput and latency per concurrency level
+     */
+    public LoadTestResult loadTest(String scriptPath, PyObject args, int threads, long durationMs) {
+        return delegate.loadTest(scriptPath, toJavaList(args), threads, durationMs);
+    }
+
+    /**
+     * Profiles every function under a module tree, calling each without arguments.
+     * <p>
+     * Exposed as {@code system.profiler.profilePackage("shared.reports")}.
+     *
+     * @param prefix dot-separated path of the root module
+     * @return the runs ranked slowest first
+     */
+    public PackageReport profilePackage(String prefix) {
+        return profilePackage(prefix, Py.None);
+    }
+
+    /**
+     * Profiles every function under a module tree with arguments from a provider.
+     * <p>
+     * Exposed as {@code system.profiler.profilePackage("shared.reports", argsProvider)}.
+     *
+     * @param prefix       dot-separated path of the root module
+     * @param argsProvider a callable taking a function path and returning its argument list,
+     *                     or {@code None} to skip that function; {@code None} for no arguments
+     * @return the runs ranked slowest first
+     */
+    public PackageReport profilePackage(String prefix, PyObject argsProvider) {
+        return profilePackage(prefix, argsProvider, DEFAULT_PACKAGE_PARALLELISM, DEFAULT_PACKAGE_TIMEOUT_MS);
+    }
+
+    /**
+     * Profiles every function under a module tree.
+     * <p>
+     * Exposed as {@code system.profiler.profilePackage("shared.reports", argsProvider, parallelism, timeoutMs)}.
+     *
+     * @param prefix       dot-separated path of the root module
+     * @param argsProvider a callable taking a function path and returning its argument list,
+     *                     or {@code None} to skip that function; {@code None} for no arguments
+     * @param parallelism  number of functions run at once
+     * @param timeoutMs    per-function time limit in milliseconds; 0 for none
+     * @return the runs ranked slowest first
+     */
+    public PackageReport profilePackage(String prefix, PyObject argsProvider, int parallelism, long timeoutMs) {
+        Function<String, List<Object>> provider = null;
+        if (argsProvider != null && argsProvider != Py.None) {
+            if (!argsProvider.isCallable()) {
+                throw new IllegalArgumentException("argsProvider must be callable or None");
+            }
+            provider = path -> {
+                PyObject args = argsProvider.__call__(Py.newString(path));
+                return args == Py.None ? null : toJavaList(args);
+            };
+        }
+        return delegate.profilePackage(prefix, provider, parallelism, timeoutMs);
+    }
+
+    /**
+     * Measures how a function's duration grows with its input size, with the default
+     * repetitions and a target size ten times the largest measured size.
+     * <p>
+     * Exposed as {@code system.profiler.profileScaling("path.to.script", argsGenerator, [10, 100, 1000])}.
+     *
+     * @param scriptPath    dot-separated path to the script function
+     * @param argsGenerator a callable taking an input size and returning the argument list
+     * @param sizes         a Python sequence of at least three input sizes
+     * @return measurements, ranked complexity fits and the extrapolated cost
+     */
+    public ScalingResult profileScaling(String scriptPath, PyObject argsGenerator, PyObject sizes) {
+        List<Integer> javaSizes = toSizes(sizes);
+        long target = 10L * javaSizes.stream().mapToInt(Integer::intValue).max().orElse(0);
+        return profileScaling(scriptPath, argsGenerator, sizes, DEFAULT_SCALING_REPETITIONS, target);
+    }
+
+    /**
+     * Measures how a function's duration grows with its input size.
+     * <p>
+     * Exposed as {@code system.profiler.profileScaling("path.to.script", argsGenerator, sizes, repetitions, targetSize)}.
+     *
+     * @param scriptPath    dot-separated path to the script function
+     * @param argsGenerator a callable taking an input size and returning the argument list
+     * @param sizes         a Python sequence of at least three input sizes
+     * @param repetitions   timed calls per size
+     * @param targetSize    input size the best-fitting model is extrapolated to
+     * @return measurements, ranked complexity fits and the extrapolated cost
+     */
+    public ScalingResult profileScaling(String scriptPath, PyObject argsGenerator, PyObject sizes,
+                                        int repetitions, long targetSize) {
+        if (argsGenerator == null || !argsGenerator.isCallable()) {
+            throw new IllegalArgumentException("argsGenerator must be callable");
+        }
+        IntFunction<List<Object>> generator = n -> toJavaList(argsGenerator.__call__(Py.newInteger(n)));
+        return delegate.profileScaling(scriptPath, generator, toSizes(sizes), repetitions, targetSize);
+    }
+
+    /**
+     * Returns lifetime latency statistics for a script path.
+     * <p>
+     * Exposed as {@code system.profiler.getStats("path.to.script")}.
+     *
+     * @param scriptPath dot-separated path to the script function
+     * @return count, errors, mean, min, p50/p90/p99/p999 and max in milliseconds
+     */
+    public LatencyStats getStats(String scriptPath) {
+        return delegate.getStats(scriptPath);
+    }
+
+    /**
+     * Clears lifetime statistics for one script path.
+     * <p>
+     * Exposed as {@code system.profiler.resetStats("path.to.script")}.
+     *
+     * @param scriptPath dot-separated path to the script function
+     */
+    public void resetStats(String scriptPath) {
+        delegate.resetStats(scriptPath);
+    }
+
+    /**
+     * Clears lifetime statistics for every script path.
+     * <p>
+     * Exposed as {@code system.profiler.resetStats()}.
+     */
+    public void resetStats() {
+        delegate.resetStats();
+    }
+
+    /**
+     * Captures the script's recent runs as its performance baseline.
+     * <p>
+     * Exposed as {@code system.profiler.captureBaseline("path.to.script")}.
+     *
+     * @param scriptPath dot-separated path to the script function
+     * @return the captured baseline
+     */
+    public Baseline captureBaseline(String scriptPath) {
+        return delegate.captureBaseline(scriptPath);
+    }
+
+    /**
+     * Compares the script's runs since its source changed against its baseline.
+     * <p>
+     * Exposed as {@code system.profiler.checkRegression("path.to.script")}.
+     *
+     * @param scriptPath dot-separated path to the script function
+     * @return the comparison, with {@code regression()} true for a significant slowdown
+     */
+    public RegressionReport checkRegression(String scriptPath) {
+        return delegate.checkRegression(scriptPath);
+    }
+
+    /**
+     * Removes the script's baseline.
+     * <p>
+     * Exposed as {@code system.profiler.clearBaseline("path.to.script")}.
+     *
+     * @param scriptPath dot-separated path to the script function
+     */
+    public void clearBaseline(String scriptPath) {
+        delegate.clearBaseline(scriptPath);
+    }
+
+    /**
+     * Returns past runs of a script within a time range, oldest first.
+     * <p>
+     * Exposed as {@code system.profiler.queryHistory("path.to.script", fromTs, toTs)}.
+     *
+     * @param scriptPath dot-separated path to the script function, or {@code None} for all scripts
+     * @param fromTs     inclusive lower bound in epoch milliseconds
+     * @param toTs       exclusive upper bound in epoch milliseconds
+     * @return at most {@value #DEFAULT_HISTORY_LIMIT} runs
+     */
+    public List<StoredRun> queryHistory(String scriptPath, long fromTs, long toTs) {
+        return queryHistory(scriptPath, fromTs, toTs, DEFAULT_HISTORY_LIMIT);
+    }
+
+    /**
+     * Returns past runs of a script within a time range, oldest first.
+     * <p>
+     * Exposed as {@code system.profiler.queryHistory("path.to.script", fromTs, toTs, limit)}.
+     *
+     * @param scriptPath dot-separated path to the script function, or {@code None} for all scripts
+     * @param fromTs     inclusive lower bound in epoch milliseconds
+     * @param toTs       exclusive upper bound in epoch milliseconds
+     * @param limit      maximum number of runs returned
+     * @return the matching runs
+     */
+    public List<StoredRun> queryHistory(String scriptPath, long fromTs, long toTs, int limit) {
+        return delegate.queryHistory(scriptPath, fromTs, toTs, limit);
+    }
+
+    /**
+     * Returns the latency of one of this project's canaries over a time window, choosing raw
+     * runs, one-minute or one-hour rollups to suit the window's length.
+     * <p>
+     * Exposed as {@code system.profiler.queryTimeSeries("path.to.script", fromTs, toTs)}, or
+     * {@code system.profiler.queryTimeSeries("path.to.script=[1, 'Line A']", fromTs, toTs)} for
+     * a canary configured with arguments.
+     *
+     * @param scriptPath dot-separated path to the canary's script function, then {@code =} and
+     *                   its arguments expression if it has one
+     * @param fromTs     inclusive lower bound in epoch milliseconds
+     * @param toTs       exclusive upper bound in epoch milliseconds
+     * @return the series and the resolution it was read at
+     */
+    public TimeSeries queryTimeSeries(String scriptPath, long fromTs, long toTs) {
+        return delegate.queryTimeSeries(scriptPath, fromTs, toTs);
+    }
+
+    /**
+     * Returns the latency of one of this project's canaries over a time window at a given resolution.
+     * <p>
+     * Exposed as {@code system.profiler.queryTimeSeries("path.to.script", fromTs, toTs, "minute")}.
+     *
+     * @param scriptPath dot-separated path to the canary's script function, then {@code =} and
+     *                   its arguments expression if it has one
+     * @param fromTs     inclusive lower bound in epoch milliseconds
+     * @param toTs       exclusive upper bound in epoch milliseconds
+     * @param resolution {@code raw}, {@code minute} or {@code hour}
+     * @return the series
+     */
+    public TimeSeries queryTimeSeries(String scriptPath, long fromTs, long toTs, String resolution) {
+        return delegate.queryTimeSeries(scriptPath, fromTs, toTs, Resolution.fromId(resolution));
+    }
+
+    /**
+     * Writes the run history and the most recent traced and sampled runs to a file.
+     * <p>
+     * Exposed as {@code system.profiler.export("speedscope", "/tmp/profile.speedscope.json")}.
+     *
+     * @param format {@code chrome}, {@code speedscope} or {@code collapsed}
+     * @param path   the file to write, replaced if it exists
+     * @return the absolute path of the written file
+     */
+    public String export(String format, String path) {
+        ExportFormat exportFormat = ExportFormat.fromId(format);
+        Path file = Path.of(path).toAbsolutePath();
+        try (OutputStream out = Files.newOutputStream(file)) {
+            delegate.export(exportFormat, out);
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Error exporting to " + file + ": " + e.getMessage(), e);
+        }
+        return file.toString();
+    }
+
+    /**
+     * Clears the cache of resolved script callables, forcing a fresh import on the next run.
+     * <p>
+     * Exposed as {@code system.profiler.invalidateCache()}.
+     */
+    public void invalidateCache() {
+        delegate.invalidateCache();
+    }
+
+    /**
+     * Converts a run record into a Python dict with the keys {@code path}, {@code args} (a list
+     * of dicts with {@code type}, {@code size}, {@code fingerprint} and {@code preview}),
+     * {@code argsFingerprint}, {@code status} ({@code "OK"}, {@code "ERROR"} or {@code "CANCELLED"}), {@code ok},
+     * {@code error}, {@code result} (a truncated preview), {@code elapsedMs}, {@code resolveMs},
+     * {@code cpuMs}, {@code userMs}, {@code allocatedBytes}, {@code gcCount}, {@code gcTimeMs}
+     * and {@code timestamp}.
+     */
+    static PyDictionary toPyDict(ScriptExecutionResult run) {
+        PyList args = new PyList();
+        for (ArgSummary arg : run.args()) {
+            PyDictionary summary = new PyDictionary();
+            summary.__setitem__(Py.newString("type"), Py.newString(arg.type()));
+            summary.__setitem__(Py.newString("size"), Py.newInteger(arg.size()));
+            summary.__setitem__(Py.newString("fingerprint"), Py.newString(arg.fingerprintHex()));
+            summary.__setitem__(Py.newString("preview"), Py.newString(arg.preview()));
+            args.append(summary);
+        }
+        PyDictionary dict = new PyDictionary();
+        dict.__setitem__(Py.newString("path"), Py.newString(run.path()));
+        dict.__setitem__(Py.newString("args"), args);
+        dict.__setitem__(Py.newString("argsFingerprint"), Py.newString(ArgSummary.hex(run.argsFingerprint())));
+        dict.__setitem__(Py.newString("status"), Py.newString(run.status().name()));
+        dict.__setitem__(Py.newString("ok"), Py.newBoolean(run.ok()));
+        dict.__setitem__(Py.newString("error"), run.error() == null ? Py.None : Py.newString(run.error()));
+        dict.__setitem__(Py.newString("result"),
+                run.resultPreview() == null ? Py.None : Py.newString(run.resultPreview()));
+        dict.__setitem__(Py.newString("elapsedMs"), Py.newFloat(run.elapsedMs()));
+        dict.__setitem__(Py.newString("resolveMs"), Py.newFloat(run.resolveMs()));
+        dict.__setitem__(Py.newString("cpuMs"), Py.newFloat(run.cpuMs()));
+        dict.__setitem__(Py.newString("userMs"), Py.newFloat(run.userMs()));
+        dict.__setitem__(Py.newString("allocatedBytes"), Py.newLong(run.allocatedBytes()));
+        dict.__setitem__(Py.newString("gcCount"), Py.newLong(run.gcCount()));
+        dict.__setitem__(Py.newString("gcTimeMs"), Py.newLong(run.gcTimeMs()));
+        dict.__setitem__(Py.newString("timestamp"), Py.newLong(run.timestamp()));
+        return dict;
+    }
+
+    private static List<Integer> toSizes(PyObject seq) {
+        List<Integer> sizes = new ArrayList<>();
+        for (PyObject size : seq.asIterable()) {
+            sizes.add(size.asInt());
+        }
+        return sizes;
+    }
+
+    /**
+     * Converts a Python sequence (or {@code None}) into a list of Java arguments.
+     */
+    static List<Object> toJavaList(PyObject seq) {
+        List<Object> javaArgs = new ArrayList<>();
+        if (seq == null || seq == Py.None) {
+            return javaArgs;
+        }
+        for (PyObject arg : seq.asIterable()) {
+            javaArgs.add(arg.__tojava__(Object.class));
+        }
+        return javaArgs;
+    }
+}
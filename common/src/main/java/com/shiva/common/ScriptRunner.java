@@ -0,0 +1,46 @@
+package com.shiva.common;
+
+import org.python.core.PyCode;
+import org.python.core.PyObject;
+import org.python.core.PyStringMap;
+
+/**
+ * The subset of Ignition's {@code ScriptManager} the profiler needs to import and run scripts.
+ * <p>
+ * Keeping the profiler behind this interface lets it run on a plain Jython interpreter,
+ * e.g. in the benchmarks that measure the profiler's own overhead. Inside Ignition it is
+ * backed by {@link IgnitionScriptRunner}.
+ */
+public interface ScriptRunner {
+
+    /**
+     * Compiles and executes source code in the script globals.
+     *
+     * @param code     Python source
+     * @param locals   locals for the execution
+     * @param filename name reported in tracebacks
+     */
+    void runCode(String code, PyStringMap locals, String filename) throws Exception;
+
+    /**
+     * Executes compiled code in the script globals.
+     *
+     * @param code   compiled code
+     * @param locals locals for the execution
+     */
+    void runCode(PyCode code, PyStringMap locals) throws Exception;
+
+    /**
+     * Calls a Python function.
+     *
+     * @param function the callable
+     * @param args     positional arguments
+     * @return the returned value
+     */
+    PyObject runFunction(PyObject function, PyObject... args) throws Exception;
+
+    /**
+     * @return a fresh locals map for a single execution
+     */
+    PyStringMap createLocalsMap();
+}
@@ -0,0 +1,28 @@
+package com.shiva.common;
+
+import java.util.List;
+
+/**
+ * The source of a project script function as loaded by {@code inspect.getsourcelines}.
+ *
+ * @param path      the script path, e.g. {@code shared.db.query}
+ * @param file      the code object's file name, as reported in call traces
+ * @param firstLine line number of the first source line within {@code file}
+ * @param hash      64-bit hash of {@code text}
+ * @param text      the function source
+ */
+public record ScriptSource(
+        String path,
+        String file,
+        int firstLine,
+        long hash,
+        String text
+) {
+
+    /**
+     * @return the source split into lines, without terminators
+     */
+    public List<String> lines() {
+        return text.lines().toList();
+    }
+}
@@ -0,0 +1,50 @@
+package com.shiva.common;
+
+import org.python.core.PyObject;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Caches function sources by script path and source hash.
+ * <p>
+ * An entry stays valid for as long as the path resolves to the same function object, so
+ * repeated previews and baseline checks don't re-run {@code inspect}. When the path resolves
+ * to a new function, typically after the script library reloads, the source is loaded again;
+ * if its hash is unchanged the existing {@link ScriptSource} is kept. Functions whose source
+ * is unavailable are cached too, as {@code null}.
+ */
+final class SourceCache {
+
+    private record Entry(PyObject function, ScriptSource source) {}
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param path     the script path
+     * @param function the function the path currently resolves to
+     * @param loader   loads the source of a function, returning {@code null} if unavailable
+     * @return the source, or {@code null} if unavailable
+     */
+    ScriptSource get(String path, PyObject function, Function<PyObject, ScriptSource> loader) {
+        Entry entry = entries.get(path);
+        if (entry != null && entry.function() == function) {
+            return entry.source();
+        }
+        ScriptSource loaded = loader.apply(function);
+        if (entry != null && entry.source() != null && loaded != null && entry.source().hash() == loaded.hash()) {
+            loaded = entry.source();
+        }
+        entries.put(path, new Entry(function, loaded));
+        return loaded;
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,52 @@
+package com.shiva.common;
+
+import java.util.List;
+
+/**
+ * A function's source annotated with per-line hit counts and time from the most recent
+ * line-traced run of that function.
+ *
+ * @param source   the function source
+ * @param lines    one entry per source line, in order; zero hits where the line never ran
+ *                 or no line-traced run is available
+ * @param tracedAt timestamp of the traced run the counts come from, or 0 if there is none
+ */
+public record SourceHeatMap(
+        ScriptSource source,
+        List<LineStats> lines,
+        long tracedAt
+) {
+
+    /**
+     * @return the largest per-line time, in milliseconds
+     */
+    public double maxTimeMs() {
+        double max = 0;
+        for (LineStats line : lines) {
+            max = Math.max(max, line.timeMs());
+        }
+        return max;
+    }
+
+    /**
+     * Renders the source with hit count and time columns, one line per source line.
+     *
+     * @return the annotated source
+     */
+    public String render() {
+        List<String> text = source.lines();
+        StringBuilder sb = new StringBuilder();
+        sb.append("=== ").append(source.path()).append(" ===\n");
+        for (int i = 0; i < text.size(); i++) {
+            LineStats stats = lines.get(i);
+            if (stats.hits() > 0) {
+                sb.append(String.format("%8d %10.3f ", stats.hits(), stats.timeMs()));
+            }
+            else {
+                sb.append(" ".repeat(20));
+            }
+            sb.append(String.format("%5d  ", stats.line())).append(text.get(i)).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,237 @@
+package com.shiva.common;
+
+import com.inductiveautomation.ignition.common.util.LogUtil;
+import com.inductiveautomation.ignition.common.util.LoggerEx;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background sampler that periodically captures the stacks of threads running profiled
+ * scripts.
+ * <p>
+ * A single daemon thread serves every active {@link Session}; it parks while no session is
+ * active. Each sample is a {@link Thread#getStackTrace()} of the target thread, reduced to
+ * its Python frames: Jython compiles Python functions into classes under
+ * {@code org.python.pycode}, with the Python function name as the method name (plus a
+ * {@code $N} suffix), the module as the source file and Python line numbers in the line
+ * table. The {@code call_function} dispatcher Jython places between two Python frames has
+ * no line number and is skipped. The Java frame a Python frame is waiting on (e.g. a
+ * {@code system.*} implementation) is kept as the leaf so time spent outside Python stays visible.
+ */
+public class StackSampler {
+
+    private static final String PYCODE_PREFIX = "org.python.pycode.";
+
+    /** Method of every compiled module class that dispatches to the function bodies. */
+    private static final String DISPATCHER = "call_function";
+
+    private final LoggerEx log = LogUtil.getLogger(getClass().getSimpleName());
+    private final Queue<Session> sessions = new ConcurrentLinkedQueue<>();
+    private volatile Thread worker;
+    private volatile boolean running = true;
+
+    /**
+     * Creates a sampling session for the current thread. The session starts sampling on
+     * {@link Session#beforeRun()} and stops on {@link Session#afterRun()}.
+     *
+     * @param intervalMicros sampling interval in microseconds
+     * @return a new, inactive session
+     */
+    public Session newSession(long intervalMicros) {
+        if (intervalMicros < 100) {
+            throw new IllegalArgumentException("Sampling interval must be at least 100 µs");
+        }
+        return new Session(TimeUnit.MICROSECONDS.toNanos(intervalMicros));
+    }
+
+    /**
+     * Stops the sampler thread. Active sessions stop receiving samples.
+     */
+    public void shutdown() {
+        running = false;
+        Thread t = worker;
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    private void activate(Session session) {
+        sessions.add(session);
+        Thread t = worker;
+        if (t == null) {
+            synchronized (this) {
+                if (worker == null && running) {
+                    t = new Thread(this::loop, "script-profiler-sampler");
+                    t.setDaemon(true);
+                    worker = t;
+                    t.start();
+                    return;
+                }
+                t = worker;
+            }
+        }
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    private void loop() {
+        while (running) {
+            if (sessions.isEmpty()) {
+                LockSupport.park(this);
+                continue;
+            }
+            long now = System.nanoTime();
+            long nextDue = Long.MAX_VALUE;
+            for (Session session : sessions) {
+                if (now - session.nextDue >= 0) {
+                    session.sample();
+                    session.nextDue = now + session.intervalNanos;
+                }
+                nextDue = Math.min(nextDue, session.nextDue);
+            }
+            long wait = nextDue - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+            }
+        }
+        log.debug("Sampler thread stopped");
+    }
+
+    /**
+     * One sampled run on one thread.
+     */
+    public final class Session implements RunHook {
+
+        private final long intervalNanos;
+        private final StackTrie trie = new StackTrie();
+        private final Map<StackTraceElement, Integer> frameCache = new HashMap<>();
+        private int[] frames = new int[64];
+        private Thread target;
+        private boolean active;
+        private volatile long nextDue;
+        private long samplingNanos;
+
+        private Session(long intervalNanos) {
+            this.intervalNanos = intervalNanos;
+        }
+
+        @Override
+        public void beforeRun() {
+            synchronized (this) {
+                target = Thread.currentThread();
+                active = true;
+                nextDue = System.nanoTime() + intervalNanos;
+            }
+            activate(this);
+        }
+
+        @Override
+        public void afterRun() {
+            sessions.remove(this);
+            synchronized (this) {
+                // waits for an in-flight sample so the trie is stable afterwards
+                active = false;
+                target = null;
+            }
+        }
+
+        /**
+         * @return the stack counts collected so far; stable once the run has finished
+         */
+        public StackTrie stacks() {
+            return trie;
+        }
+
+        /**
+         * @return the sampling interval in milliseconds
+         */
+        public double intervalMs() {
+            return intervalNanos / 1_000_000.0;
+        }
+
+        /**
+         * @return total time the sampler thread spent capturing this session's stacks
+         */
+        public double samplingOverheadMs() {
+            return samplingNanos / 1_000_000.0;
+        }
+
+        private synchronized void sample() {
+            if (!active) {
+                return;
+            }
+            long start = System.nanoTime();
+            StackTraceElement[] stack = target.getStackTrace();
+            int depth = 0;
+            int innermostPython = -1;
+            // walk outermost → innermost so frame ids come out in trie order
+            for (int i = stack.length - 1; i >= 0; i--) {
+                StackTraceElement e = stack[i];
+                if (isPythonFrame(e)) {
+                    if (depth == frames.length) {
+                        frames = Arrays.copyOf(frames, depth * 2);
+                    }
+                    frames[depth++] = frameId(e, true);
+                    innermostPython = i;
+                }
+            }
+            if (innermostPython > 0) {
+                // keep the Java callee the innermost Python frame is blocked in
+                for (int i = innermostPython - 1; i >= 0; i--) {
+                    String cls = stack[i].getClassName();
+                    if (!cls.startsWith("org.python.") && !cls.startsWith("jdk.internal.reflect.")
+                            && !cls.startsWith("java.lang.reflect.") && !cls.startsWith("sun.reflect.")) {
+                        if (depth == frames.length) {
+                            frames = Arrays.copyOf(frames, depth * 2);
+                        }
+                        frames[depth++] = frameId(stack[i], false);
+                        break;
+                    }
+                }
+            }
+            if (depth > 0) {
+                trie.add(frames, depth);
+            }
+            samplingNanos += System.nanoTime() - start;
+        }
+
+        private int frameId(StackTraceElement e, boolean python) {
+            Integer id = frameCache.get(e);
+            if (id == null) {
+                id = trie.frameId(python ? pythonLabel(e) : javaLabel(e));
+                frameCache.put(e, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * @return whether an element is a Python function body, not the generated dispatcher
+     */
+    private static boolean isPythonFrame(StackTraceElement e) {
+        return e.getClassName().startsWith(PYCODE_PREFIX) && e.getLineNumber() >= 0
+                && !DISPATCHER.equals(e.getMethodName());
+    }
+
+    private static String pythonLabel(StackTraceElement e) {
+        String method = e.getMethodName();
+        int dollar = method.lastIndexOf('$');
+        String function = dollar > 0 ? method.substring(0, dollar) : method;
+        if ("f".equals(function)) {
+            function = "<module>";
+        }
+        return function + " (" + e.getFileName() + ":" + e.getLineNumber() + ")";
+    }
+
+    private static String javaLabel(StackTraceElement e) {
+        String cls = e.getClassName();
+        return "java:" + cls.substring(cls.lastIndexOf('.') + 1) + "." + e.getMethodName();
+    }
+}
@@ -0,0 +1,124 @@
+package com.shiva.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact prefix tree of sampled call stacks with a sample count per node.
+ * <p>
+ * Frames are interned to integer ids and nodes are stored in parallel {@code int}/{@code long}
+ * arrays, so recording a stack whose prefix is already known allocates nothing beyond the
+ * caller's frame lookups. Not thread-safe; intended to be written by one sampler thread.
+ */
+public class StackTrie {
+
+    private static final int NONE = -1;
+    private static final int ROOT = 0;
+
+    private final Map<String, Integer> frameIds = new HashMap<>();
+    private final List<String> frameNames = new ArrayList<>();
+
+    private int nodeCount = 1;
+    private int[] nodeFrame = new int[256];
+    private int[] firstChild = new int[256];
+    private int[] nextSibling = new int[256];
+    private long[] selfCount = new long[256];
+    private long totalSamples;
+
+    public StackTrie() {
+        firstChild[ROOT] = NONE;
+        nextSibling[ROOT] = NONE;
+        nodeFrame[ROOT] = NONE;
+    }
+
+    /**
+     * Interns a frame label.
+     *
+     * @param frame a frame label such as {@code "calc (<module:shared.oee>:42)"}
+     * @return its id
+     */
+    public int frameId(String frame) {
+        Integer id = frameIds.get(frame);
+        if (id == null) {
+            id = frameNames.size();
+            frameNames.add(frame.replace(';', ':'));
+            frameIds.put(frame, id);
+        }
+        return id;
+    }
+
+    /**
+     * Records one sample.
+     *
+     * @param frames frame ids ordered from outermost to innermost
+     * @param length number of valid entries in {@code frames}
+     */
+    public void add(int[] frames, int length) {
+        int node = ROOT;
+        for (int i = 0; i < length; i++) {
+            node = child(node, frames[i]);
+        }
+        selfCount[node]++;
+        totalSamples++;
+    }
+
+    /**
+     * @return the number of recorded samples
+     */
+    public long totalSamples() {
+        return totalSamples;
+    }
+
+    /**
+     * Emits one {@code frame;frame;frame count} line per distinct stack, in the
+     * collapsed-stack format used by flame graph tools.
+     *
+     * @return the collapsed stacks
+     */
+    public List<String> toCollapsed() {
+        List<String> out = new ArrayList<>();
+        collect(ROOT, new StringBuilder(), out);
+        return out;
+    }
+
+    private void collect(int node, StringBuilder prefix, List<String> out) {
+        int mark = prefix.length();
+        if (node != ROOT) {
+            if (mark > 0) {
+                prefix.append(';');
+            }
+            prefix.append(frameNames.get(nodeFrame[node]));
+            if (selfCount[node] > 0) {
+                out.add(prefix + " " + selfCount[node]);
+            }
+        }
+        for (int c = firstChild[node]; c != NONE; c = nextSibling[c]) {
+            collect(c, prefix, out);
+        }
+        prefix.setLength(mark);
+    }
+
+    private int child(int parent, int frame) {
+        for (int c = firstChild[parent]; c != NONE; c = nextSibling[c]) {
+            if (nodeFrame[c] == frame) {
+                return c;
+            }
+        }
+        if (nodeCount == nodeFrame.length) {
+            int size = nodeCount * 2;
+            nodeFrame = Arrays.copyOf(nodeFrame, size);
+            firstChild = Arrays.copyOf(firstChild, size);
+            nextSibling = Arrays.copyOf(nextSibling, size);
+            selfCount = Arrays.copyOf(selfCount, size);
+        }
+        int node = nodeCount++;
+        nodeFrame[node] = frame;
+        firstChild[node] = NONE;
+        nextSibling[node] = firstChild[parent];
+        firstChild[parent] = node;
+        return node;
+    }
+}
@@ -0,0 +1,21 @@
+package com.shiva.common;
+
+/**
+ * A run read back from the persistent {@link HistoryStore}.
+ * <p>
+ * Unlike {@link ScriptExecutionResult}, stored runs carry no argument summaries; only the
+ * fixed-width numeric fields are persisted, with the arguments reduced to
+ * {@link ScriptExecutionResult#argsFingerprint()} (0 for runs written before it was stored).
+ */
+public record StoredRun(
+        String path,
+        long timestamp,
+        double elapsedMs,
+        double resolveMs,
+        double cpuMs,
+        long allocatedBytes,
+        int gcCount,
+        int gcTimeMs,
+        int flags,
+        long argsFingerprint
+) {}
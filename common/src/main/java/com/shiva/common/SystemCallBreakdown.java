@@ -0,0 +1,35 @@
+package com.shiva.common;
+
+import java.util.List;
+
+/**
+ * A profiled run split into time spent in {@code system.*} functions, per function, and
+ * the remaining time spent in the script's own Python code.
+ *
+ * @param run      the run record
+ * @param calls    per-function statistics, largest total first
+ * @param systemMs combined duration of all {@code system.*} calls
+ * @param pythonMs the run's elapsed time minus {@code systemMs}
+ */
+public record SystemCallBreakdown(
+        ScriptExecutionResult run,
+        List<SystemCallStats> calls,
+        double systemMs,
+        double pythonMs
+) {
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(run.summary()).append('\n');
+        double elapsed = run.elapsedMs();
+        sb.append(String.format("system.* %.3f ms (%.1f%%), Python %.3f ms (%.1f%%)%n",
+                systemMs, elapsed > 0 ? 100 * systemMs / elapsed : 0,
+                pythonMs, elapsed > 0 ? 100 * pythonMs / elapsed : 0));
+        sb.append(String.format("%8s %8s %12s %10s  %s%n", "calls", "errors", "total ms", "max ms", "function"));
+        for (SystemCallStats c : calls) {
+            sb.append(String.format("%8d %8d %12.3f %10.3f  %s%n",
+                    c.calls(), c.errors(), c.totalMs(), c.maxMs(), c.function()));
+        }
+        return sb.toString();
+    }
+}
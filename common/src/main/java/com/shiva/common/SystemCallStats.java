@@ -0,0 +1,19 @@
+package com.shiva.common;
+
+/**
+ * Calls made to one {@code system.*} function during a profiled run.
+ *
+ * @param function the dotted function name, e.g. {@code system.db.runPrepQuery}
+ * @param calls    number of calls
+ * @param errors   calls that raised
+ * @param totalMs  combined duration of the calls
+ * @param maxMs    longest single call
+ */
+public record SystemCallStats(
+        String function,
+        long calls,
+        long errors,
+        double totalMs,
+        double maxMs
+) {
+}
@@ -0,0 +1,228 @@
+package com.shiva.common;
+
+import org.python.core.PyFunction;
+import org.python.core.PyModule;
+import org.python.core.PyObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Times the {@code system.*} calls made by a single profiling run.
+ * <p>
+ * Just before the run, the {@code system} binding in the function's globals, and in the
+ * globals of the modules and functions reachable from them, is replaced with a
+ * {@link SystemModuleProxy}; just after, the original bindings are restored. Builtins and
+ * unrelated modules are left alone. Other threads calling through a patched module
+ * meanwhile get the real attributes straight from the proxy and are never counted.
+ * Only one timer may be active at a time, so callers must serialize runs.
+ * <p>
+ * Wrapping and recording happen only on the thread that called {@link #beforeRun()}, so
+ * they need no locking; {@link #breakdown} must be called on that thread too.
+ * <p>
+ * Time spent in Python callbacks made by a {@code system.*} function (rare) counts as
+ * {@code system.*} time.
+ */
+final class SystemCallTimer implements RunHook, CallRecorder {
+
+    static final String SYSTEM = "system";
+
+    /** How many module or function hops away from the profiled function's globals are patched. */
+    static final int MAX_DEPTH = 3;
+
+    /** Upper bound on patched namespaces, so a huge module graph cannot stall the run. */
+    static final int MAX_NAMESPACES = 512;
+
+    private record Swap(PyObject dict, PyObject original, PyObject proxy) {}
+
+    private final List<PyObject> rootGlobals;
+    private final Map<PyObject, SystemModuleProxy> roots = new IdentityHashMap<>();
+    private final Map<String, PyObject> wrappers = new HashMap<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<Swap> swaps = new ArrayList<>();
+
+    private long[] calls = new long[16];
+    private long[] errors = new long[16];
+    private long[] totalNanos = new long[16];
+    private long[] maxNanos = new long[16];
+    private volatile Thread owner;
+
+    /**
+     * @param rootGlobals globals to patch, typically the profiled function's {@code func_globals};
+     *                    modules and functions reachable from them are patched too
+     */
+    SystemCallTimer(List<PyObject> rootGlobals) {
+        this.rootGlobals = rootGlobals;
+    }
+
+    @Override
+    public void beforeRun() {
+        owner = Thread.currentThread();
+        Set<PyObject> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<PyObject> level = new ArrayList<>();
+        for (PyObject globals : rootGlobals) {
+            if (globals != null && seen.add(globals)) {
+                level.add(globals);
+            }
+        }
+        for (int depth = 0; depth <= MAX_DEPTH && !level.isEmpty(); depth++) {
+            List<PyObject> next = new ArrayList<>();
+            for (PyObject dict : level) {
+                patch(dict);
+                if (depth < MAX_DEPTH) {
+                    collectReachable(dict, seen, next);
+                }
+            }
+            level = next;
+        }
+    }
+
+    /**
+     * Adds the namespaces referenced from {@code dict}: the dicts of modules and the globals
+     * of functions, skipping {@code system} itself.
+     */
+    private void collectReachable(PyObject dict, Set<PyObject> seen, List<PyObject> into) {
+        for (PyObject key : dict.asIterable()) {
+            if (seen.size() >= MAX_NAMESPACES) {
+                return;
+            }
+            PyObject value = dict.__finditem__(key);
+            PyObject namespace = null;
+            if (value instanceof SystemModuleProxy || SYSTEM.equals(key.toString())) {
+                continue;
+            }
+            if (value instanceof PyModule) {
+                namespace = value.fastGetDict();
+            }
+            else if (value instanceof PyFunction fn) {
+                namespace = fn.__globals__;
+            }
+            if (namespace != null && seen.add(namespace)) {
+                into.add(namespace);
+            }
+        }
+    }
+
+    /**
+     * Restores every binding patched so far. Safe to call after {@link #beforeRun()} failed
+     * part way, and more than once.
+     */
+    @Override
+    public void afterRun() {
+        owner = null;
+        for (int i = swaps.size() - 1; i >= 0; i--) {
+            Swap swap = swaps.get(i);
+            // leave the binding alone if the script rebound it
+            if (swap.dict().__finditem__(SYSTEM) == swap.proxy()) {
+                swap.dict().__setitem__(SYSTEM, swap.original());
+            }
+        }
+        swaps.clear();
+    }
+
+    /**
+     * @return whether the calling thread is the one being profiled
+     */
+    boolean isOwner() {
+        return Thread.currentThread() == owner;
+    }
+
+    private void patch(PyObject dict) {
+        PyObject current = dict.__finditem__(SYSTEM);
+        if (current == null || current instanceof SystemModuleProxy) {
+            return;
+        }
+        SystemModuleProxy proxy = roots.computeIfAbsent(current, s -> new SystemModuleProxy(s, SYSTEM, this));
+        dict.__setitem__(SYSTEM, proxy);
+        swaps.add(new Swap(dict, current, proxy));
+    }
+
+    /**
+     * Wraps an attribute of a proxied module: functions in a timing wrapper, submodules in a
+     * proxy, and anything else not at all.
+     *
+     * @param path  the attribute's dotted name
+     * @param value the real attribute
+     */
+    PyObject wrap(String path, PyObject value) {
+        PyObject cached = wrappers.get(path);
+        if (cached instanceof TimedFunction timed && timed.target() == value) {
+            return cached;
+        }
+        if (cached instanceof SystemModuleProxy proxy && proxy.target() == value) {
+            return cached;
+        }
+        PyObject wrapped;
+        if (value.isCallable()) {
+            wrapped = new TimedFunction(value, idFor(path), this);
+        }
+        else if (value instanceof PyModule || value.fastGetDict() != null) {
+            wrapped = new SystemModuleProxy(value, path, this);
+        }
+        else {
+            return value;
+        }
+        wrappers.put(path, wrapped);
+        return wrapped;
+    }
+
+    @Override
+    public void record(int functionId, long nanos, boolean ok) {
+        // a wrapper kept by the script may be called later or from another thread
+        if (Thread.currentThread() != owner) {
+            return;
+        }
+        calls[functionId]++;
+        if (!ok) {
+            errors[functionId]++;
+        }
+        totalNanos[functionId] += nanos;
+        maxNanos[functionId] = Math.max(maxNanos[functionId], nanos);
+    }
+
+    private int idFor(String path) {
+        Integer id = ids.get(path);
+        if (id != null) {
+            return id;
+        }
+        int next = names.size();
+        if (next == calls.length) {
+            int size = next * 2;
+            calls = Arrays.copyOf(calls, size);
+            errors = Arrays.copyOf(errors, size);
+            totalNanos = Arrays.copyOf(totalNanos, size);
+            maxNanos = Arrays.copyOf(maxNanos, size);
+        }
+        names.add(path);
+        ids.put(path, next);
+        return next;
+    }
+
+    /**
+     * Splits a finished run into per-function {@code system.*} time and the Python remainder.
+     *
+     * @param run the run this timer was attached to
+     */
+    SystemCallBreakdown breakdown(ScriptExecutionResult run) {
+        List<SystemCallStats> stats = new ArrayList<>();
+        long systemNanos = 0;
+        for (int id = 0; id < names.size(); id++) {
+            if (calls[id] > 0) {
+                stats.add(new SystemCallStats(names.get(id), calls[id], errors[id],
+                        totalNanos[id] / 1_000_000.0, maxNanos[id] / 1_000_000.0));
+                systemNanos += totalNanos[id];
+            }
+        }
+        stats.sort(Comparator.comparingDouble(SystemCallStats::totalMs).reversed());
+        double systemMs = systemNanos / 1_000_000.0;
+        return new SystemCallBreakdown(run, List.copyOf(stats), systemMs, Math.max(0, run.elapsedMs() - systemMs));
+    }
+}
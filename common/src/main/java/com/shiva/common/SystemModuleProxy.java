@@ -0,0 +1,49 @@
+package com.shiva.common;
+
+import org.python.core.PyObject;
+
+/**
+ * Stand-in for {@code system} or one of its submodules while a {@link SystemCallTimer} is
+ * active. Attribute lookups are forwarded to the real module; functions come back wrapped
+ * in a {@link TimedFunction} and submodules in another proxy, so
+ * {@code system.db.runPrepQuery(...)} is timed under its full dotted name. Lookups from
+ * any thread but the profiled one return the real attribute without further work.
+ */
+class SystemModuleProxy extends PyObject {
+
+    private final PyObject target;
+    private final String path;
+    private final SystemCallTimer timer;
+
+    SystemModuleProxy(PyObject target, String path, SystemCallTimer timer) {
+        this.target = target;
+        this.path = path;
+        this.timer = timer;
+    }
+
+    /**
+     * @return the real module
+     */
+    PyObject target() {
+        return target;
+    }
+
+    @Override
+    public PyObject __findattr_ex__(String name) {
+        PyObject value = target.__findattr_ex__(name);
+        if (value == null || !timer.isOwner()) {
+            return value;
+        }
+        return timer.wrap(path + "." + name, value);
+    }
+
+    @Override
+    public void __setattr__(String name, PyObject value) {
+        target.__setattr__(name, value);
+    }
+
+    @Override
+    public String toString() {
+        return target.toString();
+    }
+}
@@ -0,0 +1,36 @@
+package com.shiva.common;
+
+import java.util.List;
+
+/**
+ * Latency of one script over a time window, at the resolution {@link TimeSeriesStore} chose
+ * for the window.
+ */
+public record TimeSeries(
+        String path,
+        Resolution resolution,
+        long fromTs,
+        long toTs,
+        List<TimeSeriesPoint> points
+) {
+
+    private static final int SUMMARY_ROWS = 25;
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%s: %d %s points from %tF %<tT to %tF %<tT%n",
+                path, points.size(), resolution.id(), fromTs, toTs));
+        sb.append(String.format("%-19s %7s %6s %10s %10s %10s %10s%n",
+                "time", "runs", "errors", "min ms", "mean ms", "p99 ms", "max ms"));
+        int start = Math.max(0, points.size() - SUMMARY_ROWS);
+        if (start > 0) {
+            sb.append(String.format("... %d earlier%n", start));
+        }
+        for (TimeSeriesPoint p : points.subList(start, points.size())) {
+            sb.append(String.format("%tF %<tT %7d %6d %10.3f %10.3f %10.3f %10.3f%n",
+                    p.timestamp(), p.count(), p.errors(), p.minMs(), p.meanMs(), p.p99Ms(), p.maxMs()));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,25 @@
+package com.shiva.common;
+
+/**
+ * One point of a {@link TimeSeries}: a single run at {@link Resolution#RAW}, otherwise the
+ * runs of one rollup bucket. Latency figures cover successful runs only and are 0 when
+ * the bucket holds none.
+ *
+ * @param timestamp start of the bucket, or the time of the run, in epoch milliseconds
+ * @param count     number of successful runs
+ * @param errors    number of failed or timed-out runs
+ * @param minMs     fastest run
+ * @param meanMs    mean duration
+ * @param p99Ms     99th percentile duration, at histogram resolution
+ * @param maxMs     slowest run
+ */
+public record TimeSeriesPoint(
+        long timestamp,
+        long count,
+        long errors,
+        double minMs,
+        double meanMs,
+        double p99Ms,
+        double maxMs
+) {
+}
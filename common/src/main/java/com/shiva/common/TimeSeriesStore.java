@@ -0,0 +1,508 @@
+package com.shiva.common;
+
+import com.inductiveautomation.ignition.common.util.LogUtil;
+import com.inductiveautomation.ignition.common.util.LoggerEx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Multi-resolution latency history for a small set of series, such as scheduled canaries.
+ * <p>
+ * Each series is identified by a caller-chosen key; canaries use {@link CanarySpec#seriesKey()},
+ * so the same script run by different projects or with different arguments is kept apart.
+ * <p>
+ * Every run is kept at {@link Resolution#RAW} and folded into one-minute and one-hour
+ * rollups holding the run and error counts and the min, mean, p99 and max duration. Each
+ * resolution is a fixed-capacity ring of primitive arrays ({@value #RAW_CAPACITY} runs,
+ * {@value #MINUTE_CAPACITY} minutes, {@value #HOUR_CAPACITY} hours), and at most
+ * {@value #MAX_SERIES} series are tracked, so memory and disk use are bounded regardless of
+ * how long the store runs. The open minute and hour each aggregate into a
+ * {@link LatencyHistogram}, so rollup percentiles come from the runs themselves rather than
+ * from finer rollups.
+ * <p>
+ * When backed by a directory, each series' rings are written to one file, by temporary
+ * name and atomic move, every {@value #FLUSH_INTERVAL_MS} ms and on {@link #close()}. A
+ * bucket that was still open when written is merged with the rest of its runs after a
+ * restart; the merged p99 is the larger of the two parts, since the runs themselves are
+ * no longer available.
+ */
+public class TimeSeriesStore implements Closeable {
+
+    /** Runs retained per series at {@link Resolution#RAW}. */
+    public static final int RAW_CAPACITY = 4096;
+
+    /** One-minute rollups retained per series: one week. */
+    public static final int MINUTE_CAPACITY = 7 * 24 * 60;
+
+    /** One-hour rollups retained per series: one year. */
+    public static final int HOUR_CAPACITY = 366 * 24;
+
+    /** Maximum number of series tracked. */
+    public static final int MAX_SERIES = 32;
+
+    /** Largest number of points {@link #query(String, long, long)} returns before choosing a coarser resolution. */
+    public static final int MAX_QUERY_POINTS = 2000;
+
+    private static final int MAGIC = 0x53505431; // "SPT1"
+    private static final String SUFFIX = ".series";
+    private static final long FLUSH_INTERVAL_MS = 300_000;
+
+    private final LoggerEx log = LogUtil.getLogger(getClass().getSimpleName());
+    private final Path dir;
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+    private volatile long lastFlush = System.currentTimeMillis();
+    private volatile boolean warnedFull;
+
+    /**
+     * Creates a store that keeps its series in memory only.
+     */
+    public TimeSeriesStore() {
+        this.dir = null;
+    }
+
+    /**
+     * Creates a store persisted under a directory, loading any series already there.
+     *
+     * @param dir directory holding the series files; created if missing
+     * @throws IOException if the directory cannot be created
+     */
+    public TimeSeriesStore(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+        load();
+    }
+
+    /**
+     * Adds one run.
+     *
+     * @param key       the series key
+     * @param timestamp when the run finished, in epoch milliseconds
+     * @param nanos     duration of the run
+     * @param ok        {@code false} if the run failed or timed out
+     */
+    public void record(String key, long timestamp, long nanos, boolean ok) {
+        Series s = series.get(key);
+        if (s == null) {
+            if (series.size() >= MAX_SERIES) {
+                if (!warnedFull) {
+                    warnedFull = true;
+                    log.warn("Time-series store is full (" + MAX_SERIES + " series); not recording " + key);
+                }
+                return;
+            }
+            s = series.computeIfAbsent(key, Series::new);
+        }
+        s.add(timestamp, Math.max(0, nanos), ok);
+
+        if (dir != null && System.currentTimeMillis() - lastFlush > FLUSH_INTERVAL_MS) {
+            flush();
+        }
+    }
+
+    /**
+     * Returns a series' runs within a time window at the finest resolution that still
+     * covers the whole window in at most {@value #MAX_QUERY_POINTS} points.
+     *
+     * @param key    the series key
+     * @param fromTs inclusive lower bound, in epoch milliseconds
+     * @param toTs   exclusive upper bound, in epoch milliseconds
+     * @return the series, with the key as its path; empty if nothing was recorded under the key
+     */
+    public TimeSeries query(String key, long fromTs, long toTs) {
+        Series s = series.get(key);
+        if (s == null) {
+            return new TimeSeries(key, Resolution.RAW, fromTs, toTs, List.of());
+        }
+        return query(key, fromTs, toTs, s.choose(fromTs, toTs));
+    }
+
+    /**
+     * Returns a series' runs within a time window at a given resolution.
+     *
+     * @param key        the series key
+     * @param fromTs     inclusive lower bound, in epoch milliseconds
+     * @param toTs       exclusive upper bound, in epoch milliseconds
+     * @param resolution the resolution to read
+     * @return the series, oldest point first; rollup points are included while their bucket is still open
+     */
+    public TimeSeries query(String key, long fromTs, long toTs, Resolution resolution) {
+        if (toTs < fromTs) {
+            throw new IllegalArgumentException("toTs must be >= fromTs");
+        }
+        Series s = series.get(key);
+        List<TimeSeriesPoint> points = s == null ? List.of() : s.points(resolution, fromTs, toTs);
+        return new TimeSeries(key, resolution, fromTs, toTs, points);
+    }
+
+    /**
+     * @return the keys of the tracked series, sorted
+     */
+    public List<String> keys() {
+        return List.copyOf(new TreeSet<>(series.keySet()));
+    }
+
+    /**
+     * Writes every series changed since the last flush. Does nothing for an in-memory store.
+     */
+    public void flush() {
+        lastFlush = System.currentTimeMillis();
+        if (dir == null) {
+            return;
+        }
+        for (Series s : series.values()) {
+            s.persist();
+        }
+    }
+
+    /**
+     * Writes all pending changes to disk.
+     */
+    @Override
+    public void close() {
+        flush();
+    }
+
+    private void load() {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.filter(f -> f.toString().endsWith(SUFFIX)).toList()) {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                    if (in.readInt() != MAGIC) {
+                        continue;
+                    }
+                    Series s = new Series(in.readUTF());
+                    s.raw.read(in, false);
+                    s.minute.ring.read(in, true);
+                    s.hour.ring.read(in, true);
+                    series.put(s.key, s);
+                }
+                catch (IOException e) {
+                    log.warn("Skipping unreadable time series " + file + ": " + e.getMessage());
+                }
+            }
+        }
+        catch (IOException e) {
+            log.warn("Unable to list time series in " + dir + ": " + e.getMessage());
+        }
+    }
+
+    private Path fileFor(String key) {
+        return dir.resolve(String.format("%016x%s", CodeCache.hash(key), SUFFIX));
+    }
+
+    /**
+     * The three resolutions of one series. All access is synchronized on the series; runs
+     * arrive at canary cadence, so contention is negligible.
+     */
+    private final class Series {
+        final String key;
+        final Ring raw = new Ring(RAW_CAPACITY);
+        final Rollup minute = new Rollup(Resolution.MINUTE, MINUTE_CAPACITY);
+        final Rollup hour = new Rollup(Resolution.HOUR, HOUR_CAPACITY);
+        boolean dirty;
+
+        Series(String key) {
+            this.key = key;
+        }
+
+        synchronized void add(long timestamp, long nanos, boolean ok) {
+            raw.append(timestamp, ok ? 1 : 0, ok ? 0 : 1, ok ? nanos : 0, ok ? nanos : 0, ok ? nanos : 0,
+                    ok ? nanos : 0);
+            minute.add(timestamp, nanos, ok);
+            hour.add(timestamp, nanos, ok);
+            dirty = true;
+        }
+
+        synchronized Resolution choose(long fromTs, long toTs) {
+            if (raw.covers(fromTs) && raw.countIn(fromTs, toTs) <= MAX_QUERY_POINTS) {
+                return Resolution.RAW;
+            }
+            if (minute.ring.covers(fromTs) && minute.ring.countIn(fromTs, toTs) + 1 <= MAX_QUERY_POINTS) {
+                return Resolution.MINUTE;
+            }
+            return Resolution.HOUR;
+        }
+
+        synchronized List<TimeSeriesPoint> points(Resolution resolution, long fromTs, long toTs) {
+            List<TimeSeriesPoint> out = new ArrayList<>();
+            switch (resolution) {
+                case RAW -> raw.collect(fromTs, toTs, out);
+                case MINUTE -> minute.collect(fromTs, toTs, out);
+                case HOUR -> hour.collect(fromTs, toTs, out);
+            }
+            return out;
+        }
+
+        void persist() {
+            Path file = fileFor(key);
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            synchronized (this) {
+                if (!dirty) {
+                    return;
+                }
+                try {
+                    try (DataOutputStream out = new DataOutputStream(
+                            new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                        out.writeInt(MAGIC);
+                        out.writeUTF(key);
+                        raw.write(out, null);
+                        minute.ring.write(out, minute);
+                        hour.ring.write(out, hour);
+                    }
+                    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    dirty = false;
+                }
+                catch (IOException e) {
+                    log.warn("Unable to save time series " + key + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * A rollup resolution: closed buckets in a ring plus the bucket currently filling.
+     */
+    private static final class Rollup {
+        final Resolution resolution;
+        final Ring ring;
+        final LatencyHistogram open = new LatencyHistogram();
+        long openStart = -1;
+        long openErrors;
+
+        Rollup(Resolution resolution, int capacity) {
+            this.resolution = resolution;
+            this.ring = new Ring(capacity);
+        }
+
+        void add(long timestamp, long nanos, boolean ok) {
+            long start = timestamp - Math.floorMod(timestamp, resolution.bucketMs());
+            if (start > openStart) {
+                closeOpen();
+                openStart = start;
+            }
+            // a late run lands in the open bucket rather than reopening a closed one
+            if (ok) {
+                open.record(nanos);
+            }
+            else {
+                openErrors++;
+            }
+        }
+
+        private void closeOpen() {
+            if (openStart >= 0 && (open.count() > 0 || openErrors > 0)) {
+                ring.merge(openStart, open.count(), openErrors, open.min(), open.totalNanos(),
+                        open.percentile(99), open.max());
+            }
+            open.reset();
+            openErrors = 0;
+        }
+
+        boolean hasOpen() {
+            return openStart >= 0 && (open.count() > 0 || openErrors > 0);
+        }
+
+        void collect(long fromTs, long toTs, List<TimeSeriesPoint> out) {
+            ring.collect(fromTs, toTs, out);
+            if (hasOpen() && openStart >= fromTs && openStart < toTs) {
+                if (ring.newestStartsAt(openStart)) {
+                    // persisted while open before a restart; reported once, as merge() will store it
+                    out.remove(out.size() - 1);
+                }
+                out.add(ring.pointMergedWithNewest(openStart, open.count(), openErrors, open.min(),
+                        open.totalNanos(), open.percentile(99), open.max()));
+            }
+        }
+    }
+
+    /**
+     * Fixed-capacity ring of points in parallel primitive arrays, oldest overwritten first.
+     * Points are appended in time order, so a time range is a contiguous run of slots.
+     */
+    private static final class Ring {
+        final int capacity;
+        final long[] timestamps;
+        final long[] counts;
+        final long[] errors;
+        final long[] minNanos;
+        final long[] sumNanos;
+        final long[] p99Nanos;
+        final long[] maxNanos;
+        int head;
+        int size;
+        boolean evicted;
+
+        Ring(int capacity) {
+            this.capacity = capacity;
+            timestamps = new long[capacity];
+            counts = new long[capacity];
+            errors = new long[capacity];
+            minNanos = new long[capacity];
+            sumNanos = new long[capacity];
+            p99Nanos = new long[capacity];
+            maxNanos = new long[capacity];
+        }
+
+        void append(long ts, long count, long errs, long min, long sum, long p99, long max) {
+            int slot = head;
+            timestamps[slot] = ts;
+            counts[slot] = count;
+            errors[slot] = errs;
+            minNanos[slot] = min;
+            sumNanos[slot] = sum;
+            p99Nanos[slot] = p99;
+            maxNanos[slot] = max;
+            head = (head + 1) % capacity;
+            if (size < capacity) {
+                size++;
+            }
+            else {
+                evicted = true;
+            }
+        }
+
+        /**
+         * Appends a bucket, or combines it with the newest one if it has the same start,
+         * as happens when a bucket persisted while open is completed after a restart.
+         */
+        void merge(long ts, long count, long errs, long min, long sum, long p99, long max) {
+            int last = (head - 1 + capacity) % capacity;
+            if (!newestStartsAt(ts)) {
+                append(ts, count, errs, min, sum, p99, max);
+                return;
+            }
+            if (count > 0) {
+                minNanos[last] = counts[last] == 0 ? min : Math.min(minNanos[last], min);
+                maxNanos[last] = Math.max(maxNanos[last], max);
+                p99Nanos[last] = Math.max(p99Nanos[last], p99);
+            }
+            counts[last] += count;
+            errors[last] += errs;
+            sumNanos[last] += sum;
+        }
+
+        boolean newestStartsAt(long ts) {
+            return size > 0 && timestamps[(head - 1 + capacity) % capacity] == ts;
+        }
+
+        /**
+         * Builds a point for a bucket, combined as {@link #merge} would with the newest point
+         * if that has the same start, without changing the ring.
+         */
+        TimeSeriesPoint pointMergedWithNewest(long ts, long count, long errs, long min, long sum, long p99,
+                                              long max) {
+            if (!newestStartsAt(ts)) {
+                return point(ts, count, errs, min, sum, p99, max);
+            }
+            int last = (head - 1 + capacity) % capacity;
+            long mergedMin = counts[last] == 0 ? min : count == 0 ? minNanos[last] : Math.min(minNanos[last], min);
+            return point(ts, counts[last] + count, errors[last] + errs, mergedMin, sumNanos[last] + sum,
+                    Math.max(p99Nanos[last], p99), Math.max(maxNanos[last], max));
+        }
+
+        /**
+         * @return {@code true} if no point at or after {@code fromTs} has been evicted
+         */
+        boolean covers(long fromTs) {
+            return !evicted || (size > 0 && timestamps[indexOf(0)] <= fromTs);
+        }
+
+        int countIn(long fromTs, long toTs) {
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                long ts = timestamps[indexOf(i)];
+                if (ts >= fromTs && ts < toTs) {
+                    n++;
+                }
+            }
+            return n;
+        }
+
+        void collect(long fromTs, long toTs, List<TimeSeriesPoint> out) {
+            for (int i = 0; i < size; i++) {
+                int slot = indexOf(i);
+                long ts = timestamps[slot];
+                if (ts >= fromTs && ts < toTs) {
+                    out.add(point(ts, counts[slot], errors[slot], minNanos[slot], sumNanos[slot], p99Nanos[slot],
+                            maxNanos[slot]));
+                }
+            }
+        }
+
+        /**
+         * Writes the points oldest first, followed by the open bucket of {@code rollup} if any.
+         */
+        void write(DataOutputStream out, Rollup rollup) throws IOException {
+            boolean open = rollup != null && rollup.hasOpen();
+            out.writeInt(size + (open ? 1 : 0));
+            for (int i = 0; i < size; i++) {
+                int slot = indexOf(i);
+                writePoint(out, timestamps[slot], counts[slot], errors[slot], minNanos[slot], sumNanos[slot],
+                        p99Nanos[slot], maxNanos[slot]);
+            }
+            if (open) {
+                LatencyHistogram h = rollup.open;
+                writePoint(out, rollup.openStart, h.count(), rollup.openErrors, h.min(), h.totalNanos(),
+                        h.percentile(99), h.max());
+            }
+        }
+
+        /**
+         * Reads points written by {@link #write}; rollup points are merged so that a bucket
+         * written while open and again later is kept once.
+         */
+        void read(DataInputStream in, boolean rollup) throws IOException {
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                long ts = in.readLong();
+                long count = in.readLong();
+                long errs = in.readLong();
+                long min = in.readLong();
+                long sum = in.readLong();
+                long p99 = in.readLong();
+                long max = in.readLong();
+                if (rollup) {
+                    merge(ts, count, errs, min, sum, p99, max);
+                }
+                else {
+                    append(ts, count, errs, min, sum, p99, max);
+                }
+            }
+        }
+
+        private int indexOf(int i) {
+            return (head - size + i + capacity) % capacity;
+        }
+
+        private static void writePoint(DataOutputStream out, long ts, long count, long errs, long min, long sum,
+                                       long p99, long max) throws IOException {
+            out.writeLong(ts);
+            out.writeLong(count);
+            out.writeLong(errs);
+            out.writeLong(min);
+            out.writeLong(sum);
+            out.writeLong(p99);
+            out.writeLong(max);
+        }
+
+        static TimeSeriesPoint point(long ts, long count, long errs, long min, long sum, long p99, long max) {
+            return count == 0
+                    ? new TimeSeriesPoint(ts, 0, errs, 0, 0, 0, 0)
+                    : new TimeSeriesPoint(ts, count, errs, min / 1_000_000.0, sum / 1_000_000.0 / count,
+                            p99 / 1_000_000.0, max / 1_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.shiva.common;
+
+import org.python.core.PyObject;
+
+/**
+ * Stand-in for a function that reports the duration of every call to a {@link CallRecorder}:
+ * a {@link ScriptInstrumenter} for project library functions, or a {@link SystemCallTimer}
+ * for {@code system.*} functions during a single run.
+ * <p>
+ * Fixed-arity calls are forwarded without building argument arrays, so timing a call adds
+ * two {@code nanoTime} reads and a ring write. Attribute lookups ({@code __name__},
+ * {@code __doc__}, ...) are forwarded to the wrapped function.
+ */
+public class TimedFunction extends PyObject {
+
+    private final PyObject target;
+    private final int functionId;
+    private final CallRecorder recorder;
+
+    TimedFunction(PyObject target, int functionId, CallRecorder recorder) {
+        this.target = target;
+        this.functionId = functionId;
+        this.recorder = recorder;
+    }
+
+    /**
+     * @return the original, uninstrumented function
+     */
+    public PyObject target() {
+        return target;
+    }
+
+    int functionId() {
+        return functionId;
+    }
+
+    @Override
+    public PyObject __call__() {
+        long t0 = System.nanoTime();
+        boolean ok = false;
+        try {
+            PyObject r = target.__call__();
+            ok = true;
+            return r;
+        }
+        finally {
+            recorder.record(functionId, System.nanoTime() - t0, ok);
+        }
+    }
+
+    @Override
+    public PyObject __call__(PyObject a) {
+        long t0 = System.nanoTime();
+        boolean ok = false;
+        try {
+            PyObject r = target.__call__(a);
+            ok = true;
+            return r;
+        }
+        finally {
+            recorder.record(functionId, System.nanoTime() - t0, ok);
+        }
+    }
+
+    @Override
+    public PyObject __call__(PyObject a, PyObject b) {
+        long t0 = System.nanoTime();
+        boolean ok = false;
+        try {
+            PyObject r = target.__call__(a, b);
+            ok = true;
+            return r;
+        }
+        finally {
+            recorder.record(functionId, System.nanoTime() - t0, ok);
+        }
+    }
+
+    @Override
+    public PyObject __call__(PyObject a, PyObject b, PyObject c) {
+        long t0 = System.nanoTime();
+        boolean ok = false;
+        try {
+            PyObject r = target.__call__(a, b, c);
+            ok = true;
+            return r;
+        }
+        finally {
+            recorder.record(functionId, System.nanoTime() - t0, ok);
+        }
+    }
+
+    @Override
+    public PyObject __call__(PyObject a, PyObject b, PyObject c, PyObject d) {
+        long t0 = System.nanoTime();
+        boolean ok = false;
+        try {
+            PyObject r = target.__call__(a, b, c, d);
+            ok = true;
+            return r;
+        }
+        finally {
+            recorder.record(functionId, System.nanoTime() - t0, ok);
+        }
+    }
+
+    @Override
+    public PyObject __call__(PyObject[] args, String[] keywords) {
+        long t0 = System.nanoTime();
+        boolean ok = false;
+        try {
+            PyObject r = target.__call__(args, keywords);
+            ok = true;
+            return r;
+        }
+        finally {
+            recorder.record(functionId, System.nanoTime() - t0, ok);
+        }
+    }
+
+    @Override
+    public PyObject __call__(PyObject[] args) {
+        return __call__(args, NO_KEYWORDS);
+    }
+
+    @Override
+    public PyObject __findattr_ex__(String name) {
+        return target.__findattr_ex__(name);
+    }
+
+    @Override
+    public boolean isCallable() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return target.toString();
+    }
+
+    private static final String[] NO_KEYWORDS = new String[0];
+}
@@ -0,0 +1,18 @@
+package com.shiva.common;
+
+/**
+ * The result of a traced profiling run: the usual run record plus the Python call tree.
+ * <p>
+ * Times in the call tree include the tracer's own overhead, so they are best compared
+ * relative to each other rather than to untraced runs.
+ */
+public record TracedExecution(
+        ScriptExecutionResult run,
+        CallTreeNode callTree
+) {
+
+    @Override
+    public String toString() {
+        return run.summary() + "\n" + callTree.render();
+    }
+}
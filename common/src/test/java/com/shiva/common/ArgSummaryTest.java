@@ -0,0 +1,97 @@
+package com.shiva.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArgSummaryTest {
+
+    @Test
+    void equalInputsShareFingerprint() {
+        List<Object> a = List.of(5, List.of(1, 2, 3), Map.of("line", "A"));
+        List<Object> b = List.of(5, new ArrayList<>(List.of(1, 2, 3)), new LinkedHashMap<>(Map.of("line", "A")));
+
+        assertEquals(ArgSummary.fingerprint(ArgSummary.summarize(a)), ArgSummary.fingerprint(ArgSummary.summarize(b)));
+        assertEquals(ArgSummary.of(new int[]{1, 2, 3}).fingerprint(), ArgSummary.of(new int[]{1, 2, 3}).fingerprint());
+    }
+
+    @Test
+    void differentInputsDifferInFingerprint() {
+        assertNotEquals(ArgSummary.of(List.of(1, 2, 3)).fingerprint(), ArgSummary.of(List.of(1, 3, 2)).fingerprint());
+        assertNotEquals(ArgSummary.of(1).fingerprint(), ArgSummary.of(1.0).fingerprint());
+        assertNotEquals(ArgSummary.of(1).fingerprint(), ArgSummary.of("1").fingerprint());
+        assertNotEquals(ArgSummary.of(List.of()).fingerprint(), ArgSummary.of(Map.of()).fingerprint());
+        assertNotEquals(ArgSummary.of(null).fingerprint(), ArgSummary.of(0).fingerprint());
+        // argument boundaries and order matter, not just the flattened values
+        assertNotEquals(fingerprint(1, 2), fingerprint(2, 1));
+        assertNotEquals(fingerprint(List.of(1, 2)), fingerprint(1, 2));
+    }
+
+    @Test
+    void sizeIsLengthOrMinusOne() {
+        assertEquals(-1, ArgSummary.of(42).size());
+        assertEquals(-1, ArgSummary.of(null).size());
+        assertEquals(5, ArgSummary.of("hello").size());
+        assertEquals(3, ArgSummary.of(List.of(1, 2, 3)).size());
+        assertEquals(2, ArgSummary.of(Map.of("a", 1, "b", 2)).size());
+        assertEquals(4, ArgSummary.of(new double[4]).size());
+        assertEquals("None", ArgSummary.of(null).type());
+        assertEquals("Integer", ArgSummary.of(42).type());
+    }
+
+    @Test
+    void previewIsBounded() {
+        String longText = "x".repeat(1_000);
+        List<Integer> longList = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            longList.add(i);
+        }
+
+        for (Object value : List.of(longText, longList, Map.of("key", longList), new long[10_000])) {
+            String preview = ArgSummary.of(value).preview();
+            assertEquals(ArgSummary.PREVIEW_LENGTH, preview.length(), preview);
+            assertTrue(preview.endsWith("…"), preview);
+        }
+        assertEquals("[1, 2, 3]", ArgSummary.of(List.of(1, 2, 3)).preview());
+        assertEquals("'Line A'", ArgSummary.of("Line A").preview());
+        assertEquals("None", ArgSummary.of(null).preview());
+    }
+
+    @Test
+    void hashingIsCappedByBudget() {
+        int[] big = new int[ArgSummary.FINGERPRINT_BUDGET + 10];
+        int[] differsBeyondBudget = big.clone();
+        differsBeyondBudget[big.length - 1] = 1;
+        int[] differsWithinBudget = big.clone();
+        differsWithinBudget[10] = 1;
+
+        assertEquals(ArgSummary.of(big).fingerprint(), ArgSummary.of(differsBeyondBudget).fingerprint());
+        assertNotEquals(ArgSummary.of(big).fingerprint(), ArgSummary.of(differsWithinBudget).fingerprint());
+        // the size is always hashed, however large the input
+        assertNotEquals(ArgSummary.of(big).fingerprint(), ArgSummary.of(Arrays.copyOf(big, big.length + 1)).fingerprint());
+    }
+
+    @Test
+    void formatsArgumentList() {
+        List<ArgSummary> args = ArgSummary.summarize(Arrays.asList(5, List.of(1, 2, 3), null));
+
+        assertEquals(3, args.size());
+        assertEquals("(5, [1, 2, 3], None)", ArgSummary.previewOf(args));
+        assertEquals("()", ArgSummary.previewOf(List.of()));
+        assertEquals("000000000000002a", ArgSummary.hex(42));
+        assertEquals("ffffffffffffffff", ArgSummary.hex(-1));
+        assertEquals(16, args.get(1).fingerprintHex().length());
+    }
+
+    private static long fingerprint(Object... args) {
+        return ArgSummary.fingerprint(ArgSummary.summarize(Arrays.asList(args)));
+    }
+}
@@ -0,0 +1,76 @@
+package com.shiva.common;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CanarySchedulerTest {
+
+    private static final String MODULE = String.join("\n",
+            "def check(n=0):",
+            "    if n < 0:",
+            "        raise ValueError('negative')",
+            "    return n",
+            "");
+
+    private static DefaultScriptProfiler projectA;
+    private static DefaultScriptProfiler projectB;
+
+    @BeforeAll
+    static void setUp() {
+        JythonScriptRunner runner = new JythonScriptRunner();
+        runner.defineModule("cs_module", MODULE);
+        projectA = new DefaultScriptProfiler(runner, 64);
+        projectB = new DefaultScriptProfiler(new JythonScriptRunner(), 64);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        projectA.shutdown();
+        projectB.shutdown();
+    }
+
+    @Test
+    void keepsProjectsAndArgumentsApart() {
+        TimeSeriesStore store = new TimeSeriesStore();
+        projectA.setTimeSeriesStore(store, () -> "A");
+        projectB.setTimeSeriesStore(store, () -> "B");
+        List<CanarySpec> canaries = CanarySpec.parseAll(
+                "A:cs_module.check; B:cs_module.check; A:cs_module.check=[-1]", null);
+        CanaryScheduler scheduler = new CanaryScheduler(Map.of("A", projectA, "B", projectB)::get, store, canaries);
+
+        scheduler.run(canaries.get(0));
+        scheduler.run(canaries.get(0));
+        scheduler.run(canaries.get(1));
+        scheduler.run(canaries.get(2));
+
+        List<TimeSeriesPoint> a = projectA.queryTimeSeries("cs_module.check", 0, Long.MAX_VALUE).points();
+        assertEquals(2, a.size());
+        assertTrue(a.stream().allMatch(p -> p.errors() == 0));
+        List<TimeSeriesPoint> b = projectB.queryTimeSeries("cs_module.check", 0, Long.MAX_VALUE).points();
+        assertEquals(1, b.size());
+        List<TimeSeriesPoint> failing = projectA.queryTimeSeries("cs_module.check=[-1]", 0, Long.MAX_VALUE).points();
+        assertEquals(1, failing.size());
+        assertEquals(1, failing.get(0).errors());
+        // project B has no canary with these arguments
+        assertTrue(projectB.queryTimeSeries("cs_module.check=[-1]", 0, Long.MAX_VALUE).points().isEmpty());
+        assertEquals("cs_module.check", projectB.queryTimeSeries("cs_module.check", 0, Long.MAX_VALUE).path());
+        assertEquals(List.of("A:cs_module.check", "A:cs_module.check=[-1]", "B:cs_module.check"), store.keys());
+    }
+
+    @Test
+    void skipsProjectWithoutProfiler() {
+        TimeSeriesStore store = new TimeSeriesStore();
+        CanarySpec canary = CanarySpec.parseAll("C:cs_module.check", null).get(0);
+
+        new CanaryScheduler(project -> null, store, List.of(canary)).run(canary);
+
+        assertTrue(store.keys().isEmpty());
+    }
+}
@@ -0,0 +1,63 @@
+package com.shiva.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CanarySpecTest {
+
+    @Test
+    void parsesEveryPart() {
+        List<CanarySpec> canaries = CanarySpec.parseAll(
+                "MES:shared.oee.calc@30=[1, 'Line A']; shared.util.ping@300 ;; Other : shared.x ", "Default");
+
+        assertEquals(List.of(
+                new CanarySpec("MES", "shared.oee.calc", "[1, 'Line A']", 30_000),
+                new CanarySpec("Default", "shared.util.ping", "", 300_000),
+                new CanarySpec("Other", "shared.x", "", CanarySpec.DEFAULT_INTERVAL_MS)
+        ), canaries);
+        assertEquals("MES:shared.oee.calc([1, 'Line A']) every 30.0 s", canaries.get(0).toString());
+    }
+
+    @Test
+    void argumentsMayContainSeparators() {
+        CanarySpec canary = CanarySpec.parseAll("shared.calc@1.5={'a': 1, 'b': 'x=y@z'}", "MES").get(0);
+
+        assertEquals("shared.calc", canary.path());
+        assertEquals(1_500, canary.intervalMs());
+        assertEquals("{'a': 1, 'b': 'x=y@z'}", canary.argsExpression());
+    }
+
+    @Test
+    void seriesKeyIdentifiesProjectPathAndArguments() {
+        List<CanarySpec> canaries = CanarySpec.parseAll(
+                "A:shared.calc; B:shared.calc; A:shared.calc=[1]; A:shared.calc@30=[2]", null);
+
+        assertEquals(List.of("A:shared.calc", "B:shared.calc", "A:shared.calc=[1]", "A:shared.calc=[2]"),
+                canaries.stream().map(CanarySpec::seriesKey).toList());
+        assertEquals("A:shared.calc", CanarySpec.seriesKey("A", " shared.calc "));
+        assertEquals("A:shared.calc", CanarySpec.seriesKey("A", "shared.calc="));
+        assertEquals("A:shared.calc=[1, 'x']", CanarySpec.seriesKey("A", "shared.calc = [1, 'x'] "));
+    }
+
+    @Test
+    void blankSpecHasNoCanaries() {
+        assertTrue(CanarySpec.parseAll(null, "MES").isEmpty());
+        assertTrue(CanarySpec.parseAll(" ; ", null).isEmpty());
+    }
+
+    @Test
+    void rejectsMalformedEntries() {
+        IllegalArgumentException noProject = assertThrows(IllegalArgumentException.class,
+                () -> CanarySpec.parseAll("shared.calc@30", null));
+        assertTrue(noProject.getMessage().contains("No project"), noProject.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> CanarySpec.parseAll(":shared.calc", "MES"));
+        assertThrows(IllegalArgumentException.class, () -> CanarySpec.parseAll("shared.calc@soon", "MES"));
+        assertThrows(IllegalArgumentException.class, () -> CanarySpec.parseAll("shared.calc@0.5", "MES"));
+        assertThrows(IllegalArgumentException.class, () -> CanarySpec.parseAll("MES:@30", null));
+    }
+}
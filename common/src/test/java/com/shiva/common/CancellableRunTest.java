@@ -0,0 +1,133 @@
+package com.shiva.common;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.python.core.Py;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CancellableRunTest {
+
+    private static final String MODULE = String.join("\n",
+            "import sys",
+            "",
+            "def _step(i):",
+            "    return i + 1",
+            "",
+            "def spin():",
+            "    i = 0",
+            "    while True:",
+            "        i = _step(i)",
+            "",
+            "def quick():",
+            "    return 42",
+            "",
+            "def called_from_java():",
+            "    return sys._getframe().f_back is None",
+            "");
+
+    private static DefaultScriptProfiler profiler;
+
+    @BeforeAll
+    static void setUp() {
+        JythonScriptRunner runner = new JythonScriptRunner();
+        runner.defineModule("cr_module", MODULE);
+        profiler = new DefaultScriptProfiler(runner, 64);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        profiler.shutdown();
+    }
+
+    @Test
+    void timeoutStopsBusyScript() throws Exception {
+        CompletableFuture<ScriptExecutionResult> future = profiler.profileScriptAsync("cr_module.spin", List.of(), 200);
+
+        CompletionException e = assertThrows(CompletionException.class, future::join);
+        assertTrue(e.getCause() instanceof TimeoutException, String.valueOf(e.getCause()));
+        StoredRun run = awaitRun(profiler, "cr_module.spin");
+        assertEquals(HistoryStore.FLAG_CANCELLED, run.flags());
+    }
+
+    @Test
+    void timeoutLeavesNoFrameOnPoolThread() throws Exception {
+        String threads = System.getProperty(DefaultScriptProfiler.ASYNC_THREADS_PROPERTY);
+        System.setProperty(DefaultScriptProfiler.ASYNC_THREADS_PROPERTY, "1");
+        DefaultScriptProfiler single = new DefaultScriptProfiler(new JythonScriptRunner(), 64);
+        try {
+            CompletableFuture<ScriptExecutionResult> spin = single.profileScriptAsync("cr_module.spin", List.of(), 200);
+            assertThrows(CompletionException.class, spin::join);
+            awaitRun(single, "cr_module.spin");
+
+            // the same pool thread: its next run must not be chained onto the cancelled frame
+            ScriptExecutionResult next = single.profileScriptAsync("cr_module.called_from_java", List.of(), 0).join();
+            assertTrue(next.ok(), String.valueOf(next.error()));
+            assertEquals("true", next.resultPreview());
+        }
+        finally {
+            single.shutdown();
+            if (threads == null) {
+                System.clearProperty(DefaultScriptProfiler.ASYNC_THREADS_PROPERTY);
+            }
+            else {
+                System.setProperty(DefaultScriptProfiler.ASYNC_THREADS_PROPERTY, threads);
+            }
+        }
+    }
+
+    @Test
+    void uncancelledRunCompletes() {
+        ScriptExecutionResult run = profiler.profileScriptAsync("cr_module.quick", List.of(), 0).join();
+
+        assertTrue(run.ok());
+        assertEquals("42", run.resultPreview());
+    }
+
+    @Test
+    void restoresTraceFunctionOfRunningThread() {
+        CancellableRun control = new CancellableRun();
+        control.beforeRun();
+        try {
+            assertSame(control, Py.getThreadState().tracefunc);
+        }
+        finally {
+            control.afterRun();
+        }
+        assertNull(Py.getThreadState().tracefunc);
+    }
+
+    @Test
+    void cancelBeforeStartSkipsRun() {
+        CancellableRun control = new CancellableRun();
+        control.cancel();
+
+        assertTrue(control.isCancelled());
+        assertThrows(IllegalStateException.class, control::beforeRun);
+        control.afterRun();
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    private static StoredRun awaitRun(DefaultScriptProfiler profiler, String path) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            List<StoredRun> runs = profiler.queryHistory(path, 0, Long.MAX_VALUE, 1);
+            if (!runs.isEmpty()) {
+                return runs.get(0);
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("no run of " + path + " recorded");
+    }
+}
@@ -0,0 +1,81 @@
+package com.shiva.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.DoubleUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ComplexityFitTest {
+
+    private static final double[] SIZES = {10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000};
+
+    @Test
+    void recoversExactLinearModel() {
+        double[] times = measure(n -> 2.0 + 0.003 * n, 0);
+
+        ComplexityFit fit = ComplexityFit.fit(Complexity.LINEAR, SIZES, times);
+
+        assertEquals(2.0, fit.interceptMs(), 1e-9);
+        assertEquals(0.003, fit.coefficientMs(), 1e-12);
+        assertEquals(1.0, fit.rSquared(), 1e-12);
+        assertEquals(0.0, fit.rmsMs(), 1e-9);
+        assertEquals(2.0 + 0.003 * 300, fit.predictMs(300), 1e-9);
+    }
+
+    @Test
+    void ranksTheGeneratingModelFirst() {
+        assertBest(Complexity.CONSTANT, n -> 5.0);
+        assertBest(Complexity.LOGARITHMIC, n -> 1.0 + 0.5 * Math.log(n));
+        assertBest(Complexity.LINEAR, n -> 1.0 + 0.002 * n);
+        assertBest(Complexity.LINEARITHMIC, n -> 1.0 + 0.0004 * n * Math.log(n));
+        assertBest(Complexity.QUADRATIC, n -> 1.0 + 1e-6 * n * n);
+    }
+
+    @Test
+    void shrinkingTimesFitAsConstant() {
+        double[] times = measure(n -> 100.0 - 0.001 * n, 0);
+
+        ComplexityFit fit = ComplexityFit.fit(Complexity.QUADRATIC, SIZES, times);
+
+        assertEquals(0.0, fit.coefficientMs());
+        assertEquals(mean(times), fit.interceptMs(), 1e-9);
+    }
+
+    @Test
+    void fitAllIsSortedByAic() {
+        List<ComplexityFit> fits = ComplexityFit.fitAll(SIZES, measure(n -> 1.0 + 0.002 * n, 0.01));
+
+        assertEquals(Complexity.values().length, fits.size());
+        for (int i = 1; i < fits.size(); i++) {
+            assertTrue(fits.get(i - 1).aic() <= fits.get(i).aic());
+        }
+    }
+
+    private static void assertBest(Complexity expected, DoubleUnaryOperator model) {
+        List<ComplexityFit> fits = ComplexityFit.fitAll(SIZES, measure(model, 0.02));
+        assertEquals(expected, fits.get(0).complexity(), fits.toString());
+    }
+
+    /**
+     * Evaluates the model at every size with multiplicative noise of +-{@code noise}, alternating
+     * in sign so the noise itself has no trend that a growth model could pick up.
+     */
+    private static double[] measure(DoubleUnaryOperator model, double noise) {
+        double[] times = new double[SIZES.length];
+        for (int i = 0; i < SIZES.length; i++) {
+            times[i] = model.applyAsDouble(SIZES[i]) * (1 + (i % 2 == 0 ? noise : -noise));
+        }
+        return times;
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+        for (double v : values) {
+            sum += v;
+        }
+        return sum / values.length;
+    }
+}
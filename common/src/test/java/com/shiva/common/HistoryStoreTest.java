@@ -0,0 +1,120 @@
+package com.shiva.common;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistoryStoreTest {
+
+    /** Four records per segment, so a handful of runs spans several segments. */
+    private static final long SEGMENT_BYTES = 64 + 4 * HistoryStore.RECORD_SIZE;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void runsSurviveReopen() throws IOException {
+        List<ScriptExecutionResult> runs = new ArrayList<>();
+        HistoryStore store = new HistoryStore(dir, SEGMENT_BYTES, 16, 0);
+        for (int i = 0; i < 10; i++) {
+            ScriptExecutionResult.Status status = i == 3 ? ScriptExecutionResult.Status.ERROR
+                    : i == 7 ? ScriptExecutionResult.Status.CANCELLED
+                    : ScriptExecutionResult.Status.OK;
+            ScriptExecutionResult run = TestRuns.run(i % 2 == 0 ? "shared.even" : "shared.odd", 1_000 + i, 1.5 * i, status);
+            runs.add(run);
+            store.append(run);
+        }
+        store.close();
+
+        HistoryStore reopened = new HistoryStore(dir, SEGMENT_BYTES, 16, 0);
+        try {
+            List<StoredRun> stored = reopened.query(0, Long.MAX_VALUE, null, 100);
+            assertEquals(runs.size(), stored.size());
+            for (int i = 0; i < runs.size(); i++) {
+                ScriptExecutionResult run = runs.get(i);
+                StoredRun s = stored.get(i);
+                assertEquals(run.path(), s.path());
+                assertEquals(run.timestamp(), s.timestamp());
+                assertEquals(run.elapsedMs(), s.elapsedMs(), 1e-6);
+                assertEquals(run.resolveMs(), s.resolveMs(), 1e-6);
+                assertEquals(run.cpuMs(), s.cpuMs(), 1e-6);
+                assertEquals(run.allocatedBytes(), s.allocatedBytes());
+                assertEquals(run.gcCount(), s.gcCount());
+                assertEquals(run.gcTimeMs(), s.gcTimeMs());
+                assertEquals(HistoryStore.flags(run), s.flags());
+                assertEquals(run.argsFingerprint(), s.argsFingerprint());
+            }
+            assertEquals(HistoryStore.FLAG_ERROR, stored.get(3).flags());
+            assertEquals(HistoryStore.FLAG_CANCELLED, stored.get(7).flags());
+            assertEquals(0, reopened.dropped());
+        }
+        finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void queriesFilterByPathTimeAndLimit() throws IOException {
+        HistoryStore store = new HistoryStore(dir, SEGMENT_BYTES, 16, 0);
+        for (int i = 0; i < 10; i++) {
+            store.append(TestRuns.run(i % 2 == 0 ? "shared.even" : "shared.odd", 1_000 + i, i));
+        }
+        store.close();
+
+        HistoryStore reopened = new HistoryStore(dir, SEGMENT_BYTES, 16, 0);
+        try {
+            assertEquals(List.of(1_000L, 1_002L, 1_004L, 1_006L, 1_008L),
+                    timestamps(reopened.query(0, Long.MAX_VALUE, "shared.even", 100)));
+            assertEquals(List.of(1_003L, 1_004L, 1_005L), timestamps(reopened.query(1_003, 1_006, null, 100)));
+            assertEquals(List.of(1_000L, 1_001L), timestamps(reopened.query(0, Long.MAX_VALUE, null, 2)));
+            assertEquals(List.of(), reopened.query(0, Long.MAX_VALUE, null, 0));
+            assertEquals(List.of(), reopened.query(0, Long.MAX_VALUE, "shared.unknown", 100));
+            assertThrows(IllegalArgumentException.class, () -> reopened.query(0, Long.MAX_VALUE, null, -1));
+        }
+        finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void retentionKeepsNewestSegments() throws IOException {
+        HistoryStore store = new HistoryStore(dir, SEGMENT_BYTES, 2, 0);
+        for (int i = 0; i < 20; i++) {
+            store.append(TestRuns.run("shared.f", 1_000 + i, 1));
+        }
+        store.close();
+
+        try (Stream<Path> files = Files.list(dir)) {
+            assertTrue(files.filter(f -> f.getFileName().toString().endsWith(".dat")).count() <= 3);
+        }
+        HistoryStore reopened = new HistoryStore(dir, SEGMENT_BYTES, 2, 0);
+        try {
+            List<Long> kept = timestamps(reopened.query(0, Long.MAX_VALUE, null, 100));
+            assertTrue(kept.size() >= 4 && kept.size() < 20, "kept " + kept);
+            assertEquals(1_019L, kept.get(kept.size() - 1));
+        }
+        finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void rejectsBadConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new HistoryStore(dir, 64, 16, 0));
+        assertThrows(IllegalArgumentException.class, () -> new HistoryStore(dir, SEGMENT_BYTES, 1, 0));
+    }
+
+    private static List<Long> timestamps(List<StoredRun> runs) {
+        return runs.stream().map(StoredRun::timestamp).toList();
+    }
+}
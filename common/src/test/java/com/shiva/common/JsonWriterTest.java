@@ -0,0 +1,84 @@
+package com.shiva.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonWriterTest {
+
+    @Test
+    void separatesMembersAndElements() throws IOException {
+        StringWriter out = new StringWriter();
+        new JsonWriter(out).beginObject()
+                .name("a").value(1)
+                .name("b").beginArray()
+                .value("x").value(true).value(2.5).value((String) null)
+                .beginObject().endObject()
+                .beginArray().endArray()
+                .endArray()
+                .name("c").beginObject().name("d").value(false).endObject()
+                .endObject();
+
+        assertEquals("{\"a\":1,\"b\":[\"x\",true,2.5,null,{},[]],\"c\":{\"d\":false}}", out.toString());
+        assertEquals(Map.of("a", 1.0, "b", Arrays.asList("x", true, 2.5, null, Map.of(), List.of()),
+                "c", Map.of("d", false)), Json.parse(out.toString()));
+    }
+
+    @Test
+    void escapesStrings() throws IOException {
+        String text = "quote \" backslash \\ newline \n tab \t return \r bell \u0007 unicode é";
+        StringWriter out = new StringWriter();
+        new JsonWriter(out).beginObject().name(text).value(text).endObject();
+
+        assertTrue(out.toString().contains("\\u0007"), out.toString());
+        assertEquals(Map.of(text, text), Json.parse(out.toString()));
+    }
+
+    @Test
+    void writesNonFiniteNumbersAsNull() throws IOException {
+        StringWriter out = new StringWriter();
+        new JsonWriter(out).beginArray()
+                .value(Double.NaN).value(Double.POSITIVE_INFINITY).value(-0.5).value(Long.MIN_VALUE)
+                .endArray();
+
+        assertEquals(Arrays.asList(null, null, -0.5, (double) Long.MIN_VALUE), Json.parse(out.toString()));
+    }
+
+    @Test
+    void nestsDeeperThanInitialState() throws IOException {
+        int depth = 40;
+        StringWriter out = new StringWriter();
+        JsonWriter json = new JsonWriter(out);
+        for (int i = 0; i < depth; i++) {
+            json.beginArray().value(i);
+        }
+        for (int i = depth - 1; i >= 0; i--) {
+            json.endArray();
+            if (i > 0) {
+                json.value(-i);
+            }
+        }
+
+        // each level is [i, [i + 1, ...], -(i + 1)], so commas after a closed child are checked too
+        Object level = Json.parse(out.toString());
+        for (int i = 0; i < depth; i++) {
+            List<Object> elements = Json.array(level);
+            assertEquals(i, Json.number(elements.get(0)));
+            if (i == depth - 1) {
+                assertEquals(1, elements.size());
+            }
+            else {
+                assertEquals(3, elements.size());
+                assertEquals(-(i + 1), Json.number(elements.get(2)));
+                level = elements.get(1);
+            }
+        }
+    }
+}
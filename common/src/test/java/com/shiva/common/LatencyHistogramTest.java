@@ -0,0 +1,119 @@
+package com.shiva.common;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketsAreExactBelowLinearLimit() {
+        for (long v = 0; v < 128; v++) {
+            int index = LatencyHistogram.indexOf(v);
+            assertEquals(v, LatencyHistogram.lowestEquivalent(index));
+            assertEquals(v, LatencyHistogram.highestEquivalent(index));
+        }
+    }
+
+    @Test
+    void bucketsTileTheRangeWithBoundedError() {
+        // every value falls inside its bucket, buckets are contiguous, and widths stay within 1/64
+        for (int index = 0; index < LatencyHistogram.indexOf(LatencyHistogram.MAX_TRACKABLE_NANOS); index++) {
+            long low = LatencyHistogram.lowestEquivalent(index);
+            long high = LatencyHistogram.highestEquivalent(index);
+            assertEquals(high + 1, LatencyHistogram.lowestEquivalent(index + 1), "gap after bucket " + index);
+            assertEquals(index, LatencyHistogram.indexOf(low));
+            assertEquals(index, LatencyHistogram.indexOf(high));
+            assertTrue((high - low + 1) <= Math.max(1, low / 64), "bucket " + index + " too wide");
+        }
+        long top = LatencyHistogram.MAX_TRACKABLE_NANOS;
+        assertEquals(top, LatencyHistogram.highestEquivalent(LatencyHistogram.indexOf(top)));
+    }
+
+    @Test
+    void tracksCountSumMinMaxAndMean() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.min());
+        assertEquals(0, h.percentile(50));
+        assertEquals(0.0, h.mean());
+
+        h.record(1_000);
+        h.record(3_000);
+        h.record(-5);
+
+        assertEquals(3, h.count());
+        assertEquals(4_000, h.totalNanos());
+        assertEquals(0, h.min());
+        assertEquals(3_000, h.max());
+        assertEquals(4_000 / 3.0, h.mean(), 1e-9);
+    }
+
+    @Test
+    void percentilesStayWithinBucketResolution() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long ms = 1; ms <= 1000; ms++) {
+            h.record(ms * 1_000_000);
+        }
+
+        assertWithinResolution(500_000_000, h.percentile(50));
+        assertWithinResolution(990_000_000, h.percentile(99));
+        assertWithinResolution(1_000_000, h.percentile(0));
+        assertEquals(1_000_000_000, h.percentile(100));
+    }
+
+    @Test
+    void clampsHugeValuesButReportsExactMax() {
+        LatencyHistogram h = new LatencyHistogram();
+        long huge = LatencyHistogram.MAX_TRACKABLE_NANOS * 4;
+        h.record(huge);
+
+        assertEquals(huge, h.max());
+        assertEquals(1, h.countAtOrBelow(LatencyHistogram.MAX_TRACKABLE_NANOS));
+    }
+
+    @Test
+    void cumulativeCountsMatchCountAtOrBelow() {
+        LatencyHistogram h = new LatencyHistogram();
+        long[] values = {50, 127, 128, 999, 1_000, 1_001, 65_000, 1_000_000, 2_000_000_000L};
+        for (long v : values) {
+            h.record(v);
+        }
+        long[] bounds = {0, 100, 128, 1_000, 100_000, 10_000_000, Long.MAX_VALUE};
+        long[] into = new long[bounds.length];
+
+        long total = h.cumulativeCounts(bounds, into);
+
+        assertEquals(values.length, total);
+        for (int i = 0; i < bounds.length; i++) {
+            assertEquals(h.countAtOrBelow(bounds[i]), into[i], "bound " + bounds[i]);
+        }
+        assertEquals(values.length, into[bounds.length - 1]);
+    }
+
+    @Test
+    void addMergesAndResetClears() {
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        a.record(10);
+        b.record(5);
+        b.record(20_000);
+
+        a.add(b);
+
+        assertEquals(3, a.count());
+        assertEquals(5, a.min());
+        assertEquals(20_000, a.max());
+        assertEquals(20_015, a.totalNanos());
+        assertEquals(2, a.countAtOrBelow(10));
+
+        a.reset();
+        assertEquals(0, a.count());
+        assertEquals(0, a.max());
+        assertEquals(0, a.countAtOrBelow(Long.MAX_VALUE));
+    }
+
+    private static void assertWithinResolution(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / 64, "expected ~" + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,143 @@
+package com.shiva.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OpenMetricsWriterTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    void emptyExpositionHasEveryFamily() throws IOException {
+        String text = write(Map.of("MES", List.of(new MetricsRegistry())));
+
+        assertTrue(text.startsWith("# TYPE scriptprofiler_calls counter\n# HELP scriptprofiler_calls "), text);
+        assertTrue(text.contains("# TYPE scriptprofiler_duration_seconds histogram\n"
+                + "# UNIT scriptprofiler_duration_seconds seconds\n"), text);
+        assertTrue(text.contains("# UNIT scriptprofiler_allocated_bytes bytes\n"), text);
+        assertTrue(text.endsWith("\n# EOF\n"), text);
+        assertEquals(1, count(text, "# EOF"));
+        for (String family : List.of("calls", "errors", "duration_seconds", "resource_calls",
+                "cpu_seconds", "user_cpu_seconds", "allocated_bytes")) {
+            assertEquals(1, count(text, "# TYPE scriptprofiler_" + family + " "), family);
+        }
+    }
+
+    @Test
+    void histogramBucketsAreCumulative() throws IOException {
+        MetricsRegistry registry = new MetricsRegistry();
+        ScriptMetrics m = registry.forPath("shared.calc");
+        m.recordRun(2 * MS);
+        m.recordRun(20 * MS);
+        m.recordRun(200 * MS);
+        m.recordRun(90_000 * MS);
+        m.recordError();
+
+        List<String> lines = write(Map.of("MES", List.of(registry))).lines().toList();
+
+        assertTrue(lines.contains("scriptprofiler_calls_total{project=\"MES\",path=\"shared.calc\"} 4"), lines::toString);
+        assertTrue(lines.contains("scriptprofiler_errors_total{project=\"MES\",path=\"shared.calc\"} 1"), lines::toString);
+        assertTrue(lines.contains(bucket("MES", "shared.calc", "0.001", 0)), lines::toString);
+        assertTrue(lines.contains(bucket("MES", "shared.calc", "0.005", 1)), lines::toString);
+        assertTrue(lines.contains(bucket("MES", "shared.calc", "0.025", 2)), lines::toString);
+        assertTrue(lines.contains(bucket("MES", "shared.calc", "0.25", 3)), lines::toString);
+        // the 90 s run only lands in +Inf
+        assertTrue(lines.contains(bucket("MES", "shared.calc", "60.0", 3)), lines::toString);
+        assertTrue(lines.contains(bucket("MES", "shared.calc", "+Inf", 4)), lines::toString);
+        assertTrue(lines.contains("scriptprofiler_duration_seconds_count{project=\"MES\",path=\"shared.calc\"} 4"),
+                lines::toString);
+        assertTrue(lines.contains("scriptprofiler_duration_seconds_sum{project=\"MES\",path=\"shared.calc\"} "
+                + Double.toString(90_222 * MS / 1e9)), lines::toString);
+
+        long previous = 0;
+        for (String line : lines) {
+            if (line.startsWith("scriptprofiler_duration_seconds_bucket")) {
+                long value = Long.parseLong(line.substring(line.lastIndexOf(' ') + 1));
+                assertTrue(value >= previous, line);
+                previous = value;
+            }
+        }
+    }
+
+    @Test
+    void sumsPathAcrossRegistriesOfOneProject() throws IOException {
+        MetricsRegistry first = new MetricsRegistry();
+        first.forPath("shared.calc").recordRun(3 * MS);
+        first.forPath("shared.calc").recordErrors(2);
+        MetricsRegistry second = new MetricsRegistry();
+        second.forPath("shared.calc").recordRun(30 * MS);
+        second.forPath("shared.alpha").recordRun(MS / 2);
+
+        String text = write(Map.of("MES", List.of(first, second)));
+
+        assertEquals(1, count(text, "scriptprofiler_calls_total{project=\"MES\",path=\"shared.calc\"}"));
+        assertTrue(text.contains("scriptprofiler_calls_total{project=\"MES\",path=\"shared.calc\"} 2\n"), text);
+        assertTrue(text.contains("scriptprofiler_errors_total{project=\"MES\",path=\"shared.calc\"} 2\n"), text);
+        assertTrue(text.contains(bucket("MES", "shared.calc", "0.005", 1) + "\n"), text);
+        assertTrue(text.contains(bucket("MES", "shared.calc", "+Inf", 2) + "\n"), text);
+        // paths are sorted within each family
+        assertTrue(text.indexOf("calls_total{project=\"MES\",path=\"shared.alpha\"}")
+                < text.indexOf("calls_total{project=\"MES\",path=\"shared.calc\"}"), text);
+    }
+
+    @Test
+    void keepsProjectsApart() throws IOException {
+        MetricsRegistry mes = new MetricsRegistry();
+        mes.forPath("shared.calc").recordRun(3 * MS);
+        mes.forPath("shared.calc").recordRun(3 * MS);
+        MetricsRegistry wms = new MetricsRegistry();
+        wms.forPath("shared.calc").recordRun(300 * MS);
+        wms.forPath("shared.calc").recordError();
+
+        String text = write(Map.of("WMS", List.of(wms), "MES", List.of(mes)));
+
+        assertTrue(text.contains("scriptprofiler_calls_total{project=\"MES\",path=\"shared.calc\"} 2\n"), text);
+        assertTrue(text.contains("scriptprofiler_calls_total{project=\"WMS\",path=\"shared.calc\"} 1\n"), text);
+        assertTrue(text.contains("scriptprofiler_errors_total{project=\"MES\",path=\"shared.calc\"} 0\n"), text);
+        assertTrue(text.contains("scriptprofiler_errors_total{project=\"WMS\",path=\"shared.calc\"} 1\n"), text);
+        assertTrue(text.contains(bucket("MES", "shared.calc", "0.25", 2) + "\n"), text);
+        assertTrue(text.contains(bucket("WMS", "shared.calc", "0.25", 0) + "\n"), text);
+        // projects are sorted too
+        assertTrue(text.indexOf("calls_total{project=\"MES\"") < text.indexOf("calls_total{project=\"WMS\""), text);
+    }
+
+    @Test
+    void escapesLabelValues() throws IOException {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.forPath("odd\\path \"quoted\"\nnext").recordRun(MS);
+
+        String text = write(Map.of("My \"Project\"", List.of(registry)));
+
+        assertTrue(text.contains("scriptprofiler_calls_total{project=\"My \\\"Project\\\"\","
+                + "path=\"odd\\\\path \\\"quoted\\\"\\nnext\"} 1\n"), text);
+        for (String line : text.lines().toList()) {
+            assertTrue(line.startsWith("# ") || line.startsWith("scriptprofiler_"), line);
+        }
+    }
+
+    private static String bucket(String project, String path, String le, long count) {
+        return "scriptprofiler_duration_seconds_bucket{project=\"" + project + "\",path=\"" + path
+                + "\",le=\"" + le + "\"} " + count;
+    }
+
+    private static String write(Map<String, List<MetricsRegistry>> registries) throws IOException {
+        StringWriter out = new StringWriter();
+        new OpenMetricsWriter().write(registries, out);
+        return out.toString();
+    }
+
+    private static int count(String text, String needle) {
+        int n = 0;
+        for (int i = text.indexOf(needle); i >= 0; i = text.indexOf(needle, i + 1)) {
+            n++;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,236 @@
+package com.shiva.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProfileExporterTest {
+
+    private static final double EPSILON = 1e-6;
+
+    @Test
+    void chromeTimesAreMicroseconds() throws IOException {
+        Map<String, Object> doc = Json.object(Json.parse(export(exporter(), ExportFormat.CHROME)));
+
+        assertEquals("ms", doc.get("displayTimeUnit"));
+        List<Map<String, Object>> events = new ArrayList<>();
+        for (Object event : Json.array(doc.get("traceEvents"))) {
+            events.add(Json.object(event));
+        }
+
+        // runs end at their timestamp (ms), so they start elapsed microseconds before it
+        List<Map<String, Object>> runs = category(events, "run");
+        assertEquals(3, runs.size());
+        assertSpan(runs.get(0), "shared.a", 10_000_000 - 2_500, 2_500);
+        assertSpan(runs.get(1), "shared.b", 20_000_000 - 1_000, 1_000);
+        assertSpan(runs.get(2), "shared.a", 30_000_000 - 500, 500);
+        assertEquals(Json.number(runs.get(0).get("tid")), Json.number(runs.get(2).get("tid")));
+        assertEquals("OK", Json.object(runs.get(0).get("args")).get("status"));
+        assertTrue(events.contains(Map.of("name", "thread_name", "ph", "M", "pid", 1.0,
+                "tid", runs.get(1).get("tid"), "args", Map.of("name", "shared.b"))), events::toString);
+
+        // the call tree is laid out from the start of the traced run, the overrunning child clamped
+        double traceStart = 50_000_000 - 12_000;
+        List<Map<String, Object>> calls = category(events, "call");
+        assertEquals(4, calls.size());
+        assertSpan(calls.get(0), "main (calc.py:1)", traceStart, 10_000);
+        assertSpan(calls.get(1), "a (calc.py:5)", traceStart, 5_000);
+        assertSpan(calls.get(2), "b (calc.py:9)", traceStart + 5_000, 5_000);
+        assertSpan(calls.get(3), "len", traceStart + 5_000, 3_000);
+        assertEquals(Map.of("calls", 2.0, "inclusiveMs", 5.0, "exclusiveMs", 5.0), calls.get(1).get("args"));
+        assertNested(calls);
+
+        // sampled frames are emitted as they close; each spans count * interval
+        double sampleStart = 60_000_000 - 13_000;
+        List<Map<String, Object>> sampled = category(events, "sample");
+        assertEquals(3, sampled.size());
+        assertSpan(sampled.get(0), "inner (m.py:7)", sampleStart, 7_500);
+        assertSpan(sampled.get(1), "java:Thread.sleep", sampleStart + 7_500, 5_000);
+        assertSpan(sampled.get(2), "outer (m.py:3)", sampleStart, 12_500);
+        assertNested(sampled);
+    }
+
+    @Test
+    void speedscopeEventsNestAndAreOrdered() throws IOException {
+        Map<String, Object> doc = Json.object(Json.parse(export(exporter(), ExportFormat.SPEEDSCOPE)));
+
+        assertEquals("https://www.speedscope.app/file-format-schema.json", doc.get("$schema"));
+        assertEquals(0.0, doc.get("activeProfileIndex"));
+        List<Map<String, Object>> frames = new ArrayList<>();
+        for (Object frame : Json.array(Json.object(doc.get("shared")).get("frames"))) {
+            frames.add(Json.object(frame));
+        }
+        assertTrue(frames.contains(Map.of("name", "main", "file", "calc.py", "line", 1.0)), frames::toString);
+        assertTrue(frames.contains(Map.of("name", "len")), frames::toString);
+
+        List<Object> profiles = Json.array(doc.get("profiles"));
+        assertEquals(3, profiles.size());
+        for (Object profile : profiles) {
+            assertEquals("milliseconds", Json.object(profile).get("unit"));
+            assertEquals(0.0, Json.object(profile).get("startValue"));
+        }
+
+        Map<String, Object> history = Json.object(profiles.get(0));
+        assertEquals("sampled", history.get("type"));
+        assertEquals(4.0, Json.number(history.get("endValue")), EPSILON);
+        assertEquals(List.of(List.of("shared.a"), List.of("shared.b"), List.of("shared.a")),
+                stackNames(history, frames));
+        assertEquals(List.of(2.5, 1.0, 0.5), history.get("weights"));
+
+        Map<String, Object> trace = Json.object(profiles.get(1));
+        assertEquals("evented", trace.get("type"));
+        assertEquals("Trace: calc.main", trace.get("name"));
+        double end = Json.number(trace.get("endValue"));
+        assertEquals(10.0, end, EPSILON);
+        List<String> opened = new ArrayList<>();
+        Deque<Integer> stack = new ArrayDeque<>();
+        double previous = 0;
+        for (Object e : Json.array(trace.get("events"))) {
+            Map<String, Object> event = Json.object(e);
+            int frame = (int) Json.number(event.get("frame"));
+            double at = Json.number(event.get("at"));
+            assertTrue(at >= previous && at <= end, event::toString);
+            previous = at;
+            if ("O".equals(event.get("type"))) {
+                opened.add(frames.get(frame).get("name") + "@" + at);
+                stack.push(frame);
+            }
+            else {
+                assertEquals("C", event.get("type"));
+                assertFalse(stack.isEmpty(), event::toString);
+                assertEquals(stack.pop(), frame, "closes the innermost open frame");
+            }
+        }
+        assertTrue(stack.isEmpty(), stack::toString);
+        assertEquals(end, previous, EPSILON);
+        assertEquals(List.of("main@0.0", "a@0.0", "b@5.0", "len@5.0"), opened);
+
+        Map<String, Object> samples = Json.object(profiles.get(2));
+        assertEquals("sampled", samples.get("type"));
+        assertEquals(12.5, Json.number(samples.get("endValue")), EPSILON);
+        assertEquals(List.of(List.of("outer (m.py:3)", "inner (m.py:7)"), List.of("outer (m.py:3)", "java:Thread.sleep")),
+                stackNames(samples, frames));
+        assertEquals(List.of(7.5, 5.0), samples.get("weights"));
+    }
+
+    @Test
+    void collapsedValuesAreMicroseconds() throws IOException {
+        List<String> lines = export(exporter(), ExportFormat.COLLAPSED).lines().toList();
+
+        // history sums per path, trace uses exclusive time (main has none), samples count * interval
+        assertEquals(List.of(
+                "history;shared.a 3000",
+                "history;shared.b 1000",
+                "trace;main (calc.py:1);a (calc.py:5) 5000",
+                "trace;main (calc.py:1);b (calc.py:9) 3000",
+                "trace;main (calc.py:1);b (calc.py:9);len 3000",
+                "samples;outer (m.py:3);inner (m.py:7) 7500",
+                "samples;outer (m.py:3);java:Thread.sleep 5000"), lines);
+    }
+
+    @Test
+    void collapsedFramesCannotSplitStacks() throws IOException {
+        RunHistory history = new RunHistory(4, new PathTable());
+        history.record(TestRuns.run("odd;path", 1_000, 1), 1_000_000);
+        CallTreeNode root = node("f;g", "x.py", 1, 1, 1, List.of());
+        ProfileExporter exporter = new ProfileExporter(history,
+                new TracedExecution(TestRuns.run("x.f", 2_000, 1), root), null);
+
+        assertEquals(List.of("history;odd:path 1000", "trace;f:g (x.py:1) 1000"),
+                export(exporter, ExportFormat.COLLAPSED).lines().toList());
+    }
+
+    @Test
+    void exportsEmptyHistoryAlone() throws IOException {
+        ProfileExporter exporter = new ProfileExporter(new RunHistory(4, new PathTable()), null, null);
+
+        Map<String, Object> chrome = Json.object(Json.parse(export(exporter, ExportFormat.CHROME)));
+        List<Object> events = Json.array(chrome.get("traceEvents"));
+        assertEquals(1, events.size());
+        assertEquals("M", Json.object(events.get(0)).get("ph"));
+        Map<String, Object> speedscope = Json.object(Json.parse(export(exporter, ExportFormat.SPEEDSCOPE)));
+        assertEquals(List.of(), Json.array(speedscope.get("profiles")));
+        assertEquals("", export(exporter, ExportFormat.COLLAPSED));
+    }
+
+    private static ProfileExporter exporter() {
+        RunHistory history = new RunHistory(8, new PathTable());
+        history.record(TestRuns.run("shared.a", 10_000, 2.5), 2_500_000);
+        history.record(TestRuns.run("shared.b", 20_000, 1.0), 1_000_000);
+        history.record(TestRuns.run("shared.a", 30_000, 0.5), 500_000);
+
+        // b claims more time than main has left, as traced times can when the tracer skews them
+        CallTreeNode len = node("len", "", 0, 3, 3.0, List.of());
+        CallTreeNode b = new CallTreeNode("b", "calc.py", 9, 1, 6.0, 3.0, List.of(len), List.of());
+        CallTreeNode a = new CallTreeNode("a", "calc.py", 5, 2, 5.0, 5.0, List.of(), List.of());
+        CallTreeNode main = new CallTreeNode("main", "calc.py", 1, 1, 10.0, 0.0, List.of(a, b), List.of());
+        TracedExecution trace = new TracedExecution(TestRuns.run("calc.main", 50_000, 12.0), main);
+
+        SampledExecution samples = new SampledExecution(TestRuns.run("calc.main", 60_000, 13.0), 2.5, 5, 0.1,
+                List.of("outer (m.py:3);inner (m.py:7) 3", "outer (m.py:3);java:Thread.sleep 2"));
+        return new ProfileExporter(history, trace, samples);
+    }
+
+    private static CallTreeNode node(String function, String file, int firstLine, long calls, double ms,
+                                     List<CallTreeNode> children) {
+        return new CallTreeNode(function, file, firstLine, calls, ms, ms, children, List.of());
+    }
+
+    private static String export(ProfileExporter exporter, ExportFormat format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.write(format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static List<Map<String, Object>> category(List<Map<String, Object>> events, String category) {
+        return events.stream().filter(e -> category.equals(e.get("cat"))).toList();
+    }
+
+    private static void assertSpan(Map<String, Object> event, String name, double ts, double dur) {
+        assertEquals("X", event.get("ph"), event::toString);
+        assertEquals(name, event.get("name"), event::toString);
+        assertEquals(ts, Json.number(event.get("ts")), EPSILON, event::toString);
+        assertEquals(dur, Json.number(event.get("dur")), EPSILON, event::toString);
+    }
+
+    /**
+     * Asserts that any two spans are either disjoint or one contains the other, as a flame chart needs.
+     */
+    private static void assertNested(List<Map<String, Object>> spans) {
+        for (Map<String, Object> x : spans) {
+            double xFrom = Json.number(x.get("ts"));
+            double xTo = xFrom + Json.number(x.get("dur"));
+            for (Map<String, Object> y : spans) {
+                double yFrom = Json.number(y.get("ts"));
+                double yTo = yFrom + Json.number(y.get("dur"));
+                boolean disjoint = xTo <= yFrom + EPSILON || yTo <= xFrom + EPSILON;
+                boolean contains = xFrom <= yFrom + EPSILON && yTo <= xTo + EPSILON;
+                boolean contained = yFrom <= xFrom + EPSILON && xTo <= yTo + EPSILON;
+                assertTrue(disjoint || contains || contained, x + " overlaps " + y);
+            }
+        }
+    }
+
+    private static List<List<String>> stackNames(Map<String, Object> profile, List<Map<String, Object>> frames) {
+        List<List<String>> stacks = new ArrayList<>();
+        for (Object stack : Json.array(profile.get("samples"))) {
+            List<String> names = new ArrayList<>();
+            for (Object frame : Json.array(stack)) {
+                names.add((String) frames.get((int) Json.number(frame)).get("name"));
+            }
+            stacks.add(names);
+        }
+        return stacks;
+    }
+}
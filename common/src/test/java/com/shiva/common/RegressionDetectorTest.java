@@ -0,0 +1,101 @@
+package com.shiva.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegressionDetectorTest {
+
+    @Test
+    void mannWhitneyMatchesHandComputedValue() {
+        // U = 9, mean 4.5, variance 5.25, z = (9 - 4.5 - 0.5) / sqrt(5.25)
+        double p = RegressionDetector.mannWhitneyGreater(new long[] {4, 5, 6}, new long[] {1, 2, 3});
+        assertEquals(1 - RegressionDetector.normalCdf(4 / Math.sqrt(5.25)), p, 1e-12);
+        assertEquals(0.0404, p, 1e-4);
+    }
+
+    @Test
+    void mannWhitneyIsOneSided() {
+        Random random = new Random(42);
+        long[] fast = sample(random, 100, 1_000_000);
+        long[] slow = sample(random, 100, 1_300_000);
+        long[] same = sample(random, 100, 1_000_000);
+
+        assertTrue(RegressionDetector.mannWhitneyGreater(slow, fast) < 1e-6);
+        assertTrue(RegressionDetector.mannWhitneyGreater(fast, slow) > 0.999);
+        double p = RegressionDetector.mannWhitneyGreater(same, fast);
+        assertTrue(p > 0.01 && p < 0.99, "p = " + p);
+    }
+
+    @Test
+    void mannWhitneyHandlesTies() {
+        long[] a = {5, 5, 5, 5};
+        assertEquals(1.0, RegressionDetector.mannWhitneyGreater(a, a.clone()));
+
+        // ties across the samples are ranked by their average; a is still clearly larger
+        long[] b = {1, 1, 2, 2, 3, 3, 5, 5};
+        long[] c = {3, 5, 5, 7, 7, 8, 9, 9};
+        assertTrue(RegressionDetector.mannWhitneyGreater(c, b) < 0.01);
+    }
+
+    @Test
+    void normalCdfAndMedian() {
+        assertEquals(0.5, RegressionDetector.normalCdf(0), 1e-7);
+        assertEquals(0.975, RegressionDetector.normalCdf(1.959964), 1e-6);
+        assertEquals(0.025, RegressionDetector.normalCdf(-1.959964), 1e-6);
+        assertEquals(0, RegressionDetector.median(new long[0]));
+        assertEquals(2, RegressionDetector.median(new long[] {1, 2, 9}));
+        assertEquals(5.5, RegressionDetector.median(new long[] {1, 2, 9, 10}));
+    }
+
+    @Test
+    void flagsRegressionOnlyAfterSourceChange() {
+        RegressionDetector detector = new RegressionDetector();
+        Random random = new Random(7);
+        String path = "shared.calc";
+        assertThrows(IllegalStateException.class, () -> detector.capture(path, 1));
+
+        for (long v : sample(random, 50, 1_000_000)) {
+            detector.record(path, v);
+        }
+        detector.capture(path, 1);
+        assertTrue(detector.hasBaseline(path));
+
+        // same source: slower runs are not blamed on a change
+        for (long v : sample(random, 50, 2_000_000)) {
+            detector.record(path, v);
+        }
+        RegressionReport unchanged = detector.compare(path);
+        assertFalse(unchanged.sourceChanged());
+        assertFalse(unchanged.regression());
+
+        detector.resolved(path, 2);
+        for (long v : sample(random, 50, 2_000_000)) {
+            detector.record(path, v);
+        }
+        RegressionReport changed = detector.compare(path);
+        assertTrue(changed.sourceChanged());
+        assertTrue(changed.regression(), changed.toString());
+        assertEquals(2.0, changed.medianRatio(), 0.2);
+        assertEquals(1, detector.regressions().size());
+
+        detector.clear(path);
+        assertFalse(detector.compare(path).hasBaseline());
+    }
+
+    /** Sorted durations around {@code center}, spread by +-10%. */
+    private static long[] sample(Random random, int n, long center) {
+        long[] out = new long[n];
+        for (int i = 0; i < n; i++) {
+            out[i] = center + (long) ((random.nextDouble() - 0.5) * 0.2 * center);
+        }
+        Arrays.sort(out);
+        return out;
+    }
+}
@@ -0,0 +1,92 @@
+package com.shiva.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RunHistoryTest {
+
+    @Test
+    void roundsCapacityUpToPowerOfTwo() {
+        assertEquals(8, new RunHistory(5, new PathTable()).capacity());
+        assertEquals(8, new RunHistory(8, new PathTable()).capacity());
+        assertEquals(1, new RunHistory(1, new PathTable()).capacity());
+        assertThrows(IllegalArgumentException.class, () -> new RunHistory(0, new PathTable()));
+    }
+
+    @Test
+    void keepsNewestRunsOldestFirst() {
+        RunHistory history = new RunHistory(4, new PathTable());
+        List<ScriptExecutionResult> runs = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            ScriptExecutionResult run = TestRuns.run("p" + (i % 2), 1000 + i, i);
+            runs.add(run);
+            assertEquals(i, history.record(run, i * 1_000_000L));
+        }
+
+        assertEquals(6, history.totalRecorded());
+        assertEquals(4, history.size());
+        assertEquals(runs.subList(2, 6), history.snapshot().toList());
+        assertEquals(runs.subList(4, 6), history.latest(2).toList());
+        assertNull(history.get(1));
+        assertSame(runs.get(5), history.get(5));
+    }
+
+    @Test
+    void scansHotFieldsWithInternedPaths() {
+        PathTable paths = new PathTable();
+        RunHistory history = new RunHistory(8, paths);
+        history.record(TestRuns.run("shared.a", 10, 1), 1_000);
+        history.record(TestRuns.run("shared.b", 20, 2), 2_000);
+        history.record(TestRuns.run("shared.a", 30, 3), 3_000);
+
+        List<String> seen = new ArrayList<>();
+        history.snapshot().forEach((seq, ts, nanos, pathId) ->
+                seen.add(seq + ":" + ts + ":" + nanos + ":" + paths.name(pathId)));
+
+        assertEquals(List.of("0:10:1000:shared.a", "1:20:2000:shared.b", "2:30:3000:shared.a"), seen);
+        assertEquals(2, paths.size());
+        assertEquals(paths.find("shared.a"), paths.intern("shared.a"));
+        assertEquals(-1, paths.find("shared.c"));
+    }
+
+    @Test
+    void concurrentWritersLoseNothingWithinCapacity() throws Exception {
+        int threads = 4;
+        int perThread = 500;
+        RunHistory history = new RunHistory(threads * perThread, new PathTable());
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            String path = "thread" + t;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    history.record(TestRuns.run(path, i, 1), 1);
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(threads * perThread, history.snapshot().toList().size());
+        assertEquals(threads, history.paths().size());
+    }
+}
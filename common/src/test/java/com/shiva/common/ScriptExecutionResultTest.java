@@ -0,0 +1,55 @@
+package com.shiva.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScriptExecutionResultTest {
+
+    @Test
+    void previewsLargeResultWithoutStringifyingIt() {
+        List<Integer> huge = new AbstractList<>() {
+            @Override
+            public Integer get(int index) {
+                return index;
+            }
+
+            @Override
+            public int size() {
+                return 10_000_000;
+            }
+
+            @Override
+            public String toString() {
+                throw new AssertionError("the whole result was stringified");
+            }
+        };
+
+        String preview = ScriptExecutionResult.preview(huge);
+
+        assertEquals(ScriptExecutionResult.PREVIEW_LENGTH, preview.length());
+        assertTrue(preview.startsWith("[0, 1, 2, "), preview);
+        assertTrue(preview.endsWith("…"), preview);
+        assertEquals(ScriptExecutionResult.PREVIEW_LENGTH,
+                ScriptExecutionResult.preview(Map.of("rows", huge)).length());
+    }
+
+    @Test
+    void previewsSmallResultsInFull() {
+        assertEquals("None", ScriptExecutionResult.preview(null));
+        assertEquals("42", ScriptExecutionResult.preview(42));
+        assertEquals("Line A", ScriptExecutionResult.preview("Line A"));
+        assertEquals("[1, 'a', None]", ScriptExecutionResult.preview(Arrays.asList(1, "a", null)));
+
+        String text = "x".repeat(1_000);
+        String preview = ScriptExecutionResult.preview(text);
+        assertEquals(ScriptExecutionResult.PREVIEW_LENGTH, preview.length());
+        assertEquals("x".repeat(ScriptExecutionResult.PREVIEW_LENGTH - 1) + "…", preview);
+    }
+}
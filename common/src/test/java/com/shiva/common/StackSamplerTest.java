@@ -0,0 +1,53 @@
+package com.shiva.common;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StackSamplerTest {
+
+    private static final String MODULE = String.join("\n",
+            "import time",
+            "",
+            "def inner():",
+            "    time.sleep(0.2)",
+            "",
+            "def outer():",
+            "    inner()",
+            "");
+
+    private static DefaultScriptProfiler profiler;
+
+    @BeforeAll
+    static void setUp() {
+        JythonScriptRunner runner = new JythonScriptRunner();
+        runner.defineModule("ss_module", MODULE);
+        profiler = new DefaultScriptProfiler(runner, 64);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        profiler.shutdown();
+    }
+
+    @Test
+    void keepsOnlyPythonFramesAndJavaLeaf() {
+        SampledExecution sampled = profiler.profileScriptSampled("ss_module.outer", List.of(), 5);
+
+        assertTrue(sampled.run().ok(), String.valueOf(sampled.run().error()));
+        List<String> stacks = sampled.collapsedStacks();
+        assertFalse(stacks.isEmpty());
+        for (String stack : stacks) {
+            assertFalse(stack.contains("call_function"), stack);
+            assertFalse(stack.contains(":-1)"), stack);
+        }
+        // the sleeping stack is exactly outer, inner and the Java call inner is blocked in
+        assertTrue(stacks.stream().anyMatch(s -> s.matches(
+                "outer \\(ss_module\\.py:7\\);inner \\(ss_module\\.py:4\\);java:[^;]+ \\d+")), stacks::toString);
+    }
+}
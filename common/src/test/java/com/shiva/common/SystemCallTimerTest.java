@@ -0,0 +1,153 @@
+package com.shiva.common;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.python.core.PyModule;
+import org.python.core.PyObject;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SystemCallTimerTest {
+
+    /** A stand-in for Ignition's {@code system} module. */
+    private static final String SYSTEM_STANDIN = String.join("\n",
+            "import time",
+            "",
+            "class _Namespace(object):",
+            "    pass",
+            "",
+            "def _runPrepQuery(query, args):",
+            "    return [query] * len(args)",
+            "",
+            "def _sleep(ms):",
+            "    time.sleep(ms / 1000.0)",
+            "",
+            "def _fail():",
+            "    raise ValueError('no connection')",
+            "",
+            "system = _Namespace()",
+            "system.db = _Namespace()",
+            "system.db.runPrepQuery = _runPrepQuery",
+            "system.util = _Namespace()",
+            "system.util.sleep = _sleep",
+            "system.util.fail = _fail",
+            "");
+
+    private static final String HELPERS = String.join("\n",
+            "from sct_standin import system",
+            "",
+            "def pause():",
+            "    system.util.sleep(5)",
+            "");
+
+    private static final String QUERIES = String.join("\n",
+            "from sct_standin import system",
+            "import sct_helpers",
+            "",
+            "def query(n):",
+            "    rows = [system.db.runPrepQuery('SELECT 1', [i]) for i in range(n)]",
+            "    sct_helpers.pause()",
+            "    return len(rows)",
+            "",
+            "def failing():",
+            "    system.db.runPrepQuery('SELECT 1', [])",
+            "    try:",
+            "        system.util.fail()",
+            "    except ValueError:",
+            "        pass",
+            "    raise RuntimeError('boom')",
+            "");
+
+    private static JythonScriptRunner runner;
+    private static DefaultScriptProfiler profiler;
+    private static PyModule helpers;
+    private static PyModule queries;
+    private static PyObject system;
+
+    @BeforeAll
+    static void setUp() {
+        runner = new JythonScriptRunner();
+        PyModule standin = runner.defineModule("sct_standin", SYSTEM_STANDIN);
+        helpers = runner.defineModule("sct_helpers", HELPERS);
+        queries = runner.defineModule("sct_queries", QUERIES);
+        system = standin.__dict__.__finditem__(SystemCallTimer.SYSTEM);
+        profiler = new DefaultScriptProfiler(runner, 64);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        profiler.shutdown();
+    }
+
+    @Test
+    void breaksDownSystemCallsPerFunction() {
+        SystemCallBreakdown breakdown = profiler.profileScriptSystemCalls("sct_queries.query", List.of(3));
+
+        assertTrue(breakdown.run().ok(), String.valueOf(breakdown.run().error()));
+        SystemCallStats query = find(breakdown, "system.db.runPrepQuery");
+        assertEquals(3, query.calls());
+        assertEquals(0, query.errors());
+        // reached through a module the profiled function imports
+        SystemCallStats sleep = find(breakdown, "system.util.sleep");
+        assertEquals(1, sleep.calls());
+        assertTrue(sleep.totalMs() >= 4, "sleep took " + sleep.totalMs() + " ms");
+        assertTrue(breakdown.systemMs() >= sleep.totalMs());
+        assertEquals(breakdown.run().elapsedMs(), breakdown.systemMs() + breakdown.pythonMs(), 1e-6);
+        assertRestored();
+    }
+
+    @Test
+    void restoresSystemAfterFailingRun() {
+        SystemCallBreakdown breakdown = profiler.profileScriptSystemCalls("sct_queries.failing", List.of());
+
+        assertFalse(breakdown.run().ok());
+        assertEquals(1, find(breakdown, "system.db.runPrepQuery").calls());
+        SystemCallStats fail = find(breakdown, "system.util.fail");
+        assertEquals(1, fail.calls());
+        assertEquals(1, fail.errors());
+        assertRestored();
+    }
+
+    @Test
+    void ignoresCallsFromOtherThreads() throws Exception {
+        SystemCallTimer timer = new SystemCallTimer(List.of(queries.__dict__));
+        timer.beforeRun();
+        try {
+            PyObject proxy = queries.__dict__.__finditem__(SystemCallTimer.SYSTEM);
+            assertTrue(proxy instanceof SystemModuleProxy);
+            PyObject[] seen = new PyObject[1];
+            Thread other = new Thread(() -> seen[0] = proxy.__getattr__("db"));
+            other.start();
+            other.join();
+            assertSame(system.__getattr__("db"), seen[0]);
+        }
+        finally {
+            timer.afterRun();
+        }
+        timer.afterRun();
+        assertRestored();
+    }
+
+    private static void assertRestored() {
+        assertSame(system, queries.__dict__.__finditem__(SystemCallTimer.SYSTEM));
+        assertSame(system, helpers.__dict__.__finditem__(SystemCallTimer.SYSTEM));
+    }
+
+    private static SystemCallStats find(SystemCallBreakdown breakdown, String function) {
+        SystemCallStats found = null;
+        for (SystemCallStats stats : breakdown.calls()) {
+            if (stats.function().equals(function)) {
+                found = stats;
+            }
+        }
+        assertNotNull(found, function + " missing from " + breakdown.calls());
+        return found;
+    }
+}
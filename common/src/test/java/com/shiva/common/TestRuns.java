@@ -0,0 +1,22 @@
+package com.shiva.common;
+
+import java.util.List;
+
+/**
+ * Builds {@link ScriptExecutionResult}s for tests that only care about a few fields.
+ */
+final class TestRuns {
+
+    private TestRuns() {
+    }
+
+    static ScriptExecutionResult run(String path, long timestamp, double elapsedMs) {
+        return run(path, timestamp, elapsedMs, ScriptExecutionResult.Status.OK);
+    }
+
+    static ScriptExecutionResult run(String path, long timestamp, double elapsedMs, ScriptExecutionResult.Status status) {
+        return new ScriptExecutionResult(path, List.of(), status,
+                status == ScriptExecutionResult.Status.OK ? null : "failed", null,
+                elapsedMs, 0.25, elapsedMs / 2, elapsedMs / 4, 4096, 1, 2, timestamp);
+    }
+}
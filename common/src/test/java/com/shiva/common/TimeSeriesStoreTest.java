@@ -0,0 +1,142 @@
+package com.shiva.common;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeSeriesStoreTest {
+
+    /** An hour boundary, so minute and hour buckets line up with the test's offsets. */
+    private static final long T0 = 1_699_999_200_000L;
+    private static final long SECOND = 1_000;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+    private static final long MS = 1_000_000L;
+
+    @Test
+    void rollsRunsUpByMinuteAndHour() {
+        TimeSeriesStore store = new TimeSeriesStore();
+        store.record("canary", T0, 10 * MS, true);
+        store.record("canary", T0 + 30 * SECOND, 30 * MS, true);
+        store.record("canary", T0 + 45 * SECOND, 5_000 * MS, false);
+        store.record("canary", T0 + 90 * SECOND, 20 * MS, true);
+
+        List<TimeSeriesPoint> raw = store.query("canary", T0, T0 + HOUR, Resolution.RAW).points();
+        assertEquals(4, raw.size());
+        assertEquals(new TimeSeriesPoint(T0 + 45 * SECOND, 0, 1, 0, 0, 0, 0), raw.get(2));
+        assertEquals(30.0, raw.get(1).meanMs(), 1e-9);
+
+        List<TimeSeriesPoint> minutes = store.query("canary", T0, T0 + HOUR, Resolution.MINUTE).points();
+        assertEquals(2, minutes.size());
+        TimeSeriesPoint first = minutes.get(0);
+        assertEquals(T0, first.timestamp());
+        assertEquals(2, first.count());
+        assertEquals(1, first.errors());
+        // failed runs do not count towards latency
+        assertEquals(20.0, first.meanMs(), 1e-9);
+        assertEquals(10.0, first.minMs(), 0.2);
+        assertEquals(30.0, first.maxMs(), 0.5);
+        assertEquals(T0 + MINUTE, minutes.get(1).timestamp());
+        assertEquals(1, minutes.get(1).count());
+
+        List<TimeSeriesPoint> hours = store.query("canary", T0, T0 + HOUR, Resolution.HOUR).points();
+        assertEquals(1, hours.size());
+        assertEquals(3, hours.get(0).count());
+        assertEquals(1, hours.get(0).errors());
+
+        assertEquals(1, store.query("canary", T0 + MINUTE, T0 + HOUR, Resolution.MINUTE).points().size());
+        assertTrue(store.query("other", T0, T0 + HOUR).points().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> store.query("canary", T0 + 1, T0));
+    }
+
+    @Test
+    void choosesFinestResolutionCoveringWindow() {
+        TimeSeriesStore store = new TimeSeriesStore();
+        long end = T0 + 2 * DAY;
+        for (long ts = T0; ts < end; ts += 10 * SECOND) {
+            store.record("canary", ts, 15 * MS, true);
+        }
+
+        TimeSeries lastHour = store.query("canary", end - HOUR, end);
+        assertEquals(Resolution.RAW, lastHour.resolution());
+        assertEquals(360, lastHour.points().size());
+
+        // older than the raw ring holds
+        TimeSeries lastDay = store.query("canary", end - DAY, end);
+        assertEquals(Resolution.MINUTE, lastDay.resolution());
+        assertEquals(24 * 60, lastDay.points().size());
+
+        // more minutes than one query returns
+        TimeSeries twoWeeks = store.query("canary", end - 14 * DAY, end);
+        assertEquals(Resolution.HOUR, twoWeeks.resolution());
+        assertEquals(48, twoWeeks.points().size());
+        assertEquals(360, twoWeeks.points().get(0).count());
+    }
+
+    @Test
+    void survivesRestart(@TempDir Path dir) throws IOException {
+        try (TimeSeriesStore store = new TimeSeriesStore(dir)) {
+            store.record("shared.calc", T0, 10 * MS, true);
+            store.record("shared.calc", T0 + 10 * SECOND, 20 * MS, false);
+            store.record("shared.ping", T0 + 5 * SECOND, 1 * MS, true);
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertTrue(files.noneMatch(f -> f.toString().endsWith(".tmp")));
+        }
+
+        try (TimeSeriesStore store = new TimeSeriesStore(dir)) {
+            assertEquals(List.of("shared.calc", "shared.ping"), store.keys());
+            List<TimeSeriesPoint> raw = store.query("shared.calc", T0, T0 + HOUR, Resolution.RAW).points();
+            assertEquals(2, raw.size());
+            assertEquals(10.0, raw.get(0).meanMs(), 1e-9);
+            assertEquals(1, raw.get(1).errors());
+
+            // runs of the minute that was open at shutdown are merged into the same bucket
+            store.record("shared.calc", T0 + 20 * SECOND, 30 * MS, true);
+            store.record("shared.calc", T0 + 70 * SECOND, 40 * MS, true);
+            List<TimeSeriesPoint> minutes = store.query("shared.calc", T0, T0 + HOUR, Resolution.MINUTE).points();
+            assertEquals(2, minutes.size());
+            assertEquals(T0, minutes.get(0).timestamp());
+            assertEquals(2, minutes.get(0).count());
+            assertEquals(1, minutes.get(0).errors());
+            assertEquals(20.0, minutes.get(0).meanMs(), 1e-9);
+            assertEquals(10.0, minutes.get(0).minMs(), 0.2);
+            assertEquals(30.0, minutes.get(0).maxMs(), 0.5);
+
+            List<TimeSeriesPoint> hours = store.query("shared.calc", T0, T0 + HOUR, Resolution.HOUR).points();
+            assertEquals(1, hours.size());
+            assertEquals(3, hours.get(0).count());
+        }
+    }
+
+    @Test
+    void memoryStoreIgnoresFlushAndClose() {
+        TimeSeriesStore store = new TimeSeriesStore();
+        store.record("canary", T0, 10 * MS, true);
+        store.flush();
+        store.close();
+
+        assertEquals(1, store.query("canary", T0, T0 + 1).points().size());
+    }
+
+    @Test
+    void tracksBoundedNumberOfScripts() {
+        TimeSeriesStore store = new TimeSeriesStore();
+        for (int i = 0; i <= TimeSeriesStore.MAX_SERIES; i++) {
+            store.record("script" + i, T0, MS, true);
+        }
+
+        assertEquals(TimeSeriesStore.MAX_SERIES, store.keys().size());
+        assertTrue(store.query("script" + TimeSeriesStore.MAX_SERIES, T0, T0 + 1).points().isEmpty());
+    }
+}
@@ -0,0 +1,64 @@
+package com.shiva.common;
+
+import org.python.core.CompileMode;
+import org.python.core.CompilerFlags;
+import org.python.core.Py;
+import org.python.core.PyCode;
+import org.python.core.PyModule;
+import org.python.core.PyObject;
+import org.python.core.PyStringMap;
+import org.python.core.PySystemState;
+
+/**
+ * Ignition-free {@link ScriptRunner} on a plain Jython interpreter, shared by the tests and
+ * the benchmarks.
+ * <p>
+ * Project library modules are simulated by compiling source into a module and registering
+ * it in {@code sys.modules}, so {@code import} resolves it the way a Gateway would. Module
+ * names are interpreter-wide, so each test class should use its own.
+ */
+public class JythonScriptRunner implements ScriptRunner {
+
+    private final PyStringMap globals = new PyStringMap();
+
+    public JythonScriptRunner() {
+        PySystemState.initialize();
+        globals.__setitem__("__name__", Py.newString("__main__"));
+    }
+
+    /**
+     * Defines an importable module.
+     *
+     * @param name   module name, e.g. {@code timer_test}
+     * @param source the module's Python source
+     * @return the module
+     */
+    public PyModule defineModule(String name, String source) {
+        PyModule module = new PyModule(name);
+        PyObject dict = module.__dict__;
+        PyCode code = Py.compile_flags(source, name + ".py", CompileMode.exec, new CompilerFlags());
+        Py.runCode(code, dict, dict);
+        Py.getSystemState().modules.__setitem__(name, module);
+        return module;
+    }
+
+    @Override
+    public void runCode(String code, PyStringMap locals, String filename) {
+        runCode(Py.compile_flags(code, filename, CompileMode.exec, new CompilerFlags()), locals);
+    }
+
+    @Override
+    public void runCode(PyCode code, PyStringMap locals) {
+        Py.runCode(code, locals, globals);
+    }
+
+    @Override
+    public PyObject runFunction(PyObject function, PyObject... args) {
+        return function.__call__(args);
+    }
+
+    @Override
+    public PyStringMap createLocalsMap() {
+        return new PyStringMap();
+    }
+}
@@ -0,0 +1,86 @@
+package com.shiva.designer;
+
+import com.shiva.common.RunHistory;
+import com.shiva.common.ScriptExecutionResult;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.Date;
+
+/**
+ * Table model that reads rows straight from a {@link RunHistory} ring buffer, newest first.
+ * <p>
+ * Nothing is copied: the model only holds the {@code [from, to)} sequence window captured
+ * by the last {@link #refresh()}, and {@link #getValueAt} formats a cell on demand, so the
+ * cost of a refresh depends on the rows on screen rather than on the history size.
+ * Rows overwritten since the last refresh render as blank. EDT-confined.
+ */
+public class HistoryTableModel extends AbstractTableModel {
+
+    private static final String[] COLUMNS = {
+            "Script", "Status", "Args", "Duration (ms)", "Resolve (ms)", "CPU (ms)",
+            "Alloc (KB)", "GC (count/ms)", "Timestamp"
+    };
+
+    private final RunHistory history;
+    private long from;
+    private long to;
+
+    /**
+     * @param history the history to display
+     */
+    public HistoryTableModel(RunHistory history) {
+        this.history = history;
+        refresh();
+    }
+
+    /**
+     * Captures the latest window of the history and notifies the table if it moved.
+     *
+     * @return {@code true} if new runs were recorded since the previous refresh
+     */
+    public boolean refresh() {
+        RunHistory.Snapshot snapshot = history.snapshot();
+        if (snapshot.from() == from && snapshot.to() == to) {
+            return false;
+        }
+        from = snapshot.from();
+        to = snapshot.to();
+        fireTableDataChanged();
+        return true;
+    }
+
+    @Override
+    public int getRowCount() {
+        return (int) (to - from);
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        ScriptExecutionResult r = history.get(to - 1 - row);
+        if (r == null) {
+            return "";
+        }
+        return switch (column) {
+            case 0 -> r.path();
+            case 1 -> r.status();
+            case 2 -> r.argsPreview();
+            case 3 -> String.format("%.2f", r.elapsedMs());
+            case 4 -> String.format("%.2f", r.resolveMs());
+            case 5 -> r.cpuMs() < 0 ? "n/a" : String.format("%.2f", r.cpuMs());
+            case 6 -> r.allocatedBytes() < 0 ? "n/a" : String.format("%.1f", r.allocatedBytes() / 1024.0);
+            case 7 -> r.gcCount() + " / " + r.gcTimeMs();
+            case 8 -> new Date(r.timestamp()).toString();
+            default -> "";
+        };
+    }
+}
@@ -1,35 +1,76 @@
 package com.shiva.designer;
 
+import com.shiva.common.ComplexityFit;
 import com.shiva.common.DefaultScriptProfiler;
+import com.shiva.common.ExportFormat;
+import com.shiva.common.LatencyStats;
+import com.shiva.common.RegressionReport;
+import com.shiva.common.RunHistory;
+import com.shiva.common.ScalingPoint;
+import com.shiva.common.ScalingResult;
 import com.shiva.common.ScriptExecutionResult;
+import com.shiva.common.SourceHeatMap;
+import com.shiva.common.TracedExecution;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
-import org.jfree.chart.plot.CategoryPlot;
 import org.jfree.chart.plot.PlotOrientation;
-import org.jfree.chart.renderer.category.BarRenderer;
-import org.jfree.data.category.DefaultCategoryDataset;
+import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
+import org.jfree.data.xy.XYSeries;
+import org.jfree.data.xy.XYSeriesCollection;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Swing panel for executing project scripts and viewing profiling history.
  * <p>
- * Contains two tabs:
+ * Contains three tabs:
  * <ul>
- *   <li>Execute: select a script, input args, view live status, summary, preview, and chart.</li>
- *   <li>History: shows a table of recent profiling runs.</li>
+ *   <li>Execute: select a script, input args, view live status, summary, chart, and the
+ *   script's full source shaded by per-line time from its latest line trace.</li>
+ *   <li>History: shows a table of recent profiling runs and exports them, with the last
+ *   traced and sampled runs, to Chrome trace, speedscope or collapsed-stack files.</li>
+ *   <li>Scaling: times the selected script over a range of input sizes and plots the
+ *   measurements against the best-fitting complexity model.</li>
  * </ul>
+ * <p>
+ * The panel is a live dashboard: a Swing timer polls the run history at a fixed frame rate
+ * and, only when new runs were recorded, appends them to the duration chart, refreshes the
+ * history table and updates the summary. However fast runs arrive, the EDT does at most one
+ * update per frame.
  */
 public class ProfilerPanel extends JPanel {
 
+    /** Maximum time a run started from the panel may take before it is cancelled. */
+    private static final long RUN_TIMEOUT_MS = 60_000;
+
+    /** Interval between dashboard refreshes; runs recorded in between are applied together. */
+    private static final int FRAME_INTERVAL_MS = 250;
+
+    /** Number of most recent runs kept in the duration chart. */
+    private static final int CHART_POINTS = 300;
+
+    /** Timed calls per input size in a scaling analysis. */
+    private static final int SCALING_REPETITIONS = 5;
+
+    /** Number of points drawn along the fitted scaling curve. */
+    private static final int FIT_POINTS = 50;
+
     // === Execution tab components ===
     /** Dropdown of available script paths (editable to add new entries). */
     private final JComboBox<String> scriptCombo = new JComboBox<>();
@@ -40,34 +81,119 @@ public class ProfilerPanel extends JPanel {
     /** Button to trigger script execution. */
     private final JButton runBtn = new JButton("Run");
 
+    /** Button to cancel the script execution in progress. */
+    private final JButton cancelBtn = new JButton("Cancel");
+
+    /** Indeterminate progress bar shown while a script is running. */
+    private final JProgressBar progressBar = new JProgressBar();
+
     /** Label showing overall success or error status of last run. */
     private final JLabel statusLabel = new JLabel(" ");
 
     /** Label displaying the duration of the most recent run. */
     private final JLabel lastRunLabel = new JLabel("Last: N/A");
 
-    /** Label displaying the average duration across recent runs. */
+    /** Label displaying the lifetime average duration of the selected script. */
     private final JLabel avgLabel = new JLabel("Avg: N/A");
 
-    /** Label displaying the maximum duration across recent runs. */
+    /** Label displaying the lifetime median duration of the selected script. */
+    private final JLabel p50Label = new JLabel("p50: N/A");
+
+    /** Label displaying the lifetime 99th percentile duration of the selected script. */
+    private final JLabel p99Label = new JLabel("p99: N/A");
+
+    /** Label displaying the lifetime maximum duration of the selected script. */
     private final JLabel maxLabel = new JLabel("Max: N/A");
 
-    /** Read-only area showing a preview (first few lines) of selected script source. */
-    private final JTextArea previewArea = new JTextArea(4, 30);
+    /** Button clearing the lifetime statistics of the selected script. */
+    private final JButton resetStatsBtn = new JButton("Reset Stats");
+
+    /** Label comparing the selected script against its baseline, red on a regression. */
+    private final JLabel baselineLabel = new JLabel("Baseline: none");
+
+    /** Button capturing the selected script's recent runs as its baseline. */
+    private final JButton baselineBtn = new JButton("Set Baseline");
+
+    /** Full source of the selected script, annotated with per-line hits and time. */
+    private final SourceTableModel sourceModel = new SourceTableModel();
+
+    /** Table displaying {@link #sourceModel}, shaded by each line's share of the time. */
+    private final JTable sourceTable = new JTable(sourceModel);
+
+    /** Describes where the displayed line statistics come from. */
+    private final JLabel sourceLabel = new JLabel(" ");
+
+    /** Button to run the selected script with line tracing and refresh the heat map. */
+    private final JButton traceLinesBtn = new JButton("Trace Lines");
 
     /** Read-only area showing raw execution output or errors. */
     private final JTextArea outputArea = new JTextArea(6, 30);
 
-    /** Panel that hosts the execution duration bar chart. */
+    /** Panel that hosts the execution duration chart. */
     private ChartPanel chartPanel;
 
+    /** Durations of recent runs by timestamp; appended to in place, never rebuilt. */
+    private final XYSeries durationSeries = new XYSeries("Duration", true, true);
+
+    /** Sequence number of the next history entry to add to the chart. EDT-confined. */
+    private long chartSequence;
+
+    /** Drives the dashboard refresh while the panel is displayed. */
+    private final Timer frameTimer = new Timer(FRAME_INTERVAL_MS, e -> onFrame());
+
+    /** The run currently in progress, or {@code null} when idle. EDT-confined. */
+    private CompletableFuture<ScriptExecutionResult> pendingRun;
+
+    /** Incremented per preview request so stale background results are discarded. EDT-confined. */
+    private int previewRequest;
+
+    /** The baseline comparison in progress, or {@code null} when idle. EDT-confined. */
+    private SwingWorker<RegressionReport, Void> regressionCheck;
+
+    /** Script to compare again once {@link #regressionCheck} finishes, or {@code null}. EDT-confined. */
+    private String staleRegressionPath;
+
     // === History tab components ===
-    /** Table model backing the history table. */
-    private final DefaultTableModel historyModel;
+    /** Table model reading rows directly from the profiler's run history. */
+    private final HistoryTableModel historyModel;
 
-    /** Table displaying recent profiling runs (path, args, time, timestamp). */
+    /** Table displaying recent profiling runs (path, args, timings, CPU/alloc/GC, timestamp). */
     private final JTable historyTable;
 
+    /** Format written by the Export button. */
+    private final JComboBox<ExportFormat> exportFormatCombo = new JComboBox<>(ExportFormat.values());
+
+    /** Button to export the history and the last traced and sampled runs to a file. */
+    private final JButton exportBtn = new JButton("Export...");
+
+    /** Outcome of the last export. */
+    private final JLabel exportLabel = new JLabel(" ");
+
+    // === Scaling tab components ===
+    /** Input sizes to measure, comma-separated. */
+    private final JTextField sizesField = new JTextField("10, 100, 1000, 10000");
+
+    /** Python expression in {@code n} producing the argument list for each size. */
+    private final JTextField generatorField = new JTextField("[range(n)]");
+
+    /** Input size the fitted model is extrapolated to. */
+    private final JTextField targetField = new JTextField("100000");
+
+    /** Button to start a scaling analysis. */
+    private final JButton scalingBtn = new JButton("Analyze");
+
+    /** Median durations measured at each size. */
+    private final XYSeries measuredSeries = new XYSeries("Measured");
+
+    /** The best-fitting model from the smallest size to the target size. */
+    private final XYSeries fitSeries = new XYSeries("Fit");
+
+    /** Chart of the last scaling analysis. */
+    private JFreeChart scalingChart;
+
+    /** Text report of the last scaling analysis. */
+    private final JTextArea scalingArea = new JTextArea(8, 30);
+
     // === Profiler backend ===
     /** The DefaultScriptProfiler instance that executes and records profiling runs. */
     private final DefaultScriptProfiler profiler;
@@ -88,21 +214,16 @@ public class ProfilerPanel extends JPanel {
         // enable wrapping for text areas
         outputArea.setLineWrap(true);
         outputArea.setWrapStyleWord(true);
-        previewArea.setLineWrap(true);
-        previewArea.setWrapStyleWord(true);
-        previewArea.setEditable(false);
-        previewArea.setBackground(new Color(248, 248, 248));
-        previewArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        configureSourceTable();
 
         // build tabbed UI
         JTabbedPane tabs = new JTabbedPane();
         tabs.addTab("Execute", createExecutionTab());
 
-        historyModel = new DefaultTableModel(
-                new String[]{"Script", "Args", "Duration (ms)", "Timestamp"}, 0
-        );
+        historyModel = new HistoryTableModel(profiler.getHistory());
         historyTable = new JTable(historyModel);
         tabs.addTab("History", createHistoryTab());
+        tabs.addTab("Scaling", createScalingTab());
 
         add(tabs, BorderLayout.CENTER);
 
@@ -114,6 +235,20 @@ public class ProfilerPanel extends JPanel {
 
         // initial preview load
         updatePreview();
+
+        frameTimer.setCoalesce(true);
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        frameTimer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        frameTimer.stop();
+        super.removeNotify();
     }
 
     /**
@@ -127,7 +262,10 @@ public class ProfilerPanel extends JPanel {
         JPanel inputRow = new JPanel(new BorderLayout(4, 4));
         inputRow.add(new JLabel("Script:"), BorderLayout.WEST);
         inputRow.add(scriptCombo, BorderLayout.CENTER);
-        inputRow.add(runBtn, BorderLayout.EAST);
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 4, 0));
+        buttons.add(runBtn);
+        buttons.add(cancelBtn);
+        inputRow.add(buttons, BorderLayout.EAST);
 
         // args row
         JPanel argsRow = new JPanel(new BorderLayout(4, 4));
@@ -138,21 +276,35 @@ public class ProfilerPanel extends JPanel {
         statusLabel.setFont(statusLabel.getFont().deriveFont(Font.BOLD));
         statusLabel.setHorizontalAlignment(SwingConstants.CENTER);
 
+        // idle until a run starts
+        cancelBtn.setEnabled(false);
+        progressBar.setIndeterminate(true);
+        progressBar.setVisible(false);
+        JPanel statusRow = new JPanel(new BorderLayout(4, 4));
+        statusRow.add(statusLabel, BorderLayout.CENTER);
+        statusRow.add(progressBar, BorderLayout.EAST);
+
         // summary grid
-        JPanel summaryPanel = new JPanel(new GridLayout(1, 3, 10, 0));
+        JPanel summaryPanel = new JPanel(new GridLayout(1, 8, 10, 0));
         summaryPanel.add(lastRunLabel);
         summaryPanel.add(avgLabel);
+        summaryPanel.add(p50Label);
+        summaryPanel.add(p99Label);
         summaryPanel.add(maxLabel);
+        summaryPanel.add(resetStatsBtn);
+        summaryPanel.add(baselineLabel);
+        summaryPanel.add(baselineBtn);
 
-        // empty chart placeholder
-        chartPanel = new ChartPanel(createEmptyDatasetChart());
+        // live duration chart
+        durationSeries.setMaximumItemCount(CHART_POINTS);
+        chartPanel = new ChartPanel(createDurationChart());
         chartPanel.setPreferredSize(new Dimension(400, 150));
 
         // north section assembly
         JPanel northSection = new JPanel(new BorderLayout(4, 4));
         northSection.add(inputRow, BorderLayout.NORTH);
         northSection.add(argsRow, BorderLayout.CENTER);
-        northSection.add(statusLabel, BorderLayout.SOUTH);
+        northSection.add(statusRow, BorderLayout.SOUTH);
 
         JPanel topWrapper = new JPanel(new BorderLayout(4, 4));
         topWrapper.add(northSection, BorderLayout.NORTH);
@@ -162,8 +314,12 @@ public class ProfilerPanel extends JPanel {
         // preview and output split
         JPanel centerSection = new JPanel(new BorderLayout(4, 4));
         JPanel previewPanel = new JPanel(new BorderLayout(2, 2));
-        previewPanel.setBorder(BorderFactory.createTitledBorder("Preview"));
-        previewPanel.add(new JScrollPane(previewArea), BorderLayout.CENTER);
+        previewPanel.setBorder(BorderFactory.createTitledBorder("Source"));
+        JPanel sourceHeader = new JPanel(new BorderLayout(4, 4));
+        sourceHeader.add(sourceLabel, BorderLayout.CENTER);
+        sourceHeader.add(traceLinesBtn, BorderLayout.EAST);
+        previewPanel.add(sourceHeader, BorderLayout.NORTH);
+        previewPanel.add(new JScrollPane(sourceTable), BorderLayout.CENTER);
 
         JPanel outputPanel = new JPanel(new BorderLayout(2, 2));
         outputPanel.setBorder(BorderFactory.createTitledBorder("Execution Output"));
@@ -179,8 +335,22 @@ public class ProfilerPanel extends JPanel {
         panel.add(topWrapper, BorderLayout.NORTH);
         panel.add(centerSection, BorderLayout.CENTER);
 
-        // wire run button
+        // wire run, cancel and reset buttons
         runBtn.addActionListener(this::onRun);
+        cancelBtn.addActionListener(e -> {
+            if (pendingRun != null) {
+                pendingRun.cancel(true);
+            }
+        });
+        resetStatsBtn.addActionListener(e -> {
+            String path = getSelectedScriptPath();
+            if (path != null && !path.isEmpty()) {
+                profiler.resetStats(path);
+                updateSummary(path);
+            }
+        });
+        baselineBtn.addActionListener(e -> onSetBaseline());
+        traceLinesBtn.addActionListener(e -> onTraceLines());
         return panel;
     }
 
@@ -190,32 +360,202 @@ public class ProfilerPanel extends JPanel {
      */
     private JPanel createHistoryTab() {
         JPanel panel = new JPanel(new BorderLayout(4, 4));
-        JButton refreshBtn = new JButton("Refresh");
-        refreshBtn.addActionListener(e -> loadHistory());
+        panel.add(new JScrollPane(historyTable), BorderLayout.CENTER);
 
-        JPanel top = new JPanel(new FlowLayout(FlowLayout.RIGHT));
-        top.add(refreshBtn);
+        JPanel exportRow = new JPanel(new BorderLayout(4, 4));
+        exportRow.add(exportLabel, BorderLayout.CENTER);
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 4, 0));
+        buttons.add(new JLabel("Format:"));
+        buttons.add(exportFormatCombo);
+        buttons.add(exportBtn);
+        exportRow.add(buttons, BorderLayout.EAST);
+        panel.add(exportRow, BorderLayout.SOUTH);
 
-        panel.add(top, BorderLayout.NORTH);
-        panel.add(new JScrollPane(historyTable), BorderLayout.CENTER);
+        exportBtn.addActionListener(e -> onExport());
+        return panel;
+    }
+
+    /**
+     * Asks for a destination file and writes the export off the EDT.
+     */
+    private void onExport() {
+        ExportFormat format = (ExportFormat) exportFormatCombo.getSelectedItem();
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("script-profile" + format.extension()));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        exportBtn.setEnabled(false);
+        exportLabel.setText("Exporting...");
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                try (OutputStream out = Files.newOutputStream(file)) {
+                    profiler.export(format, out);
+                }
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                exportBtn.setEnabled(true);
+                try {
+                    get();
+                    exportLabel.setText("Exported to " + file);
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    exportLabel.setText("ERROR: " + cause.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Builds and returns the "Scaling" tab panel. The script is the one selected on the
+     * Execute tab.
+     * @return the scaling tab UI
+     */
+    private JPanel createScalingTab() {
+        JPanel panel = new JPanel(new BorderLayout(6, 6));
+
+        JPanel form = new JPanel(new GridLayout(3, 2, 4, 4));
+        form.add(new JLabel("Sizes (comma-separated):"));
+        form.add(sizesField);
+        form.add(new JLabel("Args for size n (Python expression):"));
+        form.add(generatorField);
+        form.add(new JLabel("Extrapolate to n:"));
+        form.add(targetField);
+
+        JPanel north = new JPanel(new BorderLayout(4, 4));
+        north.add(form, BorderLayout.CENTER);
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 4, 0));
+        buttons.add(scalingBtn);
+        north.add(buttons, BorderLayout.SOUTH);
+
+        scalingChart = createScalingChart();
+        ChartPanel scalingChartPanel = new ChartPanel(scalingChart);
+        scalingChartPanel.setPreferredSize(new Dimension(400, 200));
+
+        scalingArea.setEditable(false);
+        scalingArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+
+        JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT,
+                scalingChartPanel,
+                new JScrollPane(scalingArea));
+        splitPane.setResizeWeight(0.6);
+
+        panel.add(north, BorderLayout.NORTH);
+        panel.add(splitPane, BorderLayout.CENTER);
+
+        scalingBtn.addActionListener(e -> onAnalyzeScaling());
         return panel;
     }
 
     /**
-     * Updates the script preview based on the selected script path.
+     * Shades source rows by their share of the hottest line's time and sizes the columns.
+     */
+    private void configureSourceTable() {
+        sourceTable.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        sourceTable.setShowGrid(false);
+        sourceTable.setAutoResizeMode(JTable.AUTO_RESIZE_LAST_COLUMN);
+        sourceTable.getColumnModel().getColumn(0).setPreferredWidth(50);
+        sourceTable.getColumnModel().getColumn(1).setPreferredWidth(60);
+        sourceTable.getColumnModel().getColumn(2).setPreferredWidth(80);
+        sourceTable.getColumnModel().getColumn(SourceTableModel.SOURCE_COLUMN).setPreferredWidth(600);
+        sourceTable.setDefaultRenderer(Object.class, new DefaultTableCellRenderer() {
+            @Override
+            public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                           boolean hasFocus, int row, int column) {
+                super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+                if (!isSelected) {
+                    // white for cold lines through to saturated red for the hottest line
+                    int fade = (int) Math.round(255 - 120 * sourceModel.heat(row));
+                    setBackground(new Color(255, fade, fade));
+                }
+                setHorizontalAlignment(column == SourceTableModel.SOURCE_COLUMN ? LEFT : RIGHT);
+                return this;
+            }
+        });
+    }
+
+    /**
+     * Loads the selected script's annotated source on a background thread so slow imports
+     * don't block the EDT. Sources are cached by the profiler until the project changes.
      */
     private void updatePreview() {
         String scriptPath = getSelectedScriptPath();
+        int request = ++previewRequest;
         if (scriptPath == null || scriptPath.isEmpty()) {
-            previewArea.setText("No script selected");
+            sourceModel.setHeatMap(null);
+            sourceLabel.setText("No script selected");
             return;
         }
-        try {
-            String content = profiler.getScriptContent(scriptPath);
-            previewArea.setText(content != null ? content : "(no content)");
-        } catch (Exception e) {
-            previewArea.setText("Error loading script: " + e.getMessage());
+        sourceLabel.setText("Loading " + scriptPath + "...");
+        new SwingWorker<SourceHeatMap, Void>() {
+            @Override
+            protected SourceHeatMap doInBackground() {
+                return profiler.getSourceHeatMap(scriptPath);
+            }
+
+            @Override
+            protected void done() {
+                if (request != previewRequest) {
+                    return;
+                }
+                try {
+                    SourceHeatMap heatMap = get();
+                    sourceModel.setHeatMap(heatMap);
+                    if (heatMap == null) {
+                        sourceLabel.setText("Source not available for " + scriptPath);
+                    } else if (heatMap.tracedAt() == 0) {
+                        sourceLabel.setText("No line trace yet; use Trace Lines to collect one");
+                    } else {
+                        sourceLabel.setText("Line times from trace at " + new Date(heatMap.tracedAt()));
+                    }
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    sourceModel.setHeatMap(null);
+                    sourceLabel.setText("Error loading script: " + cause.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Runs the selected script once with line tracing off the EDT, then shows the call tree
+     * and reloads the heat map.
+     */
+    private void onTraceLines() {
+        String path = getSelectedScriptPath();
+        if (path == null || path.isEmpty()) {
+            outputArea.setText("ERROR: No script selected");
+            return;
         }
+        List<Object> args = parseArgs();
+        traceLinesBtn.setEnabled(false);
+        sourceLabel.setText("Tracing " + path + "...");
+        new SwingWorker<TracedExecution, Void>() {
+            @Override
+            protected TracedExecution doInBackground() {
+                return profiler.profileScriptTraced(path, args, true);
+            }
+
+            @Override
+            protected void done() {
+                traceLinesBtn.setEnabled(true);
+                try {
+                    TracedExecution traced = get();
+                    outputArea.setText(traced.run().ok() ? traced.toString() : "ERROR: " + traced);
+                    updateStatus(traced.run().ok());
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    outputArea.setText("ERROR: " + cause.getMessage());
+                    updateStatus(false);
+                }
+                updatePreview();
+            }
+        }.execute();
     }
 
     /**
@@ -228,7 +568,8 @@ public class ProfilerPanel extends JPanel {
     }
 
     /**
-     * Handles the Run button action: executes the script, updates UI components.
+     * Handles the Run button action: starts the script on a background thread and applies
+     * the result on the EDT when it completes.
      */
     private void onRun(ActionEvent e) {
         String path = getSelectedScriptPath();
@@ -242,6 +583,25 @@ public class ProfilerPanel extends JPanel {
                 .getIndexOf(path) < 0) {
             scriptCombo.addItem(path);
         }
+        List<Object> args = parseArgs();
+        setRunning(true);
+        statusLabel.setText("RUNNING");
+        statusLabel.setForeground(Color.DARK_GRAY);
+        CompletableFuture<ScriptExecutionResult> run = profiler.profileScriptAsync(path, args, RUN_TIMEOUT_MS);
+        pendingRun = run;
+        run.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            if (pendingRun == run) {
+                pendingRun = null;
+                setRunning(false);
+            }
+            applyResult(path, result, error);
+        }));
+    }
+
+    /**
+     * @return the comma-separated arguments from the args field, as strings
+     */
+    private List<Object> parseArgs() {
         List<Object> args = new ArrayList<>();
         String raw = argsField.getText().trim();
         if (!raw.isEmpty()) {
@@ -249,57 +609,209 @@ public class ProfilerPanel extends JPanel {
                     .map(String::trim)
                     .forEach(args::add);
         }
-        String result;
-        try {
-            result = profiler.profileScriptWithArgs(path, args);
-        } catch (Exception ex) {
-            result = "ERROR: " + ex.getMessage();
+        return args;
+    }
+
+    /**
+     * Shows the outcome of a finished run. Must be called on the EDT.
+     */
+    private void applyResult(String path, ScriptExecutionResult result, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                ? error.getCause()
+                : error;
+        String text;
+        if (cause == null) {
+            text = result.ok() ? result.summary() : "ERROR: " + result.summary();
+        } else if (cause instanceof CancellationException) {
+            text = "ERROR: Run cancelled";
+        } else if (cause instanceof TimeoutException) {
+            text = "ERROR: Run timed out after " + RUN_TIMEOUT_MS + " ms";
+        } else {
+            text = "ERROR: " + cause.getMessage();
         }
-        outputArea.setText(result);
-        boolean ok = !result.startsWith("ERROR:");
+        outputArea.setText(text);
+        boolean ok = !text.startsWith("ERROR:");
         updateStatus(ok);
-        updateSummary();
-        updateChart();
+        // chart, table and summary pick the run up on the next frame
+    }
+
+    /**
+     * Captures the selected script's baseline off the EDT, since it fetches the script source.
+     */
+    private void onSetBaseline() {
+        String path = getSelectedScriptPath();
+        if (path == null || path.isEmpty()) {
+            return;
+        }
+        baselineBtn.setEnabled(false);
+        new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() {
+                return profiler.captureBaseline(path).toString();
+            }
+
+            @Override
+            protected void done() {
+                baselineBtn.setEnabled(true);
+                try {
+                    outputArea.setText(get());
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    outputArea.setText("ERROR: " + cause.getMessage());
+                }
+                updateSummary(path);
+            }
+        }.execute();
+    }
+
+    /**
+     * Runs a scaling analysis of the selected script off the EDT and plots the result.
+     */
+    private void onAnalyzeScaling() {
+        String path = getSelectedScriptPath();
+        if (path == null || path.isEmpty()) {
+            scalingArea.setText("ERROR: No script selected");
+            return;
+        }
+        List<Integer> sizes = new ArrayList<>();
+        long target;
+        try {
+            for (String size : sizesField.getText().split(",")) {
+                if (!size.isBlank()) {
+                    sizes.add(Integer.parseInt(size.trim()));
+                }
+            }
+            target = Long.parseLong(targetField.getText().trim());
+        } catch (NumberFormatException ex) {
+            scalingArea.setText("ERROR: Sizes and target must be whole numbers");
+            return;
+        }
+        String expression = generatorField.getText().trim();
+
+        scalingBtn.setEnabled(false);
+        scalingArea.setText("Measuring " + path + " ...");
+        new SwingWorker<ScalingResult, Void>() {
+            @Override
+            protected ScalingResult doInBackground() {
+                return profiler.profileScaling(path, profiler.argsGenerator(expression),
+                        sizes, SCALING_REPETITIONS, target);
+            }
+
+            @Override
+            protected void done() {
+                scalingBtn.setEnabled(true);
+                try {
+                    ScalingResult result = get();
+                    scalingArea.setText(result.toString());
+                    plotScaling(result);
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    scalingArea.setText("ERROR: " + cause.getMessage());
+                }
+            }
+        }.execute();
     }
 
     /**
-     * Creates an empty bar chart with no data.
+     * Creates the scaling chart: measured medians as points, the fitted model as a line.
      * @return chart instance
      */
-    private JFreeChart createEmptyDatasetChart() {
-        DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-        JFreeChart chart = ChartFactory.createBarChart(
-                "Last Runs", "Run #", "Duration (ms)",
+    private JFreeChart createScalingChart() {
+        XYSeriesCollection dataset = new XYSeriesCollection();
+        dataset.addSeries(measuredSeries);
+        dataset.addSeries(fitSeries);
+        JFreeChart chart = ChartFactory.createXYLineChart(
+                "Scaling", "Input size (n)", "Duration (ms)",
                 dataset, PlotOrientation.VERTICAL,
-                false, true, false
+                true, true, false
         );
-        CategoryPlot plot = chart.getCategoryPlot();
-        BarRenderer renderer = (BarRenderer) plot.getRenderer();
+        XYLineAndShapeRenderer renderer = new XYLineAndShapeRenderer(true, true);
+        renderer.setSeriesLinesVisible(0, false);
         renderer.setSeriesPaint(0, new Color(200,50,50));
+        renderer.setSeriesShapesVisible(1, false);
+        renderer.setSeriesPaint(1, new Color(50,50,200));
+        chart.getXYPlot().setRenderer(0, renderer);
         return chart;
     }
 
     /**
-     * Updates the chart with the durations of the last up to 5 runs.
+     * Replaces the scaling chart's series with a new result. Must be called on the EDT.
      */
-    private void updateChart() {
-        DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-        List<ScriptExecutionResult> runs = profiler.getRecentRuns();
-        int start = Math.max(0, runs.size() - 5);
-        for (int i = start; i < runs.size(); i++) {
-            ScriptExecutionResult r = runs.get(i);
-            dataset.addValue(r.elapsedMs(), "Duration", "#" + (i - start + 1));
+    private void plotScaling(ScalingResult result) {
+        measuredSeries.clear();
+        fitSeries.clear();
+        for (ScalingPoint point : result.points()) {
+            measuredSeries.add(point.size(), point.medianMs(), false);
         }
-        JFreeChart chart = ChartFactory.createBarChart(
-                "Last " + Math.min(5, runs.size()) + " Runs",
-                "Run #", "Duration (ms)",
-                dataset, PlotOrientation.VERTICAL,
+        ComplexityFit best = result.best();
+        double from = result.points().get(0).size();
+        double to = Math.max(result.targetSize(), result.points().get(result.points().size() - 1).size());
+        for (int i = 0; i <= FIT_POINTS; i++) {
+            double n = from + (to - from) * i / FIT_POINTS;
+            fitSeries.add(n, best.predictMs(n), false);
+        }
+        measuredSeries.fireSeriesChanged();
+        fitSeries.fireSeriesChanged();
+        scalingChart.setTitle(String.format("Scaling: %s, %.2f ms at n=%d",
+                best.complexity(), result.predictedMs(), result.targetSize()));
+    }
+
+    /**
+     * Toggles the controls between the idle and running states.
+     */
+    private void setRunning(boolean running) {
+        runBtn.setEnabled(!running);
+        cancelBtn.setEnabled(running);
+        progressBar.setVisible(running);
+    }
+
+    /**
+     * Creates the duration chart once; later runs only append to its series.
+     * @return chart instance
+     */
+    private JFreeChart createDurationChart() {
+        JFreeChart chart = ChartFactory.createTimeSeriesChart(
+                "Run Durations", "Time", "Duration (ms)",
+                new XYSeriesCollection(durationSeries),
                 false, true, false
         );
-        CategoryPlot plot = chart.getCategoryPlot();
-        BarRenderer renderer = (BarRenderer) plot.getRenderer();
-        renderer.setSeriesPaint(0, new Color(200,50,50));
-        chartPanel.setChart(chart);
+        chart.getXYPlot().getRenderer().setSeriesPaint(0, new Color(200,50,50));
+        return chart;
+    }
+
+    /**
+     * Applies everything recorded since the previous frame. Does nothing, and repaints
+     * nothing, if no new runs were recorded.
+     */
+    private void onFrame() {
+        if (!historyModel.refresh()) {
+            return;
+        }
+        appendNewRuns();
+        String path = getSelectedScriptPath();
+        if (path != null && !path.isEmpty()) {
+            updateSummary(path);
+        }
+    }
+
+    /**
+     * Adds runs recorded since the last frame to the chart with a single change notification.
+     */
+    private void appendNewRuns() {
+        RunHistory history = profiler.getHistory();
+        long fresh = history.totalRecorded() - chartSequence;
+        if (fresh <= 0) {
+            return;
+        }
+        RunHistory.Snapshot window = history.latest((int) Math.min(fresh, CHART_POINTS));
+        long first = chartSequence;
+        window.forEach((sequence, timestamp, elapsedNanos, pathId) -> {
+            if (sequence >= first) {
+                durationSeries.add(timestamp, elapsedNanos / 1_000_000.0, false);
+            }
+        });
+        chartSequence = window.to();
+        durationSeries.fireSeriesChanged();
     }
 
     /**
@@ -316,35 +828,86 @@ public class ProfilerPanel extends JPanel {
     }
 
     /**
-     * Recalculates and updates summary labels (last/avg/max durations).
+     * Updates summary labels from the last run and the script's lifetime latency histogram.
+     *
+     * @param path the script whose statistics are shown
      */
-    private void updateSummary() {
-        List<ScriptExecutionResult> runs = profiler.getRecentRuns();
-        if (runs.isEmpty()) {
-            lastRunLabel.setText("Last: N/A");
+    private void updateSummary(String path) {
+        List<ScriptExecutionResult> last = profiler.getRecentRuns(1);
+        lastRunLabel.setText(last.isEmpty()
+                ? "Last: N/A"
+                : String.format("Last: %.2f ms", last.get(0).elapsedMs()));
+
+        updateBaseline(path);
+
+        LatencyStats stats = profiler.getStats(path);
+        if (stats.count() == 0) {
             avgLabel.setText("Avg: N/A");
+            p50Label.setText("p50: N/A");
+            p99Label.setText("p99: N/A");
             maxLabel.setText("Max: N/A");
             return;
         }
-        double last = runs.get(runs.size()-1).elapsedMs();
-        lastRunLabel.setText(String.format("Last: %.2f ms", last));
-        double sum=0, max=0;
-        for (ScriptExecutionResult r : runs) { double t=r.elapsedMs(); sum+=t; max=Math.max(max,t);}
-        avgLabel.setText(String.format("Avg: %.2f ms", sum/runs.size()));
-        maxLabel.setText(String.format("Max: %.2f ms", max));
+        avgLabel.setText(String.format("Avg: %.2f ms", stats.meanMs()));
+        p50Label.setText(String.format("p50: %.2f ms", stats.p50Ms()));
+        p99Label.setText(String.format("p99: %.2f ms", stats.p99Ms()));
+        maxLabel.setText(String.format("Max: %.2f ms", stats.maxMs()));
+    }
+
+    /**
+     * Compares the script's runs since its last source change with its baseline off the EDT,
+     * since the rank test and the source lookup are too slow for every frame. At most one
+     * comparison runs at a time; a request made meanwhile is coalesced into one rerun.
+     */
+    private void updateBaseline(String path) {
+        if (regressionCheck != null) {
+            staleRegressionPath = path;
+            return;
+        }
+        regressionCheck = new SwingWorker<>() {
+            @Override
+            protected RegressionReport doInBackground() {
+                return profiler.checkRegression(path);
+            }
+
+            @Override
+            protected void done() {
+                regressionCheck = null;
+                try {
+                    if (path.equals(getSelectedScriptPath())) {
+                        showBaseline(get());
+                    }
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    baselineLabel.setToolTipText("ERROR: " + cause.getMessage());
+                }
+                String next = staleRegressionPath;
+                staleRegressionPath = null;
+                if (next != null) {
+                    updateBaseline(next);
+                }
+            }
+        };
+        regressionCheck.execute();
     }
 
     /**
-     * Reloads profiling history into the table.
+     * Shows how the script's runs since its last source change compare with its baseline.
      */
-    private void loadHistory() {
-        historyModel.setRowCount(0);
-        for (ScriptExecutionResult r : profiler.getRecentRuns()) {
-            historyModel.addRow(new Object[]{
-                    r.path(), r.args().toString(),
-                    String.format("%.2f", r.elapsedMs()),
-                    new Date(r.timestamp()).toString()
-            });
+    private void showBaseline(RegressionReport report) {
+        baselineLabel.setToolTipText(report.toString());
+        if (!report.hasBaseline()) {
+            baselineLabel.setText("Baseline: none");
+            baselineLabel.setForeground(Color.DARK_GRAY);
+        } else if (report.regression()) {
+            baselineLabel.setText(String.format("REGRESSION x%.2f", report.medianRatio()));
+            baselineLabel.setForeground(Color.RED);
+        } else if (report.sourceChanged()) {
+            baselineLabel.setText(String.format("Baseline: x%.2f", report.medianRatio()));
+            baselineLabel.setForeground(new Color(0,128,0));
+        } else {
+            baselineLabel.setText("Baseline: unchanged");
+            baselineLabel.setForeground(Color.DARK_GRAY);
         }
     }
 }
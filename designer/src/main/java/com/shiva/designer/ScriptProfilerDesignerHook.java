@@ -55,8 +55,21 @@ public class ScriptProfilerDesignerHook extends AbstractDesignerModuleHook {
         log.info("Script Profiler Designer startup");
     }
 
+    /**
+     * Project scripts may have changed on save, so cached callables must be re-imported.
+     */
+    @Override
+    public void notifyProjectSaveDone() {
+        if (profiler != null) {
+            profiler.invalidateCache();
+        }
+    }
+
     @Override
     public void shutdown() {
+        if (profiler != null) {
+            profiler.shutdown();
+        }
         log.info("Script Profiler Designer shutdown");
     }
 }
@@ -0,0 +1,70 @@
+package com.shiva.designer;
+
+import com.shiva.common.LineStats;
+import com.shiva.common.SourceHeatMap;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.List;
+
+/**
+ * Table model showing a function's full source, one row per line, with the hit count and
+ * time of each line from the latest line-traced run. EDT-confined.
+ */
+public class SourceTableModel extends AbstractTableModel {
+
+    private static final String[] COLUMNS = {"Line", "Hits", "Time (ms)", "Source"};
+
+    /** Column holding the source text. */
+    public static final int SOURCE_COLUMN = 3;
+
+    private List<String> text = List.of();
+    private List<LineStats> lines = List.of();
+    private double maxTimeMs;
+
+    /**
+     * Replaces the displayed source.
+     *
+     * @param heatMap the annotated source, or {@code null} to clear the table
+     */
+    public void setHeatMap(SourceHeatMap heatMap) {
+        text = heatMap == null ? List.of() : heatMap.source().lines();
+        lines = heatMap == null ? List.of() : heatMap.lines();
+        maxTimeMs = heatMap == null ? 0 : heatMap.maxTimeMs();
+        fireTableDataChanged();
+    }
+
+    /**
+     * @param row a table row
+     * @return the row's share of the hottest line's time, from 0 to 1
+     */
+    public double heat(int row) {
+        return maxTimeMs > 0 ? lines.get(row).timeMs() / maxTimeMs : 0;
+    }
+
+    @Override
+    public int getRowCount() {
+        return text.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        LineStats stats = lines.get(row);
+        return switch (column) {
+            case 0 -> stats.line();
+            case 1 -> stats.hits() > 0 ? Long.toString(stats.hits()) : "";
+            case 2 -> stats.hits() > 0 ? String.format("%.3f", stats.timeMs()) : "";
+            case 3 -> text.get(row);
+            default -> "";
+        };
+    }
+}
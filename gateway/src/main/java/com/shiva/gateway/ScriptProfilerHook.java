@@ -1,14 +1,35 @@
 package com.shiva.gateway;
 
 import com.inductiveautomation.ignition.common.licensing.LicenseState;
+import com.inductiveautomation.ignition.common.project.RuntimeProject;
 import com.inductiveautomation.ignition.common.script.ScriptManager;
 import com.inductiveautomation.ignition.common.script.hints.PropertiesFileDocProvider;
 import com.inductiveautomation.ignition.common.util.LogUtil;
 import com.inductiveautomation.ignition.common.util.LoggerEx;
 import com.inductiveautomation.ignition.gateway.model.AbstractGatewayModuleHook;
 import com.inductiveautomation.ignition.gateway.model.GatewayContext;
+import com.inductiveautomation.ignition.gateway.project.ProjectListener;
+import com.shiva.common.BaselineStore;
+import com.shiva.common.CanaryScheduler;
+import com.shiva.common.CanarySpec;
 import com.shiva.common.DefaultScriptProfiler;
+import com.shiva.common.HistoryStore;
+import com.shiva.common.MetricsRegistry;
+import com.shiva.common.MetricsServer;
+import com.shiva.common.ScriptInstrumenter;
 import com.shiva.common.ScriptProfilerFunctions;
+import com.shiva.common.TimeSeriesStore;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Gateway hook for the Script Profiler module.
@@ -18,9 +39,90 @@ import com.shiva.common.ScriptProfilerFunctions;
  */
 public class ScriptProfilerHook extends AbstractGatewayModuleHook {
 
+    /** Set to {@code false} to keep run history in memory only. */
+    public static final String STORE_ENABLED_PROPERTY = "scriptprofiler.store.enabled";
+
+    /** Size of each history segment file, in megabytes. */
+    public static final String STORE_SEGMENT_MB_PROPERTY = "scriptprofiler.store.segmentMb";
+
+    /** Maximum number of history segment files kept on disk. */
+    public static final String STORE_MAX_SEGMENTS_PROPERTY = "scriptprofiler.store.maxSegments";
+
+    /** Runs older than this many days are deleted from disk. */
+    public static final String STORE_RETENTION_DAYS_PROPERTY = "scriptprofiler.store.retentionDays";
+
+    /**
+     * Comma-separated project library modules to time on every call, e.g. {@code shared,myproject.util}.
+     * Empty (the default) disables passive instrumentation.
+     */
+    public static final String INSTRUMENT_PREFIXES_PROPERTY = "scriptprofiler.instrument.prefixes";
+
+    /**
+     * Port of the OpenMetrics endpoint ({@code /metrics}) exposing per-script call metrics.
+     * Unset or non-positive (the default) leaves the endpoint off.
+     */
+    public static final String METRICS_PORT_PROPERTY = "scriptprofiler.metrics.port";
+
+    /** Address the OpenMetrics endpoint binds to; loopback by default. */
+    public static final String METRICS_BIND_PROPERTY = "scriptprofiler.metrics.bind";
+
+    /**
+     * Canaries to run on a fixed cadence, as {@code [project:]path[@seconds][=args]} entries separated
+     * by semicolons, e.g. {@code MES:shared.oee.calc@30=[1, 'Line A']}. Empty (the default) schedules none.
+     */
+    public static final String CANARIES_PROPERTY = "scriptprofiler.canaries";
+
+    /** Project that runs canary entries not naming one. */
+    public static final String CANARIES_PROJECT_PROPERTY = "scriptprofiler.canaries.project";
+
     private GatewayContext context;
     private final LoggerEx log = LogUtil.getLogger(getClass().getSimpleName());
 
+    /**
+     * The profiler, and instrumenter if enabled, of each live Gateway script manager. Ignition
+     * gives a project a new script manager when it restarts the project, so entries whose
+     * manager is no longer their project's are pruned on project changes.
+     */
+    private final Map<ScriptManager, ManagerProfiler> profilers = new ConcurrentHashMap<>();
+
+    /** Run history persisted under the Gateway data directory, shared by all profilers. */
+    private HistoryStore historyStore;
+
+    /** Performance baselines persisted under the Gateway data directory. */
+    private BaselineStore baselineStore;
+
+    /** OpenMetrics endpoint over every profiler's metrics, when enabled. */
+    private MetricsServer metricsServer;
+
+    /** Canary latency rollups persisted under the Gateway data directory. */
+    private TimeSeriesStore timeSeriesStore;
+
+    /** Runs the configured canaries, when any are configured. */
+    private CanaryScheduler canaryScheduler;
+
+    /** Invalidates cached script callables whenever a project (and its script library) changes. */
+    private final ProjectListener projectListener = new ProjectListener() {
+        @Override
+        public void projectAdded(RuntimeProject project) {
+            pruneReplacedProfilers();
+            invalidateProfilerCaches();
+            refreshInstrumentation();
+        }
+
+        @Override
+        public void projectDeleted(String projectName) {
+            pruneReplacedProfilers();
+            invalidateProfilerCaches();
+        }
+
+        @Override
+        public void projectUpdated(RuntimeProject project) {
+            pruneReplacedProfilers();
+            invalidateProfilerCaches();
+            refreshInstrumentation();
+        }
+    };
+
     /**
      * Called when the module is loaded during Gateway initialization.
      *
@@ -29,6 +131,10 @@ public class ScriptProfilerHook extends AbstractGatewayModuleHook {
     @Override
     public void setup(GatewayContext gatewayContext) {
         this.context = gatewayContext;
+        context.getProjectManager().addProjectListener(projectListener);
+        historyStore = openHistoryStore();
+        baselineStore = openBaselineStore();
+        timeSeriesStore = openTimeSeriesStore();
         log.info("Script Profiler: setup()");
     }
 
@@ -39,6 +145,8 @@ public class ScriptProfilerHook extends AbstractGatewayModuleHook {
      */
     @Override
     public void startup(LicenseState licenseState) {
+        metricsServer = startMetricsServer();
+        canaryScheduler = startCanaries();
         log.info("Script Profiler Designer startup");
     }
 
@@ -47,6 +155,22 @@ public class ScriptProfilerHook extends AbstractGatewayModuleHook {
      */
     @Override
     public void shutdown() {
+        context.getProjectManager().removeProjectListener(projectListener);
+        if (canaryScheduler != null) {
+            canaryScheduler.shutdown();
+            canaryScheduler = null;
+        }
+        if (metricsServer != null) {
+            metricsServer.stop();
+            metricsServer = null;
+        }
+        profilers.values().forEach(ManagerProfiler::shutdown);
+        profilers.clear();
+        if (historyStore != null) {
+            historyStore.close();
+            historyStore = null;
+        }
+        timeSeriesStore.close();
         log.info("Script Profiler: shutdown()");
     }
 
@@ -61,6 +185,26 @@ public class ScriptProfilerHook extends AbstractGatewayModuleHook {
         log.info("Registering system.profiler in Gateway scope");
 
         DefaultScriptProfiler profiler = new DefaultScriptProfiler(manager);
+        profiler.setHistoryStore(historyStore);
+        profiler.setBaselineStore(baselineStore);
+
+        ScriptInstrumenter instrumenter = null;
+        List<String> prefixes = instrumentPrefixes();
+        if (!prefixes.isEmpty()) {
+            log.info("Passively instrumenting project scripts under " + prefixes);
+            instrumenter = new ScriptInstrumenter(profiler.getScriptRunner(), profiler.getMetrics(), prefixes);
+            instrumenter.start();
+            profiler.setLibraryReloadListener(instrumenter::requestRefresh);
+        }
+        ManagerProfiler entry = new ManagerProfiler(manager, profiler, instrumenter);
+        // canary series are per project, and the manager's project is only known once matched
+        profiler.setTimeSeriesStore(timeSeriesStore, entry::project);
+        ManagerProfiler previous = profilers.put(manager, entry);
+        if (previous != null) {
+            previous.shutdown();
+        }
+        pruneReplacedProfilers();
+
         ScriptProfilerFunctions functions = new ScriptProfilerFunctions(profiler);
 
         manager.addScriptModule(
@@ -69,4 +213,238 @@ public class ScriptProfilerHook extends AbstractGatewayModuleHook {
                 new PropertiesFileDocProvider()
         );
     }
+
+    /**
+     * Drops resolved script callables from every registered profiler.
+     */
+    private void invalidateProfilerCaches() {
+        for (ManagerProfiler entry : profilers.values()) {
+            entry.profiler().invalidateCache();
+        }
+    }
+
+    /**
+     * Rewraps project library functions, which a project update replaces with fresh modules.
+     */
+    private void refreshInstrumentation() {
+        for (ManagerProfiler entry : profilers.values()) {
+            if (entry.instrumenter() != null) {
+                entry.instrumenter().requestRefresh();
+            }
+        }
+    }
+
+    /**
+     * Shuts down the profilers of script managers their project no longer uses, because the
+     * project was restarted or deleted. A manager is matched to its project the first time it
+     * is seen as that project's current manager; one never matched is kept.
+     */
+    private synchronized void pruneReplacedProfilers() {
+        Map<String, ScriptManager> current = new HashMap<>();
+        for (String name : context.getProjectManager().getProjectNames()) {
+            ScriptManager manager = projectScriptManager(name);
+            if (manager != null) {
+                current.put(name, manager);
+            }
+        }
+        current.forEach((name, manager) -> {
+            ManagerProfiler entry = profilers.get(manager);
+            if (entry != null) {
+                entry.project = name;
+            }
+        });
+        for (ManagerProfiler entry : profilers.values()) {
+            String project = entry.project;
+            if (project != null && current.get(project) != entry.manager()
+                    && profilers.remove(entry.manager(), entry)) {
+                log.info("Dropping the profiler of a replaced script manager for project " + project);
+                entry.shutdown();
+            }
+        }
+    }
+
+    /**
+     * @return the profiler of the named project's current script manager, or {@code null}
+     */
+    private DefaultScriptProfiler profilerFor(String project) {
+        ScriptManager manager = projectScriptManager(project);
+        ManagerProfiler entry = manager == null ? null : profilers.get(manager);
+        return entry == null ? null : entry.profiler();
+    }
+
+    /**
+     * @return the named project's script manager, or {@code null} if it has none
+     */
+    private ScriptManager projectScriptManager(String project) {
+        try {
+            return context.getProjectManager().getProjectScriptManager(project);
+        }
+        catch (Exception e) {
+            // missing, disabled or failed projects have no script manager
+            return null;
+        }
+    }
+
+    /**
+     * Reads the configured module prefixes for passive instrumentation.
+     */
+    private static List<String> instrumentPrefixes() {
+        return Arrays.stream(System.getProperty(INSTRUMENT_PREFIXES_PROPERTY, "").split(","))
+                .map(String::trim)
+                .filter(p -> !p.isEmpty())
+                .toList();
+    }
+
+    /**
+     * Schedules the configured canaries on their projects' profilers, or returns {@code null} if there are none.
+     */
+    private CanaryScheduler startCanaries() {
+        List<CanarySpec> canaries;
+        try {
+            canaries = CanarySpec.parseAll(System.getProperty(CANARIES_PROPERTY, ""),
+                    System.getProperty(CANARIES_PROJECT_PROPERTY));
+        }
+        catch (IllegalArgumentException e) {
+            log.error("Ignoring " + CANARIES_PROPERTY + ": " + e.getMessage());
+            return null;
+        }
+        if (canaries.isEmpty()) {
+            return null;
+        }
+        CanaryScheduler scheduler = new CanaryScheduler(this::profilerFor, timeSeriesStore, canaries);
+        scheduler.start();
+        return scheduler;
+    }
+
+    /**
+     * Starts the OpenMetrics endpoint, or returns {@code null} if it is disabled or cannot bind.
+     */
+    private MetricsServer startMetricsServer() {
+        int port = Integer.getInteger(METRICS_PORT_PROPERTY, 0);
+        if (port <= 0) {
+            return null;
+        }
+        InetSocketAddress address = new InetSocketAddress(System.getProperty(METRICS_BIND_PROPERTY, "127.0.0.1"), port);
+        MetricsServer server = new MetricsServer(address, this::metricsByProject);
+        try {
+            server.start();
+            log.info("Serving OpenMetrics on http://" + address.getHostString() + ":" + server.port()
+                    + MetricsServer.PATH);
+            return server;
+        }
+        catch (IOException e) {
+            log.error("Unable to serve OpenMetrics on " + address, e);
+            return null;
+        }
+    }
+
+    /**
+     * @return every profiler's metrics by project; a manager not yet matched to a project is
+     * reported under the empty project name
+     */
+    private Map<String, List<MetricsRegistry>> metricsByProject() {
+        Map<String, List<MetricsRegistry>> out = new TreeMap<>();
+        for (ManagerProfiler entry : profilers.values()) {
+            String project = entry.project();
+            out.computeIfAbsent(project == null ? "" : project, p -> new ArrayList<>(1))
+                    .add(entry.profiler().getMetrics());
+        }
+        return out;
+    }
+
+    /**
+     * Opens the persistent run history, or returns {@code null} if it is disabled or unavailable.
+     */
+    private HistoryStore openHistoryStore() {
+        if (!Boolean.parseBoolean(System.getProperty(STORE_ENABLED_PROPERTY, "true"))) {
+            return null;
+        }
+        Path dir = moduleDataDir().resolve("history");
+        long segmentBytes = Math.max(1, Integer.getInteger(STORE_SEGMENT_MB_PROPERTY, 16)) * 1024L * 1024L;
+        int maxSegments = Math.max(2, Integer.getInteger(STORE_MAX_SEGMENTS_PROPERTY, 16));
+        long retentionMs = Integer.getInteger(STORE_RETENTION_DAYS_PROPERTY, 30) * 86_400_000L;
+        try {
+            return new HistoryStore(dir, segmentBytes, maxSegments, retentionMs);
+        }
+        catch (IOException | RuntimeException e) {
+            log.error("Unable to open profiling history in " + dir + "; keeping history in memory only", e);
+            return null;
+        }
+    }
+
+    /**
+     * Opens the baseline store, or returns {@code null} to keep baselines in memory only.
+     */
+    private BaselineStore openBaselineStore() {
+        Path dir = moduleDataDir().resolve("baselines");
+        try {
+            return new BaselineStore(dir);
+        }
+        catch (IOException e) {
+            log.error("Unable to open baselines in " + dir + "; keeping baselines in memory only", e);
+            return null;
+        }
+    }
+
+    /**
+     * Opens the canary time-series store, falling back to memory if its directory is unavailable.
+     */
+    private TimeSeriesStore openTimeSeriesStore() {
+        Path dir = moduleDataDir().resolve("timeseries");
+        try {
+            return new TimeSeriesStore(dir);
+        }
+        catch (IOException e) {
+            log.error("Unable to open canary time series in " + dir + "; keeping them in memory only", e);
+            return new TimeSeriesStore();
+        }
+    }
+
+    /**
+     * @return this module's directory under the Gateway data directory
+     */
+    private Path moduleDataDir() {
+        return context.getSystemManager().getDataDir().toPath().resolve("modules").resolve("script-profiler");
+    }
+
+    /**
+     * The profiler and optional instrumenter registered with one script manager.
+     */
+    private static final class ManagerProfiler {
+        private final ScriptManager manager;
+        private final DefaultScriptProfiler profiler;
+        private final ScriptInstrumenter instrumenter;
+
+        /** The project whose manager this is, once known. */
+        volatile String project;
+
+        ManagerProfiler(ScriptManager manager, DefaultScriptProfiler profiler, ScriptInstrumenter instrumenter) {
+            this.manager = manager;
+            this.profiler = profiler;
+            this.instrumenter = instrumenter;
+        }
+
+        ScriptManager manager() {
+            return manager;
+        }
+
+        DefaultScriptProfiler profiler() {
+            return profiler;
+        }
+
+        ScriptInstrumenter instrumenter() {
+            return instrumenter;
+        }
+
+        String project() {
+            return project;
+        }
+
+        void shutdown() {
+            if (instrumenter != null) {
+                instrumenter.shutdown();
+            }
+            profiler.shutdown();
+        }
+    }
 }